@@ -25,6 +25,7 @@ import org.openstreetmap.josm.gui.io.importexport.NMEAImporter;
 import org.openstreetmap.josm.gui.io.importexport.NoteImporter;
 import org.openstreetmap.josm.gui.io.importexport.OsmChangeImporter;
 import org.openstreetmap.josm.gui.io.importexport.OsmImporter;
+import org.openstreetmap.josm.gui.io.importexport.PbfImporter;
 import org.openstreetmap.josm.gui.io.importexport.WMSLayerImporter;
 import org.openstreetmap.josm.gui.widgets.AbstractFileChooser;
 import org.openstreetmap.josm.io.session.SessionImporter;
@@ -61,6 +62,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
         final List<Class<? extends FileImporter>> importerNames = Arrays.asList(
                 OsmImporter.class,
                 OsmChangeImporter.class,
+                PbfImporter.class,
                 GpxImporter.class,
                 NMEAImporter.class,
                 NoteImporter.class,
@@ -104,6 +106,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
                 org.openstreetmap.josm.gui.io.importexport.OsmBzip2Exporter.class,
                 org.openstreetmap.josm.gui.io.importexport.OsmXzExporter.class,
                 org.openstreetmap.josm.gui.io.importexport.GeoJSONExporter.class,
+                org.openstreetmap.josm.gui.io.importexport.PbfExporter.class,
                 org.openstreetmap.josm.gui.io.importexport.WMSLayerExporter.class,
                 org.openstreetmap.josm.gui.io.importexport.NoteExporter.class,
                 org.openstreetmap.josm.gui.io.importexport.ValidatorErrorExporter.class
@@ -43,9 +43,11 @@ import org.openstreetmap.josm.actions.ActionParameter;
 import org.openstreetmap.josm.actions.ExpertToggleAction;
 import org.openstreetmap.josm.actions.JosmAction;
 import org.openstreetmap.josm.actions.ParameterizedAction;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Filter;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.OsmData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.search.PushbackTokenizer;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
@@ -53,6 +55,7 @@ import org.openstreetmap.josm.data.osm.search.SearchCompiler.SimpleMatchFactory;
 import org.openstreetmap.josm.data.osm.search.SearchMode;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
 import org.openstreetmap.josm.data.osm.search.SearchSetting;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.ExtendedDialog;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapFrame;
@@ -71,6 +74,7 @@ import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Shortcut;
+import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -88,6 +92,12 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
      * Maximum number of characters before the search expression is shortened for display purposes.
      */
     public static final int MAX_LENGTH_SEARCH_EXPRESSION_DISPLAY = 100;
+    /**
+     * Whether searches on data layers use the {@link DataSet#getTagIndex() tag index} when possible.
+     * The index is built on the first indexed search in a layer, and then kept in memory.
+     * @since xxx
+     */
+    public static final BooleanProperty USE_TAG_INDEX = new BooleanProperty("search.use-tag-index", true);
 
     private static final String SEARCH_EXPRESSION = "searchExpression";
 
@@ -799,10 +809,19 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
                     foundMatches = selection.size();
                 }
 
-                Collection<? extends IPrimitive> all;
-                if (setting.allElements) {
+                Collection<? extends IPrimitive> all = null;
+                if (USE_TAG_INDEX.get() && ds instanceof DataSet && setting.mode != SearchMode.in_selection) {
+                    // only test the primitives having the searched tags
+                    Collection<OsmPrimitive> candidates = matcher.getCandidates(((DataSet) ds).getTagIndex());
+                    if (candidates != null && !setting.allElements) {
+                        all = new SubclassFilteredCollection<>(candidates, p -> p.isSelectable());
+                    } else {
+                        all = candidates;
+                    }
+                }
+                if (all == null && setting.allElements) {
                     all = ds.allPrimitives();
-                } else {
+                } else if (all == null) {
                     all = ds.getPrimitives(p -> p.isSelectable()); // Do not use method reference before Java 11!
                 }
                 final ProgressMonitor subMonitor = getProgressMonitor().createSubTaskMonitor(all.size(), false);
@@ -6,9 +6,13 @@ import static org.openstreetmap.josm.tools.I18n.trn;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.swing.Icon;
@@ -18,6 +22,10 @@ import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.NodeData;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveDelta;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.WayData;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 
@@ -137,6 +145,49 @@ public class AddPrimitivesCommand extends Command {
         }
     }
 
+    /**
+     * Replaces the data of the created primitives by their ids, the primitives themselves being kept for redo.
+     */
+    @Override
+    public void compact() {
+        if (preExistingData == null) {
+            return;
+        }
+        Set<PrimitiveId> preExisting = preExistingData.stream().map(PrimitiveData::getPrimitiveId).collect(Collectors.toSet());
+        Map<PrimitiveData, PrimitiveData> ids = new IdentityHashMap<>();
+        for (ListIterator<PrimitiveData> it = data.listIterator(); it.hasNext();) {
+            PrimitiveData pd = it.next();
+            if (!preExisting.contains(pd.getPrimitiveId())) {
+                PrimitiveData id;
+                switch (pd.getType()) {
+                case NODE: id = new NodeData(pd.getUniqueId()); break;
+                case WAY: id = new WayData(pd.getUniqueId()); break;
+                case RELATION: id = new RelationData(pd.getUniqueId()); break;
+                default: throw new AssertionError();
+                }
+                ids.put(pd, id);
+                it.set(id);
+            }
+        }
+        if (toSelect != null && toSelect != data) {
+            toSelect = toSelect.stream().map(pd -> ids.getOrDefault(pd, pd)).collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        long result = super.getMemoryFootprint();
+        for (PrimitiveData pd : data) {
+            result += PrimitiveDelta.estimateSize(pd);
+        }
+        if (preExistingData != null) {
+            for (PrimitiveData pd : preExistingData) {
+                result += PrimitiveDelta.estimateSize(pd);
+            }
+        }
+        return result;
+    }
+
     @Override
     public String getDescriptionText() {
         int size = data != null ? data.size() : createdPrimitives.size();
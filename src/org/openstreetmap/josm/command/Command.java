@@ -1,10 +1,13 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.command;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -15,10 +18,13 @@ import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveDelta;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.OsmPrimitiveVisitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
 
 /**
  * Classes implementing Command modify a dataset in a specific way. A command is
@@ -39,6 +45,9 @@ public abstract class Command implements PseudoCommand {
     /** IS_INCOMPLETE: operation on incomplete target */
     public static final int IS_INCOMPLETE = 2;
 
+    /** estimated memory used by an entry of a map, in bytes */
+    protected static final int ENTRY_SIZE = 48;
+
     private static final class CloneVisitor implements OsmPrimitiveVisitor {
         final Map<OsmPrimitive, PrimitiveData> orig = new LinkedHashMap<>();
 
@@ -124,6 +133,13 @@ public abstract class Command implements PseudoCommand {
     /** the map of OsmPrimitives in the original state to OsmPrimitives in cloned state */
     private Map<OsmPrimitive, PrimitiveData> cloneMap = new HashMap<>();
 
+    // The compacted states are not part of the value of the command, they are excluded from equals and hashCode.
+    /** the cloned states as differences with the states after execution, once {@link #compact() compacted} */
+    private transient Map<OsmPrimitive, PrimitiveDelta> deltaMap;
+    /** the file where the values of {@link #deltaMap} have been spilled, if any */
+    private transient SpillFile spillFile;
+    private transient long spillPosition;
+
     /** the dataset which this command is applied to */
     private final DataSet data;
 
@@ -154,6 +170,8 @@ public abstract class Command implements PseudoCommand {
             osm.accept(visitor);
         }
         cloneMap = visitor.orig;
+        deltaMap = null;
+        spillFile = null;
         return true;
     }
 
@@ -163,8 +181,23 @@ public abstract class Command implements PseudoCommand {
      * It can also be assumed that executeCommand was called exactly once before.
      *
      * This implementation undoes all objects stored by a former call to executeCommand.
+     * @throws IllegalStateException if the command has been {@link #compact() compacted} and the objects have been
+     * modified since its execution, so that their former states cannot be restored. The objects are then left unchanged.
      */
     public void undoCommand() {
+        if (deltaMap != null) {
+            unspill();
+            // compute all states first, so that nothing is changed if one of them cannot be restored
+            Map<OsmPrimitive, PrimitiveData> states = new LinkedHashMap<>(deltaMap.size() * 4 / 3 + 1);
+            for (Entry<OsmPrimitive, PrimitiveDelta> e : deltaMap.entrySet()) {
+                OsmPrimitive primitive = e.getKey();
+                if (primitive.getDataSet() != null) {
+                    states.put(primitive, e.getValue().restore(primitive.save()));
+                }
+            }
+            states.forEach(OsmPrimitive::load);
+            return;
+        }
         for (Entry<OsmPrimitive, PrimitiveData> e : cloneMap.entrySet()) {
             OsmPrimitive primitive = e.getKey();
             if (primitive.getDataSet() != null) {
@@ -176,13 +209,103 @@ public abstract class Command implements PseudoCommand {
     /**
      * Lets other commands access the original version
      * of the object. Usually for undoing.
+     * Once the command has been {@link #compact() compacted}, the original version is computed from the current one,
+     * so the object must be in the state it was after execution.
      * @param osm The requested OSM object
      * @return The original version of the requested object, if any
+     * @throws IllegalStateException if the command has been compacted and the object has been modified since
      */
     public PrimitiveData getOrig(OsmPrimitive osm) {
+        if (deltaMap != null) {
+            unspill();
+            PrimitiveDelta delta = deltaMap.get(osm);
+            return delta != null ? delta.restore(osm.save()) : null;
+        }
         return cloneMap.get(osm);
     }
 
+    /**
+     * Reduces the memory used by the states saved for undoing this command.
+     * <p>
+     * The saved states are replaced by their differences with the current states of the primitives, so this method must be
+     * called just after {@link #executeCommand()}, and the primitives must be back in this state when the command is undone.
+     * {@link org.openstreetmap.josm.data.UndoRedoHandler} calls it for the commands it executes.
+     * <p>
+     * Plugins must therefore not change the tags, way nodes or relation members of primitives directly, only with
+     * commands added to the undo history. Otherwise, the former states cannot be computed anymore: {@link #undoCommand()}
+     * throws an {@link IllegalStateException}, and {@code UndoRedoHandler} then clears the undo history.
+     * @since xxx
+     */
+    public void compact() {
+        if (cloneMap == null || cloneMap.isEmpty()) {
+            return;
+        }
+        Map<OsmPrimitive, PrimitiveDelta> deltas = new LinkedHashMap<>(cloneMap.size() * 4 / 3 + 1);
+        for (Entry<OsmPrimitive, PrimitiveData> e : cloneMap.entrySet()) {
+            deltas.put(e.getKey(), new PrimitiveDelta(e.getValue(), e.getKey().save()));
+        }
+        deltaMap = deltas;
+        cloneMap = null;
+    }
+
+    /**
+     * Moves the states saved for undoing this command to a temporary file. They are read back when needed.
+     * Only states saved by a {@link #compact() compacted} command can be moved.
+     * @param file the file
+     * @return {@code true} if states have been moved to the file
+     * @since xxx
+     */
+    public boolean spill(SpillFile file) {
+        if (deltaMap == null || deltaMap.isEmpty() || spillFile != null) {
+            return false;
+        }
+        try {
+            spillPosition = file.write(new ArrayList<>(deltaMap.values()));
+        } catch (IOException e) {
+            Logging.warn(e);
+            return false;
+        }
+        spillFile = file;
+        deltaMap.replaceAll((osm, delta) -> null);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void unspill() {
+        if (spillFile != null) {
+            try {
+                Iterator<PrimitiveDelta> deltas = ((List<PrimitiveDelta>) spillFile.read(spillPosition)).iterator();
+                deltaMap.replaceAll((osm, delta) -> deltas.next());
+            } catch (IOException e) {
+                throw new JosmRuntimeException(e);
+            }
+            spillFile = null;
+        }
+    }
+
+    /**
+     * Returns an estimate of the memory used by the states saved for undoing this command.
+     * Subclasses keeping other data should add it.
+     * @return an estimate of the memory used by the states saved for undoing this command, in bytes
+     * @since xxx
+     */
+    public long getMemoryFootprint() {
+        long result = 0;
+        if (deltaMap != null) {
+            result += ENTRY_SIZE * deltaMap.size();
+            if (spillFile == null) {
+                for (PrimitiveDelta delta : deltaMap.values()) {
+                    result += delta.getEstimatedSize();
+                }
+            }
+        } else if (cloneMap != null) {
+            for (PrimitiveData data : cloneMap.values()) {
+                result += ENTRY_SIZE + PrimitiveDelta.estimateSize(data);
+            }
+        }
+        return result;
+    }
+
     /**
      * Gets the data set this command affects.
      * @return The data set. May be <code>null</code> if no layer was set and no edit layer was found.
@@ -210,7 +333,7 @@ public abstract class Command implements PseudoCommand {
      */
     @Override
     public Collection<? extends OsmPrimitive> getParticipatingPrimitives() {
-        return cloneMap.keySet();
+        return deltaMap != null ? deltaMap.keySet() : cloneMap.keySet();
     }
 
     /**
@@ -22,6 +22,7 @@ import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.NodeData;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveDelta;
 import org.openstreetmap.josm.data.osm.PrimitiveId;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationData;
@@ -151,6 +152,19 @@ public class PurgeCommand extends Command {
         }
     }
 
+    @Override
+    public long getMemoryFootprint() {
+        long result = super.getMemoryFootprint();
+        for (OsmPrimitive osm : toPurge) {
+            // the purged primitives are only referenced by this command
+            result += PrimitiveDelta.estimateSize(osm);
+        }
+        for (PrimitiveData data : makeIncompleteData) {
+            result += ENTRY_SIZE + PrimitiveDelta.estimateSize(data);
+        }
+        return result;
+    }
+
     /**
      * Sorts a collection of primitives such that for each object
      * its referrers come later in the sorted collection.
@@ -81,6 +81,8 @@ public class SequenceCommand extends Command {
                 undoCommands(i-1);
                 return false;
             }
+            // compact now, the next commands may modify the same primitives
+            sequence[i].compact();
         }
         sequenceComplete = true;
         return true;
@@ -108,7 +110,19 @@ public class SequenceCommand extends Command {
         // We already undid the sub-commands.
         if (!sequenceComplete)
             return;
-        undoCommands(sequence.length-1);
+        for (int i = sequence.length - 1; i >= 0; --i) {
+            try {
+                sequence[i].undoCommand();
+            } catch (IllegalStateException e) {
+                // the sub-command left its objects unchanged: execute the sub-commands undone so far again,
+                // so that the whole sequence stays executed
+                for (int j = i + 1; j < sequence.length; j++) {
+                    sequence[j].executeCommand();
+                    sequence[j].compact();
+                }
+                throw e;
+            }
+        }
     }
 
     @Override
@@ -151,6 +165,24 @@ public class SequenceCommand extends Command {
         return prims;
     }
 
+    @Override
+    public boolean spill(SpillFile file) {
+        boolean result = super.spill(file);
+        for (Command c : sequence) {
+            result |= c.spill(file);
+        }
+        return result;
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        long result = super.getMemoryFootprint();
+        for (Command c : sequence) {
+            result += c.getMemoryFootprint();
+        }
+        return result;
+    }
+
     protected final void setSequence(Command... sequence) {
         this.sequence = Utils.copyArray(sequence);
     }
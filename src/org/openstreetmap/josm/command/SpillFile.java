@@ -0,0 +1,83 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.command;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Temporary file where commands can move the states they have saved for undo, when the undo history exceeds its memory budget.
+ * <p>
+ * Objects are appended to the file, which is created on the first write and deleted when closed.
+ * @see Command#spill(SpillFile)
+ * @since xxx
+ */
+public final class SpillFile implements Closeable {
+
+    private File file;
+    private RandomAccessFile raf;
+
+    /**
+     * Writes an object at the end of the file.
+     * @param object the object to write
+     * @return the position of the object, to read it back with {@link #read(long)}
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized long write(Serializable object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        if (raf == null) {
+            file = File.createTempFile("josm_undo_", ".bin", Utils.getJosmTempDir());
+            file.deleteOnExit();
+            raf = new RandomAccessFile(file, "rw");
+        }
+        long position = raf.length();
+        raf.seek(position);
+        raf.writeInt(bytes.size());
+        raf.write(bytes.toByteArray());
+        return position;
+    }
+
+    /**
+     * Reads an object written by {@link #write(Serializable)}.
+     * @param position the position of the object
+     * @return the object
+     * @throws IOException if an I/O error occurs, or if there is no object at this position
+     */
+    public synchronized Object read(long position) throws IOException {
+        if (raf == null) {
+            throw new IOException("Nothing written at " + position);
+        }
+        raf.seek(position);
+        byte[] bytes = new byte[raf.readInt()];
+        raf.readFully(bytes);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Deletes the file. The objects written so far cannot be read any more.
+     */
+    @Override
+    public synchronized void close() {
+        if (raf != null) {
+            Utils.close(raf);
+            Utils.deleteFile(file);
+            raf = null;
+            file = null;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.tools.PolygonClipper;
+
+/**
+ * Spatial index of the bounds of data sources (the "yellow rectangles"), to test quickly if a point or a rectangle
+ * has been downloaded, whatever the number of downloads.
+ * <p>
+ * The bounds are split at the 180th meridian and registered in the cells of a regular grid covering all of them.
+ * Each cell knows which bounds intersect it, and if it is completely covered by one of them.
+ * The index is immutable: {@link org.openstreetmap.josm.data.osm.DataSet} creates a new one when its data sources change.
+ * @since xxx
+ */
+public final class DataSourceIndex {
+
+    /** maximum number of cells in each direction */
+    private static final int MAX_CELLS = 128;
+
+    private final List<DataSource> dataSources;
+    private final List<Bounds> bounds;
+    // the rectangles, bounds crossing the 180th meridian being split in two: minLon, minLat, maxLon, maxLat
+    private final double[] rects;
+    private final int rectCount;
+    /** index of the bounds of each rectangle */
+    private final int[] rectBounds;
+    // grid
+    private final double minLon;
+    private final double minLat;
+    private final double maxLon;
+    private final double maxLat;
+    private final int cols;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final BitSet covered;
+    private final int[][] cells;
+
+    private Area area;
+
+    /**
+     * Constructs a new {@code DataSourceIndex}.
+     * @param dataSources the data sources
+     */
+    public DataSourceIndex(Collection<DataSource> dataSources) {
+        this.dataSources = new ArrayList<>(dataSources);
+        bounds = DataSource.getDataSourceBounds(dataSources);
+        double[] r = new double[8 * bounds.size()];
+        int[] rb = new int[2 * bounds.size()];
+        int n = 0;
+        for (int i = 0; i < bounds.size(); i++) {
+            Bounds b = bounds.get(i);
+            if (b.crosses180thMeridian()) {
+                rb[n] = i;
+                n = addRect(r, n, b.getMinLon(), b.getMinLat(), 180, b.getMaxLat());
+                rb[n] = i;
+                n = addRect(r, n, -180, b.getMinLat(), b.getMaxLon(), b.getMaxLat());
+            } else {
+                rb[n] = i;
+                n = addRect(r, n, b.getMinLon(), b.getMinLat(), b.getMaxLon(), b.getMaxLat());
+            }
+        }
+        rects = r;
+        rectCount = n;
+        rectBounds = rb;
+
+        double x0 = Double.POSITIVE_INFINITY;
+        double y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY;
+        double y1 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < rectCount; i++) {
+            x0 = Math.min(x0, rects[4 * i]);
+            y0 = Math.min(y0, rects[4 * i + 1]);
+            x1 = Math.max(x1, rects[4 * i + 2]);
+            y1 = Math.max(y1, rects[4 * i + 3]);
+        }
+        minLon = x0;
+        minLat = y0;
+        maxLon = x1;
+        maxLat = y1;
+        // about one rectangle per cell
+        int size = Math.max(1, Math.min(MAX_CELLS, (int) Math.ceil(Math.sqrt(rectCount))));
+        cols = maxLon > minLon ? size : 1;
+        rows = maxLat > minLat ? size : 1;
+        cellWidth = maxLon > minLon ? (maxLon - minLon) / cols : 1;
+        cellHeight = maxLat > minLat ? (maxLat - minLat) / rows : 1;
+        covered = new BitSet(cols * rows);
+        cells = new int[cols * rows][];
+        buildGrid();
+    }
+
+    private static int addRect(double[] r, int n, double x0, double y0, double x1, double y1) {
+        r[4 * n] = x0;
+        r[4 * n + 1] = y0;
+        r[4 * n + 2] = x1;
+        r[4 * n + 3] = y1;
+        return n + 1;
+    }
+
+    private void buildGrid() {
+        int[] counts = new int[cells.length];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < rectCount; i++) {
+                int c0 = col(rects[4 * i]);
+                int c1 = col(rects[4 * i + 2]);
+                int r0 = row(rects[4 * i + 1]);
+                int r1 = row(rects[4 * i + 3]);
+                for (int row = r0; row <= r1; row++) {
+                    for (int col = c0; col <= c1; col++) {
+                        int cell = row * cols + col;
+                        if (pass == 0) {
+                            counts[cell]++;
+                            if (covers(i, minLon + col * cellWidth, minLat + row * cellHeight,
+                                    minLon + (col + 1) * cellWidth, minLat + (row + 1) * cellHeight)) {
+                                covered.set(cell);
+                            }
+                        } else {
+                            if (cells[cell] == null) {
+                                cells[cell] = new int[counts[cell]];
+                                counts[cell] = 0;
+                            }
+                            cells[cell][counts[cell]++] = i;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int col(double lon) {
+        return Math.max(0, Math.min(cols - 1, (int) ((lon - minLon) / cellWidth)));
+    }
+
+    private int row(double lat) {
+        return Math.max(0, Math.min(rows - 1, (int) ((lat - minLat) / cellHeight)));
+    }
+
+    private boolean covers(int i, double x0, double y0, double x1, double y1) {
+        return rects[4 * i] <= x0 && rects[4 * i + 1] <= y0 && x1 <= rects[4 * i + 2] && y1 <= rects[4 * i + 3];
+    }
+
+    /**
+     * Determines if there are no data source bounds.
+     * @return {@code true} if there are no data source bounds
+     */
+    public boolean isEmpty() {
+        return rectCount == 0;
+    }
+
+    /**
+     * Returns the bounds of the data sources.
+     * @return the bounds of the data sources
+     */
+    public List<Bounds> getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Determines if a point is within the bounds of a data source.
+     * @param ll the point
+     * @return {@code true} if the point is within the bounds of a data source (borders included)
+     */
+    public boolean contains(ILatLon ll) {
+        if (!ll.isLatLonKnown()) {
+            return false;
+        }
+        double lon = ll.lon();
+        double lat = ll.lat();
+        if (lon < minLon || lon > maxLon || lat < minLat || lat > maxLat) {
+            return false;
+        }
+        int cell = row(lat) * cols + col(lon);
+        if (covered.get(cell)) {
+            return true;
+        }
+        int[] candidates = cells[cell];
+        if (candidates != null) {
+            for (int i : candidates) {
+                if (rects[4 * i] <= lon && lon <= rects[4 * i + 2] && rects[4 * i + 1] <= lat && lat <= rects[4 * i + 3]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if bounds are completely covered by the union of the bounds of the data sources.
+     * @param b the bounds
+     * @return {@code true} if every point of {@code b} is within the bounds of a data source
+     */
+    public boolean contains(Bounds b) {
+        if (b.crosses180thMeridian()) {
+            return contains(b.getMinLon(), b.getMinLat(), 180, b.getMaxLat())
+                && contains(-180, b.getMinLat(), b.getMaxLon(), b.getMaxLat());
+        }
+        return contains(b.getMinLon(), b.getMinLat(), b.getMaxLon(), b.getMaxLat());
+    }
+
+    private boolean contains(double x0, double y0, double x1, double y1) {
+        if (x0 < minLon || x1 > maxLon || y0 < minLat || y1 > maxLat) {
+            return false;
+        }
+        BitSet candidates = candidates(x0, y0, x1, y1);
+        if (candidates == null) {
+            return false;
+        }
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (covers(i, x0, y0, x1, y1)) {
+                return true;
+            }
+        }
+        // covered by several rectangles: the part of the rectangle outside of them must be empty
+        double[] coords = new double[8 * candidates.cardinality()];
+        int[] ringEnds = new int[coords.length / 8];
+        int n = 0;
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            System.arraycopy(corners(rects[4 * i], rects[4 * i + 1], rects[4 * i + 2], rects[4 * i + 3]), 0, coords, 8 * n, 8);
+            ringEnds[n] = 4 * (n + 1);
+            n++;
+        }
+        PolygonClipper.Polygon union = new PolygonClipper.Polygon(coords, ringEnds, PathIterator.WIND_NON_ZERO);
+        PolygonClipper.Polygon rect = new PolygonClipper.Polygon(corners(x0, y0, x1, y1), new int[] {4}, PathIterator.WIND_NON_ZERO);
+        return PolygonClipper.getInstance().apply(PolygonClipper.Operation.DIFFERENCE, rect, union).isEmpty();
+    }
+
+    /**
+     * Returns the rectangles registered in the cells overlapping a rectangle.
+     * @return the rectangles, or {@code null} if one of the cells is empty
+     */
+    private BitSet candidates(double x0, double y0, double x1, double y1) {
+        BitSet candidates = new BitSet(rectCount);
+        for (int row = row(y0), r1 = row(y1); row <= r1; row++) {
+            for (int col = col(x0), c1 = col(x1); col <= c1; col++) {
+                int[] cell = cells[row * cols + col];
+                if (cell == null) {
+                    return null;
+                }
+                for (int i : cell) {
+                    candidates.set(i);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static double[] corners(double x0, double y0, double x1, double y1) {
+        return new double[] {x0, y0, x1, y0, x1, y1, x0, y1};
+    }
+
+    /**
+     * Returns the bounds of the data sources which intersect the given bounds.
+     * @param b the bounds
+     * @return the bounds of the data sources which intersect {@code b}
+     */
+    public List<Bounds> getBounds(Bounds b) {
+        BitSet found = new BitSet(bounds.size());
+        if (b.crosses180thMeridian()) {
+            addBounds(found, b.getMinLon(), b.getMinLat(), 180, b.getMaxLat());
+            addBounds(found, -180, b.getMinLat(), b.getMaxLon(), b.getMaxLat());
+        } else {
+            addBounds(found, b.getMinLon(), b.getMinLat(), b.getMaxLon(), b.getMaxLat());
+        }
+        List<Bounds> result = new ArrayList<>(found.cardinality());
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            result.add(bounds.get(i));
+        }
+        return result;
+    }
+
+    private void addBounds(BitSet found, double x0, double y0, double x1, double y1) {
+        if (x0 > maxLon || x1 < minLon || y0 > maxLat || y1 < minLat) {
+            return;
+        }
+        for (int row = row(y0), r1 = row(y1); row <= r1; row++) {
+            for (int col = col(x0), c1 = col(x1); col <= c1; col++) {
+                int[] cell = cells[row * cols + col];
+                if (cell != null) {
+                    for (int i : cell) {
+                        if (rects[4 * i] <= x1 && x0 <= rects[4 * i + 2] && rects[4 * i + 1] <= y1 && y0 <= rects[4 * i + 3]) {
+                            found.set(rectBounds[i]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the union of the bounds of the data sources, computed once.
+     * @return the union of the bounds of the data sources, or {@code null} if there are none
+     * @see Data#getDataSourceArea()
+     */
+    public synchronized Area getArea() {
+        if (area == null) {
+            area = DataSource.getDataSourceArea(dataSources);
+        }
+        return area;
+    }
+}
@@ -1,18 +1,25 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data;
 
+import static org.openstreetmap.josm.tools.I18n.tr;
+
 import java.util.EventObject;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 
+import javax.swing.JOptionPane;
+
 import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.SpillFile;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmDataManager;
+import org.openstreetmap.josm.gui.Notification;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Logging;
 
 /**
  * This is the global undo/redo handler for all {@link DataSet}s.
@@ -36,6 +43,11 @@ public final class UndoRedoHandler {
      */
     public final LinkedList<Command> redoCommands = new LinkedList<>();
 
+    /** estimated memory used by the undo and redo commands, in bytes */
+    private long memoryFootprint;
+    /** file where the states saved by the oldest commands are moved, if enabled */
+    private SpillFile spillFile;
+
     private final LinkedList<CommandQueueListener> listenerCommands = new LinkedList<>();
     private final LinkedList<CommandQueuePreciseListener> preciseListenerCommands = new LinkedList<>();
 
@@ -280,6 +292,16 @@ public final class UndoRedoHandler {
         return !redoCommands.isEmpty();
     }
 
+    /**
+     * Returns an estimate of the memory used by the undo and redo commands.
+     * @return an estimate of the memory used by the undo and redo commands, in bytes
+     * @see Command#getMemoryFootprint()
+     * @since xxx
+     */
+    public synchronized long getMemoryFootprint() {
+        return memoryFootprint;
+    }
+
     /**
      * Executes the command and add it to the intern command queue.
      * @param c The command to execute. Must not be {@code null}.
@@ -287,16 +309,64 @@ public final class UndoRedoHandler {
     public void addNoRedraw(final Command c) {
         CheckParameterUtil.ensureParameterNotNull(c, "c");
         c.executeCommand();
+        c.compact();
         commands.add(c);
+        memoryFootprint += c.getMemoryFootprint();
         // Limit the number of commands in the undo list.
         // Currently you have to undo the commands one by one. If
         // this changes, a higher default value may be reasonable.
         if (commands.size() > Config.getPref().getInt("undo.max", 1000)) {
-            commands.removeFirst();
+            removeFirst();
+        }
+        clearRedoCommands();
+        ensureMemoryBudget();
+    }
+
+    private void removeFirst() {
+        memoryFootprint -= commands.removeFirst().getMemoryFootprint();
+    }
+
+    private void clearUndoCommands() {
+        for (Command c : commands) {
+            memoryFootprint -= c.getMemoryFootprint();
+        }
+        commands.clear();
+    }
+
+    private void clearRedoCommands() {
+        for (Command c : redoCommands) {
+            memoryFootprint -= c.getMemoryFootprint();
         }
         redoCommands.clear();
     }
 
+    /**
+     * Keeps the memory used by the commands under {@code undo.max.memory} megabytes (a quarter of the heap by default).
+     * If {@code undo.spill} is enabled, the saved states of the oldest commands are first moved to a temporary file,
+     * then the oldest commands are dropped. The last command is always kept.
+     */
+    private void ensureMemoryBudget() {
+        long max = Config.getPref().getLong("undo.max.memory", Runtime.getRuntime().maxMemory() / 4 / 1024 / 1024) * 1024 * 1024;
+        if (memoryFootprint > max && Config.getPref().getBoolean("undo.spill", false)) {
+            if (spillFile == null) {
+                spillFile = new SpillFile();
+            }
+            for (Iterator<Command> it = commands.iterator(); it.hasNext() && memoryFootprint > max;) {
+                Command c = it.next();
+                if (!it.hasNext()) {
+                    break;
+                }
+                long before = c.getMemoryFootprint();
+                if (c.spill(spillFile)) {
+                    memoryFootprint += c.getMemoryFootprint() - before;
+                }
+            }
+        }
+        while (memoryFootprint > max && commands.size() > 1) {
+            removeFirst();
+        }
+    }
+
     /**
      * Fires a commands change event after adding a command.
      * @param cmd command added
@@ -341,6 +411,8 @@ public final class UndoRedoHandler {
 
     /**
      * Undoes multiple commands.
+     * If a command cannot be undone, because its objects have been modified outside of the undo history since it was
+     * executed, it is left executed, the undo history is cleared and the user is notified.
      * @param num The number of commands to undo
      */
     public synchronized void undo(int num) {
@@ -354,7 +426,23 @@ public final class UndoRedoHandler {
             try {
                 for (int i = 1; i <= num; ++i) {
                     final Command c = commands.removeLast();
-                    c.undoCommand();
+                    long before = c.getMemoryFootprint();
+                    try {
+                        c.undoCommand();
+                    } catch (IllegalStateException e) {
+                        // The objects have been modified outside of the undo history since the command was executed.
+                        // Neither this command nor the former ones can be undone.
+                        Logging.warn(e);
+                        memoryFootprint -= before;
+                        clearUndoCommands();
+                        new Notification(tr("Cannot undo ''{0}'', its objects have been modified in the meantime.",
+                                c.getDescriptionText()) + '\n' + tr("The undo history has been cleared."))
+                                .setIcon(JOptionPane.WARNING_MESSAGE)
+                                .setDuration(Notification.TIME_LONG)
+                                .show();
+                        break;
+                    }
+                    memoryFootprint += c.getMemoryFootprint() - before;
                     redoCommands.addFirst(c);
                     fireEvent(new CommandUndoneEvent(this, c));
                     if (commands.isEmpty()) {
@@ -365,8 +453,8 @@ public final class UndoRedoHandler {
                 if (ds != null) {
                     ds.endUpdate();
                 }
+                fireCommandsChanged();
             }
-            fireCommandsChanged();
         });
     }
 
@@ -386,13 +474,17 @@ public final class UndoRedoHandler {
             return;
         for (int i = 0; i < num; ++i) {
             final Command c = redoCommands.removeFirst();
+            memoryFootprint -= c.getMemoryFootprint();
             c.executeCommand();
+            c.compact();
+            memoryFootprint += c.getMemoryFootprint();
             commands.add(c);
             fireEvent(new CommandRedoneEvent(this, c));
             if (redoCommands.isEmpty()) {
                 break;
             }
         }
+        ensureMemoryBudget();
         fireCommandsChanged();
     }
 
@@ -415,6 +507,11 @@ public final class UndoRedoHandler {
     public void clean() {
         redoCommands.clear();
         commands.clear();
+        memoryFootprint = 0;
+        if (spillFile != null) {
+            spillFile.close();
+            spillFile = null;
+        }
         fireEvent(new CommandQueueCleanedEvent(this, null));
         fireCommandsChanged();
     }
@@ -429,13 +526,17 @@ public final class UndoRedoHandler {
             return;
         boolean changed = false;
         for (Iterator<Command> it = commands.iterator(); it.hasNext();) {
-            if (it.next().getAffectedDataSet() == dataSet) {
+            Command c = it.next();
+            if (c.getAffectedDataSet() == dataSet) {
+                memoryFootprint -= c.getMemoryFootprint();
                 it.remove();
                 changed = true;
             }
         }
         for (Iterator<Command> it = redoCommands.iterator(); it.hasNext();) {
-            if (it.next().getAffectedDataSet() == dataSet) {
+            Command c = it.next();
+            if (c.getAffectedDataSet() == dataSet) {
+                memoryFootprint -= c.getMemoryFootprint();
                 it.remove();
                 changed = true;
             }
@@ -2,8 +2,8 @@
 package org.openstreetmap.josm.data.cache;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import javax.imageio.ImageIO;
 
@@ -29,6 +29,16 @@ public class BufferedImageCacheEntry extends CacheEntry {
         super(content);
     }
 
+    /**
+     * Creates an entry backed by a buffer, for example a slice of a memory-mapped file. The image is decoded
+     * directly from the buffer.
+     * @param content buffer containing image, from its position to its limit. Must not be modified afterwards
+     * @since xxx
+     */
+    public BufferedImageCacheEntry(ByteBuffer content) {
+        super(content);
+    }
+
     /**
      * Returns BufferedImage from for the content. Subsequent calls will return the same instance,
      * to reduce overhead of ImageIO
@@ -42,9 +52,9 @@ public class BufferedImageCacheEntry extends CacheEntry {
         synchronized (this) {
             if (imageLoaded)
                 return img;
-            byte[] content = getContent();
-            if (content.length > 0) {
-                img = ImageIO.read(new ByteArrayInputStream(content));
+            ByteBuffer buffer = getContentBuffer();
+            if (buffer.hasRemaining()) {
+                img = ImageIO.read(new ByteBufferImageInputStream(buffer));
                 imageLoaded = true;
             }
         }
@@ -1,7 +1,10 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.cache;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -12,6 +15,8 @@ import java.util.Arrays;
 public class CacheEntry implements Serializable {
     private static final long serialVersionUID = 1L; //version
     protected byte[] content;
+    // content of entries read from a memory-mapped disk cache, used instead of content
+    private transient ByteBuffer contentBuffer;
 
     /**
      * @param content of the cache entry
@@ -20,13 +25,47 @@ public class CacheEntry implements Serializable {
         this.content = Arrays.copyOf(content, content.length);
     }
 
+    /**
+     * Creates a cache entry backed by a buffer, for example a slice of a memory-mapped file. The buffer is not copied.
+     * @param content of the cache entry, from its position to its limit. Must not be modified afterwards
+     * @since xxx
+     */
+    public CacheEntry(ByteBuffer content) {
+        this.contentBuffer = content.slice().asReadOnlyBuffer();
+    }
+
     /**
      * @return cache entry content
      */
     public byte[] getContent() {
         if (content == null) {
+            if (contentBuffer != null) {
+                byte[] ret = new byte[contentBuffer.remaining()];
+                contentBuffer.duplicate().get(ret);
+                return ret;
+            }
             return new byte[]{};
         }
         return Arrays.copyOf(content, content.length);
     }
+
+    /**
+     * Returns a read-only view of the cache entry content, without copying it.
+     * @return cache entry content, from position 0 to the limit of the returned buffer
+     * @since xxx
+     */
+    public ByteBuffer getContentBuffer() {
+        if (content == null) {
+            return contentBuffer != null ? contentBuffer.duplicate() : ByteBuffer.allocate(0);
+        }
+        return ByteBuffer.wrap(content).asReadOnlyBuffer();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // entries backed by a buffer are written like the ones backed by an array
+        if (content == null && contentBuffer != null) {
+            content = getContent();
+        }
+        out.defaultWriteObject();
+    }
 }
@@ -9,6 +9,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.openstreetmap.josm.tools.Logging;
 
@@ -16,6 +18,10 @@ import org.openstreetmap.josm.tools.Logging;
  * Queue for ThreadPoolExecutor that implements per-host limit. It will acquire a semaphore for each task
  * and it will set a runnable task with semaphore release, when job has finished.
  * <p>
+ * Among the jobs whose host has a free connection, the job with the lowest {@link JCSCachedTileLoaderJob#getQueuePriority()}
+ * is taken first, jobs with the same priority in FIFO order. The priority is evaluated when a worker takes a job,
+ * so it can change while the job is queued, e.g. when the map view moves.
+ * <p>
  * This implementation doesn't guarantee to have at most hostLimit connections per host[1], and it doesn't
  * guarantee that all threads will be busy, when there is work for them[2]. <br>
  * [1] More connection per host may happen, when ThreadPoolExecutor is growing its pool, and thus
@@ -32,6 +38,13 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
     private final Map<String, Semaphore> hostSemaphores = new ConcurrentHashMap<>();
     private final int hostLimit;
 
+    // statistics, in milliseconds
+    private final LongAdder takenJobs = new LongAdder();
+    private final LongAdder totalWaitTime = new LongAdder();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    private final LongAdder finishedJobs = new LongAdder();
+    private final LongAdder totalRunTime = new LongAdder();
+
     /**
      * Creates an unbounded queue
      * @param hostLimit how many parallel calls to host to allow
@@ -51,43 +64,107 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
         this.hostLimit = hostLimit;
     }
 
+    private static double getPriority(Runnable r) {
+        return r instanceof JCSCachedTileLoaderJob ? ((JCSCachedTileLoaderJob<?, ?>) r).getQueuePriority() : 0;
+    }
+
+    /**
+     * Finds the job with the lowest priority among the jobs whose host has a free connection, acquires
+     * the semaphore of its host and removes it from the queue.
+     * @return the job, or {@code null} if no job can be run right now
+     */
     private JCSCachedTileLoaderJob<?, ?> findJob() {
-        for (Iterator<Runnable> it = iterator(); it.hasNext();) {
-            Runnable r = it.next();
-            if (r instanceof JCSCachedTileLoaderJob) {
-                JCSCachedTileLoaderJob<?, ?> job = (JCSCachedTileLoaderJob<?, ?>) r;
-                if (tryAcquireSemaphore(job)) {
-                    if (remove(job)) {
-                        return job;
-                    } else {
-                        // we have acquired the semaphore, but we didn't manage to remove job, as someone else did
-                        // release the semaphore and look for another candidate
-                        releaseSemaphore(job);
+        // the best candidate may be taken by another thread or its host limit reached meanwhile, then look again
+        for (int attempt = 0; attempt < 3; attempt++) {
+            JCSCachedTileLoaderJob<?, ?> best = null;
+            double bestPriority = Double.NaN;
+            for (Iterator<Runnable> it = iterator(); it.hasNext();) {
+                Runnable r = it.next();
+                if (r instanceof JCSCachedTileLoaderJob) {
+                    JCSCachedTileLoaderJob<?, ?> job = (JCSCachedTileLoaderJob<?, ?>) r;
+                    if (getSemaphore(job).availablePermits() > 0) {
+                        double priority = job.getQueuePriority();
+                        if (best == null || priority < bestPriority) {
+                            best = job;
+                            bestPriority = priority;
+                        }
+                    } else if (Logging.isTraceEnabled()) {
+                        URL url = null;
+                        try {
+                            url = job.getUrl();
+                        } catch (IOException e) {
+                            Logging.debug(e);
+                        }
+                        Logging.trace("TMS - Skipping job {0} because host limit reached", url);
                     }
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            if (tryAcquireSemaphore(best)) {
+                if (remove(best)) {
+                    jobTaken(best);
+                    return best;
                 } else {
-                    URL url = null;
-                    try {
-                        url = job.getUrl();
-                    } catch (IOException e) {
-                        Logging.debug(e);
-                    }
-                    Logging.debug("TMS - Skipping job {0} because host limit reached", url);
+                    // we have acquired the semaphore, but we didn't manage to remove job, as someone else did
+                    // release the semaphore and look for another candidate
+                    releaseSemaphore(best);
                 }
             }
         }
         return null;
     }
 
+    /**
+     * Removes the job with the lowest priority, regardless of the host limits.
+     * @return the job, or {@code null} if the queue is empty
+     */
+    private Runnable pollBest() {
+        Runnable best = null;
+        double bestPriority = Double.NaN;
+        for (Iterator<Runnable> it = iterator(); it.hasNext();) {
+            Runnable r = it.next();
+            double priority = getPriority(r);
+            if (best == null || priority < bestPriority) {
+                best = r;
+                bestPriority = priority;
+            }
+        }
+        return best != null && remove(best) ? best : null;
+    }
+
+    private void jobTaken(Runnable job) {
+        if (job instanceof JCSCachedTileLoaderJob) {
+            long submitTime = ((JCSCachedTileLoaderJob<?, ?>) job).getSubmitTime();
+            if (submitTime != 0) {
+                long wait = System.currentTimeMillis() - submitTime;
+                takenJobs.increment();
+                totalWaitTime.add(wait);
+                maxWaitTime.accumulateAndGet(wait, Math::max);
+            }
+        }
+    }
+
     @Override
     public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
         Runnable job = findJob();
         if (job != null) {
             return job;
         }
-        job = pollFirst(timeout, unit);
+        job = pollBest();
+        if (job == null) {
+            job = pollFirst(timeout, unit);
+        }
         if (job != null) {
             try {
                 boolean gotLock = tryAcquireSemaphore(job, timeout, unit);
+                if (gotLock) {
+                    jobTaken(job);
+                } else if (!offer(job)) {
+                    // do not lose the job, it will be taken again later
+                    Logging.warn("Unable to offer back " + job);
+                }
                 return gotLock ? job : null;
             } catch (InterruptedException e) {
                 // acquire my got interrupted, first offer back what was taken
@@ -106,9 +183,13 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
         if (job != null) {
             return job;
         }
-        job = takeFirst();
+        job = pollBest();
+        if (job == null) {
+            job = takeFirst();
+        }
         try {
             acquireSemaphore(job);
+            jobTaken(job);
         } catch (InterruptedException e) {
             // acquire my got interrupted, first offer back what was taken
             if (!offer(job)) {
@@ -140,7 +221,7 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
         if (job instanceof JCSCachedTileLoaderJob) {
             final JCSCachedTileLoaderJob<?, ?> jcsJob = (JCSCachedTileLoaderJob<?, ?>) job;
             getSemaphore(jcsJob).acquire();
-            jcsJob.setFinishedTask(() -> releaseSemaphore(jcsJob));
+            setFinishedTask(jcsJob);
         }
     }
 
@@ -150,12 +231,21 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
         if (limit != null) {
             ret = limit.tryAcquire();
             if (ret) {
-                job.setFinishedTask(() -> releaseSemaphore(job));
+                setFinishedTask(job);
             }
         }
         return ret;
     }
 
+    private void setFinishedTask(JCSCachedTileLoaderJob<?, ?> job) {
+        long start = System.currentTimeMillis();
+        job.setFinishedTask(() -> {
+            releaseSemaphore(job);
+            finishedJobs.increment();
+            totalRunTime.add(System.currentTimeMillis() - start);
+        });
+    }
+
     private boolean tryAcquireSemaphore(Runnable job, long timeout, TimeUnit unit) throws InterruptedException {
         boolean ret = true;
         if (job instanceof JCSCachedTileLoaderJob) {
@@ -164,7 +254,7 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
             if (limit != null) {
                 ret = limit.tryAcquire(timeout, unit);
                 if (ret) {
-                    jcsJob.setFinishedTask(() -> releaseSemaphore(jcsJob));
+                    setFinishedTask(jcsJob);
                 }
             }
         }
@@ -180,4 +270,52 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
             }
         }
     }
+
+    /**
+     * Returns the number of jobs taken from this queue, for which the waiting time is known.
+     * @return the number of jobs submitted through {@link JCSCachedTileLoaderJob#submit} and taken from the queue
+     * @since xxx
+     */
+    public long getTakenJobCount() {
+        return takenJobs.sum();
+    }
+
+    /**
+     * Returns the average time the jobs waited in the queue.
+     * @return the average waiting time in milliseconds, 0 if no job was taken
+     * @since xxx
+     */
+    public double getAverageWaitTime() {
+        long count = takenJobs.sum();
+        return count == 0 ? 0 : totalWaitTime.sum() / (double) count;
+    }
+
+    /**
+     * Returns the longest time a job waited in the queue.
+     * @return the maximum waiting time in milliseconds
+     * @since xxx
+     */
+    public long getMaximumWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    /**
+     * Returns the average time needed to run a job taken from this queue, i.e. to load a tile.
+     * @return the average running time in milliseconds, 0 if no job finished
+     * @since xxx
+     */
+    public double getAverageRunTime() {
+        long count = finishedJobs.sum();
+        return count == 0 ? 0 : totalRunTime.sum() / (double) count;
+    }
+
+    /**
+     * Returns the queue statistics as string.
+     * @return the queue depth, waiting and running times
+     * @since xxx
+     */
+    public String getStats() {
+        return String.format("Queue depth: %d, jobs taken: %d, wait time avg/max: %.0f/%d ms, load time avg: %.0f ms",
+                size(), getTakenJobCount(), getAverageWaitTime(), getMaximumWaitTime(), getAverageRunTime());
+    }
 }
@@ -93,6 +93,7 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
     private final ThreadPoolExecutor downloadJobExecutor;
     private Runnable finishTask;
     private boolean force;
+    private volatile long submitTime;
     private long minimumExpiryTime;
 
     /**
@@ -165,10 +166,53 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
         if (first || force) {
             // submit all jobs to separate thread, so calling thread is not blocked with IO when loading from disk
             Logging.debug("JCS - Submitting job for execution for url: {0}", getUrlNoException());
+            submitTime = System.currentTimeMillis();
             downloadJobExecutor.execute(this);
         }
     }
 
+    /**
+     * Returns the priority of this job in the download queue. Jobs with lower values are run first.
+     * {@link Double#POSITIVE_INFINITY} means that the result is not needed anymore.
+     * @return the priority of this job, 0 by default
+     * @since xxx
+     */
+    public double getPriority() {
+        return 0;
+    }
+
+    /**
+     * Returns the priority of this job in the download queue, taking into account the jobs for the same URL,
+     * which wait for the result of this job instead of being run.
+     * @return the lowest priority of this job and of the jobs waiting for it
+     * @since xxx
+     */
+    public double getQueuePriority() {
+        double priority = getPriority();
+        URL url = getUrlNoException();
+        if (url != null) {
+            synchronized (inProgress) {
+                Set<ICachedLoaderListener> listeners = inProgress.get(url.toString());
+                if (listeners != null) {
+                    for (ICachedLoaderListener l : listeners) {
+                        if (l instanceof JCSCachedTileLoaderJob && l != this) {
+                            priority = Math.min(priority, ((JCSCachedTileLoaderJob<?, ?>) l).getPriority());
+                        }
+                    }
+                }
+            }
+        }
+        return priority;
+    }
+
+    /**
+     * Returns the time when this job was submitted for execution.
+     * @return the time in milliseconds since the epoch, or 0 if the job was not submitted by {@link #submit}
+     */
+    long getSubmitTime() {
+        return submitTime;
+    }
+
     /**
      * This method is run when job has finished
      */
@@ -0,0 +1,1036 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+import org.apache.commons.jcs.auxiliary.AuxiliaryCacheAttributes;
+import org.apache.commons.jcs.auxiliary.disk.AbstractDiskCache;
+import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.control.group.GroupId;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.Stats;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * JCS disk cache storing the elements in a memory-mapped, append-only file.
+ * <p>
+ * Unlike the block and indexed disk caches, the key index is not kept on the heap: it is an open addressing
+ * hash table in a second memory-mapped file, so nothing has to be loaded at start-up. The content of
+ * {@link BufferedImageCacheEntry} and {@link CacheEntry} values is stored as is, not serialized, and read back
+ * as a slice of the mapped file, so images are decoded without copying the data to the heap.
+ * <p>
+ * Updated and removed elements leave garbage in the data file. When the file exceeds the maximum size, or
+ * contains too much garbage, a background compaction copies the most recently used elements, up to three
+ * quarters of the maximum size, into a new generation of both files. The least recently used elements are dropped.
+ * <p>
+ * After a crash, the index is rebuilt from the data file, whose records are checksummed.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @since xxx
+ */
+public class MappedDiskCache<K, V> extends AbstractDiskCache<K, V> {
+
+    private static final long INDEX_MAGIC = 0x4a4f534d4d415031L; // "JOSMMAP1"
+    private static final int RECORD_MAGIC = 0x4a4d4352;
+    private static final int PAD_MAGIC = 0x4a4d4350;
+
+    private static final String INDEX_SUFFIX = ".index";
+    private static final String DATA_SUFFIX = ".data";
+
+    /** files of a compaction which is not finished yet */
+    private static final int STATE_BUILDING = 0;
+    /** files in use, the index might not match the data after a crash */
+    private static final int STATE_OPEN = 1;
+    /** files properly closed */
+    private static final int STATE_CLEAN = 2;
+
+    // index header
+    private static final int H_MAGIC = 0;
+    private static final int H_STATE = 8;
+    private static final int H_CAPACITY = 12;
+    private static final int H_COUNT = 16;
+    private static final int H_REGION_SIZE = 20;
+    private static final int H_DATA_END = 24;
+    private static final int H_LIVE_BYTES = 32;
+    private static final int H_CLOCK = 40;
+    private static final int HEADER_SIZE = 64;
+
+    // index slot: key hash (0 for an empty slot), record offset, record length, last access
+    private static final int S_HASH = 0;
+    private static final int S_OFFSET = 8;
+    private static final int S_LENGTH = 16;
+    private static final int S_ACCESS = 20;
+    private static final int SLOT_SIZE = 24;
+
+    // record header, followed by key, attributes and value
+    private static final int R_MAGIC = 0;
+    private static final int R_TYPE = 4;
+    private static final int R_KEY_LENGTH = 8;
+    private static final int R_ATTR_LENGTH = 12;
+    private static final int R_VALUE_LENGTH = 16;
+    private static final int R_CRC = 20;
+    private static final int RECORD_HEADER_SIZE = 24;
+
+    // record types
+    private static final byte TYPE_IMAGE = 1;
+    private static final byte TYPE_CONTENT = 2;
+    private static final byte TYPE_SERIALIZED = 3;
+    private static final byte TYPE_REMOVED = 4;
+
+    /** first byte of the keys stored as UTF-8 strings. Serialized keys start with the stream magic 0xACED */
+    private static final byte KEY_STRING = 0;
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final int MIN_REGION_SIZE = 1 << 20;
+    private static final int MAX_REGION_SIZE = 1 << 26;
+    /** garbage is not collected in smaller files */
+    private static final long MIN_GARBAGE_COMPACTION_SIZE = 16L << 20;
+
+    private static final ThreadPoolExecutor COMPACTION_EXECUTOR = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), Utils.newThreadFactory("mapped-disk-cache-compaction-%d", Thread.MIN_PRIORITY));
+
+    static {
+        COMPACTION_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private final MappedDiskCacheAttributes attributes;
+    private final File directory;
+    private final String fileName;
+    /** held by all changes of the files: updates, removals and compactions */
+    private final ReentrantLock mutationLock = new ReentrantLock();
+    /** read lock for lookups, write lock for changes of the index */
+    private final ReentrantReadWriteLock storageLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private volatile Store current;
+
+    /**
+     * Constructs a new {@code MappedDiskCache} and opens its files.
+     * @param attributes cache attributes
+     * @param elementSerializer serializer for the keys, the element attributes and the values which are not cache entries
+     */
+    public MappedDiskCache(MappedDiskCacheAttributes attributes, IElementSerializer elementSerializer) {
+        super(attributes);
+        this.attributes = attributes;
+        this.directory = attributes.getDiskPath();
+        this.fileName = attributes.getCacheName();
+        if (elementSerializer != null) {
+            setElementSerializer(elementSerializer);
+        }
+        try {
+            current = openStore();
+            setAlive(true);
+            if (needsCompaction(current)) {
+                scheduleCompaction();
+            }
+        } catch (IOException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to open memory-mapped disk cache " + fileName, e);
+        }
+    }
+
+    /**
+     * Deletes the files of a cache.
+     * @param directory cache directory
+     * @param fileName cache file name, as {@link MappedDiskCacheAttributes#getCacheName()}
+     */
+    static void deleteCacheFiles(File directory, String fileName) {
+        for (int generation : getGenerations(directory, fileName)) {
+            deleteFiles(directory, fileName, generation);
+        }
+    }
+
+    private static List<Integer> getGenerations(File directory, String fileName) {
+        List<Integer> ret = new ArrayList<>();
+        String[] names = directory.list();
+        if (names != null) {
+            String prefix = fileName + '.';
+            for (String name : names) {
+                if (name.startsWith(prefix) && name.endsWith(INDEX_SUFFIX)) {
+                    try {
+                        ret.add(Integer.parseInt(name.substring(prefix.length(), name.length() - INDEX_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        Logging.trace(e);
+                    }
+                }
+            }
+        }
+        ret.sort(Comparator.reverseOrder());
+        return ret;
+    }
+
+    private static File getFile(File directory, String fileName, int generation, String suffix) {
+        return new File(directory, fileName + '.' + generation + suffix);
+    }
+
+    private static void deleteFiles(File directory, String fileName, int generation) {
+        // fails on Windows as long as the old mappings are still referenced, the files are then deleted on next start
+        Utils.deleteFileIfExists(getFile(directory, fileName, generation, INDEX_SUFFIX));
+        Utils.deleteFileIfExists(getFile(directory, fileName, generation, DATA_SUFFIX));
+    }
+
+    /**
+     * Opens the latest usable generation of the files, and deletes the others.
+     * @return the store
+     * @throws IOException if the files cannot be created
+     */
+    private Store openStore() throws IOException {
+        Store store = null;
+        int latest = -1;
+        for (int generation : getGenerations(directory, fileName)) {
+            latest = Math.max(latest, generation);
+            if (store == null) {
+                try {
+                    store = Store.open(directory, fileName, generation);
+                } catch (IOException e) {
+                    Logging.log(Logging.LEVEL_WARN, "Unable to open memory-mapped disk cache file " + fileName, e);
+                }
+                if (store != null) {
+                    continue;
+                }
+            }
+            deleteFiles(directory, fileName, generation);
+        }
+        if (store == null) {
+            store = Store.create(directory, fileName, latest + 1, getRegionSize(attributes.getMaxSizeBytes()),
+                    MIN_CAPACITY, STATE_OPEN);
+        }
+        return store;
+    }
+
+    private static int getRegionSize(long maxSizeBytes) {
+        return Integer.highestOneBit((int) Math.max(MIN_REGION_SIZE, Math.min(MAX_REGION_SIZE, maxSizeBytes / 8)));
+    }
+
+    private static int getCapacity(int count) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 4L * count && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int align(long length) {
+        return (int) ((length + 7) & ~7);
+    }
+
+    private static long hash(byte[] key) {
+        // FNV-1a, followed by the MurmurHash3 finalizer to spread the bits over the lower bits used as slot index
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private byte[] serializeKey(K key) throws IOException {
+        if (key instanceof String) {
+            byte[] s = ((String) key).getBytes(UTF_8);
+            byte[] ret = new byte[s.length + 1];
+            ret[0] = KEY_STRING;
+            System.arraycopy(s, 0, ret, 1, s.length);
+            return ret;
+        }
+        return getElementSerializer().serialize(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private K deserializeKey(byte[] key) throws IOException, ClassNotFoundException {
+        if (key.length > 0 && key[0] == KEY_STRING) {
+            return (K) new String(key, 1, key.length - 1, UTF_8);
+        }
+        return getElementSerializer().deSerialize(key, null);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] ret = new byte[buffer.remaining()];
+        buffer.get(ret);
+        return ret;
+    }
+
+    @Override
+    protected ICacheElement<K, V> processGet(K key) {
+        storageLock.readLock().lock();
+        try {
+            if (!isAlive()) {
+                return null;
+            }
+            Store store = current;
+            byte[] keyBytes = serializeKey(key);
+            int slot = store.find(keyBytes, hash(keyBytes));
+            if (slot < 0) {
+                return null;
+            }
+            store.touch(slot);
+            return readElement(store, store.getOffset(slot), key);
+        } catch (IOException | ClassNotFoundException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to read " + key + " from memory-mapped disk cache " + fileName, e);
+            return null;
+        } finally {
+            storageLock.readLock().unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ICacheElement<K, V> readElement(Store store, long offset, K key) throws IOException, ClassNotFoundException {
+        ByteBuffer header = store.slice(offset, 0, RECORD_HEADER_SIZE);
+        byte type = header.get(R_TYPE);
+        int keyLength = header.getInt(R_KEY_LENGTH);
+        int attrLength = header.getInt(R_ATTR_LENGTH);
+        int valueLength = header.getInt(R_VALUE_LENGTH);
+        IElementAttributes attr = getElementSerializer().deSerialize(
+                toArray(store.slice(offset, RECORD_HEADER_SIZE + keyLength, attrLength)), null);
+        ByteBuffer value = store.slice(offset, RECORD_HEADER_SIZE + keyLength + attrLength, valueLength);
+        V val;
+        switch (type) {
+        case TYPE_IMAGE:
+            val = (V) new BufferedImageCacheEntry(value);
+            break;
+        case TYPE_CONTENT:
+            val = (V) new CacheEntry(value);
+            break;
+        case TYPE_SERIALIZED:
+            val = getElementSerializer().deSerialize(toArray(value), null);
+            break;
+        default:
+            throw new IOException("Invalid record type " + type + " at " + offset);
+        }
+        CacheElement<K, V> element = new CacheElement<>(getCacheName(), key, val);
+        element.setElementAttributes(attr);
+        return element;
+    }
+
+    @Override
+    protected void processUpdate(ICacheElement<K, V> element) throws IOException {
+        V value = element.getVal();
+        if (!isAlive() || value == null) {
+            return;
+        }
+        byte type;
+        ByteBuffer data;
+        if (value.getClass() == BufferedImageCacheEntry.class) {
+            type = TYPE_IMAGE;
+            data = ((CacheEntry) value).getContentBuffer();
+        } else if (value.getClass() == CacheEntry.class) {
+            type = TYPE_CONTENT;
+            data = ((CacheEntry) value).getContentBuffer();
+        } else {
+            type = TYPE_SERIALIZED;
+            data = ByteBuffer.wrap(getElementSerializer().serialize(value));
+        }
+        byte[] key = serializeKey(element.getKey());
+        byte[] attr = getElementSerializer().serialize(element.getElementAttributes());
+
+        Store store;
+        mutationLock.lock();
+        try {
+            store = current;
+            if (!isAlive()) {
+                return;
+            }
+            if (store.getCount() >= store.capacity / 4 * 3) {
+                // the scheduled compaction did not create a larger index yet
+                compact();
+                store = current;
+            }
+            if (store.getCount() >= store.capacity / 4 * 3) {
+                Logging.debug("Memory-mapped disk cache {0} full, not storing {1}", fileName, element.getKey());
+            } else {
+                long offset = store.append(type, key, attr, data);
+                if (offset < 0) {
+                    Logging.debug("Element {0} too large for memory-mapped disk cache {1}", element.getKey(), fileName);
+                } else {
+                    int length = align(RECORD_HEADER_SIZE + (long) key.length + attr.length + data.remaining());
+                    storageLock.writeLock().lock();
+                    try {
+                        store.put(key, hash(key), offset, length);
+                    } finally {
+                        storageLock.writeLock().unlock();
+                    }
+                }
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+        if (needsCompaction(store)) {
+            scheduleCompaction();
+        }
+    }
+
+    @Override
+    protected boolean processRemove(K key) throws IOException {
+        if (!isAlive()) {
+            return false;
+        }
+        mutationLock.lock();
+        try {
+            if (key instanceof String && key.toString().endsWith(CacheConstants.NAME_COMPONENT_DELIMITER)) {
+                return removeMatching(k -> k instanceof String && k.toString().startsWith(key.toString()));
+            } else if (key instanceof GroupAttrName && ((GroupAttrName<?>) key).attrName == null) {
+                GroupId groupId = ((GroupAttrName<?>) key).groupId;
+                return removeMatching(k -> k instanceof GroupAttrName && ((GroupAttrName<?>) k).groupId.equals(groupId));
+            }
+            return removeKey(serializeKey(key));
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    private boolean removeMatching(Predicate<K> predicate) throws IOException {
+        List<byte[]> keys = new ArrayList<>();
+        Store store = current;
+        for (int slot = 0; slot < store.capacity; slot++) {
+            if (store.getHash(slot) != 0) {
+                byte[] key = store.getKey(store.getOffset(slot));
+                try {
+                    if (predicate.test(deserializeKey(key))) {
+                        keys.add(key);
+                    }
+                } catch (ClassNotFoundException e) {
+                    Logging.warn(e);
+                }
+            }
+        }
+        for (byte[] key : keys) {
+            removeKey(key);
+        }
+        return !keys.isEmpty();
+    }
+
+    private boolean removeKey(byte[] key) throws IOException {
+        Store store = current;
+        long hash = hash(key);
+        if (store.find(key, hash) < 0) {
+            return false;
+        }
+        // so that the element is not restored when rebuilding the index after a crash
+        long offset = store.append(TYPE_REMOVED, key, new byte[0], ByteBuffer.allocate(0));
+        storageLock.writeLock().lock();
+        try {
+            store.remove(store.find(key, hash));
+            if (offset >= 0) {
+                store.setDataEnd(offset + align(RECORD_HEADER_SIZE + (long) key.length));
+            }
+        } finally {
+            storageLock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    @Override
+    protected void processRemoveAll() throws IOException {
+        if (!isAlive()) {
+            return;
+        }
+        mutationLock.lock();
+        try {
+            Store old = current;
+            replace(old, Store.create(directory, fileName, old.generation + 1, old.regionSize, MIN_CAPACITY, STATE_OPEN));
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    @Override
+    protected void processDispose() throws IOException {
+        mutationLock.lock();
+        storageLock.writeLock().lock();
+        try {
+            if (isAlive()) {
+                setAlive(false);
+                current.close(true);
+            }
+        } finally {
+            storageLock.writeLock().unlock();
+            mutationLock.unlock();
+        }
+    }
+
+    private void replace(Store old, Store store) throws IOException {
+        storageLock.writeLock().lock();
+        try {
+            current = store;
+        } finally {
+            storageLock.writeLock().unlock();
+        }
+        old.close(false);
+        deleteFiles(directory, fileName, old.generation);
+    }
+
+    private boolean needsCompaction(Store store) {
+        long dataEnd = store.getDataEnd();
+        return dataEnd > attributes.getMaxSizeBytes()
+                || store.getCount() > store.capacity / 2
+                || (dataEnd > MIN_GARBAGE_COMPACTION_SIZE && dataEnd - store.getLiveBytes() > dataEnd / 2)
+                || store.clock.get() > Integer.MAX_VALUE / 2;
+    }
+
+    private void scheduleCompaction() {
+        if (compactionScheduled.compareAndSet(false, true)) {
+            COMPACTION_EXECUTOR.execute(this::compact);
+        }
+    }
+
+    /**
+     * Copies the most recently used elements, up to three quarters of the maximum size of the cache,
+     * to a new generation of the files. Lookups are possible during the compaction.
+     */
+    void compact() {
+        mutationLock.lock();
+        try {
+            compactionScheduled.set(false);
+            if (!isAlive()) {
+                return;
+            }
+            Store old = current;
+            long maxSize = attributes.getMaxSizeBytes();
+            long target = maxSize == Long.MAX_VALUE ? maxSize : maxSize / 4 * 3;
+
+            // most recently used elements first
+            long[] byAccess = new long[old.getCount()];
+            int n = 0;
+            for (int slot = 0; slot < old.capacity; slot++) {
+                if (old.getHash(slot) != 0) {
+                    byAccess[n++] = ((long) old.getAccess(slot) << 32) | slot;
+                }
+            }
+            Arrays.sort(byAccess, 0, n);
+            List<int[]> kept = new ArrayList<>(); // slot, access rank
+            long size = 0;
+            for (int i = n - 1; i >= 0; i--) {
+                int slot = (int) byAccess[i];
+                size += old.getLength(slot);
+                if (size > target) {
+                    break;
+                }
+                kept.add(new int[] {slot, i + 1});
+            }
+            // sequential reads from the old file
+            kept.sort(Comparator.comparingLong(e -> old.getOffset(e[0])));
+
+            Store store = Store.create(directory, fileName, old.generation + 1, old.regionSize,
+                    getCapacity(kept.size()), STATE_BUILDING);
+            try {
+                for (int[] e : kept) {
+                    int slot = e[0];
+                    long offset = store.appendRaw(old.slice(old.getOffset(slot), 0, old.getLength(slot)));
+                    store.insert(old.getHash(slot), offset, old.getLength(slot), e[1]);
+                }
+                store.clock.set(n);
+                store.setState(STATE_OPEN);
+            } catch (IOException | RuntimeException e) {
+                store.close(false);
+                deleteFiles(directory, fileName, store.generation);
+                throw e;
+            }
+            replace(old, store);
+            Logging.debug("Compacted memory-mapped disk cache {0}: kept {1} of {2} elements, {3} bytes",
+                    fileName, kept.size(), n, store.getDataEnd());
+        } catch (IOException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to compact memory-mapped disk cache " + fileName, e);
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<K> getKeySet() throws IOException {
+        Set<K> keys = new HashSet<>();
+        storageLock.readLock().lock();
+        try {
+            Store store = current;
+            for (int slot = 0; slot < store.capacity; slot++) {
+                if (store.getHash(slot) != 0) {
+                    keys.add(deserializeKey(store.getKey(store.getOffset(slot))));
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        } finally {
+            storageLock.readLock().unlock();
+        }
+        return keys;
+    }
+
+    @Override
+    public Map<K, ICacheElement<K, V>> processGetMatching(String pattern) throws IOException {
+        Map<K, ICacheElement<K, V>> ret = new HashMap<>();
+        for (K key : getKeyMatcher().getMatchingKeysFromArray(pattern, getKeySet())) {
+            ICacheElement<K, V> element = processGet(key);
+            if (element != null) {
+                ret.put(key, element);
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public int getSize() {
+        return isAlive() ? current.getCount() : 0;
+    }
+
+    /**
+     * Returns the used length of the data file, including garbage.
+     * @return the used length of the data file in bytes
+     */
+    long getDataLength() {
+        return current.getDataEnd();
+    }
+
+    @Override
+    public AuxiliaryCacheAttributes getAuxiliaryCacheAttributes() {
+        return attributes;
+    }
+
+    @Override
+    protected String getDiskLocation() {
+        return directory.getPath();
+    }
+
+    @Override
+    public IStats getStatistics() {
+        IStats stats = new Stats();
+        stats.setTypeName("Memory-Mapped Disk Cache");
+
+        List<IStatElement<?>> elems = new ArrayList<>();
+        Store store = current;
+        elems.add(new StatElement<>("Is Alive", isAlive()));
+        if (store != null) {
+            elems.add(new StatElement<>("Key Map Size", store.getCount()));
+            elems.add(new StatElement<>("Data File Length", store.getDataEnd()));
+            elems.add(new StatElement<>("Live Bytes", store.getLiveBytes()));
+            elems.add(new StatElement<>("Index Capacity", store.capacity));
+            elems.add(new StatElement<>("Generation", store.generation));
+        }
+        elems.addAll(super.getStatistics().getStatElements());
+        stats.setStatElements(elems);
+        return stats;
+    }
+
+    /**
+     * The two files of one generation: the data file, mapped in regions of fixed size which records never
+     * cross, and the index file.
+     */
+    private static final class Store {
+        final int generation;
+        final int regionSize;
+        final int capacity;
+        final AtomicInteger clock;
+        private final FileChannel indexChannel;
+        private final FileChannel dataChannel;
+        private final MappedByteBuffer index;
+        /** replaced when growing, as lookups do not hold the mutation lock */
+        private volatile MappedByteBuffer[] regions;
+
+        private Store(int generation, FileChannel indexChannel, FileChannel dataChannel, int regionSize, int capacity)
+                throws IOException {
+            this.generation = generation;
+            this.indexChannel = indexChannel;
+            this.dataChannel = dataChannel;
+            this.regionSize = regionSize;
+            this.capacity = capacity;
+            this.index = indexChannel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+            this.regions = new MappedByteBuffer[0];
+            ensureMapped((int) ((dataChannel.size() + regionSize - 1) / regionSize) - 1);
+            this.clock = new AtomicInteger(index.getInt(H_CLOCK));
+        }
+
+        private static FileChannel openChannel(File file) throws IOException {
+            return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Creates empty files, replacing existing ones.
+         */
+        static Store create(File directory, String fileName, int generation, int regionSize, int capacity, int state)
+                throws IOException {
+            deleteFiles(directory, fileName, generation);
+            FileChannel indexChannel = openChannel(getFile(directory, fileName, generation, INDEX_SUFFIX));
+            FileChannel dataChannel = openChannel(getFile(directory, fileName, generation, DATA_SUFFIX));
+            Store store = new Store(generation, indexChannel, dataChannel, regionSize, capacity);
+            store.index.putLong(H_MAGIC, INDEX_MAGIC);
+            store.index.putInt(H_CAPACITY, capacity);
+            store.index.putInt(H_REGION_SIZE, regionSize);
+            store.setState(state);
+            return store;
+        }
+
+        /**
+         * Opens existing files, rebuilding the index if they were not properly closed.
+         * @return the store, or {@code null} if the files are not usable
+         */
+        static Store open(File directory, String fileName, int generation) throws IOException {
+            File indexFile = getFile(directory, fileName, generation, INDEX_SUFFIX);
+            File dataFile = getFile(directory, fileName, generation, DATA_SUFFIX);
+            if (!dataFile.exists()) {
+                return null;
+            }
+            FileChannel indexChannel = openChannel(indexFile);
+            FileChannel dataChannel = null;
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                indexChannel.read(header, 0);
+                int state = header.getInt(H_STATE);
+                int capacity = header.getInt(H_CAPACITY);
+                int regionSize = header.getInt(H_REGION_SIZE);
+                if (header.position() < HEADER_SIZE || header.getLong(H_MAGIC) != INDEX_MAGIC || state == STATE_BUILDING
+                        || regionSize < MIN_REGION_SIZE || Integer.bitCount(regionSize) != 1
+                        || capacity < MIN_CAPACITY || Integer.bitCount(capacity) != 1) {
+                    indexChannel.close();
+                    return null;
+                }
+                dataChannel = openChannel(dataFile);
+                if (state == STATE_CLEAN && indexChannel.size() >= HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+                    Store store = new Store(generation, indexChannel, dataChannel, regionSize, capacity);
+                    store.setState(STATE_OPEN);
+                    return store;
+                }
+                Logging.info("Rebuilding index of memory-mapped disk cache {0}", fileName);
+                return rebuild(generation, indexChannel, dataChannel, regionSize);
+            } catch (IOException | RuntimeException e) {
+                indexChannel.close();
+                if (dataChannel != null) {
+                    dataChannel.close();
+                }
+                throw e;
+            }
+        }
+
+        private static Store rebuild(int generation, FileChannel indexChannel, FileChannel dataChannel, int regionSize)
+                throws IOException {
+            indexChannel.truncate(0);
+            // first pass to count the records, on a store with minimal index
+            Store scan = new Store(generation, indexChannel, dataChannel, regionSize, MIN_CAPACITY);
+            int[] count = new int[1];
+            scan.scan((offset, length) -> count[0]++);
+            // the index file is still empty, it only grows
+            Store store = new Store(generation, indexChannel, dataChannel, regionSize, getCapacity(count[0]));
+            store.index.putLong(H_MAGIC, INDEX_MAGIC);
+            store.index.putInt(H_CAPACITY, store.capacity);
+            store.index.putInt(H_REGION_SIZE, regionSize);
+            long end = store.scan((offset, length) -> {
+                ByteBuffer header = store.slice(offset, 0, RECORD_HEADER_SIZE);
+                byte[] key = store.getKey(offset);
+                long hash = hash(key);
+                if (header.get(R_TYPE) == TYPE_REMOVED) {
+                    int slot = store.find(key, hash);
+                    if (slot >= 0) {
+                        store.remove(slot);
+                    }
+                } else if (store.getCount() < store.capacity / 4 * 3) {
+                    store.put(key, hash, offset, length);
+                }
+            });
+            store.setDataEnd(end);
+            store.setState(STATE_OPEN);
+            return store;
+        }
+
+        @FunctionalInterface
+        private interface RecordConsumer {
+            void accept(long offset, int length);
+        }
+
+        /**
+         * Iterates over the valid records of the data file.
+         * @return end of the last valid record
+         */
+        private long scan(RecordConsumer consumer) {
+            long fileLength = (long) regions.length * regionSize;
+            long end = 0;
+            long offset = 0;
+            while (offset < fileLength) {
+                int pos = (int) (offset % regionSize);
+                int magic = regions[(int) (offset / regionSize)].getInt(pos);
+                if (magic == PAD_MAGIC) {
+                    offset += regionSize - pos;
+                    continue;
+                }
+                int length = getValidLength(offset);
+                if (length < 0) {
+                    break;
+                }
+                consumer.accept(offset, length);
+                offset += length;
+                end = offset;
+            }
+            return end;
+        }
+
+        /**
+         * Checks a record.
+         * @return aligned record length, or -1 if there is no valid record at the offset
+         */
+        private int getValidLength(long offset) {
+            int pos = (int) (offset % regionSize);
+            if (regionSize - pos < RECORD_HEADER_SIZE) {
+                return -1;
+            }
+            ByteBuffer header = slice(offset, 0, RECORD_HEADER_SIZE);
+            int keyLength = header.getInt(R_KEY_LENGTH);
+            int attrLength = header.getInt(R_ATTR_LENGTH);
+            int valueLength = header.getInt(R_VALUE_LENGTH);
+            byte type = header.get(R_TYPE);
+            if (header.getInt(R_MAGIC) != RECORD_MAGIC || type < TYPE_IMAGE || type > TYPE_REMOVED
+                    || keyLength < 0 || attrLength < 0 || valueLength < 0) {
+                return -1;
+            }
+            long length = RECORD_HEADER_SIZE + (long) keyLength + attrLength + valueLength;
+            if (length > regionSize - pos) {
+                return -1;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(slice(offset, RECORD_HEADER_SIZE, (int) length - RECORD_HEADER_SIZE));
+            return (int) crc.getValue() == header.getInt(R_CRC) ? align(length) : -1;
+        }
+
+        private void ensureMapped(int region) throws IOException {
+            MappedByteBuffer[] mapped = regions;
+            if (region >= mapped.length) {
+                MappedByteBuffer[] grown = Arrays.copyOf(mapped, region + 1);
+                for (int i = mapped.length; i <= region; i++) {
+                    grown[i] = dataChannel.map(MapMode.READ_WRITE, (long) i * regionSize, regionSize);
+                }
+                regions = grown;
+            }
+        }
+
+        ByteBuffer slice(long offset, int from, int length) {
+            ByteBuffer ret = regions[(int) (offset / regionSize)].duplicate();
+            int pos = (int) (offset % regionSize) + from;
+            ret.position(pos);
+            ret.limit(pos + length);
+            return ret.slice();
+        }
+
+        byte[] getKey(long offset) {
+            return toArray(slice(offset, RECORD_HEADER_SIZE, slice(offset, 0, RECORD_HEADER_SIZE).getInt(R_KEY_LENGTH)));
+        }
+
+        /**
+         * Reserves space for a record at the end of the data file. A record never crosses regions.
+         */
+        private long reserve(int length) throws IOException {
+            long offset = getDataEnd();
+            int pos = (int) (offset % regionSize);
+            if (pos + length > regionSize) {
+                regions[(int) (offset / regionSize)].putInt(pos, PAD_MAGIC);
+                offset += regionSize - pos;
+            }
+            ensureMapped((int) (offset / regionSize));
+            return offset;
+        }
+
+        /**
+         * Writes a record after the end of the data file. The caller updates the end of the data file.
+         * @return offset of the record, or -1 if the record is larger than a region
+         */
+        long append(byte type, byte[] key, byte[] attr, ByteBuffer value) throws IOException {
+            long length = RECORD_HEADER_SIZE + (long) key.length + attr.length + value.remaining();
+            if (length > regionSize) {
+                return -1;
+            }
+            long offset = reserve(align(length));
+            ByteBuffer record = slice(offset, 0, (int) length);
+            record.putInt(RECORD_MAGIC).put(type).put(new byte[3])
+                  .putInt(key.length).putInt(attr.length).putInt(value.remaining()).putInt(0);
+            record.put(key).put(attr).put(value.duplicate());
+            CRC32 crc = new CRC32();
+            crc.update(slice(offset, RECORD_HEADER_SIZE, (int) length - RECORD_HEADER_SIZE));
+            record.putInt(R_CRC, (int) crc.getValue());
+            return offset;
+        }
+
+        /**
+         * Copies a record after the end of the data file, and updates the end of the data file.
+         * @return offset of the record
+         */
+        long appendRaw(ByteBuffer record) throws IOException {
+            int length = record.remaining();
+            long offset = reserve(length);
+            slice(offset, 0, length).put(record);
+            setDataEnd(offset + length);
+            return offset;
+        }
+
+        private int slotPosition(int slot) {
+            return HEADER_SIZE + slot * SLOT_SIZE;
+        }
+
+        long getHash(int slot) {
+            return index.getLong(slotPosition(slot) + S_HASH);
+        }
+
+        long getOffset(int slot) {
+            return index.getLong(slotPosition(slot) + S_OFFSET);
+        }
+
+        int getLength(int slot) {
+            return index.getInt(slotPosition(slot) + S_LENGTH);
+        }
+
+        int getAccess(int slot) {
+            return index.getInt(slotPosition(slot) + S_ACCESS);
+        }
+
+        void touch(int slot) {
+            index.putInt(slotPosition(slot) + S_ACCESS, clock.incrementAndGet());
+        }
+
+        private boolean keyEquals(long offset, byte[] key) {
+            ByteBuffer header = slice(offset, 0, RECORD_HEADER_SIZE);
+            return header.getInt(R_KEY_LENGTH) == key.length
+                    && slice(offset, RECORD_HEADER_SIZE, key.length).equals(ByteBuffer.wrap(key));
+        }
+
+        /**
+         * Finds the slot of a key.
+         * @return the slot, or -1
+         */
+        int find(byte[] key, long hash) {
+            int mask = capacity - 1;
+            for (int slot = (int) (hash & mask);; slot = (slot + 1) & mask) {
+                long h = getHash(slot);
+                if (h == 0) {
+                    return -1;
+                } else if (h == hash && keyEquals(getOffset(slot), key)) {
+                    return slot;
+                }
+            }
+        }
+
+        /**
+         * Adds or replaces the record of a key, and updates the end of the data file.
+         */
+        void put(byte[] key, long hash, long offset, int length) {
+            int slot = find(key, hash);
+            if (slot >= 0) {
+                setLiveBytes(getLiveBytes() - getLength(slot));
+                writeSlot(slot, hash, offset, length, clock.incrementAndGet());
+                setLiveBytes(getLiveBytes() + length);
+            } else {
+                insert(hash, offset, length, clock.incrementAndGet());
+            }
+            setDataEnd(Math.max(getDataEnd(), offset + length));
+        }
+
+        /**
+         * Adds the record of a key which is not in the index.
+         */
+        void insert(long hash, long offset, int length, int access) {
+            int mask = capacity - 1;
+            int slot = (int) (hash & mask);
+            while (getHash(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            writeSlot(slot, hash, offset, length, access);
+            index.putInt(H_COUNT, getCount() + 1);
+            setLiveBytes(getLiveBytes() + length);
+        }
+
+        private void writeSlot(int slot, long hash, long offset, int length, int access) {
+            int pos = slotPosition(slot);
+            index.putLong(pos + S_OFFSET, offset);
+            index.putInt(pos + S_LENGTH, length);
+            index.putInt(pos + S_ACCESS, access);
+            index.putLong(pos + S_HASH, hash);
+        }
+
+        /**
+         * Removes a slot, moving back the following slots of the probe sequence.
+         */
+        void remove(int slot) {
+            setLiveBytes(getLiveBytes() - getLength(slot));
+            index.putInt(H_COUNT, getCount() - 1);
+            int mask = capacity - 1;
+            int free = slot;
+            for (int i = (slot + 1) & mask; getHash(i) != 0; i = (i + 1) & mask) {
+                int home = (int) (getHash(i) & mask);
+                // the entry at i can move to the free slot if its home is not cyclically in (free, i]
+                boolean stays = free <= i ? free < home && home <= i : free < home || home <= i;
+                if (!stays) {
+                    writeSlot(free, getHash(i), getOffset(i), getLength(i), getAccess(i));
+                    free = i;
+                }
+            }
+            index.putLong(slotPosition(free) + S_HASH, 0);
+        }
+
+        int getCount() {
+            return index.getInt(H_COUNT);
+        }
+
+        long getDataEnd() {
+            return index.getLong(H_DATA_END);
+        }
+
+        void setDataEnd(long dataEnd) {
+            index.putLong(H_DATA_END, dataEnd);
+        }
+
+        long getLiveBytes() {
+            return index.getLong(H_LIVE_BYTES);
+        }
+
+        private void setLiveBytes(long liveBytes) {
+            index.putLong(H_LIVE_BYTES, liveBytes);
+        }
+
+        void setState(int state) {
+            if (state != STATE_BUILDING) {
+                // the data must be on disk before the index is trusted again
+                for (MappedByteBuffer region : regions) {
+                    region.force();
+                }
+            }
+            index.putInt(H_CLOCK, clock.get());
+            index.putInt(H_STATE, state);
+            index.force();
+        }
+
+        void close(boolean clean) throws IOException {
+            if (clean) {
+                setState(STATE_CLEAN);
+            }
+            indexChannel.close();
+            dataChannel.close();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import org.apache.commons.jcs.auxiliary.disk.AbstractDiskCacheAttributes;
+
+/**
+ * Configuration of a {@link MappedDiskCache}.
+ * @since xxx
+ */
+public class MappedDiskCacheAttributes extends AbstractDiskCacheAttributes {
+    private static final long serialVersionUID = 1L; //version
+
+    /** maximum size of the cache in kB, -1 means no limit */
+    private int maxKeySize = -1;
+
+    /**
+     * Sets the maximum size of the cache. Like for the block disk cache, the size is given in kB.
+     * @param maxKeySize maximum size in kB, -1 for no limit
+     */
+    public void setMaxKeySize(int maxKeySize) {
+        this.maxKeySize = maxKeySize;
+    }
+
+    /**
+     * Returns the maximum size of the cache.
+     * @return maximum size in kB, -1 for no limit
+     */
+    public int getMaxKeySize() {
+        return maxKeySize;
+    }
+
+    /**
+     * Returns the maximum size of the cache in bytes.
+     * @return maximum size in bytes, or {@link Long#MAX_VALUE} if there is no limit
+     */
+    public long getMaxSizeBytes() {
+        return maxKeySize > 0 ? maxKeySize * 1024L : Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedDiskCacheAttributes [DiskPath=" + getDiskPath() + ", MaxKeySize=" + maxKeySize
+                + ", MaxPurgatorySize=" + getMaxPurgatorySize() + ']';
+    }
+}
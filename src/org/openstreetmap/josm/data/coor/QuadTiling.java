@@ -112,4 +112,34 @@ public final class QuadTiling {
         int shift = NR_LEVELS-level-1;
         return (byte) ((x >> shift & 1) * 2 + (y >> shift & 1));
     }
+
+    /**
+     * Returns the quad tiling indexes of all levels for given coordinates.
+     * The index of level 0 is stored in the most significant bits, the one of level {@code NR_LEVELS - 1} in the two
+     * least significant bits. So {@code index(lat, lon, level) == (quadTile(lat, lon) >> 2 * (NR_LEVELS - level - 1)) & 3}.
+     *
+     * @param lat latitude
+     * @param lon longitude
+     *
+     * @return quad tiling indexes for given coordinates
+     * @since xxx
+     */
+    public static long quadTile(final double lat, final double lon) {
+        return spreadBits(lon2x(lon)) << 1 | spreadBits(lat2y(lat));
+    }
+
+    /**
+     * Moves the {@code NR_LEVELS} lower bits of a value to the even bit positions.
+     * @param value the value
+     * @return the value with a 0 bit inserted before each bit
+     */
+    private static long spreadBits(long value) {
+        long v = value & ((1L << NR_LEVELS) - 1);
+        v = (v | v << 16) & 0x0000ffff0000ffffL;
+        v = (v | v << 8) & 0x00ff00ff00ff00ffL;
+        v = (v | v << 4) & 0x0f0f0f0f0f0f0f0fL;
+        v = (v | v << 2) & 0x3333333333333333L;
+        v = (v | v << 1) & 0x5555555555555555L;
+        return v;
+    }
 }
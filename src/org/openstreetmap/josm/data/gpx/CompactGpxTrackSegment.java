@@ -0,0 +1,341 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+/**
+ * A gpx track segment that cannot be changed, storing its points in columns instead of {@link WayPoint} objects.
+ * <p>
+ * Coordinates, elevation and time are kept in primitive arrays. All other attributes of a point are kept
+ * in a sparse side table, as well as elevations and times whose text cannot be restored exactly from the number.
+ * This needs a fraction of the memory of {@link ImmutableGpxTrackSegment} for large recordings.
+ * <p>
+ * {@link #getWayPoints()} creates the way points on the fly: changes to them are not kept, and two calls
+ * return different, but equal, objects. Code iterating over many points should use the column accessors.
+ * @since xxx
+ */
+public class CompactGpxTrackSegment implements GpxTrackSegment {
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final double[] lat;
+    private final double[] lon;
+    /** elevation, or NaN */
+    private final double[] ele;
+    /** time in milliseconds since the epoch, or {@link #NO_TIME} */
+    private final long[] time;
+    /** sorted indexes of the points having other attributes */
+    private final int[] attrIndex;
+    private final Map<String, Object>[] attrValues;
+    private final Bounds bounds;
+    private final double length;
+    private final WayPointList wayPoints = new WayPointList();
+
+    /**
+     * Builder for a {@link CompactGpxTrackSegment}, to avoid keeping all way points in memory.
+     */
+    public static class Builder {
+        private double[] lat = new double[16];
+        private double[] lon = new double[16];
+        private double[] ele = new double[16];
+        private long[] time = new long[16];
+        private int size;
+        private int[] attrIndex = new int[0];
+        private Map<String, Object>[] attrValues = newMapArray(0);
+        private int attrSize;
+
+        /**
+         * Appends a point. The way point is not referenced afterwards.
+         * @param wp the way point
+         * @return this builder
+         */
+        public Builder add(WayPoint wp) {
+            if (size == lat.length) {
+                int capacity = size * 2;
+                lat = Arrays.copyOf(lat, capacity);
+                lon = Arrays.copyOf(lon, capacity);
+                ele = Arrays.copyOf(ele, capacity);
+                time = Arrays.copyOf(time, capacity);
+            }
+            lat[size] = wp.lat();
+            lon[size] = wp.lon();
+            Map<String, Object> others = new HashMap<>(wp.attr);
+            ele[size] = Double.NaN;
+            Object e = others.get(GpxConstants.PT_ELE);
+            if (e instanceof String && formatElevation(parseElevation((String) e)).equals(e)) {
+                ele[size] = parseElevation((String) e);
+                others.remove(GpxConstants.PT_ELE);
+            }
+            time[size] = wp.time != 0 ? Math.round(wp.time * 1000) : NO_TIME;
+            Object t = others.get(GpxConstants.PT_TIME);
+            if (time[size] != NO_TIME && t instanceof String && DateUtils.fromDate(new Date(time[size])).equals(t)) {
+                others.remove(GpxConstants.PT_TIME);
+            }
+            if (!others.isEmpty()) {
+                if (attrSize == attrIndex.length) {
+                    int capacity = Math.max(16, attrSize * 2);
+                    attrIndex = Arrays.copyOf(attrIndex, capacity);
+                    attrValues = Arrays.copyOf(attrValues, capacity);
+                }
+                attrIndex[attrSize] = size;
+                attrValues[attrSize] = others;
+                attrSize++;
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * Appends points.
+         * @param wps the way points
+         * @return this builder
+         */
+        public Builder addAll(Collection<WayPoint> wps) {
+            for (WayPoint wp : wps) {
+                add(wp);
+            }
+            return this;
+        }
+
+        /**
+         * Returns the number of points added so far.
+         * @return the number of points
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Builds the segment.
+         * @return the new segment
+         */
+        public CompactGpxTrackSegment build() {
+            return new CompactGpxTrackSegment(this);
+        }
+    }
+
+    /**
+     * Constructs a new {@code CompactGpxTrackSegment}.
+     * @param wayPoints list of waypoints
+     */
+    public CompactGpxTrackSegment(Collection<WayPoint> wayPoints) {
+        this(new Builder().addAll(wayPoints));
+    }
+
+    private CompactGpxTrackSegment(Builder builder) {
+        lat = Arrays.copyOf(builder.lat, builder.size);
+        lon = Arrays.copyOf(builder.lon, builder.size);
+        ele = Arrays.copyOf(builder.ele, builder.size);
+        time = Arrays.copyOf(builder.time, builder.size);
+        attrIndex = Arrays.copyOf(builder.attrIndex, builder.attrSize);
+        attrValues = Arrays.copyOf(builder.attrValues, builder.attrSize);
+        bounds = calculateBounds();
+        length = calculateLength();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Map<String, Object>[] newMapArray(int size) {
+        return new Map[size];
+    }
+
+    private static double parseElevation(String s) {
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String formatElevation(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private Bounds calculateBounds() {
+        Bounds result = null;
+        for (int i = 0; i < lat.length; i++) {
+            if (result == null) {
+                result = new Bounds(lat[i], lon[i], lat[i], lon[i]);
+            } else {
+                result.extend(lat[i], lon[i]);
+            }
+        }
+        return result;
+    }
+
+    private double calculateLength() {
+        double result = 0.0; // in meters
+        LatLon last = null;
+        for (int i = 0; i < lat.length; i++) {
+            LatLon c = new LatLon(lat[i], lon[i]);
+            if (last != null) {
+                double d = last.greatCircleDistance(c);
+                if (!Double.isNaN(d) && !Double.isInfinite(d)) {
+                    result += d;
+                }
+            }
+            last = c;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the segment containing the given way points.
+     * @param wayPoints way points, as returned by {@link GpxTrackSegment#getWayPoints()}
+     * @return the compact segment whose {@link #getWayPoints()} returned {@code wayPoints}, or {@code null}
+     */
+    public static CompactGpxTrackSegment getSegment(Collection<WayPoint> wayPoints) {
+        return wayPoints instanceof WayPointList ? ((WayPointList) wayPoints).getSegment() : null;
+    }
+
+    /**
+     * Returns the number of points.
+     * @return the number of points
+     */
+    public int size() {
+        return lat.length;
+    }
+
+    /**
+     * Returns the latitude of a point.
+     * @param index the point index
+     * @return the latitude
+     */
+    public double lat(int index) {
+        return lat[index];
+    }
+
+    /**
+     * Returns the longitude of a point.
+     * @param index the point index
+     * @return the longitude
+     */
+    public double lon(int index) {
+        return lon[index];
+    }
+
+    /**
+     * Returns the coordinates of a point.
+     * @param index the point index
+     * @return the coordinates
+     */
+    public LatLon getCoor(int index) {
+        return new LatLon(lat[index], lon[index]);
+    }
+
+    /**
+     * Returns the time of a point, like {@link WayPoint#time}.
+     * @param index the point index
+     * @return the seconds since 1970-01-01 00:00 UTC, or 0 if unknown
+     */
+    public double getTime(int index) {
+        return time[index] == NO_TIME ? 0 : time[index] / 1000.;
+    }
+
+    /**
+     * Returns an attribute of a point.
+     * @param index the point index
+     * @param key the attribute key
+     * @return the attribute value, or {@code null}
+     */
+    public Object get(int index, String key) {
+        if (GpxConstants.PT_ELE.equals(key) && !Double.isNaN(ele[index])) {
+            return formatElevation(ele[index]);
+        } else if (GpxConstants.PT_TIME.equals(key) && time[index] != NO_TIME) {
+            Map<String, Object> others = getOtherAttributes(index);
+            return others.containsKey(key) ? others.get(key) : DateUtils.fromDate(new Date(time[index]));
+        }
+        return getOtherAttributes(index).get(key);
+    }
+
+    private Map<String, Object> getOtherAttributes(int index) {
+        int i = Arrays.binarySearch(attrIndex, index);
+        return i < 0 ? Collections.<String, Object>emptyMap() : attrValues[i];
+    }
+
+    /**
+     * Creates the way point of a point. Changes to the returned object are not kept.
+     * @param index the point index
+     * @return a new way point
+     */
+    public WayPoint getWayPoint(int index) {
+        WayPoint wp = new WayPoint(new LatLon(lat[index], lon[index]));
+        wp.attr.putAll(getOtherAttributes(index));
+        if (!Double.isNaN(ele[index])) {
+            wp.attr.put(GpxConstants.PT_ELE, formatElevation(ele[index]));
+        }
+        if (time[index] != NO_TIME) {
+            if (!wp.attr.containsKey(GpxConstants.PT_TIME)) {
+                wp.attr.put(GpxConstants.PT_TIME, DateUtils.fromDate(new Date(time[index])));
+            }
+            wp.setTime(time[index]);
+        }
+        return wp;
+    }
+
+    @Override
+    public Bounds getBounds() {
+        return bounds == null ? null : new Bounds(bounds);
+    }
+
+    @Override
+    public Collection<WayPoint> getWayPoints() {
+        return wayPoints;
+    }
+
+    @Override
+    public double length() {
+        return length;
+    }
+
+    @Override
+    public int getUpdateCount() {
+        return 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 + wayPoints.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        return wayPoints.equals(((CompactGpxTrackSegment) obj).wayPoints);
+    }
+
+    /**
+     * Read-only view of the points, creating the way points when accessed.
+     */
+    private final class WayPointList extends AbstractList<WayPoint> implements RandomAccess {
+        @Override
+        public WayPoint get(int index) {
+            return getWayPoint(index);
+        }
+
+        @Override
+        public int size() {
+            return lat.length;
+        }
+
+        CompactGpxTrackSegment getSegment() {
+            return CompactGpxTrackSegment.this;
+        }
+    }
+}
@@ -107,6 +107,10 @@ public class GpxData extends WithAttributes implements Data {
     public final Set<DataSource> dataSources = new HashSet<>();
 
     private final ListenerList<GpxDataChangeListener> listeners = ListenerList.create();
+    // Number of open calls to beginUpdate
+    private int updateCount;
+    // Whether the data changed since the outermost call to beginUpdate
+    private boolean changedDuringUpdate;
 
     static class TimestampConfictException extends Exception {}
 
@@ -1006,7 +1010,50 @@ public class GpxData extends WithAttributes implements Data {
         listeners.removeListener(listener);
     }
 
+    /**
+     * Starts a batch of changes. Until the matching call to {@link #endUpdate()}, the change listeners are not notified.
+     * Then they get a single event if anything changed. Calls can be nested.
+     * <pre>
+     * data.beginUpdate();
+     * try {
+     *   // .. do modifications
+     * } finally {
+     *   data.endUpdate();
+     * }
+     * </pre>
+     * @since xxx
+     */
+    public synchronized void beginUpdate() {
+        updateCount++;
+    }
+
+    /**
+     * Ends a batch of changes started by {@link #beginUpdate()}.
+     * @since xxx
+     */
+    public void endUpdate() {
+        boolean changed;
+        synchronized (this) {
+            if (updateCount == 0)
+                throw new AssertionError("endUpdate called without beginUpdate");
+            updateCount--;
+            changed = updateCount == 0 && changedDuringUpdate;
+            if (changed) {
+                changedDuringUpdate = false;
+            }
+        }
+        if (changed) {
+            fireInvalidate();
+        }
+    }
+
     private void fireInvalidate() {
+        synchronized (this) {
+            if (updateCount > 0) {
+                changedDuringUpdate = true;
+                return;
+            }
+        }
         if (listeners.hasListeners()) {
             GpxDataChangeEvent e = new GpxDataChangeEvent(this);
             listeners.fireEvent(l -> l.gpxDataChanged(e));
@@ -3,6 +3,7 @@ package org.openstreetmap.josm.data.imagery;
 
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
 
 import org.apache.commons.jcs.access.behavior.ICacheAccess;
 import org.openstreetmap.gui.jmapviewer.Tile;
@@ -13,6 +14,7 @@ import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
 import org.openstreetmap.josm.data.cache.HostLimitQueue;
+import org.openstreetmap.josm.data.cache.JCSCachedTileLoaderJob;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.Utils;
@@ -46,6 +48,7 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
 
     private ThreadPoolExecutor downloadExecutor = DEFAULT_DOWNLOAD_JOB_DISPATCHER;
     protected final TileJobOptions options;
+    protected ToDoubleFunction<Tile> tilePriority;
 
     /**
      * Constructor
@@ -98,12 +101,25 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
 
     @Override
     public TileJob createTileLoaderJob(Tile tile) {
-        return new TMSCachedTileLoaderJob(
+        TMSCachedTileLoaderJob job = new TMSCachedTileLoaderJob(
                 listener,
                 tile,
                 cache,
                 options,
                 getDownloadExecutor());
+        job.setTilePriority(tilePriority);
+        return job;
+    }
+
+    /**
+     * Sets the function computing the download priority of the tiles. Tiles with lower values are downloaded first,
+     * and queued tiles with {@link Double#POSITIVE_INFINITY} are dropped by {@link #cancelUnneededTasks()}.
+     * The function is called from the download threads while the tiles are queued.
+     * @param tilePriority the tile priority function, or {@code null} to download tiles in submission order
+     * @since xxx
+     */
+    public void setTilePriority(ToDoubleFunction<Tile> tilePriority) {
+        this.tilePriority = tilePriority;
     }
 
     @Override
@@ -115,6 +131,9 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
      * @return cache statistics as string
      */
     public String getStats() {
+        if (downloadExecutor.getQueue() instanceof HostLimitQueue) {
+            return cache.getStats() + '\n' + ((HostLimitQueue) downloadExecutor.getQueue()).getStats();
+        }
         return cache.getStats();
     }
 
@@ -131,6 +150,23 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
         }
     }
 
+    /**
+     * Cancels the outstanding tasks in the queue whose tiles are not needed anymore, e.g. because they left
+     * the map view. These are the tasks with {@link JCSCachedTileLoaderJob#getQueuePriority() priority}
+     * {@link Double#POSITIVE_INFINITY}, also for the other layers waiting for the same tile.
+     * @since xxx
+     */
+    public void cancelUnneededTasks() {
+        for (Runnable r: downloadExecutor.getQueue()) {
+            if (r instanceof TMSCachedTileLoaderJob) {
+                TMSCachedTileLoaderJob job = (TMSCachedTileLoaderJob) r;
+                if (job.getQueuePriority() == Double.POSITIVE_INFINITY && downloadExecutor.remove(job)) {
+                    job.handleJobCancellation();
+                }
+            }
+        }
+    }
+
     @Override
     public boolean hasOutstandingTasks() {
         return downloadExecutor.getTaskCount() > downloadExecutor.getCompletedTaskCount();
@@ -18,6 +18,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -53,6 +54,7 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
     protected final Tile tile;
     private volatile URL url;
     private final TileJobOptions options;
+    private ToDoubleFunction<Tile> tilePriority;
 
     // we need another deduplication of Tile Loader listeners, as for each submit, new TMSCachedTileLoaderJob was created
     // that way, we reduce calls to tileLoadingFinished, and general CPU load due to surplus Map repaints
@@ -82,6 +84,20 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
         }
     }
 
+    /**
+     * Sets the function computing the priority of the tile in the download queue, see {@link #getPriority()}.
+     * @param tilePriority the tile priority function, or {@code null} for the default priority
+     * @since xxx
+     */
+    public void setTilePriority(ToDoubleFunction<Tile> tilePriority) {
+        this.tilePriority = tilePriority;
+    }
+
+    @Override
+    public double getPriority() {
+        return tilePriority != null ? tilePriority.applyAsDouble(tile) : super.getPriority();
+    }
+
     @Override
     public String getCacheKey() {
         if (tile != null) {
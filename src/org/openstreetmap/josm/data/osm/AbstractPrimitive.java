@@ -494,8 +494,8 @@ public abstract class AbstractPrimitive implements IPrimitive {
         String[] newKeys = new String[keys.size() * 2];
         int index = 0;
         for (Entry<String, String> entry:keys.entrySet()) {
-            newKeys[index++] = entry.getKey();
-            newKeys[index++] = entry.getValue();
+            newKeys[index++] = TagDictionary.intern(entry.getKey());
+            newKeys[index++] = TagDictionary.intern(entry.getValue());
         }
         this.keys = newKeys;
         keysChangedImpl(originalKeys);
@@ -540,7 +540,7 @@ public abstract class AbstractPrimitive implements IPrimitive {
         else if (value == null) {
             remove(key);
         } else if (keys == null) {
-            keys = new String[] {key, value};
+            keys = new String[] {TagDictionary.intern(key), TagDictionary.intern(value)};
             keysChangedImpl(originalKeys);
         } else {
             int keyIndex = indexOfKey(keys, key);
@@ -555,8 +555,8 @@ public abstract class AbstractPrimitive implements IPrimitive {
             // Or we would at least need a volatile write after the array was modified to
             // ensure that changes are visible by other threads.
             String[] newKeys = Arrays.copyOf(keys, tagArrayLength);
-            newKeys[keyIndex] = key;
-            newKeys[keyIndex + 1] = value;
+            newKeys[keyIndex] = TagDictionary.intern(key);
+            newKeys[keyIndex + 1] = TagDictionary.intern(value);
             keys = newKeys;
             keysChangedImpl(originalKeys);
         }
@@ -27,6 +27,7 @@ import java.util.stream.Stream;
 import org.openstreetmap.josm.data.APIDataSet.APIOperation;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.DataSourceIndex;
 import org.openstreetmap.josm.data.ProjectionBounds;
 import org.openstreetmap.josm.data.conflict.ConflictCollection;
 import org.openstreetmap.josm.data.coor.EastNorth;
@@ -116,10 +117,16 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
 
     private final QuadBucketPrimitiveStore<Node, Way, Relation> store = new QuadBucketPrimitiveStore<>();
 
-    private final Storage<OsmPrimitive> allPrimitives = new Storage<>(new Storage.PrimitiveIdHash(), true);
-    private final Map<PrimitiveId, OsmPrimitive> primitivesMap = allPrimitives
-            .foreignKey(new Storage.PrimitiveIdHash());
+    /**
+     * All primitives of this data set, indexed by their id. Lookups do not block each other.
+     */
+    private final PrimitiveIdStore<OsmPrimitive> allPrimitives = new PrimitiveIdStore<>();
+    /**
+     * The projected coordinates of the nodes. {@code null} in compact mode.
+     */
+    private volatile NodeEastNorthCache eastNorthCache = new NodeEastNorthCache();
     private final CopyOnWriteArrayList<DataSetListener> listeners = new CopyOnWriteArrayList<>();
+    private TagIndex tagIndex;
 
     // provide means to highlight map elements that are not osm primitives
     private Collection<WaySegment> highlightedVirtualNodes = new LinkedList<>();
@@ -128,6 +135,10 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
 
     // Number of open calls to beginUpdate
     private int updateCount;
+    /**
+     * Number of change events fired so far, used to detect outdated caches
+     */
+    private volatile long modificationCount;
     // Events that occurred while dataset was locked but should be fired after write lock is released
     private final List<AbstractDatasetChangedEvent> cachedEvents = new ArrayList<>();
 
@@ -155,8 +166,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
      */
     private final ListenerList<DataSelectionListener> selectionListeners = ListenerList.create();
 
-    private Area cachedDataSourceArea;
-    private List<Bounds> cachedDataSourceBounds;
+    private DataSourceIndex cachedDataSourceIndex;
 
     /**
      * All data sources of this DataSet.
@@ -223,6 +233,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
                 dataSources.add(new DataSource(source));
             }
             version = copyFrom.version;
+            setCompactCoordinates(copyFrom.isCompactCoordinates());
             uploadPolicy = copyFrom.uploadPolicy;
             downloadPolicy = copyFrom.downloadPolicy;
             isReadOnly.set(copyFrom.isReadOnly.get());
@@ -267,8 +278,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     public synchronized boolean addDataSources(Collection<DataSource> sources) {
         boolean changed = dataSources.addAll(sources);
         if (changed) {
-            cachedDataSourceArea = null;
-            cachedDataSourceBounds = null;
+            cachedDataSourceIndex = null;
         }
         return changed;
     }
@@ -480,6 +490,45 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         }
     }
 
+    /**
+     * Adds several primitives to the dataset.
+     * <p>
+     * This is faster than calling {@link #addPrimitive} for each primitive: the write lock is taken once,
+     * the spatial index is built in bulk and a single {@link PrimitivesAddedEvent} is fired for all primitives.
+     *
+     * @param primitives the primitives
+     * @throws IllegalStateException if the dataset is read-only
+     * @since xxx
+     */
+    public void addPrimitives(Collection<? extends OsmPrimitive> primitives) {
+        Objects.requireNonNull(primitives, "primitives");
+        if (primitives.isEmpty()) {
+            return;
+        }
+        checkModifiable();
+        beginUpdate();
+        try {
+            List<OsmPrimitive> added = new ArrayList<>(primitives.size());
+            try {
+                for (OsmPrimitive primitive : primitives) {
+                    Objects.requireNonNull(primitive, "primitive");
+                    if (!allPrimitives.add(primitive))
+                        throw new DataIntegrityProblemException(
+                                tr("Unable to add primitive {0} to the dataset because it is already included",
+                                        primitive.toString()));
+                    primitive.setDataset(this);
+                    primitive.updatePosition();
+                    added.add(primitive);
+                }
+            } finally {
+                store.addPrimitives(added);
+            }
+            firePrimitivesAdded(added, false);
+        } finally {
+            endUpdate();
+        }
+    }
+
     /**
      * Removes a primitive from the dataset. This method only removes the
      * primitive form the respective collection of primitives managed
@@ -588,8 +637,10 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         if (highlightedVirtualNodes.isEmpty() && waySegments.isEmpty())
             return;
 
+        Set<Way> ways = new HashSet<>();
+        Stream.concat(highlightedVirtualNodes.stream(), waySegments.stream()).forEach(ws -> ways.add(ws.way));
         highlightedVirtualNodes = waySegments;
-        fireHighlightingChanged();
+        fireHighlightingChanged(ways);
     }
 
     @Override
@@ -597,8 +648,10 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         if (highlightedWaySegments.isEmpty() && waySegments.isEmpty())
             return;
 
+        Set<Way> ways = new HashSet<>();
+        Stream.concat(highlightedWaySegments.stream(), waySegments.stream()).forEach(ws -> ways.add(ws.way));
         highlightedWaySegments = waySegments;
-        fireHighlightingChanged();
+        fireHighlightingChanged(ways);
     }
 
     @Override
@@ -686,20 +739,26 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         }
     }
 
+    /**
+     * Returns the spatial index of the data source bounds, to test if points or bounds have been downloaded.
+     * @return the spatial index of the data source bounds
+     * @since xxx
+     */
+    public synchronized DataSourceIndex getDataSourceIndex() {
+        if (cachedDataSourceIndex == null) {
+            cachedDataSourceIndex = new DataSourceIndex(dataSources);
+        }
+        return cachedDataSourceIndex;
+    }
+
     @Override
     public synchronized Area getDataSourceArea() {
-        if (cachedDataSourceArea == null) {
-            cachedDataSourceArea = OsmData.super.getDataSourceArea();
-        }
-        return cachedDataSourceArea;
+        return getDataSourceIndex().getArea();
     }
 
     @Override
     public synchronized List<Bounds> getDataSourceBounds() {
-        if (cachedDataSourceBounds == null) {
-            cachedDataSourceBounds = OsmData.super.getDataSourceBounds();
-        }
-        return Collections.unmodifiableList(cachedDataSourceBounds);
+        return Collections.unmodifiableList(getDataSourceIndex().getBounds());
     }
 
     @Override
@@ -709,7 +768,12 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
 
     @Override
     public OsmPrimitive getPrimitiveById(PrimitiveId primitiveId) {
-        return primitiveId != null ? primitivesMap.get(primitiveId) : null;
+        return allPrimitives.get(primitiveId);
+    }
+
+    @Override
+    public OsmPrimitive getPrimitiveById(long id, OsmPrimitiveType type) {
+        return allPrimitives.get(id, Objects.requireNonNull(type, "type"));
     }
 
     /**
@@ -844,6 +908,20 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         return false;
     }
 
+    /**
+     * Returns the tag index of this dataset. The index is created on first call and then kept up to date
+     * with the changes of the dataset, until the dataset is garbage collected.
+     * @return the tag index of this dataset
+     * @since xxx
+     */
+    public synchronized TagIndex getTagIndex() {
+        if (tagIndex == null) {
+            tagIndex = new TagIndex(this);
+            addDataSetListener(tagIndex);
+        }
+        return tagIndex;
+    }
+
     /**
      * Adds a new data set listener.
      * @param dsl The data set listener to add
@@ -936,6 +1014,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     private void fireEvent(AbstractDatasetChangedEvent event) {
         if (updateCount == 0)
             throw new AssertionError("dataset events can be fired only when dataset is locked");
+        modificationCount++;
         if (cachedEvents.size() < MAX_EVENTS) {
             cachedEvents.add(event);
         }
@@ -954,20 +1033,23 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     }
 
     void fireRelationMembersChanged(Relation r) {
+        BBox oldBBox = r.getBBox();
         store.reindexRelation(r, Relation::updatePosition);
-        fireEvent(new RelationMembersChangedEvent(this, r));
+        fireEvent(new RelationMembersChangedEvent(this, r, oldBBox));
     }
 
     void fireNodeMoved(Node node, LatLon newCoor, EastNorth eastNorth) {
+        BBox oldBBox = node.getBBox();
         store.reindexNode(node, n -> n.setCoorInternal(newCoor, eastNorth), Way::updatePosition, Relation::updatePosition);
-        fireEvent(new NodeMovedEvent(this, node));
+        fireEvent(new NodeMovedEvent(this, node, oldBBox));
     }
 
     void fireWayNodesChanged(Way way) {
+        BBox oldBBox = way.getBBox();
         if (way.getNodesCount() > 0) {
             store.reindexWay(way, Way::updatePosition, Relation::updatePosition);
         }
-        fireEvent(new WayNodesChangedEvent(this, way));
+        fireEvent(new WayNodesChangedEvent(this, way, oldBBox));
     }
 
     void fireChangesetIdChanged(OsmPrimitive primitive, int oldChangesetId, int newChangesetId) {
@@ -983,8 +1065,8 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         fireEvent(new FilterChangedEvent(this));
     }
 
-    void fireHighlightingChanged() {
-        HighlightUpdateListener.HighlightUpdateEvent e = new HighlightUpdateListener.HighlightUpdateEvent(this);
+    void fireHighlightingChanged(Collection<? extends OsmPrimitive> primitives) {
+        HighlightUpdateListener.HighlightUpdateEvent e = new HighlightUpdateListener.HighlightUpdateEvent(this, primitives);
         highlightUpdateListeners.fireEvent(l -> l.highlightUpdated(e));
     }
 
@@ -998,9 +1080,58 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         if (ProjectionRegistry.getProjection() == null)
             return; // sanity check
         beginUpdate();
+        try {
+            NodeEastNorthCache cache = eastNorthCache;
+            if (cache != null) {
+                // the cache is rebuilt lazily, when the nodes are accessed
+                cache.invalidate();
+            }
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Gets the cache for the projected node coordinates.
+     * @return The cache or {@code null} if projected coordinates are not cached.
+     */
+    NodeEastNorthCache getEastNorthCache() {
+        return eastNorthCache;
+    }
+
+    /**
+     * Determines if this data set is in compact mode.
+     * @return {@code true} if the projected coordinates of the nodes are not cached
+     * @see #setCompactCoordinates(boolean)
+     * @since xxx
+     */
+    public boolean isCompactCoordinates() {
+        return eastNorthCache == null;
+    }
+
+    /**
+     * Enables or disables the compact mode. In compact mode, the projected coordinates of the nodes are not cached.
+     * This saves the cached {@link EastNorth} object and its column slot, about 40 bytes per node, but the coordinates
+     * need to be projected every time they are accessed.
+     * <p>
+     * Otherwise, they are cached in a column owned by this data set. The column is rebuilt lazily after a
+     * projection change.
+     * @param compact {@code true} to enable the compact mode
+     * @since xxx
+     */
+    public void setCompactCoordinates(boolean compact) {
+        if (compact == isCompactCoordinates())
+            return;
+        beginUpdate();
         try {
             for (Node n : getNodes()) {
-                n.invalidateEastNorthCache();
+                n.releaseEastNorthCache(this);
+            }
+            eastNorthCache = compact ? null : new NodeEastNorthCache();
+            if (!compact) {
+                for (Node n : getNodes()) {
+                    n.assignEastNorthCache();
+                }
             }
         } finally {
             endUpdate();
@@ -1044,6 +1175,10 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
             }
             store.clear();
             allPrimitives.clear();
+            NodeEastNorthCache cache = eastNorthCache;
+            if (cache != null) {
+                cache.clear();
+            }
         } finally {
             endUpdate();
         }
@@ -1084,12 +1219,10 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
             synchronized (from) {
                 if (!from.dataSources.isEmpty()) {
                     if (dataSources.addAll(from.dataSources)) {
-                        cachedDataSourceArea = null;
-                        cachedDataSourceBounds = null;
+                        cachedDataSourceIndex = null;
                     }
                     from.dataSources.clear();
-                    from.cachedDataSourceArea = null;
-                    from.cachedDataSourceBounds = null;
+                    from.cachedDataSourceIndex = null;
                 }
             }
         }
@@ -1181,6 +1314,16 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         }
     }
 
+    /**
+     * Returns the number of changes made to this data set so far. It is increased for every change event fired to
+     * {@link DataSetListener}s, so two equal values mean that the data did not change in between.
+     * @return the modification count
+     * @since xxx
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
     /**
      * Returns an optional remark about this data set (used by Overpass API).
      * @return a remark about this data set, or {@code null}
@@ -3,7 +3,6 @@ package org.openstreetmap.josm.data.osm;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
-import java.awt.geom.Area;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -15,6 +14,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.DataSourceIndex;
 import org.openstreetmap.josm.data.conflict.Conflict;
 import org.openstreetmap.josm.data.conflict.ConflictCollection;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
@@ -46,6 +46,8 @@ public class DataSetMerger {
      */
     private final Set<PrimitiveId> objectsWithChildrenToMerge;
     private final Set<OsmPrimitive> objectsToDelete;
+    /** the new primitives that are added to the target dataset after each primitive type is merged */
+    private final List<OsmPrimitive> addedPrimitives = new ArrayList<>();
 
     /**
      * constructor
@@ -121,11 +123,19 @@ public class DataSetMerger {
         default: throw new AssertionError();
         }
         target.mergeFrom(source);
-        targetDataSet.addPrimitive(target);
+        addedPrimitives.add(target);
         mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
         objectsWithChildrenToMerge.add(source.getPrimitiveId());
     }
 
+    /**
+     * Adds the primitives created by {@link #mergePrimitive} to the target dataset, in bulk.
+     */
+    private void addMergedPrimitives() {
+        targetDataSet.addPrimitives(addedPrimitives);
+        addedPrimitives.clear();
+    }
+
     protected OsmPrimitive getMergeTarget(OsmPrimitive mergeSource) {
         PrimitiveId targetId = mergedMap.get(mergeSource.getPrimitiveId());
         if (targetId == null)
@@ -415,6 +425,7 @@ public class DataSetMerger {
                     progressMonitor.worked(1);
                 }
             }
+            addMergedPrimitives();
             candidates.clear();
             candidates = new ArrayList<>(targetDataSet.getWays());
             for (Way way: sourceDataSet.getWays()) {
@@ -423,6 +434,7 @@ public class DataSetMerger {
                     progressMonitor.worked(1);
                 }
             }
+            addMergedPrimitives();
             candidates.clear();
             candidates = new ArrayList<>(targetDataSet.getRelations());
             for (Relation relation: sourceDataSet.getRelations()) {
@@ -431,15 +443,16 @@ public class DataSetMerger {
                     progressMonitor.worked(1);
                 }
             }
+            addMergedPrimitives();
             candidates.clear();
             fixReferences();
 
-            Area a = targetDataSet.getDataSourceArea();
+            DataSourceIndex index = targetDataSet.getDataSourceIndex();
 
             // copy the merged layer's data source info.
             // only add source rectangles if they are not contained in the layer already.
             for (DataSource src : sourceDataSet.getDataSources()) {
-                if (a == null || !a.contains(src.bounds.asRect())) {
+                if (!index.contains(src.bounds)) {
                     targetDataSet.addDataSource(src);
                 }
             }
@@ -0,0 +1,199 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.openstreetmap.josm.data.osm.FilterMatcher.FilterInfo;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
+import org.openstreetmap.josm.data.osm.search.SearchSetting;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Cache of the match results of the filters over the primitives of a data set.
+ * <p>
+ * The results of each filter search expression are kept in a bitmap indexed like the primitives of the data set,
+ * so that enabling, disabling, inverting or reordering filters only evaluates the filters which were not evaluated yet.
+ * The cache is reset whenever the data set is modified. The results of the filters which may change without a
+ * modification of the data set, like {@code selected} or {@code inview}, are not cached; see {@link Match#isCacheable()}.
+ * @since xxx
+ */
+public final class FilterMatchCache {
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("filter.numberOfThreads", "filter-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
+    /**
+     * Runs a task over the index range of the primitives.
+     */
+    @FunctionalInterface
+    interface RangeTask {
+        /**
+         * Processes the primitives from index {@code from} (inclusive) to index {@code to} (exclusive).
+         * @param from first index
+         * @param to last index, exclusive
+         */
+        void run(int from, int to);
+    }
+
+    private DataSet dataSet;
+    private long modificationCount;
+    /** the non-deleted complete primitives of the data set: relations, then ways, then nodes */
+    private OsmPrimitive[] primitives = new OsmPrimitive[0];
+    private int firstWay;
+    private int firstNode;
+    private final Map<SearchSetting, BitSet> matches = new HashMap<>();
+
+    /**
+     * Makes the cache match the current state of the given data set, dropping the results if it has been modified.
+     * Must be called while the data set is locked.
+     * @param ds the data set
+     */
+    void update(DataSet ds) {
+        if (ds != dataSet || ds.getModificationCount() != modificationCount) {
+            clear();
+            List<OsmPrimitive> relations = new ArrayList<>();
+            List<OsmPrimitive> ways = new ArrayList<>();
+            List<OsmPrimitive> nodes = new ArrayList<>();
+            for (OsmPrimitive p : ds.allNonDeletedCompletePrimitives()) {
+                (p instanceof Node ? nodes : p instanceof Way ? ways : relations).add(p);
+            }
+            firstWay = relations.size();
+            firstNode = firstWay + ways.size();
+            relations.addAll(ways);
+            relations.addAll(nodes);
+            primitives = relations.toArray(new OsmPrimitive[0]);
+            dataSet = ds;
+            modificationCount = ds.getModificationCount();
+        }
+    }
+
+    /**
+     * Marks the cache as up to date with the given data set, after changes which do not affect the match results,
+     * i.e. the changes of the filter flags of the primitives.
+     * @param ds the data set
+     */
+    void markUpToDate(DataSet ds) {
+        if (ds == dataSet) {
+            modificationCount = ds.getModificationCount();
+        }
+    }
+
+    /**
+     * Drops all cached results.
+     */
+    public void clear() {
+        dataSet = null;
+        primitives = new OsmPrimitive[0];
+        firstWay = 0;
+        firstNode = 0;
+        matches.clear();
+    }
+
+    OsmPrimitive[] getPrimitives() {
+        return primitives;
+    }
+
+    int getFirstWay() {
+        return firstWay;
+    }
+
+    int getFirstNode() {
+        return firstNode;
+    }
+
+    /**
+     * Returns the match results of a filter, evaluating it in parallel if they are not cached yet.
+     * Filters which are not {@link Match#isCacheable() cacheable} are evaluated sequentially each time.
+     * @param fi the filter
+     * @return the bitmap of the primitives matching the compiled (not inverted) search expression of the filter
+     */
+    BitSet getMatches(FilterInfo fi) {
+        if (!fi.compiled.isCacheable()) {
+            return evaluate(fi.compiled, false);
+        }
+        return matches.computeIfAbsent(fi.search, s -> evaluate(fi.compiled, true));
+    }
+
+    private BitSet evaluate(Match match, boolean parallel) {
+        long[] words = new long[(primitives.length + 63) / 64];
+        // each task writes whole words of the bitmap
+        RangeTask task = (from, to) -> {
+            for (int w = from; w < to; w++) {
+                long word = 0;
+                for (int i = w * 64, end = Math.min(i + 64, primitives.length); i < end; i++) {
+                    if (match.match(primitives[i])) {
+                        word |= 1L << (i - w * 64);
+                    }
+                }
+                words[w] = word;
+            }
+        };
+        if (parallel) {
+            run(words.length, 16, task);
+        } else {
+            task.run(0, words.length);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Runs the given task over the range {@code [0, size)}, in parallel if possible.
+     * @param size size of the range
+     * @param minTaskSize minimum number of indexes processed by a single task
+     * @param task the task
+     */
+    static void run(int size, int minTaskSize, RangeTask task) {
+        if (THREAD_POOL != null && size > minTaskSize) {
+            THREAD_POOL.invoke(new Worker(task, 0, size, Math.max(minTaskSize, size / THREAD_POOL.getParallelism() / 3)));
+        } else {
+            task.run(0, size);
+        }
+    }
+
+    private static class Worker extends RecursiveAction {
+
+        // Needed for Findbugs / Coverity because parent class is serializable
+        private static final long serialVersionUID = 1L;
+
+        private final transient RangeTask task;
+        private final int from;
+        private final int to;
+        private final int directExecutionTaskSize;
+
+        Worker(RangeTask task, int from, int to, int directExecutionTaskSize) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.directExecutionTaskSize = directExecutionTaskSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= directExecutionTaskSize) {
+                task.run(from, to);
+            } else {
+                List<Worker> tasks = new ArrayList<>();
+                for (int fromIndex = from; fromIndex < to; fromIndex += directExecutionTaskSize) {
+                    tasks.add(new Worker(task, fromIndex, Math.min(fromIndex + directExecutionTaskSize, to), directExecutionTaskSize));
+                }
+                ForkJoinTask.invokeAll(tasks);
+            }
+        }
+    }
+}
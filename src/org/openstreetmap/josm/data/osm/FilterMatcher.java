@@ -3,13 +3,17 @@ package org.openstreetmap.josm.data.osm;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import org.openstreetmap.josm.data.osm.search.SearchCompiler;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.Not;
 import org.openstreetmap.josm.data.osm.search.SearchMode;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
+import org.openstreetmap.josm.data.osm.search.SearchSetting;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 
 /**
@@ -71,10 +75,14 @@ public class FilterMatcher {
         PASSIV
     }
 
-    private static class FilterInfo {
+    static class FilterInfo {
         private final Match match;
         private final boolean isDelete;
         private final boolean isInverted;
+        /** the search expression of the filter, without the mode and the filter flags */
+        final SearchSetting search;
+        /** the compiled search expression, not inverted */
+        final Match compiled;
 
         FilterInfo(Filter filter) throws SearchParseError {
             if (filter.mode == SearchMode.remove || filter.mode == SearchMode.in_selection) {
@@ -83,7 +91,9 @@ public class FilterMatcher {
                 isDelete = false;
             }
 
-            Match compiled = SearchCompiler.compile(filter);
+            search = new SearchSetting(filter);
+            search.mode = null;
+            compiled = SearchCompiler.compile(filter);
             this.match = filter.inverted ? new Not(compiled) : compiled;
             this.isInverted = filter.inverted;
         }
@@ -154,6 +164,16 @@ public class FilterMatcher {
         }
     }
 
+    /**
+     * Returns the filters in use, in no particular order.
+     * @return the filters in use
+     */
+    Collection<FilterInfo> getFilterInfos() {
+        Set<FilterInfo> result = new LinkedHashSet<>(hiddenFilters);
+        result.addAll(disabledFilters);
+        return result;
+    }
+
     /**
      * Check if primitive is filtered.
      * @param primitive the primitive to check
@@ -231,6 +251,18 @@ public class FilterMatcher {
     }
 
     private static FilterType test(List<FilterInfo> filters, OsmPrimitive primitive, boolean hidden) {
+        return test(filters, primitive, hidden, fi -> fi.match.match(primitive));
+    }
+
+    /**
+     * Check if primitive is filtered.
+     * @param filters the filters to apply
+     * @param primitive the primitive
+     * @param hidden whether the hidden or disabled state is computed
+     * @param matches tells if a filter matches the primitive, taking its inverted flag into account
+     * @return the filter type
+     */
+    private static FilterType test(List<FilterInfo> filters, OsmPrimitive primitive, boolean hidden, Predicate<FilterInfo> matches) {
         if (primitive.isIncomplete() || primitive.isPreserved())
             return FilterType.NOT_FILTERED;
 
@@ -241,11 +273,11 @@ public class FilterMatcher {
 
         for (FilterInfo fi: filters) {
             if (fi.isDelete) {
-                if (filtered && fi.match.match(primitive)) {
+                if (filtered && matches.test(fi)) {
                     filtered = false;
                 }
             } else {
-                if ((!filtered || (!explicitlyFiltered && !fi.isInverted)) && fi.match.match(primitive)) {
+                if ((!filtered || (!explicitlyFiltered && !fi.isInverted)) && matches.test(fi)) {
                     filtered = true;
                     if (!fi.isInverted) {
                         explicitlyFiltered = true;
@@ -315,6 +347,16 @@ public class FilterMatcher {
         return test(hiddenFilters, primitive, true);
     }
 
+    /**
+     * Check if primitive is hidden, with known match results of the compiled filters.
+     * @param primitive the primitive
+     * @param matches tells if the compiled (not inverted) search expression of a filter matches the primitive
+     * @return the filter type, see {@link #isHidden(OsmPrimitive)}
+     */
+    FilterType isHidden(OsmPrimitive primitive, Predicate<FilterInfo> matches) {
+        return test(hiddenFilters, primitive, true, fi -> matches.test(fi) != fi.isInverted);
+    }
+
     /**
      * Check if primitive is disabled.
      * The filter flags for all parent objects must be set correctly, when
@@ -330,6 +372,16 @@ public class FilterMatcher {
         return test(disabledFilters, primitive, false);
     }
 
+    /**
+     * Check if primitive is disabled, with known match results of the compiled filters.
+     * @param primitive the primitive
+     * @param matches tells if the compiled (not inverted) search expression of a filter matches the primitive
+     * @return the filter type, see {@link #isDisabled(OsmPrimitive)}
+     */
+    FilterType isDisabled(OsmPrimitive primitive, Predicate<FilterInfo> matches) {
+        return test(disabledFilters, primitive, false, fi -> matches.test(fi) != fi.isInverted);
+    }
+
     /**
      * Returns a new {@code FilterMatcher} containing the given filters.
      * @param filters filters to add to the resulting filter matcher
@@ -45,6 +45,7 @@ public class FilterModel {
 
     private final List<Filter> filters = new LinkedList<>();
     private final FilterMatcher filterMatcher = new FilterMatcher();
+    private final FilterMatchCache filterMatchCache = new FilterMatchCache();
 
     private void updateFilterMatcher() {
         filterMatcher.reset();
@@ -102,6 +103,7 @@ public class FilterModel {
             disabledAndHiddenCount = 0;
             disabledCount = 0;
             changed = true;
+            filterMatchCache.clear();
         } else {
             final Collection<OsmPrimitive> deselect = new HashSet<>();
 
@@ -110,7 +112,7 @@ public class FilterModel {
 
                 final Collection<OsmPrimitive> all = ds.allNonDeletedCompletePrimitives();
 
-                changed = FilterWorker.executeFilters(all, filterMatcher);
+                changed = FilterWorker.executeFilters(ds, filterMatcher, filterMatchCache);
 
                 disabledCount = 0;
                 disabledAndHiddenCount = 0;
@@ -131,6 +133,8 @@ public class FilterModel {
                 if (changed) {
                     ds.fireFilterChanged();
                 }
+                // the filter flags do not change the match results of the filters
+                filterMatchCache.markUpToDate(ds);
                 ds.endUpdate();
             }
 
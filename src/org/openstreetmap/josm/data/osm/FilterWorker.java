@@ -1,9 +1,14 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
 
+import org.openstreetmap.josm.data.osm.FilterMatcher.FilterInfo;
 import org.openstreetmap.josm.data.osm.FilterMatcher.FilterType;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
@@ -50,6 +55,69 @@ public final class FilterWorker {
         return changed;
     }
 
+    /**
+     * Apply the filters to all non-deleted complete primitives of the data set, in parallel.
+     * The match results of the filters are kept in the given cache, so that only the filters whose results are not
+     * cached yet are evaluated. Must be called while the data set is locked.
+     *
+     * @param ds the data set
+     * @param filterMatcher the FilterMatcher
+     * @param cache the match results of the filters, updated if needed
+     * @return true, if the filter state (normal / disabled / hidden) of any primitive has changed in the process
+     * @since xxx
+     */
+    public static boolean executeFilters(DataSet ds, FilterMatcher filterMatcher, FilterMatchCache cache) {
+        cache.update(ds);
+        Map<FilterInfo, BitSet> matches = new IdentityHashMap<>();
+        for (FilterInfo fi : filterMatcher.getFilterInfos()) {
+            matches.put(fi, cache.getMatches(fi));
+        }
+        OsmPrimitive[] primitives = cache.getPrimitives();
+        // first relations, then ways and nodes last; this is required to resolve dependencies
+        boolean changed = doExecuteFilters(primitives, 0, cache.getFirstWay(), filterMatcher, matches);
+        changed |= doExecuteFilters(primitives, cache.getFirstWay(), cache.getFirstNode(), filterMatcher, matches);
+        changed |= doExecuteFilters(primitives, cache.getFirstNode(), primitives.length, filterMatcher, matches);
+        return changed;
+    }
+
+    private static boolean doExecuteFilters(OsmPrimitive[] primitives, int from, int to, FilterMatcher filterMatcher,
+            Map<FilterInfo, BitSet> matches) {
+        // the states only depend on the states of the parents, computed before: compute them in parallel,
+        // but set them in this thread, which owns the lock of the data set
+        FilterType[] states = new FilterType[2 * (to - from)];
+        FilterMatchCache.run(to - from, 256, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                int index = from + i;
+                OsmPrimitive primitive = primitives[index];
+                Predicate<FilterInfo> match = fi -> matches.get(fi).get(index);
+                FilterType hiddenType = filterMatcher.isHidden(primitive, match);
+                states[2 * i] = hiddenType;
+                if (hiddenType == FilterType.NOT_FILTERED) {
+                    states[2 * i + 1] = filterMatcher.isDisabled(primitive, match);
+                }
+            }
+        });
+
+        boolean changed = false;
+        for (int i = 0; i < to - from; i++) {
+            OsmPrimitive primitive = primitives[from + i];
+            FilterType hiddenType = states[2 * i];
+            if (hiddenType != FilterType.NOT_FILTERED) {
+                changed |= primitive.setDisabledState(true);
+                primitive.setHiddenType(hiddenType == FilterType.EXPLICIT);
+            } else {
+                FilterType disabledType = states[2 * i + 1];
+                if (disabledType != FilterType.NOT_FILTERED) {
+                    changed |= primitive.setDisabledState(false);
+                    primitive.setDisabledType(disabledType == FilterType.EXPLICIT);
+                } else {
+                    changed |= primitive.unsetDisabledState();
+                }
+            }
+        }
+        return changed;
+    }
+
     private static boolean doExecuteFilters(Collection<OsmPrimitive> all, FilterMatcher filterMatcher) {
 
         boolean changed = false;
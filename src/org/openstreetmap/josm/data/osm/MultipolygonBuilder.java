@@ -28,6 +28,7 @@ import org.openstreetmap.josm.tools.Geometry.PolygonIntersection;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.MultiMap;
 import org.openstreetmap.josm.tools.Pair;
+import org.openstreetmap.josm.tools.PolygonClipper;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -64,7 +65,8 @@ public class MultipolygonBuilder {
         }
 
         /**
-         * Compute the reverse result of the intersection test done by {@code Geometry.polygonIntersection(Area a1, Area a2)}
+         * Compute the reverse result of the intersection test done by
+         * {@link Geometry#polygonIntersection(PolygonClipper.Polygon, PolygonClipper.Polygon)}
          *
          * @param intersection the intersection result for polygons a1 and a2 (in that order)
          * @return the intersection result for a2 and a1
@@ -110,7 +112,17 @@ public class MultipolygonBuilder {
         public final List<Way> ways;
         public final List<Boolean> reversed;
         public final List<Node> nodes;
+        /**
+         * The area formed by the nodes (EastNorth coordinates)
+         * @deprecated use {@link #getArea()}
+         */
+        @Deprecated
         public final Area area;
+        /**
+         * The polygon formed by the nodes, for the {@link PolygonClipper} (EastNorth coordinates)
+         * @since xxx
+         */
+        public final PolygonClipper.Polygon polygon;
         public final Rectangle bounds;
 
         /**
@@ -123,7 +135,8 @@ public class MultipolygonBuilder {
             this.reversed = reversed;
             this.nodes = this.getNodes();
             this.area = Geometry.getArea(nodes);
-            this.bounds = area.getBounds();
+            this.polygon = Geometry.getPolygon(nodes);
+            this.bounds = polygon.getBounds2D().getBounds();
         }
 
         /**
@@ -134,6 +147,16 @@ public class MultipolygonBuilder {
             this(Collections.singletonList(way), Collections.singletonList(Boolean.FALSE));
         }
 
+        /**
+         * Returns the area formed by the nodes (EastNorth coordinates). The intersections of the polygons are computed
+         * with {@link #polygon}.
+         * @return the area of this polygon
+         * @since xxx
+         */
+        public Area getArea() {
+            return area;
+        }
+
         /**
          * Builds a list of nodes for this polygon. First node is not duplicated as last node.
          * @return list of nodes
@@ -369,7 +392,7 @@ public class MultipolygonBuilder {
             if (outerWay.bounds.intersects(innerWay.bounds)) {
                 // Bounds intersection, let's see in detail
                 final PolygonIntersection intersection = cache.computeIfAbsent(outerWay, innerWay,
-                        () -> Geometry.polygonIntersection(outerWay.area, innerWay.area));
+                        () -> Geometry.polygonIntersection(outerWay.polygon, innerWay.polygon));
 
                 if (intersection == PolygonIntersection.FIRST_INSIDE_SECOND) {
                     outerGood = false;  // outer is inside another polygon
@@ -1,7 +1,6 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
-import java.awt.geom.Area;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -9,6 +8,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Predicate;
 
+import org.openstreetmap.josm.data.DataSourceIndex;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.visitor.OsmPrimitiveVisitor;
@@ -31,15 +31,31 @@ public final class Node extends OsmPrimitive implements INode {
     private double lat = Double.NaN;
     private double lon = Double.NaN;
 
-    /*
-     * the cached projected coordinates
+    /**
+     * The slot of this node in the {@link NodeEastNorthCache} of its data set, or -1 if it has none.
+     * Only changed by the cache, while holding its lock.
      */
-    private double east = Double.NaN;
-    private double north = Double.NaN;
+    private volatile int eastNorthIndex = -1;
+
     /**
-     * The cache key to use for {@link #east} and {@link #north}.
+     * The exact projected coordinates given to a node that is not part of a data set, so that they are not changed by
+     * the round trip through lat/lon. They are moved to the {@link NodeEastNorthCache} when the node is added to a
+     * data set. A single reference in place of the east, north and cache key fields, which were used by all nodes.
      */
-    private Object eastNorthCacheKey;
+    private DetachedEastNorth detachedEastNorth;
+
+    /**
+     * Projected coordinates together with the cache key of the projection that was used.
+     */
+    private static final class DetachedEastNorth {
+        private final EastNorth eastNorth;
+        private final Object cacheKey;
+
+        DetachedEastNorth(EastNorth eastNorth, Object cacheKey) {
+            this.eastNorth = eastNorth;
+            this.cacheKey = cacheKey;
+        }
+    }
 
     @Override
     public void setCoor(LatLon coor) {
@@ -91,15 +107,68 @@ public final class Node extends OsmPrimitive implements INode {
     public EastNorth getEastNorth(Projecting projection) {
         if (!isLatLonKnown()) return null;
 
-        if (Double.isNaN(east) || Double.isNaN(north) || !Objects.equals(projection.getCacheKey(), eastNorthCacheKey)) {
-            // projected coordinates haven't been calculated yet,
-            // so fill the cache of the projected node coordinates
-            EastNorth en = projection.latlon2eastNorth(this);
-            this.east = en.east();
-            this.north = en.north();
-            this.eastNorthCacheKey = projection.getCacheKey();
+        NodeEastNorthCache cache = getEastNorthCache();
+        if (cache == null) {
+            // not in a data set or the data set does not cache projected coordinates
+            DetachedEastNorth detached = detachedEastNorth;
+            if (detached != null && Objects.equals(detached.cacheKey, projection.getCacheKey())) {
+                return detached.eastNorth;
+            }
+            return projection.latlon2eastNorth(this);
+        }
+        return cache.get(this, projection);
+    }
+
+    /**
+     * Gets the cache for the projected coordinates.
+     * @return The cache or {@code null} if the projected coordinates of this node are not cached.
+     */
+    private NodeEastNorthCache getEastNorthCache() {
+        DataSet ds = getDataSet();
+        return ds == null ? null : ds.getEastNorthCache();
+    }
+
+    /**
+     * Gets the slot of this node in the projected coordinate cache of its data set.
+     * @return The slot index, or -1 if this node has none
+     */
+    int getEastNorthIndex() {
+        return eastNorthIndex;
+    }
+
+    /**
+     * Sets the slot of this node in the projected coordinate cache of its data set. Only used by the cache.
+     * @param index The slot index, or -1 if this node has none
+     */
+    void setEastNorthIndex(int index) {
+        eastNorthIndex = index;
+    }
+
+    /**
+     * Releases the slot of this node in the projected coordinate cache of the given data set.
+     * @param ds The data set that was used for this node
+     */
+    void releaseEastNorthCache(DataSet ds) {
+        NodeEastNorthCache cache = ds == null ? null : ds.getEastNorthCache();
+        if (cache != null) {
+            cache.release(this);
+        }
+    }
+
+    /**
+     * Gives this node a slot in the projected coordinate cache of its data set, with the exact coordinates given
+     * while it was not part of a data set.
+     */
+    void assignEastNorthCache() {
+        NodeEastNorthCache cache = getEastNorthCache();
+        if (cache != null) {
+            cache.assign(this);
+            DetachedEastNorth detached = detachedEastNorth;
+            if (detached != null) {
+                cache.set(this, detached.eastNorth, detached.cacheKey);
+                detachedEastNorth = null;
+            }
         }
-        return new EastNorth(east, north);
     }
 
     /**
@@ -108,6 +177,7 @@ public final class Node extends OsmPrimitive implements INode {
      * @param eastNorth east/north
      */
     void setCoorInternal(LatLon coor, EastNorth eastNorth) {
+        detachedEastNorth = null;
         if (coor != null) {
             this.lat = coor.lat();
             this.lon = coor.lon();
@@ -116,9 +186,13 @@ public final class Node extends OsmPrimitive implements INode {
             LatLon ll = ProjectionRegistry.getProjection().eastNorth2latlon(eastNorth);
             this.lat = ll.lat();
             this.lon = ll.lon();
-            this.east = eastNorth.east();
-            this.north = eastNorth.north();
-            this.eastNorthCacheKey = ProjectionRegistry.getProjection().getCacheKey();
+            Object key = ProjectionRegistry.getProjection().getCacheKey();
+            NodeEastNorthCache cache = getEastNorthCache();
+            if (cache != null) {
+                cache.set(this, eastNorth, key);
+            } else {
+                detachedEastNorth = new DetachedEastNorth(eastNorth, key);
+            }
         } else {
             this.lat = Double.NaN;
             this.lon = Double.NaN;
@@ -201,7 +275,12 @@ public final class Node extends OsmPrimitive implements INode {
 
     @Override
     void setDataset(DataSet dataSet) {
+        DataSet old = getDataSet();
         super.setDataset(dataSet);
+        if (old != dataSet) {
+            releaseEastNorthCache(old);
+            assignEastNorthCache();
+        }
         if (!isIncomplete() && isVisible() && !isLatLonKnown())
             throw new DataIntegrityProblemException("Complete node with null coordinates: " + toString());
     }
@@ -335,9 +414,11 @@ public final class Node extends OsmPrimitive implements INode {
      * next time.
      */
     public void invalidateEastNorthCache() {
-        this.east = Double.NaN;
-        this.north = Double.NaN;
-        this.eastNorthCacheKey = null;
+        detachedEastNorth = null;
+        NodeEastNorthCache cache = getEastNorthCache();
+        if (cache != null) {
+            cache.invalidate(this);
+        }
     }
 
     @Override
@@ -387,11 +468,11 @@ public final class Node extends OsmPrimitive implements INode {
     public boolean isOutsideDownloadArea() {
         if (isNewOrUndeleted() || getDataSet() == null)
             return false;
-        Area area = getDataSet().getDataSourceArea();
-        if (area == null)
+        DataSourceIndex index = getDataSet().getDataSourceIndex();
+        if (index.isEmpty())
             return false;
         LatLon coor = getCoor();
-        return coor != null && !coor.isIn(area);
+        return coor != null && !index.contains(coor);
     }
 
     /**
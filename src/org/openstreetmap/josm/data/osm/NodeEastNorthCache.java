@@ -0,0 +1,220 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.projection.Projecting;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+
+/**
+ * The projected coordinates of all nodes of a {@link DataSet}, stored in a column indexed by node slot.
+ * <p>
+ * Each node of the data set gets a slot when it is added. The column stores the {@link EastNorth} objects, so a cache
+ * hit does not allocate. The column is bound to a single projection: a projection change replaces the column, and
+ * the new one is filled lazily when the nodes are accessed.
+ * <p>
+ * Reads and fills do not lock. A column that was replaced is never read again, so a late fill of an old column is
+ * harmless. The slot of a removed node is only given to an other node after the column was replaced, and a reader
+ * checks that the column is still the current one after reading the slot, so it never gets the coordinates of an
+ * other node or of a former projection. Slot changes and column replacements are synchronized on this cache.
+ *
+ * @since xxx
+ */
+final class NodeEastNorthCache {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The projected coordinates for one projection, indexed by slot.
+     */
+    private static final class Column {
+        private final Object cacheKey;
+        private final EastNorth[] values;
+
+        Column(Object cacheKey, EastNorth[] values) {
+            this.cacheKey = cacheKey;
+            this.values = values;
+        }
+    }
+
+    private volatile Column column = new Column(currentCacheKey(), new EastNorth[INITIAL_CAPACITY]);
+
+    /**
+     * Slots that can be reused, they were released before the current column was created
+     */
+    private int[] free = new int[16];
+    private int freeCount;
+    /**
+     * Slots released since the current column was created, they can be reused once the column is replaced
+     */
+    private int[] released = new int[16];
+    private int releasedCount;
+    /**
+     * The first slot that was never used
+     */
+    private int next;
+
+    private static Object currentCacheKey() {
+        Projection projection = ProjectionRegistry.getProjection();
+        return projection == null ? null : projection.getCacheKey();
+    }
+
+    private static int[] push(int[] stack, int count, int value) {
+        int[] result = count == stack.length ? Arrays.copyOf(stack, count * 2) : stack;
+        result[count] = value;
+        return result;
+    }
+
+    /**
+     * Replaces the column. Released slots are cleared in the new column and can be reused from now on.
+     * The caller must hold the lock of this cache.
+     * @param cacheKey The cache key of the projection of the new column
+     * @param values The coordinates of the new column, not shared with the former column
+     */
+    private void replaceColumn(Object cacheKey, EastNorth[] values) {
+        for (int i = 0; i < releasedCount; i++) {
+            values[released[i]] = null;
+            free = push(free, freeCount++, released[i]);
+        }
+        releasedCount = 0;
+        column = new Column(cacheKey, values);
+    }
+
+    /**
+     * Gives a slot to a node, if it has none.
+     * @param node The node
+     */
+    synchronized void assign(Node node) {
+        if (node.getEastNorthIndex() >= 0) {
+            return;
+        }
+        int index;
+        if (freeCount > 0) {
+            index = free[--freeCount];
+        } else {
+            index = next++;
+            Column c = column;
+            if (index >= c.values.length) {
+                replaceColumn(c.cacheKey, Arrays.copyOf(c.values, c.values.length + (c.values.length >> 1)));
+            }
+        }
+        // set after the column that holds the slot was published, see get()
+        node.setEastNorthIndex(index);
+    }
+
+    /**
+     * Releases the slot of a node. It will be given to an other node once the column is replaced.
+     * @param node The node
+     */
+    synchronized void release(Node node) {
+        int index = node.getEastNorthIndex();
+        if (index >= 0) {
+            node.setEastNorthIndex(-1);
+            released = push(released, releasedCount++, index);
+        }
+    }
+
+    /**
+     * Releases all slots. The nodes must have released their slot before.
+     */
+    synchronized void clear() {
+        freeCount = 0;
+        releasedCount = 0;
+        next = 0;
+        column = new Column(currentCacheKey(), new EastNorth[INITIAL_CAPACITY]);
+    }
+
+    /**
+     * Invalidates all cached coordinates, e.g. after a projection change.
+     */
+    synchronized void invalidate() {
+        replaceColumn(currentCacheKey(), new EastNorth[column.values.length]);
+    }
+
+    /**
+     * Replaces the column if it does not belong to the current projection, e.g. when it was created before a
+     * projection was set.
+     * @param c The column that was read
+     * @param cacheKey The cache key of the current projection
+     */
+    private synchronized void switchProjection(Column c, Object cacheKey) {
+        if (column == c) {
+            replaceColumn(cacheKey, new EastNorth[c.values.length]);
+        }
+    }
+
+    /**
+     * Gets the projected coordinates of a node, computing them if they are not cached.
+     * @param node The node. Its lat/lon must be known
+     * @param projection The projection to use
+     * @return The projected coordinates
+     */
+    EastNorth get(Node node, Projecting projection) {
+        Object key = projection.getCacheKey();
+        // the column must be read before the slot, so that a slot given after a column change is never used with
+        // the former column
+        Column c = column;
+        int index = node.getEastNorthIndex();
+        if (key == null || index < 0 || index >= c.values.length) {
+            return projection.latlon2eastNorth(node);
+        }
+        if (!key.equals(c.cacheKey)) {
+            if (!key.equals(currentCacheKey())) {
+                // Do not replace the cache for some other projection, e.g. one with an offset.
+                return projection.latlon2eastNorth(node);
+            }
+            switchProjection(c, key);
+            c = column;
+            index = node.getEastNorthIndex();
+            if (index < 0 || index >= c.values.length || !key.equals(c.cacheKey)) {
+                return projection.latlon2eastNorth(node);
+            }
+        }
+        EastNorth en = c.values[index];
+        if (en == null || c != column) {
+            en = projection.latlon2eastNorth(node);
+            c.values[index] = en;
+        }
+        return en;
+    }
+
+    /**
+     * Stores the coordinates of a node that were already projected.
+     * @param node The node
+     * @param eastNorth The projected coordinates
+     * @param key The cache key of the projection that was used
+     */
+    void set(Node node, EastNorth eastNorth, Object key) {
+        Column c = column;
+        if (key != null && !key.equals(c.cacheKey) && key.equals(currentCacheKey())) {
+            switchProjection(c, key);
+            c = column;
+        }
+        int index = node.getEastNorthIndex();
+        if (index >= 0 && index < c.values.length) {
+            c.values[index] = Objects.equals(key, c.cacheKey) ? eastNorth : null;
+        }
+    }
+
+    /**
+     * Invalidates the coordinates of one node.
+     * @param node The node
+     */
+    void invalidate(Node node) {
+        Column c = column;
+        int index = node.getEastNorthIndex();
+        if (index >= 0 && index < c.values.length) {
+            c.values[index] = null;
+        }
+    }
+
+    /**
+     * Gets the number of slots that are in use.
+     * @return The number of nodes in this cache.
+     */
+    synchronized int size() {
+        return next - freeCount - releasedCount;
+    }
+}
@@ -595,7 +595,7 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Template
         if (isHighlighted() != highlighted) {
             updateFlags(FLAG_HIGHLIGHTED, highlighted);
             if (dataSet != null) {
-                dataSet.fireHighlightingChanged();
+                dataSet.fireHighlightingChanged(Collections.singleton(this));
             }
         }
     }
@@ -0,0 +1,229 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Difference between two states of a primitive, allowing to compute back the former state from the latter.
+ * <p>
+ * It is used to keep the states saved by commands for undo: only the tags, way nodes and relation members which
+ * have changed are stored, together with the other attributes (id, version, flags, coordinates, ...) which are small.
+ * The former state can only be computed from the latter state: if the tags, way nodes or relation members of the primitive
+ * have been changed in the meantime, {@link #restore} fails.
+ * @since xxx
+ */
+public final class PrimitiveDelta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // rough sizes in bytes, on a 64-bit JVM
+    private static final int OBJECT = 16;
+    private static final int REFERENCE = 8;
+    private static final int ARRAY = 16;
+    private static final int ARRAY_LIST = 40;
+    private static final int PRIMITIVE = 64;
+    private static final int LONG = 16;
+    private static final int MEMBER = 32;
+
+    /** former state, without tags, way nodes and relation members */
+    private final PrimitiveData header;
+    /** keys and former values ({@code null} if the tag was absent) of the tags which have changed */
+    private final String[] changedTags;
+    /** hash code of the latter tags */
+    private final int tagsHash;
+    /** number of unchanged way nodes or relation members at the start of the list */
+    private final int prefix;
+    /** number of unchanged way nodes or relation members at the end of the list */
+    private final int suffix;
+    /** size and hash code of the latter list of way nodes or relation members */
+    private final int size;
+    private final int hash;
+    /** former way nodes between prefix and suffix, {@code null} if they did not change */
+    private final long[] nodes;
+    /** former relation members between prefix and suffix, {@code null} if they did not change */
+    private final RelationMemberData[] members;
+
+    /**
+     * Constructs a new {@code PrimitiveDelta}.
+     * @param before the former state of the primitive
+     * @param after the latter state of the primitive
+     * @throws IllegalArgumentException if the states are not of the same primitive type
+     */
+    public PrimitiveDelta(PrimitiveData before, PrimitiveData after) {
+        if (before.getType() != after.getType()) {
+            throw new IllegalArgumentException("Not the same type: " + before + ", " + after);
+        }
+        Map<String, String> afterKeys = after.getKeys();
+        changedTags = diffTags(before.getKeys(), afterKeys);
+        tagsHash = afterKeys.hashCode();
+        List<?> from = Collections.emptyList();
+        List<?> to = Collections.emptyList();
+        if (before instanceof WayData) {
+            from = ((WayData) before).getNodeIds();
+            to = ((WayData) after).getNodeIds();
+        } else if (before instanceof RelationData) {
+            from = ((RelationData) before).getMembers();
+            to = ((RelationData) after).getMembers();
+        }
+        int p = 0;
+        int s = 0;
+        if (!from.equals(to)) {
+            int min = Math.min(from.size(), to.size());
+            while (p < min && from.get(p).equals(to.get(p))) {
+                p++;
+            }
+            while (s < min - p && from.get(from.size() - 1 - s).equals(to.get(to.size() - 1 - s))) {
+                s++;
+            }
+        }
+        prefix = p;
+        suffix = s;
+        size = to.size();
+        hash = to.hashCode();
+        if (from.equals(to)) {
+            nodes = null;
+            members = null;
+        } else if (before instanceof WayData) {
+            nodes = new long[from.size() - p - s];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = (Long) from.get(p + i);
+            }
+            members = null;
+        } else {
+            nodes = null;
+            members = from.subList(p, from.size() - s).toArray(new RelationMemberData[0]);
+        }
+
+        header = before.makeCopy();
+        header.setKeys(null);
+        if (header instanceof WayData) {
+            ((WayData) header).setNodeIds(Collections.emptyList());
+        } else if (header instanceof RelationData) {
+            ((RelationData) header).setMembers(Collections.emptyList());
+        }
+    }
+
+    private static String[] diffTags(Map<String, String> before, Map<String, String> after) {
+        Set<String> keys = new HashSet<>(before.keySet());
+        keys.addAll(after.keySet());
+        List<String> changes = new ArrayList<>();
+        for (String key : keys) {
+            String value = before.get(key);
+            if (!Objects.equals(value, after.get(key))) {
+                changes.add(key);
+                changes.add(value);
+            }
+        }
+        return changes.isEmpty() ? null : changes.toArray(new String[0]);
+    }
+
+    /**
+     * Computes the former state of the primitive.
+     * @param after the latter state of the primitive
+     * @return the former state of the primitive
+     * @throws IllegalArgumentException if the state is not of the same primitive type
+     * @throws IllegalStateException if the tags, way nodes or relation members are not the ones of the latter state,
+     * so that the former ones cannot be computed
+     */
+    public PrimitiveData restore(PrimitiveData after) {
+        if (after.getType() != header.getType()) {
+            throw new IllegalArgumentException("Not a " + header.getType() + ": " + after);
+        }
+        PrimitiveData before = header.makeCopy();
+        Map<String, String> keys = after.getKeys();
+        checkUnchanged(keys.hashCode() == tagsHash, "tags");
+        if (changedTags != null) {
+            for (int i = 0; i < changedTags.length; i += 2) {
+                if (changedTags[i + 1] == null) {
+                    keys.remove(changedTags[i]);
+                } else {
+                    keys.put(changedTags[i], changedTags[i + 1]);
+                }
+            }
+        }
+        before.setKeys(keys);
+        if (before instanceof WayData) {
+            List<Long> current = ((WayData) after).getNodeIds();
+            checkUnchanged(current.size() == size && current.hashCode() == hash, "way nodes");
+            List<Long> ids = current;
+            if (nodes != null) {
+                ids = new ArrayList<>(current.size() - prefix - suffix + nodes.length);
+                ids.addAll(current.subList(0, prefix));
+                for (long id : nodes) {
+                    ids.add(id);
+                }
+                ids.addAll(current.subList(current.size() - suffix, current.size()));
+            }
+            ((WayData) before).setNodeIds(ids);
+        } else if (before instanceof RelationData) {
+            List<RelationMemberData> current = ((RelationData) after).getMembers();
+            checkUnchanged(current.size() == size && current.hashCode() == hash, "relation members");
+            List<RelationMemberData> list = current;
+            if (members != null) {
+                list = new ArrayList<>(current.size() - prefix - suffix + members.length);
+                list.addAll(current.subList(0, prefix));
+                Collections.addAll(list, members);
+                list.addAll(current.subList(current.size() - suffix, current.size()));
+            }
+            ((RelationData) before).setMembers(list);
+        }
+        return before;
+    }
+
+    private void checkUnchanged(boolean unchanged, String what) {
+        if (!unchanged) {
+            throw new IllegalStateException("Cannot restore the " + what + " of " + header + ", they have been modified");
+        }
+    }
+
+    /**
+     * Returns an estimate of the memory used by this delta.
+     * @return an estimate of the memory used by this delta, in bytes
+     */
+    public long getEstimatedSize() {
+        long result = OBJECT + 6L * REFERENCE + estimateSize(header);
+        if (changedTags != null) {
+            result += ARRAY + (long) REFERENCE * changedTags.length;
+        }
+        if (nodes != null) {
+            result += ARRAY + 8L * nodes.length;
+        }
+        if (members != null) {
+            result += ARRAY + (long) (REFERENCE + MEMBER) * members.length;
+        }
+        return result;
+    }
+
+    /**
+     * Returns an estimate of the memory used by a primitive or by a saved state of a primitive,
+     * without the tag strings which are shared (see {@link TagDictionary}).
+     * @param primitive the primitive or the saved state of a primitive
+     * @return an estimate of the memory used by {@code primitive}, in bytes
+     */
+    public static long estimateSize(IPrimitive primitive) {
+        long result = PRIMITIVE;
+        if (primitive.hasKeys()) {
+            result += ARRAY + 2L * REFERENCE * primitive.getNumKeys();
+        }
+        if (primitive instanceof WayData) {
+            result += ARRAY_LIST + ARRAY + (long) (REFERENCE + LONG) * ((WayData) primitive).getNodesCount();
+        } else if (primitive instanceof IWay) {
+            result += ARRAY + (long) REFERENCE * ((IWay<?>) primitive).getNodesCount();
+        } else if (primitive instanceof IRelation) {
+            result += ARRAY_LIST + ARRAY + (long) (REFERENCE + MEMBER) * ((IRelation<?>) primitive).getMembersCount();
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "PrimitiveDelta [" + header + ']';
+    }
+}
@@ -0,0 +1,397 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread safe set of primitives, indexed by their unique id and type.
+ * <p>
+ * Unlike {@link Storage}, which synchronizes every access on a single monitor, this store is split into several
+ * independent stripes. Each stripe is an open addressing hash table storing the ids in a primitive {@code long[]}
+ * next to the primitives themselves, so a lookup compares ids without dereferencing the stored objects.
+ * Lookups use optimistic reads ({@link StampedLock#tryOptimisticRead()}) and only fall back to a read lock if a
+ * concurrent modification of the same stripe was detected. Parallel readers therefore never block each other.
+ * <p>
+ * The iterator works on a snapshot of the data, similar to {@link Storage} in safe iterator mode: the store can be
+ * modified while iterating, but the modifications are not visible to the iterator.
+ *
+ * @param <T> type of stored primitives
+ * @since xxx
+ */
+public class PrimitiveIdStore<T extends PrimitiveId> extends AbstractSet<T> {
+
+    private static final double LOAD_FACTOR = 0.6d;
+    private static final int DEFAULT_STRIPES = 16;
+    private static final int MIN_STRIPE_CAPACITY = 16;
+
+    private final Stripe<T>[] stripes;
+    private final int stripeShift;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Constructs a new {@code PrimitiveIdStore} with the default number of stripes.
+     */
+    public PrimitiveIdStore() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs a new {@code PrimitiveIdStore}.
+     * @param stripeCount the number of independently locked stripes. Rounded up to the next power of two.
+     */
+    public PrimitiveIdStore(int stripeCount) {
+        if (stripeCount <= 0)
+            throw new IllegalArgumentException("stripeCount must be positive: " + stripeCount);
+        int bits = 32 - Integer.numberOfLeadingZeros(stripeCount - 1);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Stripe<T>[] s = new Stripe[1 << bits];
+        for (int i = 0; i < s.length; i++) {
+            s[i] = new Stripe<>();
+        }
+        stripes = s;
+        stripeShift = 64 - bits;
+    }
+
+    // --------------- hashing ------------------------
+
+    private static long hash(long id, OsmPrimitiveType type) {
+        long h = (id ^ ((long) type.ordinal() << 61)) * 0x9E37_79B9_7F4A_7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private Stripe<T> stripeFor(long hash) {
+        // The stripe uses the upper bits, the slot inside the stripe the lower bits of the hash.
+        return stripeShift == 64 ? stripes[0] : stripes[(int) (hash >>> stripeShift)];
+    }
+
+    // --------------- lookup ------------------------
+
+    /**
+     * Gets the primitive with the given id.
+     * @param primitiveId the id to search for
+     * @return The primitive with the same unique id and type or {@code null} if there is none.
+     */
+    public T get(PrimitiveId primitiveId) {
+        return primitiveId == null ? null : get(primitiveId.getUniqueId(), primitiveId.getType());
+    }
+
+    /**
+     * Gets the primitive with the given id.
+     * @param uniqueId the unique id of the primitive
+     * @param type the type of the primitive
+     * @return The primitive with the same unique id and type or {@code null} if there is none.
+     */
+    public T get(long uniqueId, OsmPrimitiveType type) {
+        long hash = hash(uniqueId, type);
+        return stripeFor(hash).get(hash, uniqueId, type);
+    }
+
+    // --------------- Collection implementation ------------------------
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof PrimitiveId && get((PrimitiveId) o) != null;
+    }
+
+    /**
+     * Adds a primitive to this store.
+     * @param t the primitive
+     * @return {@code true} if it was added, {@code false} if there already is a primitive with the same id in this store.
+     */
+    @Override
+    public boolean add(T t) {
+        long id = t.getUniqueId();
+        OsmPrimitiveType type = t.getType();
+        long hash = hash(id, type);
+        boolean added = stripeFor(hash).add(hash, id, type, t);
+        if (added) {
+            size.incrementAndGet();
+        }
+        return added;
+    }
+
+    /**
+     * Removes the primitive with the same id as the given one from this store.
+     * @param o the primitive (id) to remove
+     * @return {@code true} if a primitive was removed.
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof PrimitiveId))
+            return false;
+        PrimitiveId primitiveId = (PrimitiveId) o;
+        long id = primitiveId.getUniqueId();
+        OsmPrimitiveType type = primitiveId.getType();
+        long hash = hash(id, type);
+        boolean removed = stripeFor(hash).remove(hash, id, type);
+        if (removed) {
+            size.decrementAndGet();
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        for (Stripe<T> stripe : stripes) {
+            size.addAndGet(-stripe.clear());
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Object[][] snapshot = new Object[stripes.length][];
+        for (int i = 0; i < stripes.length; i++) {
+            snapshot[i] = stripes[i].snapshot();
+        }
+        return new SnapshotIterator<>(snapshot);
+    }
+
+    // --------------- Implementation ------------------------
+
+    /**
+     * The arrays of one stripe. They are replaced together when the stripe grows.
+     */
+    private static final class Table {
+        private final long[] ids;
+        private final Object[] values;
+
+        Table(int capacity) {
+            ids = new long[capacity];
+            values = new Object[capacity];
+        }
+
+        Table(Table copy) {
+            ids = Arrays.copyOf(copy.ids, copy.ids.length);
+            values = Arrays.copyOf(copy.values, copy.values.length);
+        }
+    }
+
+    /**
+     * A single open addressing hash table with its own lock.
+     * @param <T> type of stored primitives
+     */
+    private static final class Stripe<T extends PrimitiveId> {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = new Table(MIN_STRIPE_CAPACITY);
+        private int size;
+        /**
+         * Set if the current table is referenced by an iterator. It must be copied before it is modified the next time.
+         */
+        private volatile boolean shared;
+
+        T get(long hash, long id, OsmPrimitiveType type) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                T result = find(table, hash, id, type);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(table, hash, id, type);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Finds the primitive. Needs to be safe against concurrent modifications, since it may run without holding a lock.
+         * The result is only used if the optimistic read was valid.
+         */
+        @SuppressWarnings("unchecked")
+        private static <T extends PrimitiveId> T find(Table t, long hash, long id, OsmPrimitiveType type) {
+            long[] ids = t.ids;
+            Object[] values = t.values;
+            int mask = values.length - 1;
+            int slot = (int) hash & mask;
+            for (int i = 0; i < values.length; i++) {
+                Object entry = values[slot];
+                if (entry == null) {
+                    return null;
+                } else if (ids[slot] == id && ((PrimitiveId) entry).getType() == type) {
+                    return (T) entry;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Finds the slot of the given id. Must be called while holding a lock.
+         * @return The slot or the one's complement of a free slot where it can be inserted.
+         */
+        private int findSlot(Table t, long hash, long id, OsmPrimitiveType type) {
+            int mask = t.values.length - 1;
+            int slot = (int) hash & mask;
+            Object entry;
+            while ((entry = t.values[slot]) != null) {
+                if (t.ids[slot] == id && ((PrimitiveId) entry).getType() == type) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return ~slot;
+        }
+
+        boolean add(long hash, long id, OsmPrimitiveType type, T value) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = writableTable();
+                int slot = findSlot(t, hash, id, type);
+                if (slot >= 0) {
+                    return false;
+                }
+                if (size + 1 > t.values.length * LOAD_FACTOR) {
+                    t = grow(t);
+                    slot = findSlot(t, hash, id, type);
+                }
+                t.ids[~slot] = id;
+                t.values[~slot] = value;
+                size++;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(long hash, long id, OsmPrimitiveType type) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = findSlot(table, hash, id, type);
+                if (slot < 0) {
+                    return false;
+                }
+                Table t = writableTable();
+                fillTheHole(t, slot);
+                size--;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Backward shift deletion, see {@link Storage} for the same algorithm.
+         */
+        private static void fillTheHole(Table t, int hole) {
+            int mask = t.values.length - 1;
+            int bucket = (hole + 1) & mask;
+            Object entry;
+            while ((entry = t.values[bucket]) != null) {
+                int right = (int) hash(t.ids[bucket], ((PrimitiveId) entry).getType()) & mask;
+                // if the entry should be in <hole+1,bucket-1> (circular-wise) we can't move it.
+                if ((bucket < right && (right <= hole || hole <= bucket)) ||
+                        (right <= hole && hole <= bucket)) {
+                    t.ids[hole] = t.ids[bucket];
+                    t.values[hole] = entry;
+                    hole = bucket;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+            t.ids[hole] = 0;
+            t.values[hole] = null;
+        }
+
+        private Table writableTable() {
+            if (shared) {
+                table = new Table(table);
+                shared = false;
+            }
+            return table;
+        }
+
+        private Table grow(Table old) {
+            Table big = new Table(old.values.length * 2);
+            int mask = big.values.length - 1;
+            for (int i = 0; i < old.values.length; i++) {
+                Object entry = old.values[i];
+                if (entry != null) {
+                    int slot = (int) hash(old.ids[i], ((PrimitiveId) entry).getType()) & mask;
+                    while (big.values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    big.ids[slot] = old.ids[i];
+                    big.values[slot] = entry;
+                }
+            }
+            table = big;
+            return big;
+        }
+
+        int clear() {
+            long stamp = lock.writeLock();
+            try {
+                int removed = size;
+                table = new Table(MIN_STRIPE_CAPACITY);
+                shared = false;
+                size = 0;
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        Object[] snapshot() {
+            long stamp = lock.readLock();
+            try {
+                if (size == 0) {
+                    return null;
+                }
+                shared = true;
+                return table.values;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    private static final class SnapshotIterator<T> implements Iterator<T> {
+        private final Object[][] data;
+        private int stripe;
+        private int slot;
+
+        SnapshotIterator(Object[][] data) {
+            this.data = data;
+        }
+
+        private void align() {
+            while (stripe < data.length) {
+                Object[] values = data[stripe];
+                if (values != null) {
+                    while (slot < values.length && values[slot] == null) {
+                        slot++;
+                    }
+                    if (slot < values.length) {
+                        return;
+                    }
+                }
+                stripe++;
+                slot = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            align();
+            return stripe < data.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return (T) data[stripe][slot++];
+        }
+    }
+}
@@ -34,9 +34,9 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
     private final QuadBuckets<W> ways = new QuadBuckets<>();
 
     /**
-     * All relations/relationships
+     * All relations/relationships, indexed by id so that {@link #containsRelation} and removal do not need a linear scan
      */
-    private final Collection<R> relations = new ArrayList<>();
+    private final PrimitiveIdStore<R> relations = new PrimitiveIdStore<>();
 
     /**
      * Searches for nodes in the given bounding box.
@@ -115,6 +115,30 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
         }
     }
 
+    /**
+     * Adds many primitives to this quad bucket store. This is faster than adding them one by one, see
+     * {@link QuadBuckets#addAll(Collection)}.
+     *
+     * @param primitives the primitives.
+     * @since xxx
+     */
+    @SuppressWarnings("unchecked")
+    public void addPrimitives(Collection<? extends IPrimitive> primitives) {
+        List<N> newNodes = new ArrayList<>();
+        List<W> newWays = new ArrayList<>();
+        for (IPrimitive primitive : primitives) {
+            if (primitive instanceof INode) {
+                newNodes.add((N) primitive);
+            } else if (primitive instanceof IWay) {
+                newWays.add((W) primitive);
+            } else {
+                addPrimitive(primitive);
+            }
+        }
+        nodes.addAll(newNodes);
+        ways.addAll(newWays);
+    }
+
     protected void removePrimitive(IPrimitive primitive) {
         boolean success = false;
         if (primitive instanceof INode) {
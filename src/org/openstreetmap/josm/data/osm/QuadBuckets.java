@@ -287,6 +287,83 @@ public class QuadBuckets<T extends IPrimitive> implements Collection<T> {
             findBucket(o.getBBox()).doAdd(o);
         }
 
+        /**
+         * Adds many primitives at once. The result is the same as calling {@link #add} for each primitive, but each level
+         * is split at most once and the content lists are allocated with their final size.
+         * <p>
+         * The primitives of the range are sorted by their quad index at this level, with a counting sort from {@code src}
+         * into {@code dst}. Each index range is then added to the matching child with both batches swapped, so the whole
+         * operation is a radix sort by quad key that builds the levels on the way.
+         * @param src the primitives, the range {@code [from, to)} is added. The content of the range is undefined afterwards
+         * @param dst a batch of the same size as {@code src} used for sorting
+         * @param from the first index of the range (inclusive)
+         * @param to the last index of the range (exclusive)
+         */
+        @SuppressWarnings("unchecked")
+        void addAll(Batch src, Batch dst, int from, int to) {
+            Batch in = src;
+            Batch out = dst;
+            int start = from;
+            int end = to;
+            if (!hasChildren()) {
+                int existing = content == null ? 0 : content.size();
+                if (!isLeaf || level >= QuadTiling.NR_LEVELS || existing + end - start <= MAX_OBJECTS_PER_NODE) {
+                    // same as doAdd: there is no need to split this level
+                    if (content == null) {
+                        content = new ArrayList<>(end - start);
+                    }
+                    for (int i = start; i < end; i++) {
+                        content.add((T) in.items[i]);
+                    }
+                    return;
+                }
+                if (existing > 0) {
+                    // same as doSplit: the current content is distributed as well
+                    in = new Batch(existing + end - start);
+                    for (int i = 0; i < existing; i++) {
+                        in.set(i, content.get(i));
+                    }
+                    System.arraycopy(src.items, start, in.items, existing, end - start);
+                    System.arraycopy(src.codes, start, in.codes, existing, end - start);
+                    out = new Batch(in.items.length);
+                    start = 0;
+                    end = in.items.length;
+                }
+                content = null;
+                isLeaf = false;
+            }
+
+            // position 0 is for primitives that stay at this level (index -1)
+            int[] offsets = new int[QuadTiling.TILES_PER_LEVEL + 2];
+            for (int i = start; i < end; i++) {
+                offsets[in.getIndex(i, level) + 2]++;
+            }
+            offsets[0] = start;
+            for (int i = 1; i < offsets.length; i++) {
+                offsets[i] += offsets[i - 1];
+            }
+            int[] positions = Arrays.copyOf(offsets, offsets.length - 1);
+            for (int i = start; i < end; i++) {
+                int position = positions[in.getIndex(i, level) + 1]++;
+                out.items[position] = in.items[i];
+                out.codes[position] = in.codes[i];
+            }
+
+            if (offsets[1] > offsets[0]) {
+                if (content == null) {
+                    content = new ArrayList<>(offsets[1] - offsets[0]);
+                }
+                for (int i = offsets[0]; i < offsets[1]; i++) {
+                    content.add((T) out.items[i]);
+                }
+            }
+            for (byte idx = 0; idx < QuadTiling.TILES_PER_LEVEL; idx++) {
+                if (offsets[idx + 2] > offsets[idx + 1]) {
+                    getChild(idx).addAll(out, in, offsets[idx + 1], offsets[idx + 2]);
+                }
+            }
+        }
+
         private void search(QuadBuckets<T> buckets, BBox searchBbox, List<T> result) {
             if (!this.intersects(searchBbox))
                 return;
@@ -356,6 +433,50 @@ public class QuadBuckets<T extends IPrimitive> implements Collection<T> {
         }
     }
 
+    /**
+     * Primitives to be added in bulk, together with their quad key.
+     * <p>
+     * The quad key stores the quad tile of the bottom left corner of the bbox in the lower bits and the first level at which
+     * the bbox crosses a tile border in the bits above, so the quad index of each level is found without calling
+     * {@link BBox#getIndex(int)} again and again.
+     */
+    static final class Batch {
+        private static final int DEPTH_SHIFT = 2 * QuadTiling.NR_LEVELS;
+
+        private final Object[] items;
+        private final long[] codes;
+
+        Batch(int size) {
+            items = new Object[size];
+            codes = new long[size];
+        }
+
+        void set(int i, IPrimitive primitive) {
+            BBox bbox = primitive.getBBox();
+            long bottomLeft = QuadTiling.quadTile(bbox.ymin, bbox.xmin);
+            long diff = bottomLeft ^ QuadTiling.quadTile(bbox.ymax, bbox.xmax);
+            // the first level with a different index, see BBox.getIndex
+            long depth = diff == 0 ? QuadTiling.NR_LEVELS : (Long.numberOfLeadingZeros(diff) - (Long.SIZE - DEPTH_SHIFT)) / 2;
+            items[i] = primitive;
+            codes[i] = depth << DEPTH_SHIFT | bottomLeft;
+        }
+
+        /**
+         * Returns the quad index of a primitive at the given level.
+         * @param i the index of the primitive in this batch
+         * @param level the level
+         * @return the same as {@link BBox#getIndex(int)} of the primitive, or -1 for all levels below the first level with
+         * index -1 (the primitive is stored at that level, so deeper levels do not matter)
+         */
+        int getIndex(int i, int level) {
+            long code = codes[i];
+            if (level >= code >>> DEPTH_SHIFT) {
+                return -1;
+            }
+            return (int) (code >>> 2 * (QuadTiling.NR_LEVELS - level - 1)) & 3;
+        }
+    }
+
     private QBLevel<T> root;
     private QBLevel<T> searchCache;
     private int size;
@@ -412,13 +533,35 @@ public class QuadBuckets<T extends IPrimitive> implements Collection<T> {
         return changed;
     }
 
+    /**
+     * Adds all primitives of the collection.
+     * <p>
+     * Large collections are inserted in bulk: the primitives are sorted by their quad key and every level of the tree is built
+     * once, instead of being split and refilled as single primitives arrive. This is considerably faster when loading data.
+     * @param objects the primitives to add
+     * @return {@code true} if this collection changed
+     */
     @Override
     public boolean addAll(Collection<? extends T> objects) {
-        boolean changed = false;
+        if (objects.size() <= MAX_OBJECTS_PER_NODE) {
+            boolean changed = false;
+            for (T o : objects) {
+                changed |= add(o);
+            }
+            return changed;
+        }
+        Batch batch = new Batch(objects.size());
+        int count = 0;
         for (T o : objects) {
-            changed |= add(o);
+            if (o.getBBox().isValid()) {
+                batch.set(count++, o);
+            } else {
+                invalidBBoxPrimitives.add(o);
+            }
         }
-        return changed;
+        root.addAll(batch, new Batch(count), 0, count);
+        size += objects.size();
+        return true;
     }
 
     @Override
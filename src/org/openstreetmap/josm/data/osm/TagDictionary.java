@@ -0,0 +1,50 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+/**
+ * A global dictionary for tag keys and values.
+ * <p>
+ * Most tags are repeated many times in a data set ({@code highway=residential}, {@code building=yes}, ...). This dictionary
+ * makes sure that all primitives share the same {@link String} instance for equal keys and values. Since
+ * {@link String#equals(Object)} tests for identity first, lookups of canonical keys are a simple reference comparison.
+ * <p>
+ * The canonical instance is the one of {@link String#intern()}, so unused entries are garbage collected by the JVM. Since
+ * {@code String.intern()} is a comparatively slow native call, a small lock free lookup table is placed in front of it.
+ * That table is lossy: colliding entries just replace each other.
+ *
+ * @since xxx
+ */
+public final class TagDictionary {
+    private static final int TABLE_BITS = 16;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+
+    /**
+     * The recently used canonical strings. Concurrent writes may overwrite each other, which is harmless since every entry
+     * is a canonical string.
+     */
+    private static final String[] TABLE = new String[1 << TABLE_BITS];
+
+    private TagDictionary() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Gets the canonical instance of a tag key or value.
+     * @param s The string. May be <code>null</code>
+     * @return A string equal to <code>s</code> that is shared by all tags, or <code>null</code> if <code>s</code> was null.
+     */
+    public static String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        int h = s.hashCode();
+        int index = (h ^ (h >>> TABLE_BITS)) & TABLE_MASK;
+        String cached = TABLE[index];
+        if (cached != null && cached.equals(s)) {
+            return cached;
+        }
+        String canonical = s.intern();
+        TABLE[index] = canonical;
+        return canonical;
+    }
+}
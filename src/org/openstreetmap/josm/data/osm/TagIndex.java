@@ -0,0 +1,239 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+
+/**
+ * Inverted index of the tags of a {@link DataSet}: key → value → primitives.
+ * <p>
+ * The index is created on demand by {@link DataSet#getTagIndex()} and kept up to date from the dataset events.
+ * As the events are only sent at the end of an update, lookups may return primitives which do not have the
+ * searched tag (anymore); callers must therefore test the returned primitives again.
+ * Lookups never miss a primitive of the dataset having the searched tag.
+ * @since xxx
+ */
+public final class TagIndex implements DataSetListener {
+
+    private final DataSet ds;
+    private final Map<String, Map<String, Set<OsmPrimitive>>> index = new HashMap<>();
+    /** false until the index is built, or when events have been lost: the index is (re)built on next lookup */
+    private boolean valid;
+
+    TagIndex(DataSet ds) {
+        this.ds = ds;
+    }
+
+    /**
+     * Returns the primitives having the given tag.
+     * @param key the key
+     * @param value the value
+     * @return the primitives having the tag {@code key=value}
+     */
+    public Collection<OsmPrimitive> get(String key, String value) {
+        return lookup(key, null, value::equals);
+    }
+
+    /**
+     * Returns the primitives having the given key, whatever the value.
+     * @param key the key
+     * @return the primitives having the key {@code key}
+     */
+    public Collection<OsmPrimitive> getByKey(String key) {
+        return lookup(key, null, null);
+    }
+
+    /**
+     * Returns the primitives having one of the keys accepted by the given predicate, whatever the value.
+     * @param keyPredicate the keys to look for
+     * @return the primitives having at least one accepted key
+     */
+    public Collection<OsmPrimitive> getByKey(Predicate<String> keyPredicate) {
+        return lookup(null, keyPredicate, null);
+    }
+
+    /**
+     * Returns the primitives having the given value, whatever the key.
+     * @param value the value
+     * @return the primitives having at least one tag with value {@code value}
+     */
+    public Collection<OsmPrimitive> getByValue(String value) {
+        return lookup(null, k -> true, value::equals);
+    }
+
+    /**
+     * Returns all keys used in the dataset.
+     * @return all keys used in the dataset
+     */
+    public Set<String> getKeys() {
+        Lock lock = ds.getReadLock();
+        lock.lock();
+        try {
+            synchronized (this) {
+                ensureValid();
+                return new HashSet<>(index.keySet());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Collection<OsmPrimitive> lookup(String key, Predicate<String> keyPredicate, Predicate<String> valuePredicate) {
+        // same lock order as the event dispatching: dataset read lock, then index
+        Lock lock = ds.getReadLock();
+        lock.lock();
+        try {
+            synchronized (this) {
+                ensureValid();
+                List<Map<String, Set<OsmPrimitive>>> keys = new ArrayList<>();
+                if (key != null) {
+                    Optional.ofNullable(index.get(key)).ifPresent(keys::add);
+                } else {
+                    index.forEach((k, values) -> {
+                        if (keyPredicate.test(k)) {
+                            keys.add(values);
+                        }
+                    });
+                }
+                List<Set<OsmPrimitive>> sets = new ArrayList<>();
+                int size = 0;
+                for (Map<String, Set<OsmPrimitive>> values : keys) {
+                    for (Map.Entry<String, Set<OsmPrimitive>> e : values.entrySet()) {
+                        if (valuePredicate == null || valuePredicate.test(e.getKey())) {
+                            sets.add(e.getValue());
+                            size += e.getValue().size();
+                        }
+                    }
+                }
+                // a primitive has only one value per key, it can only be found several times through different keys
+                Collection<OsmPrimitive> result = keys.size() > 1 ? new HashSet<>() : new ArrayList<>(size);
+                for (Set<OsmPrimitive> primitives : sets) {
+                    for (OsmPrimitive p : primitives) {
+                        if (p.getDataSet() == ds) {
+                            result.add(p);
+                        }
+                    }
+                }
+                return result;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureValid() {
+        if (!valid) {
+            index.clear();
+            for (OsmPrimitive p : ds.allPrimitives()) {
+                add(p);
+            }
+            valid = true;
+        }
+    }
+
+    private void add(OsmPrimitive p) {
+        p.visitKeys((primitive, key, value) -> add(p, key, value));
+    }
+
+    private void add(OsmPrimitive p, String key, String value) {
+        index.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent(value, v -> new HashSet<>()).add(p);
+    }
+
+    private void remove(OsmPrimitive p, String key, String value) {
+        Map<String, Set<OsmPrimitive>> values = index.get(key);
+        if (values != null) {
+            Set<OsmPrimitive> primitives = values.get(value);
+            if (primitives != null && primitives.remove(p) && primitives.isEmpty()) {
+                values.remove(value);
+                if (values.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void primitivesAdded(PrimitivesAddedEvent event) {
+        if (valid) {
+            for (OsmPrimitive p : event.getPrimitives()) {
+                add(p);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
+        if (valid) {
+            for (OsmPrimitive p : event.getPrimitives()) {
+                p.visitKeys((primitive, key, value) -> remove(p, key, value));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void tagsChanged(TagsChangedEvent event) {
+        if (valid) {
+            OsmPrimitive p = event.getPrimitive();
+            // the tags may have changed again since the event was created, always index the current ones
+            for (Map.Entry<String, String> e : event.getOriginalKeys().entrySet()) {
+                if (!e.getValue().equals(p.get(e.getKey()))) {
+                    remove(p, e.getKey(), e.getValue());
+                }
+            }
+            if (p.getDataSet() == ds) {
+                add(p);
+            }
+        }
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public synchronized void dataChanged(DataChangedEvent event) {
+        if (event.getEvents() == null) {
+            // too many changes, events have been dropped
+            valid = false;
+            index.clear();
+        } else {
+            for (AbstractDatasetChangedEvent e : event.getEvents()) {
+                e.fire(this);
+            }
+        }
+    }
+}
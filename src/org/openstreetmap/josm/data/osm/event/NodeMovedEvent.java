@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm.event;
 import java.util.Collections;
 import java.util.List;
 
+import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
@@ -14,6 +15,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 public class NodeMovedEvent extends AbstractDatasetChangedEvent {
 
     private final Node node;
+    private final BBox oldBBox;
 
     /**
      * Constructs a new {@code NodeMovedEvent}.
@@ -21,8 +23,20 @@ public class NodeMovedEvent extends AbstractDatasetChangedEvent {
      * @param node the node affected by the move
      */
     public NodeMovedEvent(DataSet dataSet, Node node) {
+        this(dataSet, node, null);
+    }
+
+    /**
+     * Constructs a new {@code NodeMovedEvent}.
+     * @param dataSet the dataset from which the event comes from
+     * @param node the node affected by the move
+     * @param oldBBox the bounding box of the node before the move, can be {@code null}
+     * @since xxx
+     */
+    public NodeMovedEvent(DataSet dataSet, Node node, BBox oldBBox) {
         super(dataSet);
         this.node = node;
+        this.oldBBox = oldBBox;
     }
 
     @Override
@@ -38,6 +52,15 @@ public class NodeMovedEvent extends AbstractDatasetChangedEvent {
         return node;
     }
 
+    /**
+     * Returns the bounding box of the node before the move.
+     * @return the old bounding box, or {@code null} if unknown
+     * @since xxx
+     */
+    public BBox getOldBBox() {
+        return oldBBox;
+    }
+
     @Override
     public List<? extends OsmPrimitive> getPrimitives() {
         return Collections.singletonList(node);
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm.event;
 import java.util.Collections;
 import java.util.List;
 
+import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
@@ -14,6 +15,7 @@ import org.openstreetmap.josm.data.osm.Relation;
 public class RelationMembersChangedEvent extends AbstractDatasetChangedEvent {
 
     private final Relation relation;
+    private final BBox oldBBox;
 
     /**
      * Constructs a new {@code RelationMembersChangedEvent}.
@@ -21,8 +23,20 @@ public class RelationMembersChangedEvent extends AbstractDatasetChangedEvent {
      * @param relation the relation affected by the change
      */
     public RelationMembersChangedEvent(DataSet dataSet, Relation relation) {
+        this(dataSet, relation, null);
+    }
+
+    /**
+     * Constructs a new {@code RelationMembersChangedEvent}.
+     * @param dataSet the dataset from which the event comes from
+     * @param relation the relation affected by the change
+     * @param oldBBox the bounding box of the relation before the change, can be {@code null}
+     * @since xxx
+     */
+    public RelationMembersChangedEvent(DataSet dataSet, Relation relation, BBox oldBBox) {
         super(dataSet);
         this.relation = relation;
+        this.oldBBox = oldBBox;
     }
 
     @Override
@@ -38,6 +52,15 @@ public class RelationMembersChangedEvent extends AbstractDatasetChangedEvent {
         return relation;
     }
 
+    /**
+     * Returns the bounding box of the relation before the change.
+     * @return the old bounding box, or {@code null} if unknown
+     * @since xxx
+     */
+    public BBox getOldBBox() {
+        return oldBBox;
+    }
+
     @Override
     public List<? extends OsmPrimitive> getPrimitives() {
         return Collections.singletonList(relation);
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm.event;
 import java.util.Collections;
 import java.util.List;
 
+import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Way;
@@ -14,6 +15,7 @@ import org.openstreetmap.josm.data.osm.Way;
 public class WayNodesChangedEvent extends AbstractDatasetChangedEvent {
 
     private final Way way;
+    private final BBox oldBBox;
 
     /**
      * Constructs a new {@code WayNodesChangedEvent}.
@@ -21,8 +23,20 @@ public class WayNodesChangedEvent extends AbstractDatasetChangedEvent {
      * @param way the way affected by the change
      */
     public WayNodesChangedEvent(DataSet dataSet, Way way) {
+        this(dataSet, way, null);
+    }
+
+    /**
+     * Constructs a new {@code WayNodesChangedEvent}.
+     * @param dataSet the dataset from which the event comes from
+     * @param way the way affected by the change
+     * @param oldBBox the bounding box of the way before the change, can be {@code null}
+     * @since xxx
+     */
+    public WayNodesChangedEvent(DataSet dataSet, Way way, BBox oldBBox) {
         super(dataSet);
         this.way = way;
+        this.oldBBox = oldBBox;
     }
 
     @Override
@@ -38,6 +52,15 @@ public class WayNodesChangedEvent extends AbstractDatasetChangedEvent {
         return way;
     }
 
+    /**
+     * Returns the bounding box of the way before the change.
+     * @return the old bounding box, or {@code null} if unknown
+     * @since xxx
+     */
+    public BBox getOldBBox() {
+        return oldBBox;
+    }
+
     @Override
     public List<? extends OsmPrimitive> getPrimitives() {
         return Collections.singletonList(way);
@@ -12,10 +12,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -24,12 +26,14 @@ import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.TagIndex;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.search.PushbackTokenizer.Range;
@@ -288,6 +292,31 @@ public class SearchCompiler {
         public final boolean test(OsmPrimitive object) {
             return match(object);
         }
+
+        /**
+         * Returns the candidates for this criterion, looked up in the given tag index.
+         * All primitives of the indexed dataset matching this criterion are returned, but not all returned primitives
+         * match it: callers have to test them with {@link #match(OsmPrimitive)}. This allows to search only
+         * a few primitives instead of the whole dataset for selective criteria like {@code amenity=pharmacy}.
+         * @param index the tag index
+         * @return the candidates, or {@code null} if this criterion cannot be looked up in the index
+         * @since xxx
+         */
+        public Collection<OsmPrimitive> getCandidates(TagIndex index) {
+            return null;
+        }
+
+        /**
+         * Determines if the results of this criterion only change when the data set is modified, so that they can be
+         * cached until its next modification and computed in parallel. Criteria depending on other state, like the
+         * selection or the current view, are not cacheable. Neither are criteria unknown to the core, e.g. from plugins,
+         * unless they override this method.
+         * @return {@code true} if the results of this criterion can be cached and computed in parallel
+         * @since xxx
+         */
+        public boolean isCacheable() {
+            return getClass().getClassLoader() == Match.class.getClassLoader();
+        }
     }
 
     public abstract static class TaggedMatch extends Match {
@@ -334,6 +363,11 @@ public class SearchCompiler {
             return match;
         }
 
+        @Override
+        public boolean isCacheable() {
+            return super.isCacheable() && match.isCacheable();
+        }
+
         @Override
         public int hashCode() {
             return 31 + ((match == null) ? 0 : match.hashCode());
@@ -393,6 +427,11 @@ public class SearchCompiler {
             return '(' + m.toString() + ')';
         }
 
+        @Override
+        public boolean isCacheable() {
+            return super.isCacheable() && (lhs == null || lhs.isCacheable()) && (rhs == null || rhs.isCacheable());
+        }
+
         @Override
         public int hashCode() {
             final int prime = 31;
@@ -445,6 +484,11 @@ public class SearchCompiler {
         public boolean match(Tagged osm) {
             return false;
         }
+
+        @Override
+        public Collection<OsmPrimitive> getCandidates(TagIndex index) {
+            return Collections.emptyList();
+        }
     }
 
     /**
@@ -547,6 +591,18 @@ public class SearchCompiler {
             return lhs.match(osm) && rhs.match(osm);
         }
 
+        @Override
+        public Collection<OsmPrimitive> getCandidates(TagIndex index) {
+            // the candidates of one side are enough, the other side is tested on them afterwards
+            Collection<OsmPrimitive> left = lhs.getCandidates(index);
+            if (left != null && left.isEmpty())
+                return left;
+            Collection<OsmPrimitive> right = rhs.getCandidates(index);
+            if (left == null || (right != null && right.size() < left.size()))
+                return right;
+            return left;
+        }
+
         @Override
         public String toString() {
             return (lhs instanceof AbstractBinaryMatch && !(lhs instanceof And) ? parenthesis(lhs) : lhs) + " && "
@@ -577,6 +633,19 @@ public class SearchCompiler {
             return lhs.match(osm) || rhs.match(osm);
         }
 
+        @Override
+        public Collection<OsmPrimitive> getCandidates(TagIndex index) {
+            Collection<OsmPrimitive> left = lhs.getCandidates(index);
+            if (left == null)
+                return null;
+            Collection<OsmPrimitive> right = rhs.getCandidates(index);
+            if (right == null)
+                return null;
+            Set<OsmPrimitive> result = new HashSet<>(left);
+            result.addAll(right);
+            return result;
+        }
+
         @Override
         public String toString() {
             return (lhs instanceof AbstractBinaryMatch && !(lhs instanceof Or) ? parenthesis(lhs) : lhs) + " || "
@@ -768,6 +837,19 @@ public class SearchCompiler {
             return false;
         }
 
+        @Override
+        public Collection<OsmPrimitive> getCandidates(TagIndex index) {
+            if (keyPattern != null) {
+                return index.getByKey(k -> keyPattern.matcher(k).find());
+            } else if ("timestamp".equals(key)) {
+                return null;
+            } else if (caseSensitive) {
+                return index.getByKey(key);
+            } else {
+                return index.getByKey(key::equalsIgnoreCase);
+            }
+        }
+
         @Override
         public String toString() {
             return key + '=' + value;
@@ -1021,6 +1103,23 @@ public class SearchCompiler {
             throw new AssertionError("Missed state");
         }
 
+        @Override
+        public Collection<OsmPrimitive> getCandidates(TagIndex index) {
+            switch (mode) {
+            case EXACT:
+                return index.get(key, value);
+            case ANY_VALUE:
+                return index.getByKey(key);
+            case ANY_KEY:
+                return index.getByValue(value);
+            case ANY_VALUE_REGEXP:
+            case EXACT_REGEXP:
+                return index.getByKey(k -> keyPattern.matcher(k).matches());
+            default:
+                return null;
+            }
+        }
+
         @Override
         public String toString() {
             return key + '=' + value;
@@ -1574,6 +1673,12 @@ public class SearchCompiler {
             return osm.isNew();
         }
 
+        @Override
+        public boolean isCacheable() {
+            // the upload state may change without a modification of the data of the primitive
+            return false;
+        }
+
         @Override
         public String toString() {
             return "new";
@@ -1589,6 +1694,12 @@ public class SearchCompiler {
             return osm.isModified() || osm.isNewOrUndeleted();
         }
 
+        @Override
+        public boolean isCacheable() {
+            // the upload state may change without a modification of the data of the primitive
+            return false;
+        }
+
         @Override
         public String toString() {
             return "modified";
@@ -1619,6 +1730,12 @@ public class SearchCompiler {
             return osm.getDataSet().isSelected(osm);
         }
 
+        @Override
+        public boolean isCacheable() {
+            // selecting primitives does not modify the data set
+            return false;
+        }
+
         @Override
         public String toString() {
             return "selected";
@@ -1798,14 +1915,30 @@ public class SearchCompiler {
 
         protected abstract Collection<Bounds> getBounds(OsmPrimitive primitive);
 
+        @Override
+        public boolean isCacheable() {
+            // the bounds may change without modifying the data set, e.g. the current view
+            return false;
+        }
+
+        /**
+         * Determines if a node is within the bounds returned by {@link #getBounds(OsmPrimitive)}.
+         * @param node the node
+         * @return {@code true} if the node is within the bounds
+         * @since xxx
+         */
+        protected boolean contains(Node node) {
+            LatLon coordinate = node.getCoor();
+            Collection<Bounds> allBounds = getBounds(node);
+            return coordinate != null && allBounds != null && allBounds.stream().anyMatch(bounds -> bounds.contains(coordinate));
+        }
+
         @Override
         public boolean match(OsmPrimitive osm) {
             if (!osm.isUsable())
                 return false;
             else if (osm instanceof Node) {
-                LatLon coordinate = ((Node) osm).getCoor();
-                Collection<Bounds> allBounds = getBounds(osm);
-                return coordinate != null && allBounds != null && allBounds.stream().anyMatch(bounds -> bounds.contains(coordinate));
+                return contains((Node) osm);
             } else if (osm instanceof Way) {
                 Collection<Node> nodes = ((Way) osm).getNodes();
                 return all ? nodes.stream().allMatch(this) : nodes.stream().anyMatch(this);
@@ -1850,6 +1983,16 @@ public class SearchCompiler {
             return primitive.getDataSet() != null ? primitive.getDataSet().getDataSourceBounds() : null;
         }
 
+        @Override
+        protected boolean contains(Node node) {
+            DataSet ds = node.getDataSet();
+            if (ds == null || ds.getDataSourceIndex().isEmpty()) {
+                return super.contains(node);
+            }
+            LatLon coordinate = node.getCoor();
+            return coordinate != null && ds.getDataSourceIndex().contains(coordinate);
+        }
+
         @Override
         public String toString() {
             return all ? "allindownloadedarea" : "indownloadedarea";
@@ -32,6 +32,7 @@ public final class MapPaintSettings implements PreferenceChangedListener {
     private int showNamesDistance;
     private int useStrokesDistance;
     private int showIconsDistance;
+    private int simplifyDistance;
     /** Preference: size of selected nodes */
     private int selectedNodeSize;
     /** Preference: size of multiply connected nodes */
@@ -97,6 +98,7 @@ public final class MapPaintSettings implements PreferenceChangedListener {
         showNamesDistance = Config.getPref().getInt("mappaint.shownames", 10_000_000);
         useStrokesDistance = Config.getPref().getInt("mappaint.strokes", 10_000_000);
         showIconsDistance = Config.getPref().getInt("mappaint.showicons", 10_000_000);
+        simplifyDistance = Config.getPref().getInt("mappaint.simplify", 150);
 
         selectedNodeSize = Config.getPref().getInt("mappaint.node.selected-size", 5);
         unselectedNodeSize = Config.getPref().getInt("mappaint.node.unselected-size", 3);
@@ -285,6 +287,15 @@ public final class MapPaintSettings implements PreferenceChangedListener {
         return showIconsDistance;
     }
 
+    /**
+     * Returns the distance from which on the geometry of ways is simplified
+     * @return the distance from which on the geometry of ways is simplified
+     * @since xxx
+     */
+    public int getSimplifyDistance() {
+        return simplifyDistance;
+    }
+
     /**
      * Returns the size of selected nodes
      * @return the size of selected nodes
@@ -364,7 +375,8 @@ public final class MapPaintSettings implements PreferenceChangedListener {
                 + ", showOnewayArrow=" + showOnewayArrow + ", defaultSegmentWidth=" + defaultSegmentWidth
                 + ", showOrderNumber=" + showOrderNumber + ", showHeadArrowOnly=" + showHeadArrowOnly
                 + ", showNamesDistance=" + showNamesDistance + ", useStrokesDistance=" + useStrokesDistance
-                + ", showIconsDistance=" + showIconsDistance + ", selectedNodeSize=" + selectedNodeSize
+                + ", showIconsDistance=" + showIconsDistance + ", simplifyDistance=" + simplifyDistance
+                + ", selectedNodeSize=" + selectedNodeSize
                 + ", connectionNodeSize=" + connectionNodeSize + ", unselectedNodeSize=" + unselectedNodeSize
                 + ", taggedNodeSize=" + taggedNodeSize + ", fillSelectedNode=" + fillSelectedNode
                 + ", fillUnselectedNode=" + fillUnselectedNode + ", fillTaggedNode=" + fillTaggedNode
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.function.Supplier;
 
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
+import org.openstreetmap.josm.gui.mappaint.StyleCache;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
@@ -61,16 +62,24 @@ public class RenderBenchmarkCollector {
         protected long timeGenerateDone;
         protected long timeSortingDone;
         protected long timeFinished;
+        protected long styleCacheHits;
+        protected long styleCacheMisses;
+        protected int styleCacheSize;
 
         @Override
         public void renderStart(double circum) {
             timeStart = System.currentTimeMillis();
+            styleCacheHits = StyleCache.getHitCount();
+            styleCacheMisses = StyleCache.getMissCount();
             super.renderStart(circum);
         }
 
         @Override
         public boolean renderSort() {
             timeGenerateDone = System.currentTimeMillis();
+            styleCacheHits = StyleCache.getHitCount() - styleCacheHits;
+            styleCacheMisses = StyleCache.getMissCount() - styleCacheMisses;
+            styleCacheSize = StyleCache.getInternPoolSize();
             return super.renderSort();
         }
 
@@ -88,6 +97,35 @@ public class RenderBenchmarkCollector {
             return timeGenerateDone - timeStart;
         }
 
+        /**
+         * Get the number of styles that were found in the style cache while generating the styles.
+         * As the counters are global, this includes the styles computed by other renderers at the same time.
+         * @return The number of cache hits
+         * @since xxx
+         */
+        public long getStyleCacheHits() {
+            return styleCacheHits;
+        }
+
+        /**
+         * Get the number of styles that had to be computed while generating the styles.
+         * As the counters are global, this includes the styles computed by other renderers at the same time.
+         * @return The number of cache misses
+         * @since xxx
+         */
+        public long getStyleCacheMisses() {
+            return styleCacheMisses;
+        }
+
+        /**
+         * Get the number of distinct style caches after generating the styles.
+         * @return The size of the style cache intern pool
+         * @since xxx
+         */
+        public int getStyleCacheSize() {
+            return styleCacheSize;
+        }
+
         /**
          * Get the time needed for computing the draw order
          * @return The time in ms
@@ -129,7 +167,8 @@ public class RenderBenchmarkCollector {
         @Override
         public boolean renderDraw(List<StyleRecord> allStyleElems) {
             boolean res = super.renderDraw(allStyleElems);
-            outStream.print("phase 1 (calculate styles): " + Utils.getDurationString(timeSortingDone - timeStart));
+            outStream.print("phase 1 (calculate styles): " + Utils.getDurationString(timeSortingDone - timeStart) +
+                    " (style cache: " + styleCacheHits + " hits, " + styleCacheMisses + " misses, " + styleCacheSize + " entries)");
             return res;
         }
 
@@ -0,0 +1,430 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.josm.data.ProjectionBounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.MapPaintSylesUpdateListener;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.spi.preferences.PreferenceChangeEvent;
+import org.openstreetmap.josm.spi.preferences.PreferenceChangedListener;
+import org.openstreetmap.josm.tools.Destroyable;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Renders a data set in fixed size tiles that are aligned to the screen pixel grid, and keeps them for reuse.
+ * <p>
+ * Tiles are cached per scale. They stay valid while the view is moved, so that panning only renders the tiles that
+ * become visible. Changes of the data only invalidate the tiles that intersect the bounding boxes of the changed
+ * primitives and of their referrers, and the outdated image is shown until the new one is ready. Missing tiles are
+ * rendered by an {@link Executor}, by default a single background thread. A single thread is used, because the
+ * renderer must not compute the style of the same primitive in parallel. It still computes the styles of a tile in
+ * parallel.
+ * <p>
+ * Each tile is rendered with a margin, so that icons and labels of primitives close to the border are drawn on both
+ * sides. Labels of ways are placed for each tile, so they may appear in more than one tile.
+ * @since xxx
+ */
+public class RenderedTileCache implements PreferenceChangedListener, MapPaintSylesUpdateListener, Destroyable {
+
+    /** The size of the tiles, in pixels */
+    public static final int TILE_SIZE = 512;
+
+    /** The maximum number of cached tiles */
+    public static final IntegerProperty PROPERTY_MAX_TILES = new IntegerProperty("mappaint.tiled.max-tiles", 48);
+
+    /** The margin rendered around each tile, in pixels */
+    private static final int MARGIN = 128;
+
+    private final DataSet data;
+    private final Executor executor;
+    private final Runnable onTileRendered;
+    private final ExecutorService ownExecutor;
+    /** Only used by the executor */
+    private final TileView view = new TileView();
+
+    private final Map<TileKey, Tile> tiles = new LinkedHashMap<TileKey, Tile>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TileKey, Tile> eldest) {
+            return size() > Math.max(PROPERTY_MAX_TILES.get(), visible.size());
+        }
+    };
+    private final Set<TileKey> visible = new HashSet<>();
+    private List<Object> settings;
+    private boolean destroyed;
+
+    /**
+     * Constructs a new {@code RenderedTileCache} that renders the tiles in a background thread.
+     * @param data the data set to render
+     * @param onTileRendered called in the background thread after a tile has been rendered
+     */
+    public RenderedTileCache(DataSet data, Runnable onTileRendered) {
+        this(data, null, onTileRendered);
+    }
+
+    /**
+     * Constructs a new {@code RenderedTileCache}.
+     * @param data the data set to render
+     * @param executor the executor that renders the tiles. It must not run tasks in parallel.
+     * If {@code null}, a background thread is used.
+     * @param onTileRendered called by the executor after a tile has been rendered
+     */
+    public RenderedTileCache(DataSet data, Executor executor, Runnable onTileRendered) {
+        this.data = Objects.requireNonNull(data, "data");
+        this.onTileRendered = Objects.requireNonNull(onTileRendered, "onTileRendered");
+        this.ownExecutor = executor == null
+                ? Executors.newSingleThreadExecutor(Utils.newThreadFactory("tile-renderer-%d", Thread.NORM_PRIORITY)) : null;
+        this.executor = executor == null ? ownExecutor : executor;
+        Config.getPref().addPreferenceChangeListener(this);
+        MapPaintStyles.addMapPaintSylesUpdateListener(this);
+    }
+
+    /**
+     * Draws the cached tiles that are visible in the given view and schedules the rendering of the missing and
+     * outdated ones.
+     * @param g the graphics of the view
+     * @param state the view state
+     * @param inactive {@code true} to render in inactive mode
+     * @param virtual {@code true} to render virtual nodes
+     * @return the number of visible tiles that were not up to date
+     */
+    public int paint(Graphics2D g, MapViewState state, boolean inactive, boolean virtual) {
+        MapViewPoint origin = state.getPointFor(new EastNorth(0, 0));
+        long originX = Math.round(origin.getInViewX());
+        long originY = Math.round(origin.getInViewY());
+        double fractionX = origin.getInViewX() - originX;
+        double fractionY = origin.getInViewY() - originY;
+        int minX = (int) Math.floorDiv(-originX, TILE_SIZE);
+        int minY = (int) Math.floorDiv(-originY, TILE_SIZE);
+        int maxX = (int) Math.floorDiv((long) Math.ceil(state.getViewWidth()) - 1 - originX, TILE_SIZE);
+        int maxY = (int) Math.floorDiv((long) Math.ceil(state.getViewHeight()) - 1 - originY, TILE_SIZE);
+
+        List<Tile> shown = new ArrayList<>();
+        List<Tile> toRender = new ArrayList<>();
+        int outdated = 0;
+        synchronized (this) {
+            List<Object> newSettings = Arrays.asList(MapRendererFactory.getInstance().isWireframeMapRendererActive(), inactive, virtual,
+                    state.getProjection());
+            if (!newSettings.equals(settings)) {
+                settings = newSettings;
+                tiles.clear();
+            }
+            visible.clear();
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    visible.add(new TileKey(state.getScale(), x, y));
+                }
+            }
+            // touch the cached visible tiles first, so that adding the missing ones does not evict them
+            visible.forEach(tiles::get);
+            for (TileKey key : visible) {
+                Tile tile = tiles.computeIfAbsent(key, Tile::new);
+                if (tile.renderedVersion != tile.version) {
+                    outdated++;
+                    if (!tile.queued) {
+                        tile.queued = true;
+                        toRender.add(tile);
+                    }
+                }
+                shown.add(tile);
+            }
+        }
+        for (Tile tile : toRender) {
+            executor.execute(() -> render(tile, state, fractionX, fractionY, inactive, virtual));
+        }
+        for (Tile tile : shown) {
+            BufferedImage image;
+            synchronized (this) {
+                image = tile.image;
+            }
+            if (image != null) {
+                g.drawImage(image, (int) (originX + (long) tile.key.x * TILE_SIZE),
+                        (int) (originY + (long) tile.key.y * TILE_SIZE), null);
+            }
+        }
+        return outdated;
+    }
+
+    private void render(Tile tile, MapViewState state, double fractionX, double fractionY, boolean inactive,
+            boolean virtual) {
+        int version;
+        synchronized (this) {
+            if (destroyed || !visible.contains(tile.key)) {
+                tile.queued = false;
+                return;
+            }
+            version = tile.version;
+        }
+        BufferedImage image = null;
+        boolean painted = false;
+        boolean retry = false;
+        try {
+            int size = TILE_SIZE + 2 * MARGIN;
+            double scale = tile.key.scale;
+            EastNorth topLeft = new EastNorth(((long) tile.key.x * TILE_SIZE - MARGIN - fractionX) * scale,
+                    -((long) tile.key.y * TILE_SIZE - MARGIN - fractionY) * scale);
+            MapViewState tileState = state.usingArea(topLeft, size, size);
+            // The renderer only logs when it cannot get the lock, so it is taken here to know if the tile was painted.
+            // The lock is reentrant, the renderer then gets it at once.
+            if (data.getReadLock().tryLock(1, TimeUnit.SECONDS)) {
+                try {
+                    image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+                    Graphics2D g = image.createGraphics();
+                    try {
+                        g.translate(-MARGIN, -MARGIN);
+                        view.show(tileState);
+                        AbstractMapRenderer renderer = MapRendererFactory.getInstance().createActiveRenderer(g, view, inactive);
+                        renderer.render(data, virtual, tileState.getViewArea().getLatLonBoundsBox());
+                    } finally {
+                        g.dispose();
+                    }
+                    painted = true;
+                } finally {
+                    data.getReadLock().unlock();
+                }
+            } else {
+                Logging.debug("Cannot render tile: the data set is locked");
+                retry = true;
+            }
+        } catch (InterruptedException e) {
+            Logging.warn("Cannot render tile: Interrupted");
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // the tile stays outdated, it is rendered again on the next paint
+            Logging.error(e);
+        } finally {
+            synchronized (this) {
+                retry &= !destroyed;
+                tile.queued = retry;
+                // a blank or partial image is not shown, the tile keeps its former image until it is painted
+                if (painted) {
+                    tile.image = image;
+                    if (tile.version == version) {
+                        tile.renderedVersion = version;
+                    }
+                }
+            }
+        }
+        if (retry) {
+            executor.execute(() -> render(tile, state, fractionX, fractionY, inactive, virtual));
+        } else if (painted) {
+            onTileRendered.run();
+        }
+    }
+
+    /**
+     * Invalidates the tiles that show primitives affected by the given data set event.
+     * @param event the event
+     */
+    public void invalidate(AbstractDatasetChangedEvent event) {
+        if (event instanceof DataChangedEvent) {
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                invalidateAll();
+            } else {
+                events.forEach(this::invalidate);
+            }
+            return;
+        }
+        BBox oldBBox = null;
+        if (event instanceof NodeMovedEvent) {
+            oldBBox = ((NodeMovedEvent) event).getOldBBox();
+        } else if (event instanceof WayNodesChangedEvent) {
+            oldBBox = ((WayNodesChangedEvent) event).getOldBBox();
+        } else if (event instanceof RelationMembersChangedEvent) {
+            oldBBox = ((RelationMembersChangedEvent) event).getOldBBox();
+        }
+        Collection<? extends OsmPrimitive> primitives = event.getPrimitives();
+        if (primitives.isEmpty()) {
+            // e.g. filters changed
+            invalidateAll();
+        } else {
+            invalidate(primitives, oldBBox);
+        }
+    }
+
+    /**
+     * Invalidates the tiles that show the given primitives, e.g. after they have been selected or highlighted.
+     * @param primitives the primitives
+     */
+    public void invalidate(Collection<? extends OsmPrimitive> primitives) {
+        invalidate(primitives, null);
+    }
+
+    private void invalidate(Collection<? extends OsmPrimitive> primitives, BBox oldBBox) {
+        BBox bbox = oldBBox != null ? new BBox(oldBBox) : new BBox();
+        Set<OsmPrimitive> visited = new HashSet<>();
+        List<OsmPrimitive> todo = new ArrayList<>(primitives);
+        while (!todo.isEmpty()) {
+            OsmPrimitive p = todo.remove(todo.size() - 1);
+            if (visited.add(p)) {
+                bbox.add(p.getBBox());
+                todo.addAll(p.getReferrers());
+            }
+        }
+        if (bbox.isValid()) {
+            invalidate(bbox);
+        }
+    }
+
+    private synchronized void invalidate(BBox bbox) {
+        if (tiles.isEmpty())
+            return;
+        ProjectionBounds pb = new ProjectionBounds();
+        for (LatLon ll : Arrays.asList(bbox.getTopLeft(), bbox.getBottomRight(),
+                new LatLon(bbox.getTopLeftLat(), bbox.getBottomRightLon()),
+                new LatLon(bbox.getBottomRightLat(), bbox.getTopLeftLon()))) {
+            pb.extend(ProjectionRegistry.getProjection().latlon2eastNorth(ll));
+        }
+        for (Tile tile : tiles.values()) {
+            double tileEast = (double) tile.key.x * TILE_SIZE * tile.key.scale;
+            double tileNorth = -(double) tile.key.y * TILE_SIZE * tile.key.scale;
+            double margin = MARGIN * tile.key.scale;
+            double size = TILE_SIZE * tile.key.scale;
+            if (pb.maxEast >= tileEast - margin && pb.minEast <= tileEast + size + margin
+                    && pb.minNorth <= tileNorth + margin && pb.maxNorth >= tileNorth - size - margin) {
+                tile.version++;
+            }
+        }
+    }
+
+    /**
+     * Invalidates all tiles. They are still shown until they have been rendered again.
+     */
+    public synchronized void invalidateAll() {
+        tiles.values().forEach(tile -> tile.version++);
+    }
+
+    /**
+     * Removes all tiles, e.g. after a change of the projection.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+    }
+
+    /**
+     * Returns the number of cached tiles.
+     * @return the number of cached tiles
+     */
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    @Override
+    public void preferenceChanged(PreferenceChangeEvent e) {
+        String key = e.getKey();
+        if (key.startsWith("mappaint.") || key.startsWith("color.") || key.startsWith("draw.")) {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public void mapPaintStylesUpdated() {
+        invalidateAll();
+    }
+
+    @Override
+    public void mapPaintStyleEntryUpdated(int index) {
+        invalidateAll();
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            destroyed = true;
+            tiles.clear();
+            visible.clear();
+        }
+        Config.getPref().removePreferenceChangeListener(this);
+        MapPaintStyles.removeMapPaintSylesUpdateListener(this);
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    /**
+     * A view that shows a tile and its margin. It is reused for all tiles, since each component is registered as
+     * projection change listener.
+     */
+    private static class TileView extends NavigatableComponent {
+        TileView() {
+            setBounds(0, 0, TILE_SIZE + 2 * MARGIN, TILE_SIZE + 2 * MARGIN);
+        }
+
+        void show(MapViewState state) {
+            setState(state);
+        }
+    }
+
+    private static final class TileKey {
+        private final double scale;
+        private final int x;
+        private final int y;
+
+        TileKey(double scale, int x, int y) {
+            this.scale = scale;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            TileKey other = (TileKey) obj;
+            return Double.compare(scale, other.scale) == 0 && x == other.x && y == other.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scale, x, y);
+        }
+    }
+
+    private static final class Tile {
+        private final TileKey key;
+        /** The last rendered image, may be outdated */
+        private BufferedImage image;
+        /** Incremented on each invalidation */
+        private int version;
+        private int renderedVersion = -1;
+        private boolean queued;
+
+        Tile(TileKey key) {
+            this.key = key;
+        }
+    }
+}
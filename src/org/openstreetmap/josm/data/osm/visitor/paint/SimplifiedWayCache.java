@@ -0,0 +1,333 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * A memory cache for simplified way geometries, used to draw ways at small scales.
+ * <p>
+ * Scales are grouped in bands of a factor of two. For each band, the nodes of a way are reduced with the
+ * Douglas-Peucker algorithm, so that the simplified line never deviates by more than half a pixel from the original one.
+ * The simplification of a band is computed when it is needed first. Moving a node or changing the nodes of a way
+ * drops the simplifications of the concerned ways.
+ * <p>
+ * Only the ways of data sets {@link #register registered} in this cache are cached, since the cache must listen to
+ * their changes. The ways of other data sets are simplified each time.
+ * @since xxx
+ */
+public final class SimplifiedWayCache implements DataSetListener, LayerChangeListener, ProjectionChangeListener {
+
+    /** Maximum deviation of a simplified way, in pixels */
+    private static final double TOLERANCE = 0.5;
+
+    /** Ways with less nodes are never simplified */
+    private static final int MIN_NODES = 4;
+
+    private static final SimplifiedWayCache INSTANCE = new SimplifiedWayCache();
+
+    private final Map<DataSet, Map<Way, Simplifications>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The simplifications of a way for the bands used so far.
+     */
+    private static final class Simplifications {
+        private final List<Integer> bands = new ArrayList<>(2);
+        private final List<List<Node>> nodes = new ArrayList<>(2);
+
+        synchronized List<Node> get(int band) {
+            int index = bands.indexOf(band);
+            return index < 0 ? null : nodes.get(index);
+        }
+
+        synchronized void put(int band, List<Node> simplified) {
+            if (!bands.contains(band)) {
+                bands.add(band);
+                nodes.add(simplified);
+            }
+        }
+    }
+
+    private SimplifiedWayCache() {
+        ProjectionRegistry.addProjectionChangeListener(this);
+        MainApplication.getLayerManager().addLayerChangeListener(this);
+    }
+
+    /**
+     * Replies the unique instance.
+     * @return the unique instance
+     */
+    public static SimplifiedWayCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers a data set, so that the simplifications of its ways are cached until they change.
+     * @param ds the data set
+     */
+    public void register(DataSet ds) {
+        if (cache.putIfAbsent(ds, new ConcurrentHashMap<>()) == null) {
+            ds.addDataSetListener(this);
+        }
+    }
+
+    /**
+     * Unregisters a data set and drops the simplifications of its ways.
+     * @param ds the data set
+     */
+    public void unregister(DataSet ds) {
+        if (cache.remove(ds) != null) {
+            ds.removeDataSetListener(this);
+        }
+    }
+
+    /**
+     * Replies the nodes to draw for a way at the given scale.
+     * @param w the way
+     * @param scale the scale of the view, in east/north units per pixel
+     * @return the nodes of the simplified way. The first and the last node are always kept.
+     */
+    public List<Node> getNodes(Way w, double scale) {
+        if (w.getNodesCount() < MIN_NODES) {
+            return w.getNodes();
+        }
+        int band = Math.getExponent(scale);
+        DataSet ds = w.getDataSet();
+        Map<Way, Simplifications> ways = ds != null ? cache.get(ds) : null;
+        if (ways == null) {
+            return simplify(w, band);
+        }
+        Simplifications simplifications = ways.computeIfAbsent(w, k -> new Simplifications());
+        List<Node> result = simplifications.get(band);
+        if (result == null) {
+            result = simplify(w, band);
+            simplifications.put(band, result);
+        }
+        return result;
+    }
+
+    private static List<Node> simplify(Way w, int band) {
+        List<Node> nodes = w.getNodes();
+        List<Node> result = simplify(nodes, Math.scalb(TOLERANCE, band));
+        return result.size() == nodes.size() ? Collections.unmodifiableList(nodes) : result;
+    }
+
+    /**
+     * Simplifies a line with the Douglas-Peucker algorithm. A closed line is first split at the node farthest from
+     * its start.
+     * @param nodes the nodes of the line
+     * @param tolerance the maximum distance of a removed node from the simplified line, in east/north units
+     * @return the remaining nodes. The original nodes, if one of them has no coordinates.
+     */
+    static List<Node> simplify(List<Node> nodes, double tolerance) {
+        int n = nodes.size();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            EastNorth en = nodes.get(i).getEastNorth();
+            if (en == null) {
+                return nodes;
+            }
+            x[i] = en.east();
+            y[i] = en.north();
+        }
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        // pairs of start and end index still to simplify
+        int[] stack = new int[2 * n];
+        int top = 0;
+        if (nodes.get(0) == nodes.get(n - 1)) {
+            int farthest = 0;
+            double max = -1;
+            for (int i = 1; i < n - 1; i++) {
+                double d = (x[i] - x[0]) * (x[i] - x[0]) + (y[i] - y[0]) * (y[i] - y[0]);
+                if (d > max) {
+                    max = d;
+                    farthest = i;
+                }
+            }
+            keep[farthest] = true;
+            stack[top++] = 0;
+            stack[top++] = farthest;
+            stack[top++] = farthest;
+            stack[top++] = n - 1;
+        } else {
+            stack[top++] = 0;
+            stack[top++] = n - 1;
+        }
+        double maxSq = tolerance * tolerance;
+        int kept = 2;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            int farthest = -1;
+            double max = maxSq;
+            for (int i = start + 1; i < end; i++) {
+                double d = distanceSq(x[i], y[i], x[start], y[start], x[end], y[end]);
+                if (d > max) {
+                    max = d;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0) {
+                if (!keep[farthest]) {
+                    keep[farthest] = true;
+                    kept++;
+                }
+                stack[top++] = start;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+        List<Node> result = new ArrayList<>(kept + 1);
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                result.add(nodes.get(i));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Squared distance of a point to a line segment.
+     */
+    private static double distanceSq(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * Clears the cache for the given dataset. The data set stays registered.
+     * @param ds the data set
+     */
+    public void clear(DataSet ds) {
+        Map<Way, Simplifications> ways = cache.get(ds);
+        if (ways != null) {
+            ways.clear();
+        }
+    }
+
+    /**
+     * Clears the whole cache. The data sets stay registered.
+     */
+    public void clear() {
+        cache.values().forEach(Map::clear);
+    }
+
+    private void remove(DataSet ds, Way w) {
+        Map<Way, Simplifications> map = cache.get(ds);
+        if (map != null) {
+            map.remove(w);
+        }
+    }
+
+    private void removeWays(AbstractDatasetChangedEvent event) {
+        for (OsmPrimitive p : event.getPrimitives()) {
+            if (p instanceof Way) {
+                remove(event.getDataset(), (Way) p);
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        removeWays(event);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        for (OsmPrimitive ref : event.getNode().getReferrers()) {
+            if (ref instanceof Way) {
+                remove(event.getDataset(), (Way) ref);
+            }
+        }
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        remove(event.getDataset(), event.getChangedWay());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        // Sent e.g. when undoing a move of a large number of nodes, without NodeMovedEvent
+        clear(event.getDataset());
+    }
+
+    @Override
+    public void layerAdded(LayerAddEvent e) {
+        // Do nothing
+    }
+
+    @Override
+    public void layerOrderChanged(LayerOrderChangeEvent e) {
+        // Do nothing
+    }
+
+    @Override
+    public void layerRemoving(LayerRemoveEvent e) {
+        if (e.getRemovedLayer() instanceof OsmDataLayer) {
+            unregister(((OsmDataLayer) e.getRemovedLayer()).data);
+        }
+    }
+
+    @Override
+    public void projectionChanged(Projection oldValue, Projection newValue) {
+        clear();
+    }
+}
@@ -55,6 +55,7 @@ import org.openstreetmap.josm.data.osm.OsmData;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.WaySegment;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData;
@@ -356,6 +357,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private boolean useStrokes;
     private boolean showNames;
     private boolean showIcons;
+    private boolean simplify;
     private boolean isOutlineOnly;
 
     private boolean leftHandTraffic;
@@ -1257,7 +1259,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             bounds.grow(100, 100);
         }
 
-        List<? extends INode> wayNodes = way.getNodes();
+        List<? extends INode> wayNodes = getNodesToDraw(way);
         if (wayNodes.size() < 2) return;
 
         // only highlight the segment if the way itself is not highlighted
@@ -1391,6 +1393,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         useStrokes = paintSettings.getUseStrokesDistance() > circum;
         showNames = paintSettings.getShowNamesDistance() > circum;
         showIcons = paintSettings.getShowIconsDistance() > circum;
+        simplify = paintSettings.getSimplifyDistance() <= circum;
         isOutlineOnly = paintSettings.isOutlineOnly();
 
         antialiasing = PREFERENCE_ANTIALIASING_USE.get() ?
@@ -1429,13 +1432,26 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private MapViewPath getPath(IWay<?> w) {
         MapViewPath path = new MapViewPath(mapState);
         if (w.isClosed()) {
-            path.appendClosed(w.getNodes(), false);
+            path.appendClosed(getNodesToDraw(w), false);
         } else {
-            path.append(w.getNodes(), false);
+            path.append(getNodesToDraw(w), false);
         }
         return path;
     }
 
+    /**
+     * Gets the nodes to draw for a way. At small scales, these are the nodes of the simplified way.
+     * @param w The way
+     * @return The nodes
+     * @see SimplifiedWayCache
+     */
+    private List<? extends INode> getNodesToDraw(IWay<?> w) {
+        if (simplify && w instanceof Way) {
+            return SimplifiedWayCache.getInstance().getNodes((Way) w, scale);
+        }
+        return w.getNodes();
+    }
+
     private static Path2D.Double getPFClip(IWay<?> w, double extent) {
         Path2D.Double clip = new Path2D.Double();
         buildPFClip(clip, w.getNodes(), extent);
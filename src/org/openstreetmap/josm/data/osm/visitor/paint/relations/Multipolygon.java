@@ -7,9 +7,11 @@ import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -251,6 +253,9 @@ public class Multipolygon {
     /**
      * The polygon data for a multipolygon part.
      * It contains the outline of this polygon in east/north space.
+     * <p>
+     * Changes of the nodes only mark the outline as outdated, see {@link #invalidate()}. The outline is rebuilt by the
+     * first thread that uses it afterwards, so several node moves result in a single rebuild.
      */
     public static class PolyData extends JoinedWay {
         /**
@@ -271,9 +276,11 @@ public class Multipolygon {
             CROSSING
         }
 
-        private final Path2D.Double poly;
+        private volatile Path2D.Double poly;
         private Rectangle2D bounds;
         private final List<PolyData> inners;
+        private volatile boolean outdated;
+        private PolyData outer;
 
         /**
          * Constructs a new {@code PolyData} from a closed way.
@@ -294,9 +301,7 @@ public class Multipolygon {
         private PolyData(List<Node> nodes, boolean selected, Collection<Long> wayIds) {
             super(nodes, wayIds, selected);
             this.inners = new ArrayList<>();
-            this.poly = new Path2D.Double();
-            this.poly.setWindingRule(Path2D.WIND_EVEN_ODD);
-            buildPoly();
+            this.poly = buildPoly();
         }
 
         /**
@@ -305,29 +310,31 @@ public class Multipolygon {
          */
         public PolyData(PolyData copy) {
             super(copy.nodes, copy.wayIds, copy.selected);
-            this.poly = (Path2D.Double) copy.poly.clone();
+            this.poly = (Path2D.Double) copy.get().clone();
             this.inners = new ArrayList<>(copy.inners);
         }
 
-        private void buildPoly() {
+        private Path2D.Double buildPoly() {
+            Path2D.Double path = new Path2D.Double(Path2D.WIND_EVEN_ODD, Math.max(nodes.size(), 2));
             boolean initial = true;
             for (Node n : nodes) {
                 EastNorth p = n.getEastNorth();
                 if (p != null) {
                     if (initial) {
-                        poly.moveTo(p.getX(), p.getY());
+                        path.moveTo(p.getX(), p.getY());
                         initial = false;
                     } else {
-                        poly.lineTo(p.getX(), p.getY());
+                        path.lineTo(p.getX(), p.getY());
                     }
                 }
             }
             if (nodes.size() >= 3 && nodes.get(0) == nodes.get(nodes.size() - 1)) {
-                poly.closePath();
+                path.closePath();
             }
             for (PolyData inner : inners) {
-                appendInner(inner.poly);
+                path.append(inner.get().getPathIterator(null), false);
             }
+            return path;
         }
 
         /**
@@ -339,11 +346,12 @@ public class Multipolygon {
             int contains = 0;
             int total = 0;
             double[] coords = new double[6];
+            Path2D.Double outline = get();
             for (PathIterator it = p.getPathIterator(null); !it.isDone(); it.next()) {
                 switch (it.currentSegment(coords)) {
                     case PathIterator.SEG_MOVETO:
                     case PathIterator.SEG_LINETO:
-                        if (poly.contains(coords[0], coords[1])) {
+                        if (outline.contains(coords[0], coords[1])) {
                             contains++;
                         }
                         total++;
@@ -360,13 +368,12 @@ public class Multipolygon {
          * Adds an inner polygon
          * @param inner The polygon to add as inner polygon.
          */
-        public void addInner(PolyData inner) {
+        public synchronized void addInner(PolyData inner) {
             inners.add(inner);
-            appendInner(inner.poly);
-        }
-
-        private void appendInner(Path2D.Double inner) {
-            poly.append(inner.getPathIterator(null), false);
+            inner.outer = this;
+            Path2D.Double outline = get();
+            outline.append(inner.get().getPathIterator(null), false);
+            bounds = null;
         }
 
         /**
@@ -374,16 +381,42 @@ public class Multipolygon {
          * @return The path in east/north space.
          */
         public Path2D.Double get() {
+            if (outdated) {
+                update();
+            }
             return poly;
         }
 
+        private synchronized void update() {
+            if (outdated) {
+                // reset the flag first, so that a node moved while building is not lost
+                outdated = false;
+                poly = buildPoly();
+                bounds = null;
+            }
+        }
+
+        /**
+         * Marks the outline as outdated, e.g. because a node has been moved. The outline is rebuilt from the
+         * current node positions when it is used next. The polygon this is an inner polygon of is marked as well.
+         * @since xxx
+         */
+        public void invalidate() {
+            outdated = true;
+            PolyData o = outer;
+            if (o != null) {
+                o.invalidate();
+            }
+        }
+
         /**
          * Gets the bounds as {@link Rectangle2D} in east/north space.
          * @return The bounds
          */
-        public Rectangle2D getBounds() {
+        public synchronized Rectangle2D getBounds() {
+            Path2D.Double outline = get();
             if (bounds == null) {
-                bounds = poly.getBounds2D();
+                bounds = outline.getBounds2D();
             }
             return bounds;
         }
@@ -396,21 +429,21 @@ public class Multipolygon {
             return Collections.unmodifiableList(inners);
         }
 
-        private void resetNodes(DataSet dataSet) {
+        void resetNodes(DataSet dataSet) {
             if (!nodes.isEmpty()) {
                 DataSet ds = dataSet;
                 // Find DataSet (can be null for several nodes when undoing nodes creation, see #7162)
                 for (Iterator<Node> it = nodes.iterator(); it.hasNext() && ds == null;) {
                     ds = it.next().getDataSet();
                 }
-                nodes.clear();
+                List<Node> newNodes = new ArrayList<>();
                 if (ds == null) {
                     // DataSet still not found. This should not happen, but a warning does no harm
                     Logging.warn("DataSet not found while resetting nodes in Multipolygon. " +
                             "This should not happen, you may report it to JOSM developers.");
                 } else if (wayIds.size() == 1) {
                     Way w = (Way) ds.getPrimitiveById(wayIds.iterator().next(), OsmPrimitiveType.WAY);
-                    nodes.addAll(w.getNodes());
+                    newNodes.addAll(w.getNodes());
                 } else if (!wayIds.isEmpty()) {
                     List<Way> waysToJoin = new ArrayList<>();
                     for (Long wayId : wayIds) {
@@ -420,19 +453,17 @@ public class Multipolygon {
                         }
                     }
                     if (!waysToJoin.isEmpty()) {
-                        nodes.addAll(joinWays(waysToJoin).iterator().next().getNodes());
+                        newNodes.addAll(joinWays(waysToJoin).iterator().next().getNodes());
                     }
                 }
-                resetPoly();
+                synchronized (this) {
+                    nodes.clear();
+                    nodes.addAll(newNodes);
+                }
+                invalidate();
             }
         }
 
-        private void resetPoly() {
-            poly.reset();
-            buildPoly();
-            bounds = null;
-        }
-
         /**
          * Check if this polygon was changed by a node move
          * @param event The node move event
@@ -442,12 +473,12 @@ public class Multipolygon {
             boolean innerChanged = false;
             for (PolyData inner : inners) {
                 if (inner.nodes.contains(n)) {
-                    inner.resetPoly();
+                    inner.invalidate();
                     innerChanged = true;
                 }
             }
             if (nodes.contains(n) || innerChanged) {
-                resetPoly();
+                invalidate();
             }
         }
 
@@ -503,6 +534,7 @@ public class Multipolygon {
     private final List<Way> outerWays = new ArrayList<>();
     private final List<PolyData> combinedPolygons = new ArrayList<>();
     private final List<Node> openEnds = new ArrayList<>();
+    private final Map<Long, List<PolyData>> ringsByWay = new HashMap<>();
 
     private boolean incomplete;
 
@@ -543,6 +575,28 @@ public class Multipolygon {
         if (!outerPolygons.isEmpty()) {
             addInnerToOuters(innerPolygons, outerPolygons);
         }
+        for (PolyData pd : combinedPolygons) {
+            indexRing(pd);
+            for (PolyData inner : pd.inners) {
+                indexRing(inner);
+            }
+        }
+    }
+
+    private void indexRing(PolyData ring) {
+        for (Long wayId : ring.wayIds) {
+            ringsByWay.computeIfAbsent(wayId, k -> new ArrayList<>(1)).add(ring);
+        }
+    }
+
+    /**
+     * Replies the rings that contain the given way. A ring is either one of the {@linkplain #getCombinedPolygons()
+     * combined polygons} or one of their inner polygons.
+     * @param wayId unique id of the way
+     * @return the rings that contain the way, empty if there is none
+     */
+    List<PolyData> getRingsContaining(long wayId) {
+        return ringsByWay.getOrDefault(wayId, Collections.emptyList());
     }
 
     /**
@@ -703,8 +757,8 @@ public class Multipolygon {
 
         PolyData result = null;
         for (PolyData combined : outerPolygons) {
-            if (combined.contains(inner.poly) != Intersection.OUTSIDE
-                    && (result == null || result.contains(combined.poly) == Intersection.INSIDE)) {
+            if (combined.contains(inner.get()) != Intersection.OUTSIDE
+                    && (result == null || result.contains(combined.get()) == Intersection.INSIDE)) {
                 result = combined;
             }
         }
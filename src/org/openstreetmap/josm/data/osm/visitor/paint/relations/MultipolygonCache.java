@@ -184,16 +184,26 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
         }
     }
 
+    /**
+     * Updates the rings of a cached multipolygon that contain the moved node or the changed way.
+     * Moved nodes only mark the rings as outdated, their outlines are rebuilt when the multipolygon is used next.
+     */
     private static void dispatchEvent(AbstractDatasetChangedEvent event, Relation r, Collection<Map<Relation, Multipolygon>> maps) {
         for (Map<Relation, Multipolygon> map : maps) {
             Multipolygon m = map.get(r);
             if (m != null) {
-                for (PolyData pd : m.getCombinedPolygons()) {
-                    if (event instanceof NodeMovedEvent) {
-                        pd.nodeMoved((NodeMovedEvent) event);
-                    } else if (event instanceof WayNodesChangedEvent) {
+                if (event instanceof NodeMovedEvent) {
+                    for (OsmPrimitive ref : ((NodeMovedEvent) event).getNode().getReferrers()) {
+                        if (ref instanceof Way) {
+                            for (PolyData pd : m.getRingsContaining(ref.getUniqueId())) {
+                                pd.invalidate();
+                            }
+                        }
+                    }
+                } else if (event instanceof WayNodesChangedEvent) {
+                    for (PolyData pd : m.getRingsContaining(((WayNodesChangedEvent) event).getChangedWay().getUniqueId())) {
                         final boolean oldClosedStatus = pd.isClosed();
-                        pd.wayNodesChanged((WayNodesChangedEvent) event);
+                        pd.resetNodes(event.getDataset());
                         if (pd.isClosed() != oldClosedStatus) {
                             removeMultipolygonFrom(r, maps); // see ticket #13591
                             return;
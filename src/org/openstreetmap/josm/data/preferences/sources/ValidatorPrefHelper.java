@@ -44,6 +44,18 @@ public class ValidatorPrefHelper extends SourcePrefHelper {
     /** The preferences for ignored severity other */
     public static final BooleanProperty PREF_OTHER = new BooleanProperty(PREFIX + ".other", false);
 
+    /**
+     * The preferences key for running thread safe tests in parallel
+     * @since xxx
+     */
+    public static final BooleanProperty PREF_PARALLEL = new BooleanProperty(PREFIX + ".parallel", true);
+
+    /**
+     * The preferences key for revalidating the edited data after each change
+     * @since xxx
+     */
+    public static final BooleanProperty PREF_INCREMENTAL = new BooleanProperty(PREFIX + ".incremental", false);
+
     /**
      * The preferences key for enabling the permanent filtering
      * of the displayed errors in the tree regarding the current selection
@@ -0,0 +1,382 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Destroyable;
+
+/**
+ * Keeps the validation errors of a data set up to date by revalidating only the primitives affected by its changes.
+ * <p>
+ * The validator listens to the changes of the data set. {@link #revalidate} then runs the tests on the neighbourhood
+ * of the changed primitives: the changed primitives with their referrers, way nodes and relation members, the
+ * primitives sharing an error with them, and the nodes and ways around them. The errors of the tests found in this
+ * neighbourhood replace the former ones.
+ * <p>
+ * {@linkplain Test#isIncremental() Incremental} tests keep their state between runs, so they find the errors between
+ * the revisited primitives and the rest of the data set. The other tests are run on the neighbourhood from scratch.
+ * The tests must not be used elsewhere while the validator is in use.
+ * @since xxx
+ */
+public class IncrementalValidator implements DataSetListener, Destroyable {
+
+    /** The distance in degrees around the changed primitives in which nodes and ways are revalidated */
+    private static final DoubleProperty MARGIN = new DoubleProperty("validator.incremental.margin", 2e-4);
+
+    /**
+     * The result of a revalidation.
+     */
+    public static final class Update {
+        private final IncrementalValidator validator;
+        private final Set<OsmPrimitive> revalidated;
+        private final List<TestError> addedErrors;
+
+        Update(IncrementalValidator validator, Set<OsmPrimitive> revalidated, List<TestError> addedErrors) {
+            this.validator = validator;
+            this.revalidated = revalidated;
+            this.addedErrors = addedErrors;
+        }
+
+        /**
+         * Determines if all primitives have been revalidated.
+         * @return {@code true} if all primitives have been revalidated
+         */
+        public boolean isComplete() {
+            return revalidated == null;
+        }
+
+        /**
+         * Returns the revalidated primitives.
+         * @return the revalidated primitives, or {@code null} if all primitives have been revalidated
+         */
+        public Set<OsmPrimitive> getRevalidatedPrimitives() {
+            return revalidated == null ? null : Collections.unmodifiableSet(revalidated);
+        }
+
+        /**
+         * Returns the errors found by the revalidation.
+         * @return the errors found by the revalidation
+         */
+        public List<TestError> getAddedErrors() {
+            return Collections.unmodifiableList(addedErrors);
+        }
+
+        /**
+         * Determines if the given error, found by a former run, is replaced by the errors of this revalidation.
+         * The error does not have to be found by this validator, but only the errors of its tests are replaced.
+         * @param error a validation error
+         * @return {@code true} if the error is replaced by the errors of this revalidation
+         */
+        public boolean isObsolete(TestError error) {
+            for (OsmPrimitive p : error.getPrimitives()) {
+                if (p.isDeleted() || p.getDataSet() != validator.ds) {
+                    return true;
+                }
+            }
+            Test test = validator.testsByClass.get(error.getTester().getClass());
+            if (test == null) {
+                return false;
+            } else if (revalidated == null) {
+                return true;
+            } else if (test.isIncremental()) {
+                return error.getPrimitives().stream().anyMatch(revalidated::contains);
+            } else {
+                return !error.getPrimitives().isEmpty() && revalidated.containsAll(error.getPrimitives());
+            }
+        }
+    }
+
+    private final DataSet ds;
+    private final List<Test> tests;
+    private final Map<Class<?>, Test> testsByClass = new HashMap<>();
+    private final ValidationRunner runner;
+
+    /** The current errors, by primitive */
+    private final Map<OsmPrimitive, List<TestError>> errorsByPrimitive = new HashMap<>();
+
+    private final Object changesLock = new Object();
+    /** The primitives changed since the last run */
+    private Set<OsmPrimitive> changed = new HashSet<>();
+    /** Whether the whole data set has to be validated */
+    private boolean allChanged = true;
+
+    /**
+     * Constructs a new {@code IncrementalValidator} and starts listening to the changes of the data set.
+     * The first call to {@link #revalidate} validates the whole data set.
+     * @param ds the data set to validate
+     * @param tests the tests to run. Incremental tests are set to keep their state
+     * @param runner the runner used to run the tests
+     */
+    public IncrementalValidator(DataSet ds, Collection<Test> tests, ValidationRunner runner) {
+        this.ds = ds;
+        this.tests = new ArrayList<>(tests);
+        this.runner = runner;
+        for (Test test : this.tests) {
+            testsByClass.put(test.getClass(), test);
+            if (test.isIncremental()) {
+                test.setKeepState(true);
+            }
+        }
+        ds.addDataSetListener(this);
+    }
+
+    /**
+     * Returns the validated data set.
+     * @return the validated data set
+     */
+    public DataSet getDataSet() {
+        return ds;
+    }
+
+    /**
+     * Determines if the data set has changed since the last run.
+     * @return {@code true} if the data set has changed since the last run
+     */
+    public boolean hasChanges() {
+        synchronized (changesLock) {
+            return allChanged || !changed.isEmpty();
+        }
+    }
+
+    /**
+     * Returns the errors found so far.
+     * @return the errors found so far
+     */
+    public synchronized Set<TestError> getErrors() {
+        Set<TestError> errors = new LinkedHashSet<>();
+        errorsByPrimitive.values().forEach(errors::addAll);
+        return errors;
+    }
+
+    /**
+     * Revalidates the primitives affected by the changes since the last run.
+     * The data set is read locked while the tests run.
+     * @param progressMonitor the progress monitor
+     * @return the revalidation result. If the run is canceled, nothing is revalidated and the next run validates
+     * the whole data set
+     */
+    public synchronized Update revalidate(ProgressMonitor progressMonitor) {
+        Set<OsmPrimitive> dirty;
+        boolean all;
+        synchronized (changesLock) {
+            dirty = changed;
+            all = allChanged;
+            changed = new HashSet<>();
+            allChanged = false;
+        }
+        ds.getReadLock().lock();
+        try {
+            Set<OsmPrimitive> neighbourhood = all ? null : getNeighbourhood(dirty);
+            // revalidating most of the data set is faster from scratch
+            Set<OsmPrimitive> revalidated = neighbourhood != null && neighbourhood.size() <= ds.allPrimitives().size() / 2
+                    ? neighbourhood : null;
+            List<OsmPrimitive> visited = new ArrayList<>();
+            if (revalidated == null) {
+                tests.stream().filter(Test::isIncremental).forEach(t -> t.setKeepState(true));
+                visited.addAll(ds.allNonDeletedPrimitives());
+            } else {
+                tests.stream().filter(Test::isIncremental).forEach(t -> t.removeFromState(revalidated));
+                for (OsmPrimitive p : revalidated) {
+                    if (p.getDataSet() == ds && !p.isDeleted()) {
+                        visited.add(p);
+                    }
+                }
+                visited.sort(Comparator.comparing(OsmPrimitive::getType));
+            }
+            progressMonitor.setTicksCount(tests.size() * visited.size());
+            List<TestError> errors = runner.run(tests, visited, revalidated != null, progressMonitor);
+            if (progressMonitor.isCanceled()) {
+                synchronized (changesLock) {
+                    allChanged = true;
+                }
+                return new Update(this, Collections.emptySet(), Collections.emptyList());
+            }
+            Update update = new Update(this, revalidated, new ArrayList<>(errors));
+            updateErrors(update);
+            return update;
+        } finally {
+            ds.getReadLock().unlock();
+        }
+    }
+
+    private void updateErrors(Update update) {
+        if (update.isComplete()) {
+            errorsByPrimitive.clear();
+        } else {
+            Set<TestError> obsolete = new HashSet<>();
+            for (OsmPrimitive p : update.revalidated) {
+                List<TestError> errors = errorsByPrimitive.get(p);
+                if (errors != null) {
+                    errors.stream().filter(update::isObsolete).forEach(obsolete::add);
+                }
+            }
+            for (TestError error : obsolete) {
+                for (OsmPrimitive p : error.getPrimitives()) {
+                    List<TestError> errors = errorsByPrimitive.get(p);
+                    if (errors != null && errors.remove(error) && errors.isEmpty()) {
+                        errorsByPrimitive.remove(p);
+                    }
+                }
+            }
+        }
+        if (!update.isComplete()) {
+            // a test may report errors involving primitives outside of the revalidated ones, which were not replaced
+            update.addedErrors.removeIf(e -> !update.revalidated.containsAll(e.getPrimitives()) && isKnown(e));
+        }
+        for (TestError error : update.addedErrors) {
+            for (OsmPrimitive p : error.getPrimitives()) {
+                errorsByPrimitive.computeIfAbsent(p, k -> new ArrayList<>(2)).add(error);
+            }
+        }
+    }
+
+    private boolean isKnown(TestError error) {
+        Set<OsmPrimitive> primitives = new HashSet<>(error.getPrimitives());
+        return primitives.stream().flatMap(p -> errorsByPrimitive.getOrDefault(p, Collections.emptyList()).stream())
+                .anyMatch(e -> e.getTester() == error.getTester() && e.getCode() == error.getCode()
+                        && Objects.equals(e.getMessage(), error.getMessage())
+                        && primitives.equals(new HashSet<>(e.getPrimitives())));
+    }
+
+    /**
+     * Computes the primitives to revalidate after a change of the given primitives.
+     */
+    private Set<OsmPrimitive> getNeighbourhood(Set<OsmPrimitive> dirty) {
+        Set<OsmPrimitive> affected = new HashSet<>(dirty);
+        double margin = MARGIN.get();
+        for (OsmPrimitive p : dirty) {
+            for (OsmPrimitive referrer : p.getReferrers()) {
+                affected.add(referrer);
+                affected.addAll(referrer.getReferrers());
+            }
+            if (p instanceof Way) {
+                affected.addAll(((Way) p).getNodes());
+            } else if (p instanceof Relation) {
+                affected.addAll(((Relation) p).getMemberPrimitivesList());
+            }
+            if (p.getDataSet() == ds && !p.isDeleted() && !(p instanceof Relation)) {
+                BBox bbox = new BBox();
+                addToBBox(bbox, p, margin);
+                if (p instanceof Node) {
+                    for (Way w : ((Node) p).getParentWays()) {
+                        for (Node neighbour : w.getNeighbours((Node) p)) {
+                            addToBBox(bbox, neighbour, margin);
+                        }
+                    }
+                }
+                if (bbox.isValid()) {
+                    affected.addAll(ds.searchNodes(bbox));
+                    affected.addAll(ds.searchWays(bbox));
+                }
+            }
+        }
+        // the primitives sharing an error with a changed one
+        for (OsmPrimitive p : new ArrayList<>(affected)) {
+            List<TestError> errors = errorsByPrimitive.get(p);
+            if (errors != null) {
+                errors.forEach(e -> affected.addAll(e.getPrimitives()));
+            }
+        }
+        return affected;
+    }
+
+    private static void addToBBox(BBox bbox, OsmPrimitive p, double margin) {
+        if (p.getBBox().isValid()) {
+            bbox.addPrimitive(p, margin);
+        }
+    }
+
+    private void markChanged(Collection<? extends OsmPrimitive> primitives) {
+        synchronized (changesLock) {
+            if (!allChanged) {
+                changed.addAll(primitives);
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        markChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        markChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        markChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        markChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        markChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        markChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Changeset ids and flags do not affect validation
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        if (event.getEvents() == null) {
+            synchronized (changesLock) {
+                allChanged = true;
+                changed.clear();
+            }
+        } else {
+            for (AbstractDatasetChangedEvent e : event.getEvents()) {
+                if (e.getType() != DatasetEventType.CHANGESET_ID_CHANGED && e.getType() != DatasetEventType.FILTERS_CHANGED
+                        && e.getType() != DatasetEventType.PRIMITIVE_FLAGS_CHANGED) {
+                    markChanged(e.getPrimitives());
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        ds.removeDataSetListener(this);
+        tests.stream().filter(Test::isIncremental).forEach(t -> t.setKeepState(false));
+    }
+}
@@ -76,6 +76,12 @@ public class Test implements OsmPrimitiveVisitor, Comparable<Test> {
     /** the start time to compute elapsed time when test finishes */
     protected long startTime;
 
+    /**
+     * Whether the test keeps its state between runs, see {@link #setKeepState(boolean)}
+     * @since xxx
+     */
+    protected boolean keepState;
+
     /**
      * Constructor
      * @param name Name of the test
@@ -239,6 +245,67 @@ public class Test implements OsmPrimitiveVisitor, Comparable<Test> {
         // To be overridden in subclasses
     }
 
+    /**
+     * Determines if this test can run concurrently with other tests, see {@link ValidationRunner}.
+     * <p>
+     * A thread safe test does not share any mutable state with other tests, and does not access the GUI.
+     * An instance is still only used by one thread at a time, unless it is also {@link #isPartitionable() partitionable}.
+     * @return {@code true} if this test can run concurrently with other tests. {@code false} by default
+     * @since xxx
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Determines if this test checks each primitive independently of the others, so that the primitives can be split
+     * in parts that are {@linkplain #visit(Collection) visited} concurrently by several threads, see {@link ValidationRunner}.
+     * <p>
+     * The visit methods of a partitionable test may only read the state set up by {@link #startTest} and add errors to
+     * {@link #errors}. {@link #startTest} and {@link #endTest} are called once, as for a sequential run.
+     * A partitionable test must also be {@link #isThreadSafe() thread safe}.
+     * @return {@code true} if the primitives may be visited by several threads. {@code false} by default
+     * @since xxx
+     */
+    public boolean isPartitionable() {
+        return false;
+    }
+
+    /**
+     * Determines if this test can keep its state between runs, so that an {@link IncrementalValidator} only has to
+     * revisit the primitives that changed instead of rebuilding the state of the whole data set.
+     * <p>
+     * When {@linkplain #setKeepState(boolean) keeping its state}, an incremental test must not discard its state in
+     * {@link #startTest} and {@link #endTest}. The primitives given to {@link #removeFromState} are removed from the
+     * state before they are visited again, and a run then reports all errors involving the visited primitives.
+     * @return {@code true} if this test supports keeping its state between runs. {@code false} by default
+     * @since xxx
+     */
+    public boolean isIncremental() {
+        return false;
+    }
+
+    /**
+     * Sets whether this test keeps its state between runs. Has no effect on tests that are not
+     * {@linkplain #isIncremental() incremental}. The state is discarded when set to {@code false}.
+     * @param keepState {@code true} to keep the state between runs
+     * @since xxx
+     */
+    public void setKeepState(boolean keepState) {
+        this.keepState = keepState;
+    }
+
+    /**
+     * Removes the given primitives from the state kept between runs, before they are visited again.
+     * The primitives may have been modified, deleted or removed from the data set since they were last visited.
+     * Only called for {@linkplain #isIncremental() incremental} tests keeping their state.
+     * @param primitives the primitives to remove
+     * @since xxx
+     */
+    public void removeFromState(Collection<? extends OsmPrimitive> primitives) {
+        // To be overridden in subclasses
+    }
+
     /**
      * Allow the tester to manage its own preferences
      * @param testPanel The panel to add any preferences component
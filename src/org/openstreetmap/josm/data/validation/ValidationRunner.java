@@ -0,0 +1,219 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Runs a collection of validation tests over a collection of primitives, optionally on several threads.
+ * <p>
+ * In parallel mode, the tests that are {@linkplain Test#isThreadSafe() thread safe} run concurrently on a fork-join
+ * pool, and the primitives of {@linkplain Test#isPartitionable() partitionable} tests are split in parts that are
+ * visited concurrently. The other tests then run one after the other on the calling thread.
+ * <p>
+ * The result does not depend on the mode or the number of threads: the errors are returned in the order of the tests,
+ * and the errors of a partitionable test in the order of the visited primitives, as for a sequential run.
+ * @since xxx
+ */
+public class ValidationRunner {
+
+    /** The minimum number of primitives visited by one task of a partitionable test */
+    private static final int MIN_PARTITION_SIZE = 1000;
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("validator.numberOfThreads", "validator-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new {@code ValidationRunner}.
+     * @param parallel {@code true} to use the shared validator thread pool, {@code false} to run all tests sequentially
+     */
+    public ValidationRunner(boolean parallel) {
+        this(parallel ? THREAD_POOL : null);
+    }
+
+    /**
+     * Constructs a new {@code ValidationRunner} using the given thread pool.
+     * @param pool the thread pool, or {@code null} to run all tests sequentially on the calling thread
+     */
+    public ValidationRunner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Runs the tests.
+     * @param tests the tests to run
+     * @param primitives the primitives to validate
+     * @param partialSelection whether the primitives are only a part of the data, see {@link Test#setPartialSelection}
+     * @param progressMonitor the progress monitor, with {@code tests.size() * primitives.size()} ticks
+     * @return the errors found by all tests, or the errors found so far if the run was canceled
+     */
+    public List<TestError> run(Collection<Test> tests, Collection<OsmPrimitive> primitives, boolean partialSelection,
+            ProgressMonitor progressMonitor) {
+        List<Test> testList = new ArrayList<>(tests);
+        List<OsmPrimitive> primitiveList = new ArrayList<>(primitives);
+        List<List<TestError>> results = new ArrayList<>(testList.size());
+        List<ForkJoinTask<List<TestError>>> tasks = new ArrayList<>(testList.size());
+        for (int i = 0; i < testList.size(); i++) {
+            Test test = testList.get(i);
+            test.setPartialSelection(partialSelection);
+            if (pool != null && test.isThreadSafe()) {
+                ProgressMonitor monitor = progressMonitor.createSubTaskMonitor(primitiveList.size(), false);
+                tasks.add(pool.submit(() -> runTest(test, primitiveList, monitor, true)));
+            } else {
+                tasks.add(null);
+            }
+            results.add(null);
+        }
+        for (int i = 0; i < testList.size(); i++) {
+            if (tasks.get(i) != null) {
+                results.set(i, tasks.get(i).join());
+            }
+        }
+        for (int i = 0; i < testList.size(); i++) {
+            if (tasks.get(i) == null && !progressMonitor.isCanceled()) {
+                Test test = testList.get(i);
+                progressMonitor.setCustomText(tr("Test {0}/{1}: Starting {2}", i + 1, testList.size(), test.getName()));
+                results.set(i, runTest(test, primitiveList,
+                        progressMonitor.createSubTaskMonitor(primitiveList.size(), false), false));
+            }
+        }
+        List<TestError> errors = new ArrayList<>(200);
+        for (List<TestError> result : results) {
+            if (result != null) {
+                errors.addAll(result);
+            }
+        }
+        return errors;
+    }
+
+    private List<TestError> runTest(Test test, List<OsmPrimitive> primitives, ProgressMonitor monitor, boolean inPool) {
+        test.startTest(monitor);
+        if (inPool && test.isPartitionable() && primitives.size() >= 2 * MIN_PARTITION_SIZE) {
+            visitPartitioned(test, primitives);
+        } else {
+            test.visit(primitives);
+        }
+        test.endTest();
+        return test.getErrors();
+    }
+
+    /**
+     * Visits the primitives with several tasks. The test reports its errors to a {@link PartitionedErrors} list
+     * while the tasks run, so that they are merged in the order of the primitives.
+     */
+    private void visitPartitioned(Test test, List<OsmPrimitive> primitives) {
+        ProgressMonitor monitor = test.progressMonitor;
+        monitor.setTicksCount(primitives.size());
+        int partitionSize = Math.max(MIN_PARTITION_SIZE, primitives.size() / (4 * pool.getParallelism()));
+        int partitionCount = (primitives.size() + partitionSize - 1) / partitionSize;
+        PartitionedErrors errors = new PartitionedErrors(test.errors, partitionCount);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            int index = i;
+            List<OsmPrimitive> part = primitives.subList(i * partitionSize, Math.min((i + 1) * partitionSize, primitives.size()));
+            tasks.add(ForkJoinTask.adapt(() -> {
+                if (!monitor.isCanceled()) {
+                    errors.visit(index, () -> test.visit(part));
+                    synchronized (monitor) {
+                        monitor.worked(part.size());
+                    }
+                }
+            }));
+        }
+        // Test.visit must not report progress to the same monitor from several threads
+        test.progressMonitor = null;
+        test.errors = errors;
+        try {
+            ForkJoinTask.invokeAll(tasks);
+        } finally {
+            test.errors = errors.merge();
+            test.progressMonitor = monitor;
+        }
+    }
+
+    /**
+     * The error list of a partitionable test while its primitives are visited by several threads.
+     * Each partition adds its errors to a separate list.
+     */
+    private static final class PartitionedErrors extends AbstractList<TestError> {
+        private final List<TestError> initial;
+        private final List<List<TestError>> partitions;
+        private final ThreadLocal<List<TestError>> current = new ThreadLocal<>();
+
+        PartitionedErrors(List<TestError> initial, int partitionCount) {
+            this.initial = initial;
+            this.partitions = new ArrayList<>(partitionCount);
+            for (int i = 0; i < partitionCount; i++) {
+                partitions.add(new ArrayList<>());
+            }
+        }
+
+        void visit(int partition, Runnable visitor) {
+            current.set(partitions.get(partition));
+            try {
+                visitor.run();
+            } finally {
+                current.remove();
+            }
+        }
+
+        List<TestError> merge() {
+            List<TestError> result = new ArrayList<>(initial);
+            for (List<TestError> partition : partitions) {
+                result.addAll(partition);
+            }
+            return result;
+        }
+
+        private List<TestError> current() {
+            List<TestError> list = current.get();
+            return list != null ? list : initial;
+        }
+
+        @Override
+        public TestError get(int index) {
+            return current().get(index);
+        }
+
+        @Override
+        public int size() {
+            return current().size();
+        }
+
+        @Override
+        public TestError set(int index, TestError element) {
+            return current().set(index, element);
+        }
+
+        @Override
+        public void add(int index, TestError element) {
+            current().add(index, element);
+        }
+
+        @Override
+        public TestError remove(int index) {
+            return current().remove(index);
+        }
+    }
+}
@@ -390,4 +390,9 @@ public class Addresses extends Test {
                 .primitives(errorList)
                 .build());
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
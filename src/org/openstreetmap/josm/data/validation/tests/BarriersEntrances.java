@@ -39,4 +39,9 @@ public class BarriersEntrances extends Test {
                     .build());
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
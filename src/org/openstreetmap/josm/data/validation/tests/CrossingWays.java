@@ -6,10 +6,13 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
@@ -63,6 +66,8 @@ public abstract class CrossingWays extends Test {
     private final Map<Point2D, List<WaySegment>> cellSegments = new HashMap<>(1000);
     /** The already detected ways in error */
     private final Map<List<Way>, List<WaySegment>> seenWays = new HashMap<>(50);
+    /** The cells of each visited way, only if the state is kept between runs */
+    private Map<Way, List<List<WaySegment>>> wayCells;
 
     private final int code;
 
@@ -223,6 +228,12 @@ public abstract class CrossingWays extends Test {
                 visit(w);
             }
         }
+
+        @Override
+        public boolean isIncremental() {
+            // ways are also visited through their relations, so they cannot be revisited on their own
+            return false;
+        }
     }
 
     /**
@@ -288,6 +299,12 @@ public abstract class CrossingWays extends Test {
         String createMessage(Way w1, Way w2) {
             return tr("Self-crossing ways");
         }
+
+        @Override
+        public boolean isIncremental() {
+            // no state is kept between ways
+            return false;
+        }
     }
 
     /**
@@ -305,15 +322,51 @@ public abstract class CrossingWays extends Test {
     @Override
     public void startTest(ProgressMonitor monitor) {
         super.startTest(monitor);
-        cellSegments.clear();
-        seenWays.clear();
+        if (!keepState) {
+            cellSegments.clear();
+            seenWays.clear();
+        }
     }
 
     @Override
     public void endTest() {
         super.endTest();
+        if (!keepState) {
+            cellSegments.clear();
+            seenWays.clear();
+        }
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+
+    @Override
+    public void setKeepState(boolean keepState) {
+        super.setKeepState(keepState);
         cellSegments.clear();
         seenWays.clear();
+        wayCells = keepState ? new HashMap<>() : null;
+    }
+
+    @Override
+    public void removeFromState(Collection<? extends OsmPrimitive> primitives) {
+        if (wayCells == null)
+            return;
+        Set<Way> removed = new HashSet<>();
+        for (OsmPrimitive p : primitives) {
+            List<List<WaySegment>> cells = p instanceof Way ? wayCells.remove(p) : null;
+            if (cells != null) {
+                removed.add((Way) p);
+                for (List<WaySegment> segments : cells) {
+                    segments.removeIf(s -> s.way == p);
+                }
+            }
+        }
+        if (!removed.isEmpty()) {
+            seenWays.keySet().removeIf(ways -> ways.stream().anyMatch(removed::contains));
+        }
     }
 
     static boolean isCoastline(OsmPrimitive w) {
@@ -388,6 +441,9 @@ public abstract class CrossingWays extends Test {
                     }
                 }
                 segments.add(es1);
+                if (wayCells != null) {
+                    wayCells.computeIfAbsent(w, k -> new ArrayList<>()).add(segments);
+                }
             }
         }
     }
@@ -407,4 +463,9 @@ public abstract class CrossingWays extends Test {
         }
         return cells;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
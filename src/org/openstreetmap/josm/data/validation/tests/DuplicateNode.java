@@ -23,11 +23,9 @@ import org.openstreetmap.josm.actions.MergeNodesAction;
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.AbstractPrimitive;
-import org.openstreetmap.josm.data.osm.Hash;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
-import org.openstreetmap.josm.data.osm.Storage;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
@@ -43,51 +41,6 @@ import org.openstreetmap.josm.tools.MultiMap;
  */
 public class DuplicateNode extends Test {
 
-    private static class NodeHash implements Hash<Object, Object> {
-
-        private final double precision = Config.getPref().getDouble("validator.duplicatenodes.precision", 0.);
-
-        private LatLon roundCoord(LatLon coor) {
-            return new LatLon(
-                    Math.round(coor.lat() / precision) * precision,
-                    Math.round(coor.lon() / precision) * precision
-                    );
-        }
-
-        @SuppressWarnings("unchecked")
-        private LatLon getLatLon(Object o) {
-            if (o instanceof Node) {
-                LatLon coor = ((Node) o).getCoor();
-                if (coor == null)
-                    return null;
-                if (precision == 0)
-                    return coor.getRoundedToOsmPrecision();
-                return roundCoord(coor);
-            } else if (o instanceof List<?>) {
-                LatLon coor = ((List<Node>) o).get(0).getCoor();
-                if (coor == null)
-                    return null;
-                if (precision == 0)
-                    return coor.getRoundedToOsmPrecision();
-                return roundCoord(coor);
-            } else
-                throw new AssertionError();
-        }
-
-        @Override
-        public boolean equals(Object k, Object t) {
-            LatLon coorK = getLatLon(k);
-            LatLon coorT = getLatLon(t);
-            return coorK == coorT || (coorK != null && coorT != null && coorK.equals(coorT));
-        }
-
-        @Override
-        public int getHashCode(Object k) {
-            LatLon coorK = getLatLon(k);
-            return coorK == null ? 0 : coorK.hashCode();
-        }
-    }
-
     protected static final int DUPLICATE_NODE = 1;
     protected static final int DUPLICATE_NODE_MIXED = 2;
     protected static final int DUPLICATE_NODE_OTHER = 3;
@@ -107,9 +60,17 @@ public class DuplicateNode extends Test {
      *
      * If there is exactly one node for a given pos, the map includes a pair &lt;pos, Node&gt;.
      * If there are multiple nodes for a given pos, the map includes a pair
-     * &lt;pos, NodesByEqualTagsMap&gt;
+     * &lt;pos, List&lt;Node&gt;&gt;
      */
-    private Storage<Object> potentialDuplicates;
+    private Map<LatLon, Object> potentialDuplicates;
+
+    /** The position of each visited node in {@link #potentialDuplicates}, only if the state is kept between runs */
+    private Map<Node, LatLon> nodePositions;
+
+    /** The positions where nodes were added or removed in this run, or {@code null} if all positions must be checked */
+    private Set<LatLon> changedPositions;
+
+    private double precision;
 
     /**
      * Constructor
@@ -122,13 +83,41 @@ public class DuplicateNode extends Test {
     @Override
     public void startTest(ProgressMonitor monitor) {
         super.startTest(monitor);
-        potentialDuplicates = new Storage<>(new NodeHash());
+        if (potentialDuplicates == null || !keepState) {
+            potentialDuplicates = new HashMap<>();
+            nodePositions = keepState ? new HashMap<>() : null;
+            precision = Config.getPref().getDouble("validator.duplicatenodes.precision", 0.);
+        } else if (changedPositions == null) {
+            changedPositions = new HashSet<>();
+        }
+    }
+
+    private LatLon getPosition(Node n) {
+        LatLon coor = n.getCoor();
+        if (coor == null)
+            return null;
+        if (precision == 0)
+            return coor.getRoundedToOsmPrecision();
+        return new LatLon(
+                Math.round(coor.lat() / precision) * precision,
+                Math.round(coor.lon() / precision) * precision
+                );
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public void endTest() {
-        for (Object v: potentialDuplicates) {
+        Collection<Object> checked = potentialDuplicates.values();
+        if (changedPositions != null) {
+            checked = new ArrayList<>(changedPositions.size());
+            for (LatLon pos : changedPositions) {
+                Object v = potentialDuplicates.get(pos);
+                if (v != null) {
+                    checked.add(v);
+                }
+            }
+        }
+        for (Object v: checked) {
             if (v instanceof Node) {
                 // just one node at this position. Nothing to report as error
                 continue;
@@ -154,7 +143,49 @@ public class DuplicateNode extends Test {
             errors.addAll(buildTestErrors(this, nodes));
         }
         super.endTest();
+        changedPositions = null;
+        if (!keepState) {
+            potentialDuplicates = null;
+        }
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+
+    @Override
+    public void setKeepState(boolean keepState) {
+        super.setKeepState(keepState);
         potentialDuplicates = null;
+        nodePositions = null;
+        changedPositions = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void removeFromState(Collection<? extends OsmPrimitive> primitives) {
+        if (nodePositions == null)
+            return;
+        if (changedPositions == null) {
+            changedPositions = new HashSet<>();
+        }
+        for (OsmPrimitive p : primitives) {
+            if (!(p instanceof Node) || !nodePositions.containsKey(p))
+                continue;
+            LatLon pos = nodePositions.remove(p);
+            Object v = potentialDuplicates.get(pos);
+            if (v == p) {
+                potentialDuplicates.remove(pos);
+            } else if (v instanceof List<?>) {
+                List<Node> nodes = (List<Node>) v;
+                nodes.remove(p);
+                if (nodes.size() == 1) {
+                    potentialDuplicates.put(pos, nodes.get(0));
+                }
+            }
+            changedPositions.add(pos);
+        }
     }
 
     /**
@@ -282,25 +313,31 @@ public class DuplicateNode extends Test {
     @Override
     public void visit(Node n) {
         if (n.isUsable()) {
-            if (potentialDuplicates.get(n) == null) {
+            LatLon pos = getPosition(n);
+            Object v = potentialDuplicates.get(pos);
+            if (v == null) {
                 // in most cases there is just one node at a given position. We
                 // avoid to create an extra object and add remember the node
                 // itself at this position
-                potentialDuplicates.put(n);
-            } else if (potentialDuplicates.get(n) instanceof Node) {
+                potentialDuplicates.put(pos, n);
+            } else if (v instanceof Node) {
                 // we have an additional node at the same position. Create an extra
                 // object to keep track of the nodes at this position.
                 //
-                Node n1 = (Node) potentialDuplicates.get(n);
                 List<Node> nodes = new ArrayList<>(2);
-                nodes.add(n1);
+                nodes.add((Node) v);
                 nodes.add(n);
-                potentialDuplicates.put(nodes);
-            } else if (potentialDuplicates.get(n) instanceof List<?>) {
+                potentialDuplicates.put(pos, nodes);
+            } else if (v instanceof List<?>) {
                 // we have multiple nodes at the same position.
                 //
-                List<Node> nodes = (List<Node>) potentialDuplicates.get(n);
-                nodes.add(n);
+                ((List<Node>) v).add(n);
+            }
+            if (nodePositions != null) {
+                nodePositions.put(n, pos);
+            }
+            if (changedPositions != null) {
+                changedPositions.add(pos);
             }
         }
     }
@@ -348,4 +385,9 @@ public class DuplicateNode extends Test {
         return it.hasNext() && !it.next().isOutsideDownloadArea();
         // everything else is ok to merge
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -326,4 +326,9 @@ public class DuplicateRelation extends Test {
         }
         return relationsWithRelations <= 1;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
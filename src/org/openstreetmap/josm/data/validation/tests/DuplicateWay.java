@@ -334,4 +334,9 @@ public class DuplicateWay extends Test {
         }
         return waysWithRelations <= 1;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
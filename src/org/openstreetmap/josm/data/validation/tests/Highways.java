@@ -299,4 +299,9 @@ public class Highways extends Test {
             }
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
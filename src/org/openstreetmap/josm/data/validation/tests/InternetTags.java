@@ -145,4 +145,10 @@ public class InternetTags extends Test {
     public void visit(Relation r) {
         test(r);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        // Not partitionable: the validators are singletons which keep the error message of the last validation
+        return true;
+    }
 }
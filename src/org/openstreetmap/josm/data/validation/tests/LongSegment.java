@@ -138,4 +138,9 @@ public class LongSegment extends Test {
         // test only Ways with at least 2 nodes
         return p instanceof Way && ((Way) p).getNodesCount() > 1;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
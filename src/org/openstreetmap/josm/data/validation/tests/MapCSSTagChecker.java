@@ -60,6 +60,7 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.MapCSSParser;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.ParseException;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.TokenMgrError;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.io.CachedFile;
 import org.openstreetmap.josm.io.FileWatcher;
 import org.openstreetmap.josm.io.IllegalDataException;
@@ -240,6 +241,11 @@ public class MapCSSTagChecker extends Test.TagTest {
 
     final MultiMap<String, TagCheck> checks = new MultiMap<>();
 
+    /**
+     * The checks used by a running test, so that {@link #check} does not need to synchronize on this checker
+     */
+    private volatile List<Set<TagCheck>> activeChecks;
+
     /**
      * Result of {@link TagCheck#readMapCSS}
      * @since 8936
@@ -713,7 +719,26 @@ public class MapCSSTagChecker extends Test.TagTest {
      */
     @Override
     public void check(OsmPrimitive p) {
-        errors.addAll(getErrorsForPrimitive(p, ValidatorPrefHelper.PREF_OTHER.get()));
+        List<Set<TagCheck>> checksCol = activeChecks;
+        if (checksCol != null) {
+            errors.addAll(getErrorsForPrimitive(p, ValidatorPrefHelper.PREF_OTHER.get(), checksCol));
+        } else {
+            errors.addAll(getErrorsForPrimitive(p, ValidatorPrefHelper.PREF_OTHER.get()));
+        }
+    }
+
+    @Override
+    public void startTest(ProgressMonitor progressMonitor) {
+        super.startTest(progressMonitor);
+        synchronized (this) {
+            activeChecks = new ArrayList<>(checks.values());
+        }
+    }
+
+    @Override
+    public void endTest() {
+        activeChecks = null;
+        super.endTest();
     }
 
     /**
@@ -841,4 +866,14 @@ public class MapCSSTagChecker extends Test.TagTest {
             }
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean isPartitionable() {
+        return true;
+    }
 }
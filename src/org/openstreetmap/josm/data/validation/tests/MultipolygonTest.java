@@ -5,7 +5,6 @@ import static org.openstreetmap.josm.tools.I18n.marktr;
 import static org.openstreetmap.josm.tools.I18n.tr;
 import static org.openstreetmap.josm.tools.I18n.trn;
 
-import java.awt.geom.Area;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -40,6 +39,7 @@ import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.Geometry;
 import org.openstreetmap.josm.tools.Geometry.PolygonIntersection;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.PolygonClipper;
 
 /**
  * Checks if multipolygons are valid
@@ -486,9 +486,8 @@ public class MultipolygonTest extends Test {
         }
         if ((flags[0] & FOUND_OUTSIDE) != 0 && (flags[1] & FOUND_OUTSIDE) != 0) {
             // the two polygons may only share one or more segments but they may also intersect
-            Area a1 = new Area(pd1.get());
-            Area a2 = new Area(pd2.get());
-            PolygonIntersection areaRes = Geometry.polygonIntersection(a1, a2, 1e-6);
+            PolygonIntersection areaRes = Geometry.polygonIntersection(
+                    new PolygonClipper.Polygon(pd1.get()), new PolygonClipper.Polygon(pd2.get()), 1e-6);
             if (areaRes == PolygonIntersection.OUTSIDE)
                 return ExtPolygonIntersection.OUTSIDE;
             return ExtPolygonIntersection.CROSSING;
@@ -947,4 +946,9 @@ public class MultipolygonTest extends Test {
             return null;
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
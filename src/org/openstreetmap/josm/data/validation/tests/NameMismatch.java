@@ -102,4 +102,14 @@ public class NameMismatch extends Test.TagTest {
             }
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean isPartitionable() {
+        return true;
+    }
 }
@@ -226,4 +226,9 @@ public class OverlappingWays extends Test {
             lastN = n;
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
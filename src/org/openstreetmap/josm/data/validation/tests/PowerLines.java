@@ -176,4 +176,9 @@ public class PowerLines extends Test {
     private static boolean isBuildingIn(OsmPrimitive p, Collection<String> values) {
         return p.hasTag("building", values);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
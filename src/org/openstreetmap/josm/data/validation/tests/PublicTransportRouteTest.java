@@ -87,4 +87,9 @@ public class PublicTransportRouteTest extends Test {
             }
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -350,4 +350,9 @@ public class RelationChecker extends Test {
         Collection<? extends OsmPrimitive> primitives = testError.getPrimitives();
         return testError.getCode() == RELATION_EMPTY && !primitives.isEmpty() && primitives.iterator().next().isNew();
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -76,4 +76,9 @@ public class RightAngleBuildingTest extends Test {
         double difference = Math.abs(angle - 90);
         return difference > minAngleDelta && difference < maxAngleDelta;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -61,4 +61,14 @@ public class SelfIntersectingWay extends Test {
             }
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean isPartitionable() {
+        return true;
+    }
 }
@@ -282,4 +282,9 @@ public class SimilarNamedWays extends Test {
             return "synonyms(" + replacement + ", " + Arrays.toString(words) + ')';
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -920,4 +920,14 @@ public class TagChecker extends TagTest {
             return level.code + type.ordinal() + 1;
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean isPartitionable() {
+        return true;
+    }
 }
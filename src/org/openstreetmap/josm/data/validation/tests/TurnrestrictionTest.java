@@ -248,4 +248,9 @@ public class TurnrestrictionTest extends Test {
                     .build());
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -185,4 +185,9 @@ public class UnclosedWays extends Test {
             }
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -121,4 +121,14 @@ public class UntaggedNode extends Test implements KeyValueVisitor {
         }
         return false;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean isPartitionable() {
+        return true;
+    }
 }
@@ -183,4 +183,14 @@ public class UntaggedWay extends Test {
     public boolean isPrimitiveUsable(OsmPrimitive p) {
         return p.isUsable();
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean isPartitionable() {
+        return true;
+    }
 }
@@ -95,4 +95,9 @@ public class WayConnectedToArea extends Test {
                 .highlight(wayNode)
                 .build());
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -51,4 +51,9 @@ public class WronglyOrderedWays extends Test {
                 .primitives(w)
                 .build());
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -370,6 +370,19 @@ public final class MapViewState implements Serializable {
         return new MapViewState(position, this).usingCenter(center);
     }
 
+    /**
+     * Creates a new state with the same scale and projection that shows an area of the given size, e.g. to render a part of
+     * the map into an image. The state is not located on screen.
+     * @param topLeft The top left corner in east/north space.
+     * @param width The view width
+     * @param height The view height
+     * @return The new state.
+     * @since xxx
+     */
+    public MapViewState usingArea(EastNorth topLeft, int width, int height) {
+        return new MapViewState(projecting, width, height, scale, topLeft);
+    }
+
     /**
      * Creates a state that uses the projection.
      * @param projection The projection to use.
@@ -345,6 +345,16 @@ public class NavigatableComponent extends JComponent implements Helpful {
         return state;
     }
 
+    /**
+     * Replaces the view state, without any zoom constraints, zoom undo or notification. Only meant for components that are
+     * not shown on screen, e.g. to render a given part of the map.
+     * @param state The new state.
+     * @since xxx
+     */
+    protected void setState(MapViewState state) {
+        this.state = state;
+    }
+
     /**
      * Returns the text describing the given distance in the current system of measurement.
      * @param dist The distance in metres.
@@ -50,6 +50,7 @@ import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
 import org.openstreetmap.josm.gui.PopupMenuHandler;
 import org.openstreetmap.josm.gui.SideButton;
+import org.openstreetmap.josm.gui.dialogs.validator.IncrementalValidationHandler;
 import org.openstreetmap.josm.gui.dialogs.validator.ValidatorTreePanel;
 import org.openstreetmap.josm.gui.layer.MainLayerManager.ActiveLayerChangeEvent;
 import org.openstreetmap.josm.gui.layer.MainLayerManager.ActiveLayerChangeListener;
@@ -96,6 +97,9 @@ public class ValidatorDialog extends ToggleDialog implements DataSelectionListen
     /** Last selected element */
     private DefaultMutableTreeNode lastSelectedNode;
 
+    /** Revalidates the edit layer after each change, if enabled */
+    private final transient IncrementalValidationHandler incrementalValidation;
+
     /**
      * Constructor
      */
@@ -108,6 +112,7 @@ public class ValidatorDialog extends ToggleDialog implements DataSelectionListen
         popupMenuHandler.addAction(new EditRelationAction());
 
         tree = new ValidatorTreePanel();
+        incrementalValidation = new IncrementalValidationHandler(tree);
         tree.addMouseListener(new MouseEventHandler());
         addTreeSelectionListener(new SelectionWatch());
         InputMapUtils.unassignCtrlShiftUpDown(tree, JComponent.WHEN_FOCUSED);
@@ -193,9 +198,16 @@ public class ValidatorDialog extends ToggleDialog implements DataSelectionListen
     @Override
     public void hideNotify() {
         MainApplication.getLayerManager().removeActiveLayerChangeListener(this);
+        incrementalValidation.setLayer(null);
         SelectionEventManager.getInstance().removeSelectionListener(this);
     }
 
+    @Override
+    public void destroy() {
+        incrementalValidation.destroy();
+        super.destroy();
+    }
+
     @Override
     public void setVisible(boolean v) {
         if (tree != null) {
@@ -362,6 +374,7 @@ public class ValidatorDialog extends ToggleDialog implements DataSelectionListen
         } else {
             tree.setErrorList(editLayer.validationErrors);
         }
+        incrementalValidation.setLayer(editLayer);
     }
 
     /**
@@ -0,0 +1,145 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.dialogs.validator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.swing.Timer;
+
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+import org.openstreetmap.josm.data.validation.IncrementalValidator;
+import org.openstreetmap.josm.data.validation.IncrementalValidator.Update;
+import org.openstreetmap.josm.data.validation.OsmValidator;
+import org.openstreetmap.josm.data.validation.Test;
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.ValidationRunner;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.layer.ValidatorLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.Destroyable;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Keeps the validation errors of a data layer up to date while it is edited, if enabled by
+ * {@link ValidatorPrefHelper#PREF_INCREMENTAL}.
+ * <p>
+ * Shortly after the last change, the affected primitives are revalidated by an {@link IncrementalValidator} and the
+ * errors of the layer are updated in place. The revalidation runs on {@link MainApplication#worker}, like the
+ * {@link org.openstreetmap.josm.actions.ValidateAction}, so that the shared test instances are not run concurrently.
+ * @since xxx
+ */
+public class IncrementalValidationHandler implements DataSetListenerAdapter.Listener, Destroyable {
+
+    /** The delay after the last change before revalidating, in milliseconds */
+    private static final int DELAY = 500;
+
+    private final ValidatorTreePanel tree;
+    private final DataSetListenerAdapter dataSetListener = new DataSetListenerAdapter(this);
+    private final Timer timer = new Timer(DELAY, e -> revalidate());
+
+    private OsmDataLayer layer;
+    private IncrementalValidator validator;
+
+    /**
+     * Constructs a new {@code IncrementalValidationHandler}.
+     * @param tree the tree showing the errors of the active data layer
+     */
+    public IncrementalValidationHandler(ValidatorTreePanel tree) {
+        this.tree = tree;
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Sets the data layer to keep validated. Its data is validated in the background, and then revalidated after
+     * each change. Does nothing if incremental validation is disabled.
+     * @param layer the data layer, or {@code null} to stop validating
+     */
+    public void setLayer(OsmDataLayer layer) {
+        if (layer != null && layer == this.layer)
+            return;
+        destroy();
+        if (layer == null || !ValidatorPrefHelper.PREF_INCREMENTAL.get())
+            return;
+        OsmValidator.initializeTests();
+        this.layer = layer;
+        validator = new IncrementalValidator(layer.getDataSet(), createTests(),
+                new ValidationRunner(ValidatorPrefHelper.PREF_PARALLEL.get()));
+        layer.getDataSet().addDataSetListener(dataSetListener);
+        revalidate();
+    }
+
+    /**
+     * Creates the tests. Incremental tests keep their state, so they get their own instances.
+     */
+    private static Collection<Test> createTests() {
+        List<Test> tests = new ArrayList<>();
+        for (Test test : OsmValidator.getEnabledTests(false)) {
+            if (test.isIncremental()) {
+                try {
+                    Test copy = test.getClass().getConstructor().newInstance();
+                    copy.initialize();
+                    tests.add(copy);
+                } catch (Exception e) { // NOPMD
+                    Logging.log(Logging.LEVEL_ERROR, "Unable to create test " + test.getName(), e);
+                }
+            } else {
+                tests.add(test);
+            }
+        }
+        return tests;
+    }
+
+    @Override
+    public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        GuiHelper.runInEDT(timer::restart);
+    }
+
+    private void revalidate() {
+        IncrementalValidator v = validator;
+        if (v == null || !v.hasChanges())
+            return;
+        MainApplication.worker.submit(() -> {
+            Update update = v.revalidate(NullProgressMonitor.INSTANCE);
+            if (ValidatorPrefHelper.PREF_USE_IGNORE.get()) {
+                for (TestError error : update.getAddedErrors()) {
+                    if (Stream.of(error.getIgnoreState(), error.getIgnoreGroup(), error.getIgnoreSubGroup())
+                            .anyMatch(s -> s != null && OsmValidator.hasIgnoredError(s))) {
+                        error.setIgnored(true);
+                    }
+                }
+            }
+            GuiHelper.runInEDT(() -> {
+                if (validator == v) {
+                    if (tree.getErrors() == layer.validationErrors) {
+                        tree.updateErrors(update::isObsolete, update.getAddedErrors());
+                    } else {
+                        layer.validationErrors.removeIf(update::isObsolete);
+                        update.getAddedErrors().stream().filter(e -> !e.isIgnored()).forEach(layer.validationErrors::add);
+                    }
+                    if (!update.getAddedErrors().isEmpty()) {
+                        OsmValidator.initializeErrorLayer();
+                    }
+                    MainApplication.getLayerManager().getLayersOfType(ValidatorLayer.class).forEach(ValidatorLayer::invalidate);
+                }
+            });
+        });
+    }
+
+    @Override
+    public void destroy() {
+        timer.stop();
+        if (validator != null) {
+            layer.getDataSet().removeDataSetListener(dataSetListener);
+            // after a running revalidation
+            MainApplication.worker.submit(validator::destroy);
+            validator = null;
+            layer = null;
+        }
+    }
+}
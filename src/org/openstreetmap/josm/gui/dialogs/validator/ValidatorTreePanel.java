@@ -316,6 +316,26 @@ public class ValidatorTreePanel extends JTree implements Destroyable, DataSetLis
         }
     }
 
+    /**
+     * Updates the current errors list in place, by removing the obsolete errors and adding the new ones
+     * @param obsolete the predicate telling which errors to remove
+     * @param newerrors the validation errors to add
+     * @since xxx
+     */
+    public void updateErrors(Predicate<? super TestError> obsolete, Collection<TestError> newerrors) {
+        if (errors == null)
+            return;
+        errors.removeIf(obsolete);
+        for (TestError error : newerrors) {
+            if (!error.isIgnored()) {
+                errors.add(error);
+            }
+        }
+        if (isVisible()) {
+            buildTree();
+        }
+    }
+
     /**
      * Returns the errors of the tree
      * @return the errors of the tree
@@ -6,6 +6,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JOptionPane;
 
@@ -102,17 +103,76 @@ public class GpxImporter extends FileImporter {
     public void importData(File file, ProgressMonitor progressMonitor) throws IOException {
         final String fileName = file.getName();
 
+        // compressed files are decompressed while parsing, without an in-memory copy
         try (InputStream is = Compression.getUncompressedFileInputStream(file)) {
             GpxReader r = new GpxReader(is);
-            boolean parsedProperly = r.parse(true);
-            r.getGpxData().storageFile = file;
-            addLayers(loadLayers(r.getGpxData(), parsedProperly, fileName, tr("Markers from {0}", fileName)));
+            // store the track points of large files in columns, see CompactGpxTrackSegment
+            r.setCompact(file.length() >= Config.getPref().getLong("gpx.import.compact.minsize", 50L * 1024 * 1024));
+            r.setDecimation(Config.getPref().getDouble("gpx.import.decimation", 0));
+            GpxLayer streamingLayer = null;
+            if (file.length() >= Config.getPref().getLong("gpx.import.streaming.minsize", 10L * 1024 * 1024)) {
+                streamingLayer = setStreaming(r, file, fileName);
+            }
+            boolean parsedProperly;
+            try {
+                parsedProperly = r.parse(true);
+            } catch (SAXException | IOException | RuntimeException e) {
+                // do not leave the tracks read so far on the map
+                removeLayer(streamingLayer);
+                throw e;
+            }
+            GpxData data = r.getGpxData();
+            data.storageFile = file;
+            if (streamingLayer != null && (data.hasTrackPoints() || data.hasRoutePoints())) {
+                // the layer has been added with the first track points
+                GpxImporterData layers = loadLayers(data, streamingLayer, parsedProperly,
+                        fileName, tr("Markers from {0}", fileName));
+                addLayers(new GpxImporterData(null, layers.getMarkerLayer(), layers.getPostLayerTask()));
+            } else {
+                addLayers(loadLayers(data, parsedProperly, fileName, tr("Markers from {0}", fileName)));
+            }
         } catch (SAXException e) {
             Logging.error(e);
             throw new IOException(tr("Parsing data for layer ''{0}'' failed", fileName), e);
         }
     }
 
+    /**
+     * Lets the reader add the tracks to a new layer while parsing. The layer is added to the map
+     * with the first batch containing track points, so that large files are shown progressively.
+     * @param r the reader
+     * @param file the GPX file
+     * @param fileName the layer name
+     * @return the layer receiving the tracks
+     */
+    private static GpxLayer setStreaming(GpxReader r, File file, String fileName) {
+        GpxData data = new GpxData();
+        data.storageFile = file;
+        GpxLayer layer = new GpxLayer(data, fileName, true);
+        AtomicBoolean added = new AtomicBoolean();
+        r.setStreaming(data, batch -> GuiHelper.runInEDTAndWait(() -> {
+            batch.run();
+            if ((data.hasTrackPoints() || data.hasRoutePoints()) && !added.getAndSet(true)) {
+                MainApplication.getLayerManager().addLayer(layer);
+            }
+        }), Config.getPref().getLong("gpx.import.streaming.interval", 1000));
+        return layer;
+    }
+
+    /**
+     * Removes the layer of a failed streaming import, if it has been added.
+     * @param layer the streaming layer, can be {@code null}
+     */
+    private static void removeLayer(GpxLayer layer) {
+        if (layer != null) {
+            GuiHelper.runInEDTAndWait(() -> {
+                if (MainApplication.getLayerManager().containsLayer(layer)) {
+                    MainApplication.getLayerManager().removeLayer(layer);
+                }
+            });
+        }
+    }
+
     /**
      * Adds the specified GPX and marker layers to Map.main
      * @param data The layers to add
@@ -143,10 +203,15 @@ public class GpxImporter extends FileImporter {
     public static GpxImporterData loadLayers(final GpxData data, final boolean parsedProperly,
             final String gpxLayerName, String markerLayerName) {
         GpxLayer gpxLayer = null;
-        MarkerLayer markerLayer = null;
         if (data.hasRoutePoints() || data.hasTrackPoints()) {
             gpxLayer = new GpxLayer(data, gpxLayerName, data.storageFile != null);
         }
+        return loadLayers(data, gpxLayer, parsedProperly, gpxLayerName, markerLayerName);
+    }
+
+    private static GpxImporterData loadLayers(final GpxData data, GpxLayer gpxLayer, final boolean parsedProperly,
+            final String gpxLayerName, String markerLayerName) {
+        MarkerLayer markerLayer = null;
         if (Config.getPref().getBoolean("marker.makeautomarkers", true) && !data.waypoints.isEmpty()) {
             markerLayer = new MarkerLayer(data, markerLayerName, data.storageFile, gpxLayer);
             if (markerLayer.data.isEmpty()) {
@@ -20,6 +20,7 @@ import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.io.Compression;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.io.ParallelOsmReader;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
@@ -127,6 +128,9 @@ public class OsmImporter extends FileImporter {
     }
 
     protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
+        if (ParallelOsmReader.PROP_ENABLED.get() && Runtime.getRuntime().availableProcessors() > 1) {
+            return ParallelOsmReader.parseDataSet(in, progressMonitor);
+        }
         return OsmReader.parseDataSet(in, progressMonitor);
     }
 
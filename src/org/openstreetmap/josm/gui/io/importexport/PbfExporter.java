@@ -0,0 +1,70 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.io.importexport;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.swing.JOptionPane;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.Layer;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.PbfWriter;
+
+/**
+ * Exporter to write map data to an OSM PBF file.
+ * <p>
+ * The PBF format cannot store the modified and deleted state of objects, so layers with such changes are not exported.
+ * @since xxx
+ */
+public class PbfExporter extends FileExporter {
+
+    /**
+     * Constructs a new {@code PbfExporter}.
+     */
+    public PbfExporter() {
+        super(PbfImporter.FILE_FILTER);
+    }
+
+    @Override
+    public boolean acceptFile(File pathname, Layer layer) {
+        return layer instanceof OsmDataLayer && super.acceptFile(pathname, layer);
+    }
+
+    @Override
+    public void exportData(File file, Layer layer) throws IOException {
+        if (layer instanceof OsmDataLayer) {
+            if (hasLocalChanges(((OsmDataLayer) layer).data)) {
+                String message = tr("The layer ''{0}'' contains modified or deleted objects, which cannot be saved in the PBF format."
+                        + " Save it as OSM file or upload the changes first.", layer.getName());
+                if (!GraphicsEnvironment.isHeadless()) {
+                    GuiHelper.runInEDT(() -> JOptionPane.showMessageDialog(MainApplication.getMainFrame(), message,
+                            tr("Error"), JOptionPane.ERROR_MESSAGE));
+                }
+                throw new IOException(message);
+            }
+            try (PbfWriter writer = new PbfWriter(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+                writer.write(((OsmDataLayer) layer).data);
+            }
+        } else {
+            throw new IllegalArgumentException(tr("Layer ''{0}'' not supported", layer.getClass().toString()));
+        }
+    }
+
+    /**
+     * Determines if a data set contains changes to existing objects, which would be lost in a PBF file.
+     * New objects are written with their negative ids and are read back as new objects.
+     * @param ds the data set
+     * @return {@code true} if an existing object is modified or deleted
+     */
+    static boolean hasLocalChanges(DataSet ds) {
+        return ds.allPrimitives().stream().anyMatch(p -> !p.isNew() && (p.isModified() || p.isDeleted()));
+    }
+}
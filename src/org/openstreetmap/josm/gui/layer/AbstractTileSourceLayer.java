@@ -151,6 +151,10 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
     /** minium zoom level supported */
     public static final int MIN_ZOOM = 2;
     private static final Font InfoFont = new Font("sansserif", Font.BOLD, 13);
+    /**
+     * priority difference between tiles of two consecutive zoom levels, larger than the tile distances in a view
+     */
+    private static final double ZOOM_PRIORITY_STEP = 1000;
 
     /** additional layer menu actions */
     private static List<MenuAddition> menuAdditions = new LinkedList<>();
@@ -206,6 +210,11 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
     private final ImageryAdjustAction adjustAction = new ImageryAdjustAction(this);
     // prepared to be moved to the painter
     protected TileCoordinateConverter coordinateConverter;
+
+    /**
+     * the tile sets of the last view, used to compute the download priority of the queued tiles
+     */
+    private volatile DeepTileSet downloadTileSet;
     private final long minimumTileExpire;
 
     /**
@@ -293,6 +302,10 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
         if (tileLoader == null)
             tileLoader = new OsmTileLoader(this, headers);
 
+        if (tileLoader instanceof TMSCachedTileLoader) {
+            ((TMSCachedTileLoader) tileLoader).setTilePriority(this::getDownloadPriority);
+        }
+
         tileCache = new MemoryTileCache(estimateTileCacheSize());
     }
 
@@ -749,7 +762,9 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
     private void zoomChanged(boolean invalidate) {
         Logging.debug("zoomChanged(): {0}", currentZoomLevel);
         if (tileLoader instanceof TMSCachedTileLoader) {
-            ((TMSCachedTileLoader) tileLoader).cancelOutstandingTasks();
+            // keep the queued tiles which are still in view, they are downloaded by distance to the new view
+            updateDownloadTileSet();
+            ((TMSCachedTileLoader) tileLoader).cancelUnneededTasks();
         }
         if (invalidate) {
             invalidate();
@@ -899,6 +914,31 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
         return true;
     }
 
+    private void updateDownloadTileSet() {
+        if (coordinateConverter != null && MainApplication.isDisplayingMapView()) {
+            int zoom = getDisplaySettings().isAutoZoom() ? getBestZoom() : currentZoomLevel;
+            ProjectionBounds bounds = MainApplication.getMap().mapView.getState().getViewArea().getProjectionBounds();
+            downloadTileSet = new DeepTileSet(bounds, Math.min(getMinZoomLvl(), zoom), zoom);
+        }
+    }
+
+    /**
+     * Returns the download priority of a tile: tiles at the zoom level to load are downloaded first,
+     * and from the center of the view to the edge.
+     * Called from the download threads, see {@link TMSCachedTileLoader#setTilePriority}.
+     * @param tile the tile
+     * @return the priority, lower values first, {@link Double#POSITIVE_INFINITY} if the tile is not in view anymore
+     */
+    private double getDownloadPriority(Tile tile) {
+        DeepTileSet dts = downloadTileSet;
+        if (dts == null) {
+            return 0;
+        }
+        int zoom = tile.getZoom();
+        TileSet ts = zoom <= dts.maxZoom ? dts.getTileSet(zoom) : getTileSet(dts.bounds, zoom);
+        return ts.getDownloadPriority(tile, dts.maxZoom);
+    }
+
     private TileSet getVisibleTileSet() {
         ProjectionBounds bounds = MainApplication.getMap().mapView.getState().getViewArea().getProjectionBounds();
         return getTileSet(bounds, currentZoomLevel);
@@ -1276,6 +1316,23 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
             return Comparator.comparingInt(t -> Math.abs(t.getXtile() - centerX) + Math.abs(t.getYtile() - centerY));
         }
 
+        /**
+         * Returns the download priority of a tile, see {@link AbstractTileSourceLayer#getDownloadPriority}.
+         * @param tile a tile at the zoom level of this tile set
+         * @param targetZoom the zoom level to load
+         * @return the distance of the tile to the center of this tile set, in tiles, plus
+         * {@link #ZOOM_PRIORITY_STEP} for each zoom level to the target zoom level
+         */
+        private double getDownloadPriority(Tile tile, int targetZoom) {
+            int x = tile.getXtile();
+            int y = tile.getYtile();
+            // keep a margin of one tile, which may be visible again after a small move
+            if (zoom == 0 || x < minX - 1 || x > maxX + 1 || y < minY - 1 || y > maxY + 1) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return Math.abs(zoom - targetZoom) * ZOOM_PRIORITY_STEP + Math.hypot(x - (minX + maxX) / 2d, y - (minY + maxY) / 2d);
+        }
+
         private void loadAllTiles(boolean force) {
             if (!getDisplaySettings().isAutoLoad() && !force)
                 return;
@@ -1476,6 +1533,7 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
         }
 
         DeepTileSet dts = new DeepTileSet(pb, getMinZoomLvl(), zoom);
+        downloadTileSet = dts;
 
         int displayZoomLevel = zoom;
 
@@ -49,6 +49,7 @@ import org.openstreetmap.josm.actions.ToggleUploadDiscouragedLayerAction;
 import org.openstreetmap.josm.data.APIDataSet;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.DataSourceIndex;
 import org.openstreetmap.josm.data.ProjectionBounds;
 import org.openstreetmap.josm.data.UndoRedoHandler;
 import org.openstreetmap.josm.data.conflict.Conflict;
@@ -82,6 +83,8 @@ import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.osm.visitor.OsmPrimitiveVisitor;
 import org.openstreetmap.josm.data.osm.visitor.paint.AbstractMapRenderer;
 import org.openstreetmap.josm.data.osm.visitor.paint.MapRendererFactory;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderedTileCache;
+import org.openstreetmap.josm.data.osm.visitor.paint.SimplifiedWayCache;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
@@ -102,6 +105,7 @@ import org.openstreetmap.josm.gui.io.UploadDialog;
 import org.openstreetmap.josm.gui.io.UploadLayerTask;
 import org.openstreetmap.josm.gui.io.importexport.OsmImporter;
 import org.openstreetmap.josm.gui.layer.markerlayer.MarkerLayer;
+import org.openstreetmap.josm.gui.mappaint.StyleCache;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.progress.swing.PleaseWaitProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
@@ -137,6 +141,9 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
     /** Flag used to know if the layer is being uploaded */
     private final AtomicBoolean isUploadInProgress = new AtomicBoolean(false);
 
+    /** The rendered tiles, if {@link #PROPERTY_TILED_RENDERING} is enabled */
+    private RenderedTileCache tileCache;
+
     /**
      * List of validation errors in this layer.
      * @since 3669
@@ -164,6 +171,19 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
      */
     public static final BooleanProperty PROPERTY_HIDE_LABELS_WHILE_DRAGGING = new BooleanProperty("mappaint.hide.labels.while.dragging", true);
 
+    /**
+     * Property to determine if the data is rendered in cached tiles, see {@link RenderedTileCache}.
+     * @since xxx
+     */
+    public static final BooleanProperty PROPERTY_TILED_RENDERING = new BooleanProperty("mappaint.tiled", false);
+
+    /**
+     * Property to determine if the data sets of new layers do not cache the projected coordinates of their nodes,
+     * to reduce the memory footprint of very large data sets. See {@link DataSet#setCompactCoordinates(boolean)}.
+     * @since xxx
+     */
+    public static final BooleanProperty PROPERTY_COMPACT_COORDINATES = new BooleanProperty("osm.compact-coordinates", false);
+
     private static final NamedColorProperty PROPERTY_BACKGROUND_COLOR = new NamedColorProperty(marktr("background"), Color.BLACK);
     private static final NamedColorProperty PROPERTY_OUTSIDE_COLOR = new NamedColorProperty(marktr("outside downloaded area"), Color.YELLOW);
 
@@ -407,8 +427,12 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
         this.data = data;
         this.data.setName(name);
         this.setAssociatedFile(associatedFile);
+        if (PROPERTY_COMPACT_COORDINATES.get()) {
+            data.setCompactCoordinates(true);
+        }
         data.addDataSetListener(new DataSetListenerAdapter(this));
         data.addDataSetListener(MultipolygonCache.getInstance());
+        SimplifiedWayCache.getInstance().register(data);
         data.addHighlightUpdateListener(this);
         data.addSelectionListener(this);
         if (name != null && name.startsWith(createLayerName("")) && Character.isDigit(
@@ -479,18 +503,24 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
             // on some platforms viewport bounds seem to be offset from the left,
             // over-grow it just to be sure
             b.grow(100, 100);
-            Path2D p = new Path2D.Double();
-
-            // combine successively downloaded areas
-            for (Bounds bounds : data.getDataSourceBounds()) {
-                if (bounds.isCollapsed()) {
-                    continue;
+            DataSourceIndex index = data.getDataSourceIndex();
+            Bounds viewBounds = mv.getLatLonBounds(b);
+            Area a = new Area(b);
+            if (index.contains(viewBounds)) {
+                // everything visible has been downloaded
+                a.reset();
+            } else {
+                // combine successively downloaded areas, only the visible ones
+                Path2D p = new Path2D.Double();
+                for (Bounds bounds : index.getBounds(viewBounds)) {
+                    if (bounds.isCollapsed()) {
+                        continue;
+                    }
+                    p.append(mv.getState().getArea(bounds), false);
                 }
-                p.append(mv.getState().getArea(bounds), false);
+                // subtract combined areas
+                a.subtract(new Area(p));
             }
-            // subtract combined areas
-            Area a = new Area(b);
-            a.subtract(new Area(p));
 
             // paint remainder
             MapViewPoint anchor = mv.getState().getPointFor(new EastNorth(0, 0));
@@ -509,10 +539,21 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
             }
         }
 
-        AbstractMapRenderer painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
-        painter.enableSlowOperations(mv.getMapMover() == null || !mv.getMapMover().movementInProgress()
-                || !PROPERTY_HIDE_LABELS_WHILE_DRAGGING.get());
-        painter.render(data, virtual, box);
+        if (PROPERTY_TILED_RENDERING.get()) {
+            if (tileCache == null) {
+                tileCache = new RenderedTileCache(data, () -> GuiHelper.runInEDT(this::invalidate));
+            }
+            tileCache.paint(g, mv.getState(), inactive, virtual);
+        } else {
+            if (tileCache != null) {
+                tileCache.destroy();
+                tileCache = null;
+            }
+            AbstractMapRenderer painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
+            painter.enableSlowOperations(mv.getMapMover() == null || !mv.getMapMover().movementInProgress()
+                    || !PROPERTY_HIDE_LABELS_WHILE_DRAGGING.get());
+            painter.render(data, virtual, box);
+        }
         MainApplication.getMap().conflictDialog.paintConflicts(g, mv);
     }
 
@@ -1056,10 +1097,19 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
         super.destroy();
         data.removeSelectionListener(this);
         data.removeHighlightUpdateListener(this);
+        if (tileCache != null) {
+            tileCache.destroy();
+            tileCache = null;
+        }
+        // the style caches of the removed primitives are no longer needed
+        StyleCache.clearStyleCachePool();
     }
 
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        if (tileCache != null) {
+            tileCache.invalidate(event);
+        }
         invalidate();
         setRequiresSaveToFile(true);
         setRequiresUploadToServer(event.getDataset().requiresUploadToServer());
@@ -1067,6 +1117,10 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
 
     @Override
     public void selectionChanged(SelectionChangeEvent event) {
+        if (tileCache != null) {
+            tileCache.invalidate(event.getAdded());
+            tileCache.invalidate(event.getRemoved());
+        }
         invalidate();
     }
 
@@ -1199,6 +1253,13 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
 
     @Override
     public void highlightUpdated(HighlightUpdateEvent e) {
+        if (tileCache != null) {
+            if (e.getPrimitives() != null) {
+                tileCache.invalidate(e.getPrimitives());
+            } else {
+                tileCache.invalidateAll();
+            }
+        }
         invalidate();
     }
 
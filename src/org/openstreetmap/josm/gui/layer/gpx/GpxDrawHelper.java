@@ -17,7 +17,6 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -26,9 +25,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
 
 import javax.swing.ImageIcon;
 
@@ -36,7 +35,9 @@ import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.PreferencesUtils;
 import org.openstreetmap.josm.data.SystemOfMeasurement;
 import org.openstreetmap.josm.data.SystemOfMeasurement.SoMChangeListener;
+import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.CompactGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxData.GpxDataChangeEvent;
@@ -98,6 +99,10 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     /** maximum value of displayed HDOP, minimum is 0 */
     private int hdoprange;
 
+    // values used by the time coloring, set by calculateColors
+    private double colorTimeNow;
+    private double colorTimeRange;
+
     private static final double PHI = Utils.toRadians(15);
 
     //// Variables used only to check cache validity
@@ -157,18 +162,8 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     // do not draw elements with value lower than this limit
     private int heatMapDrawLowerLimit;
 
-    // normal buffered image and draw object (cached)
-    private BufferedImage heatMapImgGray;
-    private Graphics2D heatMapGraph2d;
-
-    // some cached values
-    Rectangle heatMapCacheScreenBounds = new Rectangle();
-    MapViewState heatMapMapViewState;
-    int heatMapCacheLineWith;
-
-    // copied value for line drawing
-    private final List<Integer> heatMapPolyX = new ArrayList<>();
-    private final List<Integer> heatMapPolyY = new ArrayList<>();
+    // rasterized heat map (cached)
+    private final GpxHeatMap heatMap = new GpxHeatMap();
 
     // setup color maps used by heat map
     private static Color[] heatMapLutColorJosmInferno = createColorFromResource("inferno");
@@ -349,9 +344,11 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
     @Override
     public void paint(MapViewGraphics graphics) {
+        // colors are needed to list the points of compact segments
+        readPreferences(layer.getName());
+        ensureColors();
         List<WayPoint> visibleSegments = listVisibleSegments(graphics.getClipBounds().getLatLonBoundsBox());
         if (!visibleSegments.isEmpty()) {
-            readPreferences(layer.getName());
             drawAll(graphics.getDefaultGraphics(), graphics.getMapView(), visibleSegments);
             if (graphics.getMapView().getLayerManager().getActiveLayer() == layer) {
                 drawColorBar(graphics.getDefaultGraphics(), graphics.getMapView());
@@ -365,6 +362,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
         ensureTrackVisibilityLength();
         for (Collection<WayPoint> segment : data.getLinesIterable(layer.trackVisibility)) {
+            CompactGpxTrackSegment compact = CompactGpxTrackSegment.getSegment(segment);
+            if (compact != null) {
+                listVisiblePoints(compact, box, visibleSegments);
+                last = null;
+                continue;
+            }
 
             for (WayPoint pt : segment) {
                 Bounds b = new Bounds(pt.getCoor());
@@ -390,6 +393,41 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         return visibleSegments;
     }
 
+    /**
+     * Adds the visible points of a compact segment. Way points are only created for these points,
+     * and colored right away, as they are not kept.
+     * @param segment the compact segment
+     * @param box the visible area
+     * @param visibleSegments the list to add the points to
+     */
+    private void listVisiblePoints(CompactGpxTrackSegment segment, Bounds box, List<WayPoint> visibleSegments) {
+        Bounds bounds = segment.getBounds();
+        if (bounds == null || !bounds.intersects(box)) {
+            return;
+        }
+        // the way point of the previous point, if it is in the list
+        WayPoint last = null;
+        for (int i = 0; i < segment.size(); i++) {
+            Bounds b = new Bounds(segment.lat(i), segment.lon(i), segment.lat(i), segment.lon(i));
+            if (i > 0) {
+                b.extend(segment.lat(i - 1), segment.lon(i - 1));
+            }
+            if (b.intersects(box)) {
+                if (last == null && i > 0) {
+                    last = segment.getWayPoint(i - 1);
+                    assignColor(last, null);
+                    visibleSegments.add(last);
+                }
+                WayPoint pt = segment.getWayPoint(i);
+                assignColor(pt, last);
+                visibleSegments.add(pt);
+                last = pt;
+            } else {
+                last = null;
+            }
+        }
+    }
+
     /** ensures the trackVisibility array has the correct length without losing data.
      * TODO: Make this nicer by syncing the trackVisibility automatically.
      * additional entries are initialized to true;
@@ -415,12 +453,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
         final long timeStart = System.currentTimeMillis();
 
-        checkCache();
-
-        // STEP 2b - RE-COMPUTE CACHE DATA *********************
-        if (!computeCacheInSync) { // don't compute if the cache is good
-            calculateColors();
-        }
+        ensureColors();
 
         fixColors(visibleSegments);
 
@@ -451,7 +484,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
         // use heatmap background layer
         if (useHeatMap) {
-            drawHeatMap(g, mv, visibleSegments);
+            drawHeatMap(g, mv);
         } else {
             // use normal line style or alpha-blending lines
             if (!alphaLines) {
@@ -489,6 +522,18 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         }
     }
 
+    /**
+     * Recalculates the colors if the settings or the data changed.
+     */
+    private void ensureColors() {
+        checkCache();
+
+        // STEP 2b - RE-COMPUTE CACHE DATA *********************
+        if (!computeCacheInSync) { // don't compute if the cache is good
+            calculateColors();
+        }
+    }
+
     /**
      *  Calculate colors of way segments based on latest configuration settings
      */
@@ -504,6 +549,17 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                     if (!forceLines) {
                         oldWp = null;
                     }
+                    CompactGpxTrackSegment compact = CompactGpxTrackSegment.getSegment(segment);
+                    if (compact != null) {
+                        for (int i = 1; i < compact.size(); i++) {
+                            double dtime = compact.getTime(i) - compact.getTime(i - 1);
+                            if (dtime > 0) {
+                                velocities.add(compact.getCoor(i).greatCircleDistance(compact.getCoor(i - 1)) / dtime);
+                            }
+                        }
+                        oldWp = null;
+                        continue;
+                    }
                     for (WayPoint trkPnt : segment) {
                         if (!trkPnt.isLatLonKnown()) {
                             continue;
@@ -526,8 +582,10 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                 }
             } else if (colored == ColorMode.HDOP) {
                 for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
-                    for (WayPoint trkPnt : segment) {
-                        Object val = trkPnt.get(GpxConstants.PT_HDOP);
+                    CompactGpxTrackSegment compact = CompactGpxTrackSegment.getSegment(segment);
+                    Iterator<WayPoint> it = segment.iterator();
+                    for (int i = 0; i < segment.size(); i++) {
+                        Object val = compact != null ? compact.get(i, GpxConstants.PT_HDOP) : it.next().get(GpxConstants.PT_HDOP);
                         if (val != null) {
                             double hdop = ((Float) val).doubleValue();
                             if (hdop > maxval) {
@@ -564,65 +622,21 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         }
 
         // Now the colors for all the points will be assigned
+        colorTimeNow = now;
+        colorTimeRange = maxval - minval;
         for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
             if (!forceLines) { // don't draw lines between segments, unless forced to
                 oldWp = null;
             }
+            if (CompactGpxTrackSegment.getSegment(segment) != null) {
+                // compact segments keep no way points, they are colored when drawn
+                oldWp = null;
+                continue;
+            }
             for (WayPoint trkPnt : segment) {
-                LatLon c = trkPnt.getCoor();
-                trkPnt.customColoring = neutralColor;
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
-                    continue;
-                }
-                // now we are sure some color will be assigned
-                Color color = null;
-
-                if (colored == ColorMode.HDOP) {
-                    Float hdop = (Float) trkPnt.get(GpxConstants.PT_HDOP);
-                    color = hdopScale.getColor(hdop);
-                }
-                if (oldWp != null) { // other coloring modes need segment for calcuation
-                    double dist = c.greatCircleDistance(oldWp.getCoor());
-                    boolean noDraw = false;
-                    switch (colored) {
-                    case VELOCITY:
-                        double dtime = trkPnt.time - oldWp.time;
-                        if (dtime > 0) {
-                            color = velocityScale.getColor(dist / dtime);
-                        } else {
-                            color = velocityScale.getNoDataColor();
-                        }
-                        break;
-                    case DIRECTION:
-                        double dirColor = oldWp.getCoor().bearing(trkPnt.getCoor());
-                        color = directionScale.getColor(dirColor);
-                        break;
-                    case TIME:
-                        double t = trkPnt.time;
-                        // skip bad timestamps and very short tracks
-                        if (t > 0 && t <= now && maxval - minval > minTrackDurationForTimeColoring) {
-                            color = dateScale.getColor(t);
-                        } else {
-                            color = dateScale.getNoDataColor();
-                        }
-                        break;
-                    default: // Do nothing
-                    }
-                    if (!noDraw && (maxLineLength == -1 || dist <= maxLineLength)) {
-                        trkPnt.drawLine = true;
-                        double bearing = oldWp.getCoor().bearing(trkPnt.getCoor());
-                        trkPnt.dir = ((int) (bearing / Math.PI * 4 + 1.5)) % 8;
-                    } else {
-                        trkPnt.drawLine = false;
-                    }
-                } else { // make sure we reset outdated data
-                    trkPnt.drawLine = false;
-                    color = neutralColor;
-                }
-                if (color != null) {
-                    trkPnt.customColoring = color;
+                if (assignColor(trkPnt, oldWp)) {
+                    oldWp = trkPnt;
                 }
-                oldWp = trkPnt;
             }
         }
 
@@ -632,14 +646,77 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
             // get new user color map and refresh visibility level
             heatMapLutColor = createColorLut(heatMapDrawLowerLimit,
                                              selectColorMap(neutralColor != null ? neutralColor : Color.WHITE, heatMapDrawColorTableIdx));
-
-            // force redraw of image
-            heatMapMapViewState = null;
         }
 
+        // force new heat map, the drawn lines may have changed
+        gpxLayerInvalidated = true;
+
         computeCacheInSync = true;
     }
 
+    /**
+     * Assigns the color, the line flag and the direction of a way point
+     * @param trkPnt the way point
+     * @param oldWp the previous way point, or {@code null}
+     * @return {@code true} if the way point has valid coordinates
+     */
+    private boolean assignColor(WayPoint trkPnt, WayPoint oldWp) {
+        LatLon c = trkPnt.getCoor();
+        trkPnt.customColoring = neutralColor;
+        if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            return false;
+        }
+        // now we are sure some color will be assigned
+        Color color = null;
+
+        if (colored == ColorMode.HDOP) {
+            Float hdop = (Float) trkPnt.get(GpxConstants.PT_HDOP);
+            color = hdopScale.getColor(hdop);
+        }
+        if (oldWp != null) { // other coloring modes need segment for calcuation
+            double dist = c.greatCircleDistance(oldWp.getCoor());
+            boolean noDraw = false;
+            switch (colored) {
+            case VELOCITY:
+                double dtime = trkPnt.time - oldWp.time;
+                if (dtime > 0) {
+                    color = velocityScale.getColor(dist / dtime);
+                } else {
+                    color = velocityScale.getNoDataColor();
+                }
+                break;
+            case DIRECTION:
+                double dirColor = oldWp.getCoor().bearing(trkPnt.getCoor());
+                color = directionScale.getColor(dirColor);
+                break;
+            case TIME:
+                double t = trkPnt.time;
+                // skip bad timestamps and very short tracks
+                if (t > 0 && t <= colorTimeNow && colorTimeRange > minTrackDurationForTimeColoring) {
+                    color = dateScale.getColor(t);
+                } else {
+                    color = dateScale.getNoDataColor();
+                }
+                break;
+            default: // Do nothing
+            }
+            if (!noDraw && (maxLineLength == -1 || dist <= maxLineLength)) {
+                trkPnt.drawLine = true;
+                double bearing = oldWp.getCoor().bearing(trkPnt.getCoor());
+                trkPnt.dir = ((int) (bearing / Math.PI * 4 + 1.5)) % 8;
+            } else {
+                trkPnt.drawLine = false;
+            }
+        } else { // make sure we reset outdated data
+            trkPnt.drawLine = false;
+            color = neutralColor;
+        }
+        if (color != null) {
+            trkPnt.customColoring = color;
+        }
+        return true;
+    }
+
     /**
      * Draw all GPX ways segments
      * @param g               the common draw object to use
@@ -1088,352 +1165,32 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         return new ImageIcon(createImageGradientMap(size, size, selectColorMap(userColor, tableIdx)));
     }
 
-    /**
-     * Draw gray heat map with current Graphics2D setting
-     * @param gB              the common draw object to use
-     * @param mv              the meta data to current displayed area
-     * @param listSegm        segments visible in the current scope of mv
-     * @param foreComp        composite use to draw foreground objects
-     * @param foreStroke      stroke use to draw foreground objects
-     * @param backComp        composite use to draw background objects
-     * @param backStroke      stroke use to draw background objects
-     */
-    private void drawHeatGrayLineMap(Graphics2D gB, MapView mv, List<WayPoint> listSegm,
-                                     Composite foreComp, Stroke foreStroke,
-                                     Composite backComp, Stroke backStroke) {
-
-        // draw foreground
-        boolean drawForeground = foreComp != null && foreStroke != null;
-
-        // set initial values
-        gB.setStroke(backStroke); gB.setComposite(backComp);
-
-        // get last point in list
-        final WayPoint lastPnt = !listSegm.isEmpty() ? listSegm.get(listSegm.size() - 1) : null;
-
-        // for all points, draw single lines by using optimized drawing
-        for (WayPoint trkPnt : listSegm) {
-
-            // get transformed coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
-
-            // end of line segment or end of list reached
-            if (!trkPnt.drawLine || (lastPnt == trkPnt)) {
-
-                // convert to primitive type
-                final int[] polyXArr = heatMapPolyX.stream().mapToInt(Integer::intValue).toArray();
-                final int[] polyYArr = heatMapPolyY.stream().mapToInt(Integer::intValue).toArray();
-
-                // a.) draw background
-                gB.drawPolyline(polyXArr, polyYArr, polyXArr.length);
-
-                // b.) draw extra foreground
-                if (drawForeground && heatMapDrawExtraLine) {
-
-                    gB.setStroke(foreStroke); gB.setComposite(foreComp);
-                    gB.drawPolyline(polyXArr, polyYArr, polyXArr.length);
-                    gB.setStroke(backStroke); gB.setComposite(backComp);
-                }
-
-                // drop used points
-                heatMapPolyX.clear(); heatMapPolyY.clear();
-            }
-
-            // store only the integer part (make sense because pixel is 1:1 here)
-            heatMapPolyX.add((int) paintPnt.getX());
-            heatMapPolyY.add((int) paintPnt.getY());
-        }
-    }
-
-    /**
-     * Map the gray map to heat map and draw them with current Graphics2D setting
-     * @param g               the common draw object to use
-     * @param imgGray         gray scale input image
-     * @param sampleRaster    the line with for drawing
-     * @param outlineWidth     line width for outlines
-     */
-    private void drawHeatMapGrayMap(Graphics2D g, BufferedImage imgGray, int sampleRaster, int outlineWidth) {
-
-        final int[] imgPixels = ((DataBufferInt) imgGray.getRaster().getDataBuffer()).getData();
-
-        // samples offset and bounds are scaled with line width derived from zoom level
-        final int offX = Math.max(1, sampleRaster);
-        final int offY = Math.max(1, sampleRaster);
-
-        final int maxPixelX = imgGray.getWidth();
-        final int maxPixelY = imgGray.getHeight();
-
-        // always full or outlines at big samples rasters
-        final boolean drawOutlines = (outlineWidth > 0) && ((0 == sampleRaster) || (sampleRaster > 10));
-
-        // backup stroke
-        final Stroke oldStroke = g.getStroke();
-
-        // use basic stroke for outlines and default transparency
-        g.setStroke(new BasicStroke(outlineWidth));
-
-        int lastPixelX = 0;
-        int lastPixelColor = 0;
-
-        // resample gray scale image with line linear weight of next sample in line
-        // process each line and draw pixels / rectangles with same color with one operations
-        for (int y = 0; y < maxPixelY; y += offY) {
-
-            // the lines offsets
-            final int lastLineOffset = maxPixelX * (y+0);
-            final int nextLineOffset = maxPixelX * (y+1);
-
-            for (int x = 0; x < maxPixelX; x += offX) {
-
-                int thePixelColor = 0; int thePixelCount = 0;
-
-                // sample the image (it is gray scale)
-                int offset = lastLineOffset + x;
-
-                // merge next pixels of window of line
-                for (int k = 0; k < offX && (offset + k) < nextLineOffset; k++) {
-                    thePixelColor += imgPixels[offset+k] & 0xFF;
-                    thePixelCount++;
-                }
-
-                // mean value
-                thePixelColor = thePixelCount > 0 ? (thePixelColor / thePixelCount) : 0;
-
-                // restart -> use initial sample
-                if (0 == x) {
-                    lastPixelX = 0; lastPixelColor = thePixelColor - 1;
-                }
-
-                boolean bDrawIt = false;
-
-                // when one of segment is mapped to black
-                bDrawIt = bDrawIt || (lastPixelColor == 0) || (thePixelColor == 0);
-
-                // different color
-                bDrawIt = bDrawIt || (Math.abs(lastPixelColor-thePixelColor) > 0);
-
-                // when line is finished draw always
-                bDrawIt = bDrawIt || (y >= (maxPixelY-offY));
-
-                if (bDrawIt) {
-
-                    // draw only foreground pixels
-                    if (lastPixelColor > 0) {
-
-                        // gray to RGB mapping
-                        g.setColor(heatMapLutColor[ lastPixelColor ]);
-
-                        // box from from last Y pixel to current pixel
-                        if (drawOutlines) {
-                            g.drawRect(lastPixelX, y, offX + x - lastPixelX, offY);
-                        } else {
-                            g.fillRect(lastPixelX, y, offX + x - lastPixelX, offY);
-                        }
-                    }
-
-                    // restart detection
-                    lastPixelX = x; lastPixelColor = thePixelColor;
-                }
-            }
-        }
-
-        // recover
-        g.setStroke(oldStroke);
-    }
-
     /**
      * Collect and draw GPS segments and displays a heat-map
      * @param g               the common draw object to use
      * @param mv              the meta data to current displayed area
-     * @param visibleSegments segments visible in the current scope of mv
      */
-    private void drawHeatMap(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
-
-        // get bounds of screen image and projection, zoom and adjust input parameters
-        final Rectangle screenBounds = new Rectangle(mv.getWidth(), mv.getHeight());
-        final MapViewState mapViewState = mv.getState();
-        final double zoomScale = mv.getDist100Pixel() / 50.0f;
+    private void drawHeatMap(Graphics2D g, MapView mv) {
 
         // adjust global settings ( zero = default line width )
         final int globalLineWidth = (0 == lineWidth) ? 1 : Utils.clamp(lineWidth, 1, 20);
 
-        // 1st setup virtual paint area ----------------------------------------
-
-        // new image buffer needed
-        final boolean imageSetup = null == heatMapImgGray || !heatMapCacheScreenBounds.equals(screenBounds);
-
-        // screen bounds changed, need new image buffer ?
-        if (imageSetup) {
-            // we would use a "pure" grayscale image, but there is not efficient way to map gray scale values to RGB)
-            heatMapImgGray = new BufferedImage(screenBounds.width, screenBounds.height, BufferedImage.TYPE_INT_ARGB);
-            heatMapGraph2d = heatMapImgGray.createGraphics();
-            heatMapGraph2d.setBackground(new Color(0, 0, 0, 255));
-            heatMapGraph2d.setColor(Color.WHITE);
-
-            // fast draw ( maybe help or not )
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_DISABLE);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
-
-            // cache it
-            heatMapCacheScreenBounds = screenBounds;
-        }
-
-        // 2nd. determine current scale factors -------------------------------
-
-        // the line width (foreground: draw extra small footprint line of track)
-        int lineWidthB = (int) Math.max(1.5f * (globalLineWidth / zoomScale) + 1, 2);
-        int lineWidthF = lineWidthB > 2 ? (globalLineWidth - 1) : 0;
-
-        // global alpha adjustment
-        float lineAlpha = (float) Utils.clamp((0.40 / zoomScale) / (globalLineWidth + 1), 0.01, 0.40);
-
-        // adjust 0.15 .. 1.85
-        float scaleAlpha = 1.0f + ((heatMapDrawGain/10.0f) * 0.85f);
-
-        // add to calculated values
-        float lineAlphaBPoint = (float) Utils.clamp((lineAlpha * 0.65) * scaleAlpha, 0.001, 0.90);
-        float lineAlphaBLine = (float) Utils.clamp((lineAlpha * 1.00) * scaleAlpha, 0.001, 0.90);
-        float lineAlphaFLine = (float) Utils.clamp((lineAlpha / 1.50) * scaleAlpha, 0.001, 0.90);
-
-        // 3rd Calculate the heat map data by draw GPX traces with alpha value ----------
-
-        // recalculation of image needed
-        final boolean imageRecalc = !mapViewState.equalsInWindow(heatMapMapViewState)
-                || gpxLayerInvalidated
-                || heatMapCacheLineWith != globalLineWidth;
-
-        // need re-generation of gray image ?
-        if (imageSetup || imageRecalc) {
-
-            // clear background
-            heatMapGraph2d.clearRect(0, 0, heatMapImgGray.getWidth(), heatMapImgGray.getHeight());
-
-            // point or line blending
-            if (heatMapDrawPointMode) {
-                heatMapGraph2d.setComposite(AlphaComposite.SrcOver.derive(lineAlphaBPoint));
-                drawHeatGrayDotMap(heatMapGraph2d, mv, visibleSegments, lineWidthB);
-
-            } else {
-                drawHeatGrayLineMap(heatMapGraph2d, mv, visibleSegments,
-                                    lineWidthF > 1 ? AlphaComposite.SrcOver.derive(lineAlphaFLine) : null,
-                                    new BasicStroke(lineWidthF, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND),
-                                    AlphaComposite.SrcOver.derive(lineAlphaBLine),
-                                    new BasicStroke(lineWidthB, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            }
-
-            // remember draw parameter
-            heatMapMapViewState = mapViewState;
-            heatMapCacheLineWith = globalLineWidth;
+        // 1st collect the track points, only when they changed
+        final MapViewState mapViewState = mv.getState();
+        if (gpxLayerInvalidated || heatMap.getProjecting() != mapViewState.getProjecting()) {
+            ensureTrackVisibilityLength();
+            heatMap.setData(data.getLinesIterable(layer.trackVisibility), mapViewState.getProjecting());
             gpxLayerInvalidated = false;
         }
 
-        // 4th. Draw data on target layer, map data via color lookup table --------------
-        drawHeatMapGrayMap(g, heatMapImgGray, lineWidthB > 2 ? (int) (lineWidthB*1.25f) : 1, lineWidth > 2 ? (lineWidth - 2) : 1);
-    }
-
-    /**
-     * Draw a dotted heat map
-     *
-     * @param gB              the common draw object to use
-     * @param mv              the meta data to current displayed area
-     * @param listSegm        segments visible in the current scope of mv
-     * @param drawSize        draw size of draw element
-     */
-    private static void drawHeatGrayDotMap(Graphics2D gB, MapView mv, List<WayPoint> listSegm, int drawSize) {
-
-        // typical rendering rate -> use realtime preview instead of accurate display
-        final double maxSegm = 25_000, nrSegms = listSegm.size();
-
-        // determine random drop rate
-        final double randomDrop = Math.min(nrSegms > maxSegm ? (nrSegms - maxSegm) / nrSegms : 0, 0.70f);
-
-        // http://www.nstb.tc.faa.gov/reports/PAN94_0716.pdf#page=22
-        // Global Average Position Domain Accuracy, typical -> not worst case !
-        // < 4.218 m Vertical
-        // < 2.168 m Horizontal
-        final double pixelRmsX = (100 / mv.getDist100Pixel()) * 2.168;
-        final double pixelRmsY = (100 / mv.getDist100Pixel()) * 4.218;
-
-        Point lastPnt = null;
-
-        // for all points, draw single lines
-        for (WayPoint trkPnt : listSegm) {
-
-            // get transformed coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
+        // 2nd select the cached grids of the zoom level and the color mapping
+        heatMap.setLevel(mapViewState.getScale(), mv.getDist100Pixel(), globalLineWidth, heatMapDrawPointMode);
+        heatMap.setColors(heatMapLutColor, heatMapDrawGain, heatMapDrawExtraLine);
 
-            // end of line segment or end of list reached
-            if (trkPnt.drawLine && null != lastPnt) {
-                drawHeatSurfaceLine(gB, paintPnt, lastPnt, drawSize, pixelRmsX, pixelRmsY, randomDrop);
-            }
-
-            // remember
-            lastPnt = paintPnt;
-        }
-    }
-
-    /**
-     * Draw a dotted surface line
-     *
-     * @param g                 the common draw object to use
-     * @param fromPnt           start point
-     * @param toPnt             end point
-     * @param drawSize          size of draw elements
-     * @param rmsSizeX          RMS size of circle for X (width)
-     * @param rmsSizeY          RMS size of circle for Y (height)
-     * @param dropRate          Pixel render drop rate
-     */
-    private static void drawHeatSurfaceLine(Graphics2D g,
-            Point fromPnt, Point toPnt, int drawSize, double rmsSizeX, double rmsSizeY, double dropRate) {
-
-        // collect frequently used items
-        final int fromX = (int) fromPnt.getX(); final int deltaX = (int) (toPnt.getX() - fromX);
-        final int fromY = (int) fromPnt.getY(); final int deltaY = (int) (toPnt.getY() - fromY);
-
-        // use same random values for each point
-        final Random heatMapRandom = new Random(fromX+fromY+deltaX+deltaY);
-
-        // cache distance between start and end point
-        final int dist = (int) Math.abs(fromPnt.distance(toPnt));
-
-        // number of increment ( fill wide distance tracks )
-        double scaleStep = Math.max(1.0f / dist, dist > 100 ? 0.10f : 0.20f);
-
-        // number of additional random points
-        int rounds = Math.min(drawSize/2, 1)+1;
-
-        // decrease random noise at high drop rate ( more accurate draw of fewer points )
-        rmsSizeX *= (1.0d - dropRate);
-        rmsSizeY *= (1.0d - dropRate);
-
-        double scaleVal = 0;
-
-        // interpolate line draw ( needs separate point instead of line )
-        while (scaleVal < (1.0d-0.0001d)) {
-
-            // get position
-            final double pntX = fromX + scaleVal * deltaX;
-            final double pntY = fromY + scaleVal * deltaY;
-
-            // add random distribution around sampled point
-            for (int k = 0; k < rounds; k++) {
-
-                // add error distribution, first point with less error
-                int x = (int) (pntX + heatMapRandom.nextGaussian() * (k > 0 ? rmsSizeX : rmsSizeX/4));
-                int y = (int) (pntY + heatMapRandom.nextGaussian() * (k > 0 ? rmsSizeY : rmsSizeY/4));
-
-                // draw it, even drop is requested
-                if (heatMapRandom.nextDouble() >= dropRate) {
-                    g.fillRect(x-drawSize, y-drawSize, drawSize, drawSize);
-                }
-            }
-            scaleVal += scaleStep;
-        }
+        // 3rd draw the tiles, missing ones are rasterized
+        Rectangle clip = g.getClipBounds();
+        heatMap.paint(g, mapViewState.getPointFor(new EastNorth(0, 0)).getInView(),
+                clip != null ? clip : new Rectangle(mv.getWidth(), mv.getHeight()));
     }
 
     /**
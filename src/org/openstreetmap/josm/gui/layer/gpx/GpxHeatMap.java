@@ -0,0 +1,658 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.gpx.CompactGpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.projection.Projecting;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Raster engine for the GPX heat map.
+ * <p>
+ * The track segments are rasterized into tiles of {@link #TILE_SIZE} pixels, aligned on the east/north origin.
+ * Each tile holds a primitive {@code int[]} grid counting how often a pixel is covered by a track
+ * (the lower 16 bits count the wide background line, the upper 16 bits the thin foreground line).
+ * Missing tiles are rasterized in parallel. The grids are cached per zoom level, so that panning
+ * only rasterizes the tiles entering the view. The counts are mapped to colors in a separate step,
+ * which is only repeated when the color table, the gain or the extra line setting change.
+ * @since xxx
+ */
+public class GpxHeatMap {
+
+    /** Width and height of a tile, in pixels */
+    static final int TILE_SIZE = 256;
+
+    /** Maximum count of a channel */
+    private static final int MAX_COUNT = 0xFFFF;
+
+    /** Number of zoom levels kept in memory */
+    private static final int MAX_LEVELS = 3;
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("draw.rawgps.heatmap.numberOfThreads", "heatmap-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
+    // snapshot of the visible track points, in east/north coordinates
+    private Projecting projecting;
+    private double[] east = new double[0];
+    private double[] north = new double[0];
+    // true if a line is drawn from the previous point to this one
+    private boolean[] connected = new boolean[0];
+    private int size;
+
+    // zoom levels, the current one is the last
+    private final List<Level> levels = new ArrayList<>();
+    private Level level;
+
+    // all cached tiles, the least recently used first
+    private final Map<TileKey, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final int maxTiles = Config.getPref().getInt("draw.rawgps.heatmap.cache.tiles", 64);
+
+    // color mapping
+    private Color[] colorLut;
+    private int gain;
+    private boolean extraLine;
+    private int[] colorArgb = new int[256];
+    private int colorVersion;
+
+    /**
+     * One zoom level. The drawing parameters are derived from the scale when the level is created,
+     * so that they do not change while panning.
+     */
+    static final class Level {
+        final double scale;
+        final int lineWidth;
+        final boolean pointMode;
+        final int lineWidthB;
+        final int lineWidthF;
+        final double lineAlpha;
+        final double pixelRmsX;
+        final double pixelRmsY;
+
+        Level(double scale, double dist100Pixel, int lineWidth, boolean pointMode) {
+            this.scale = scale;
+            this.lineWidth = lineWidth;
+            this.pointMode = pointMode;
+            final double zoomScale = dist100Pixel / 50.0;
+            // the line width (foreground: draw extra small footprint line of track)
+            lineWidthB = (int) Math.max(1.5 * (lineWidth / zoomScale) + 1, 2);
+            lineWidthF = lineWidthB > 2 ? (lineWidth - 1) : 0;
+            // global alpha adjustment
+            lineAlpha = Utils.clamp((0.40 / zoomScale) / (lineWidth + 1), 0.01, 0.40);
+            // http://www.nstb.tc.faa.gov/reports/PAN94_0716.pdf#page=22
+            // Global Average Position Domain Accuracy, typical -> not worst case !
+            // < 4.218 m Vertical
+            // < 2.168 m Horizontal
+            pixelRmsX = (100 / dist100Pixel) * 2.168;
+            pixelRmsY = (100 / dist100Pixel) * 4.218;
+        }
+
+        boolean matches(double scale, int lineWidth, boolean pointMode) {
+            return this.scale == scale && this.lineWidth == lineWidth && this.pointMode == pointMode;
+        }
+
+        /**
+         * Returns the distance in pixels around a segment that may be affected by its rasterization.
+         */
+        int margin() {
+            if (pointMode) {
+                return (int) Math.ceil(5 * Math.max(pixelRmsX, pixelRmsY)) + lineWidthB + 1;
+            }
+            return (int) Math.ceil(Math.max(lineWidthB, lineWidthF) * Math.sqrt(2)) + 1;
+        }
+    }
+
+    private static final class TileKey {
+        private final Level level;
+        private final int x;
+        private final int y;
+
+        TileKey(Level level, int x, int y) {
+            this.level = level;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            TileKey other = (TileKey) obj;
+            return level == other.level && x == other.x && y == other.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(level), x, y);
+        }
+    }
+
+    private static final class Tile {
+        /** the counts, or {@code null} if the tile is empty */
+        private final int[] counts;
+        private BufferedImage image;
+        private int colorVersion = -1;
+
+        Tile(int[] counts) {
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * Sets the track points to draw. All cached grids are dropped.
+     * The points of a {@link CompactGpxTrackSegment} are read from its columns and always connected.
+     * @param lines the lines of track points
+     * @param projecting the projection used to get the east/north coordinates of the points
+     */
+    public void setData(Iterable<? extends Collection<WayPoint>> lines, Projecting projecting) {
+        this.projecting = projecting;
+        size = 0;
+        boolean first = true;
+        for (Collection<WayPoint> line : lines) {
+            CompactGpxTrackSegment compact = CompactGpxTrackSegment.getSegment(line);
+            if (compact != null) {
+                // read the columns, all points of the segment are connected
+                for (int i = 0; i < compact.size(); i++) {
+                    first = !addPoint(projecting.latlon2eastNorth(compact.getCoor(i)), i > 0 && !first);
+                }
+                first = true;
+                continue;
+            }
+            for (WayPoint pt : line) {
+                first = !addPoint(pt.isLatLonKnown() ? pt.getEastNorth(projecting) : null, !first && pt.drawLine);
+            }
+        }
+        tiles.clear();
+        levels.clear();
+        level = null;
+    }
+
+    /**
+     * Appends a point to the snapshot.
+     * @param en the projected coordinates, can be {@code null}
+     * @param connect {@code true} to draw a line from the previous point
+     * @return {@code true} if the point was added, {@code false} if it has no valid coordinates
+     */
+    private boolean addPoint(EastNorth en, boolean connect) {
+        if (en == null || !en.isValid()) {
+            return false;
+        }
+        if (size == east.length) {
+            int capacity = Math.max(1024, size * 2);
+            east = Arrays.copyOf(east, capacity);
+            north = Arrays.copyOf(north, capacity);
+            connected = Arrays.copyOf(connected, capacity);
+        }
+        east[size] = en.east();
+        north[size] = en.north();
+        connected[size] = connect;
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns the projection used by the last call of {@link #setData}.
+     * @return the projection, or {@code null} if no data was set
+     */
+    public Projecting getProjecting() {
+        return projecting;
+    }
+
+    /**
+     * Selects the zoom level. The grids of the last few zoom levels are kept.
+     * @param scale the scale of the view, in east/north units per pixel
+     * @param dist100Pixel the distance of 100 pixels in meters, used when the level is not cached yet
+     * @param lineWidth the line width setting, 1 to 20
+     * @param pointMode {@code true} to draw points instead of lines
+     */
+    public void setLevel(double scale, double dist100Pixel, int lineWidth, boolean pointMode) {
+        if (level != null && level.matches(scale, lineWidth, pointMode)) {
+            return;
+        }
+        Level found = null;
+        for (Iterator<Level> it = levels.iterator(); it.hasNext();) {
+            Level l = it.next();
+            if (l.matches(scale, lineWidth, pointMode)) {
+                found = l;
+                it.remove();
+                break;
+            }
+        }
+        if (found == null) {
+            found = new Level(scale, dist100Pixel, lineWidth, pointMode);
+            if (levels.size() >= MAX_LEVELS) {
+                Level dropped = levels.remove(0);
+                tiles.keySet().removeIf(k -> k.level == dropped);
+            }
+        }
+        levels.add(found);
+        level = found;
+    }
+
+    /**
+     * Sets the color mapping. The colors of the cached tiles are only recomputed if a parameter changed.
+     * @param lut the color lookup table, indexed by gray values 0 to 255
+     * @param gain the gain setting, -10 to 10
+     * @param extraLine {@code true} to draw the thin foreground line
+     */
+    public void setColors(Color[] lut, int gain, boolean extraLine) {
+        if (lut == colorLut && gain == this.gain && extraLine == this.extraLine) {
+            return;
+        }
+        colorLut = lut;
+        this.gain = gain;
+        this.extraLine = extraLine;
+        colorArgb = new int[256];
+        for (int i = 0; i < colorArgb.length && i < lut.length; i++) {
+            colorArgb[i] = lut[i].getRGB();
+        }
+        colorVersion++;
+    }
+
+    /**
+     * Draws the heat map.
+     * @param g the graphics to draw on
+     * @param origin the position of the east/north origin in the view
+     * @param clip the area of the view to draw
+     */
+    public void paint(Graphics2D g, Point2D origin, Rectangle clip) {
+        if (level == null || colorLut == null) {
+            return;
+        }
+        final long ox = Math.round(origin.getX());
+        final long oy = Math.round(origin.getY());
+        final int tx0 = (int) Math.floorDiv(clip.x - ox, (long) TILE_SIZE);
+        final int ty0 = (int) Math.floorDiv(clip.y - oy, (long) TILE_SIZE);
+        final int tx1 = (int) Math.floorDiv(clip.x + clip.width - 1 - ox, (long) TILE_SIZE);
+        final int ty1 = (int) Math.floorDiv(clip.y + clip.height - 1 - oy, (long) TILE_SIZE);
+
+        prepareTiles(tx0, ty0, tx1, ty1);
+
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                Tile tile = tiles.get(new TileKey(level, tx, ty));
+                if (tile != null && tile.image != null) {
+                    g.drawImage(tile.image, (int) (ox + (long) tx * TILE_SIZE), (int) (oy + (long) ty * TILE_SIZE), null);
+                }
+            }
+        }
+
+        int keep = Math.max(maxTiles, (tx1 - tx0 + 1) * (ty1 - ty0 + 1));
+        for (Iterator<TileKey> it = tiles.keySet().iterator(); tiles.size() > keep && it.hasNext();) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Makes sure the tiles in the given range are rasterized and colored with the current colors.
+     */
+    private void prepareTiles(int tx0, int ty0, int tx1, int ty1) {
+        final int w = tx1 - tx0 + 1;
+        final int h = ty1 - ty0 + 1;
+        final Tile[] present = new Tile[w * h];
+        final boolean[] missing = new boolean[w * h];
+        boolean anyMissing = false;
+        boolean anyWork = false;
+        for (int i = 0; i < present.length; i++) {
+            present[i] = tiles.get(new TileKey(level, tx0 + i % w, ty0 + i / w));
+            missing[i] = present[i] == null;
+            anyMissing |= missing[i];
+            anyWork |= missing[i] || (present[i].counts != null && present[i].colorVersion != colorVersion);
+        }
+        if (!anyWork) {
+            return;
+        }
+        final int[][] buckets = anyMissing ? bucketSegments(tx0, ty0, w, h, missing) : null;
+        final Level l = level;
+        final int[] argb = colorArgb;
+        final int version = colorVersion;
+        final float[][] remaining = remainingIntensities(l);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        // the tile of each task
+        List<TileKey> keys = new ArrayList<>();
+        for (int i = 0; i < present.length; i++) {
+            final int index = i;
+            final int tx = tx0 + i % w;
+            final int ty = ty0 + i / w;
+            final TileKey key = new TileKey(l, tx, ty);
+            if (missing[i]) {
+                int[] segments = buckets[i];
+                int[] counts = segments[0] == 0 ? null : new int[TILE_SIZE * TILE_SIZE];
+                present[i] = new Tile(counts);
+                tiles.put(key, present[i]);
+                if (counts == null) {
+                    continue;
+                }
+                tasks.add(() -> {
+                    rasterize(l, tx, ty, segments, present[index].counts);
+                    colorize(present[index], remaining, argb, version);
+                    return null;
+                });
+                keys.add(key);
+            } else if (present[i].counts != null && present[i].colorVersion != version) {
+                tasks.add(() -> {
+                    colorize(present[index], remaining, argb, version);
+                    return null;
+                });
+                keys.add(key);
+            }
+        }
+        if (THREAD_POOL != null && tasks.size() > 1) {
+            List<Future<Void>> results = THREAD_POOL.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    discardTile(keys.get(i), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    discardTile(keys.get(i), e);
+                }
+            }
+        } else {
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    tasks.get(i).call();
+                } catch (Exception e) { // NOPMD
+                    discardTile(keys.get(i), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a tile whose rasterization failed from the cache, so that a partially filled grid is not kept.
+     * It is rasterized again on the next paint.
+     * @param key the tile
+     * @param e the failure
+     */
+    private void discardTile(TileKey key, Throwable e) {
+        Logging.error(e);
+        tiles.remove(key);
+    }
+
+    /**
+     * Collects the segments that may touch the missing tiles.
+     * @return for each tile of the range, the number of segments in the first entry, followed by the index of the end point of each segment
+     */
+    private int[][] bucketSegments(int tx0, int ty0, int w, int h, boolean[] missing) {
+        final int[][] buckets = new int[w * h][];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new int[missing[i] ? 16 : 1];
+        }
+        final double scale = level.scale;
+        final int margin = level.margin();
+        for (int i = 1; i < size; i++) {
+            if (!connected[i]) {
+                continue;
+            }
+            final double ax = east[i - 1] / scale;
+            final double ay = -north[i - 1] / scale;
+            final double bx = east[i] / scale;
+            final double by = -north[i] / scale;
+            int fromX = (int) Math.floor((Math.min(ax, bx) - margin) / TILE_SIZE) - tx0;
+            int toX = (int) Math.floor((Math.max(ax, bx) + margin) / TILE_SIZE) - tx0;
+            if (toX < 0 || fromX >= w) {
+                continue;
+            }
+            int fromY = (int) Math.floor((Math.min(ay, by) - margin) / TILE_SIZE) - ty0;
+            int toY = (int) Math.floor((Math.max(ay, by) + margin) / TILE_SIZE) - ty0;
+            if (toY < 0 || fromY >= h) {
+                continue;
+            }
+            fromX = Math.max(fromX, 0);
+            toX = Math.min(toX, w - 1);
+            fromY = Math.max(fromY, 0);
+            toY = Math.min(toY, h - 1);
+            for (int y = fromY; y <= toY; y++) {
+                for (int x = fromX; x <= toX; x++) {
+                    int t = y * w + x;
+                    if (missing[t]) {
+                        int[] bucket = buckets[t];
+                        int n = bucket[0] + 1;
+                        if (n == bucket.length) {
+                            bucket = Arrays.copyOf(bucket, bucket.length * 2);
+                            buckets[t] = bucket;
+                        }
+                        bucket[n] = i;
+                        bucket[0] = n;
+                    }
+                }
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Rasterizes the given segments into the counts of a tile.
+     */
+    private void rasterize(Level l, int tx, int ty, int[] segments, int[] counts) {
+        final double offX = (double) tx * TILE_SIZE;
+        final double offY = (double) ty * TILE_SIZE;
+        final boolean foreground = !l.pointMode && l.lineWidthF > 1;
+        for (int s = 1; s <= segments[0]; s++) {
+            final int i = segments[s];
+            final double ax = east[i - 1] / l.scale;
+            final double ay = -north[i - 1] / l.scale;
+            final double bx = east[i] / l.scale;
+            final double by = -north[i] / l.scale;
+            if (l.pointMode) {
+                drawSurfaceLine(counts, Math.floor(bx), Math.floor(by), Math.floor(ax), Math.floor(ay),
+                        offX, offY, l.lineWidthB, l.pixelRmsX, l.pixelRmsY);
+            } else {
+                drawLine(counts, ax - offX, ay - offY, bx - offX, by - offY, l.lineWidthB, 1);
+                if (foreground) {
+                    drawLine(counts, ax - offX, ay - offY, bx - offX, by - offY, l.lineWidthF, 1 << 16);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a thick line to the counts of a tile. The end pixel along the major axis is excluded,
+     * so that the joint of two consecutive segments is not counted twice.
+     * @param counts the counts of the tile
+     * @param x0 start x, relative to the tile
+     * @param y0 start y, relative to the tile
+     * @param x1 end x, relative to the tile
+     * @param y1 end y, relative to the tile
+     * @param width the line width, in pixels
+     * @param increment the increment of the channel to count
+     */
+    static void drawLine(int[] counts, double x0, double y0, double x1, double y1, int width, int increment) {
+        final double dx = x1 - x0;
+        final double dy = y1 - y0;
+        final boolean steep = Math.abs(dy) > Math.abs(dx);
+        // major axis a, minor axis b
+        final double a0 = steep ? y0 : x0;
+        final double a1 = steep ? y1 : x1;
+        final double b0 = steep ? x0 : y0;
+        final double slope = steep ? dx / dy : dy / dx;
+        final int start = (int) Math.floor(a0);
+        final int end = (int) Math.floor(a1);
+        if (start == end) {
+            return;
+        }
+        // width along the minor axis that gives the requested width perpendicular to the line
+        final int span = Math.max(1, (int) Math.round(width * Math.sqrt(1 + slope * slope)));
+        int lo = start < end ? start : end + 1;
+        int hi = start < end ? end - 1 : start;
+        lo = Math.max(lo, 0);
+        hi = Math.min(hi, TILE_SIZE - 1);
+        for (int a = lo; a <= hi; a++) {
+            final double b = b0 + (a + 0.5 - a0) * slope;
+            final int bFrom = Math.max((int) Math.floor(b - span / 2.0 + 0.5), 0);
+            final int bTo = Math.min((int) Math.floor(b - span / 2.0 + 0.5) + span - 1, TILE_SIZE - 1);
+            for (int m = bFrom; m <= bTo; m++) {
+                add(counts, steep ? m + a * TILE_SIZE : a + m * TILE_SIZE, increment);
+            }
+        }
+    }
+
+    /**
+     * Adds a dotted surface line to the counts of a tile. The dots are distributed randomly around the line,
+     * the random generator is seeded by the segment, so that all tiles see the same dots.
+     * @param counts the counts of the tile
+     * @param fromX start x, in pixels from the east/north origin
+     * @param fromY start y, in pixels from the east/north origin
+     * @param toX end x, in pixels from the east/north origin
+     * @param toY end y, in pixels from the east/north origin
+     * @param offX the x position of the tile, in pixels from the east/north origin
+     * @param offY the y position of the tile, in pixels from the east/north origin
+     * @param drawSize size of draw elements
+     * @param rmsSizeX RMS size of circle for X (width)
+     * @param rmsSizeY RMS size of circle for Y (height)
+     */
+    private static void drawSurfaceLine(int[] counts, double fromX, double fromY, double toX, double toY,
+            double offX, double offY, int drawSize, double rmsSizeX, double rmsSizeY) {
+        final double deltaX = toX - fromX;
+        final double deltaY = toY - fromY;
+
+        // use same random values for each point
+        final Random random = new Random((long) (fromX + fromY + deltaX + deltaY));
+
+        // cache distance between start and end point
+        final int dist = (int) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+
+        // number of increment ( fill wide distance tracks )
+        final double scaleStep = Math.max(1.0 / dist, dist > 100 ? 0.10 : 0.20);
+
+        // number of additional random points
+        final int rounds = Math.min(drawSize / 2, 1) + 1;
+
+        // interpolate line draw ( needs separate point instead of line )
+        for (double scaleVal = 0; scaleVal < (1.0 - 0.0001); scaleVal += scaleStep) {
+            final double pntX = fromX + scaleVal * deltaX;
+            final double pntY = fromY + scaleVal * deltaY;
+
+            // add random distribution around sampled point, first point with less error
+            for (int k = 0; k < rounds; k++) {
+                final int x = (int) (pntX + random.nextGaussian() * (k > 0 ? rmsSizeX : rmsSizeX / 4) - offX);
+                final int y = (int) (pntY + random.nextGaussian() * (k > 0 ? rmsSizeY : rmsSizeY / 4) - offY);
+                for (int py = Math.max(y - drawSize, 0); py < Math.min(y, TILE_SIZE); py++) {
+                    for (int px = Math.max(x - drawSize, 0); px < Math.min(x, TILE_SIZE); px++) {
+                        add(counts, px + py * TILE_SIZE, 1);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void add(int[] counts, int offset, int increment) {
+        final int v = counts[offset];
+        final int count = increment == 1 ? v & MAX_COUNT : v >>> 16;
+        if (count < MAX_COUNT) {
+            counts[offset] = v + increment;
+        }
+    }
+
+    /**
+     * Computes the intensity left after n passes of a line, for the background and the foreground channel.
+     * This emulates the repeated alpha blending of the lines on a black image.
+     */
+    private float[][] remainingIntensities(Level l) {
+        // adjust 0.15 .. 1.85
+        final double scaleAlpha = 1.0 + ((gain / 10.0) * 0.85);
+        final double alphaB = Utils.clamp(l.lineAlpha * (l.pointMode ? 0.65 : 1.00) * scaleAlpha, 0.001, 0.90);
+        final double alphaF = Utils.clamp((l.lineAlpha / 1.50) * scaleAlpha, 0.001, 0.90);
+        return new float[][] {
+            remainingIntensity(alphaB),
+            extraLine ? remainingIntensity(alphaF) : new float[] {1f}
+        };
+    }
+
+    private static float[] remainingIntensity(double alpha) {
+        // beyond this count, the remaining intensity is not visible anymore
+        final int n = (int) Math.min(MAX_COUNT, Math.ceil(Math.log(0.5 / 255) / Math.log(1 - alpha)) + 1);
+        final float[] result = new float[n + 1];
+        for (int i = 0; i <= n; i++) {
+            result[i] = (float) Math.pow(1 - alpha, i);
+        }
+        return result;
+    }
+
+    /**
+     * Maps the counts of a tile to colors.
+     */
+    private static void colorize(Tile tile, float[][] remaining, int[] argb, int version) {
+        if (tile.image == null) {
+            tile.image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        }
+        final int[] pixels = ((DataBufferInt) tile.image.getRaster().getDataBuffer()).getData();
+        final int[] counts = tile.counts;
+        final float[] remB = remaining[0];
+        final float[] remF = remaining[1];
+        // colors of the background counts alone, the most frequent case
+        final int[] colorB = new int[remB.length];
+        for (int b = 0; b < remB.length; b++) {
+            colorB[b] = argb[(int) (255 * (1 - remB[b]) + 0.5f)];
+        }
+        for (int i = 0; i < counts.length; i++) {
+            final int v = counts[i];
+            if (v == 0) {
+                pixels[i] = 0;
+            } else if (v <= MAX_COUNT || remF.length == 1) {
+                pixels[i] = colorB[Math.min(v & MAX_COUNT, colorB.length - 1)];
+            } else {
+                final float rem = remB[Math.min(v & MAX_COUNT, remB.length - 1)] * remF[Math.min(v >>> 16, remF.length - 1)];
+                pixels[i] = argb[(int) (255 * (1 - rem) + 0.5f)];
+            }
+        }
+        tile.colorVersion = version;
+    }
+
+    /**
+     * Returns the counts of a cached tile of the current level.
+     * @param tx the tile x index
+     * @param ty the tile y index
+     * @return the counts, or {@code null} if the tile is not cached or empty
+     */
+    int[] getCounts(int tx, int ty) {
+        Tile tile = level == null ? null : tiles.get(new TileKey(level, tx, ty));
+        return tile == null ? null : tile.counts;
+    }
+
+    /**
+     * Returns the color image of a cached tile of the current level.
+     * @param tx the tile x index
+     * @param ty the tile y index
+     * @return the image, or {@code null} if the tile is not cached or empty
+     */
+    BufferedImage getImage(int tx, int ty) {
+        Tile tile = level == null ? null : tiles.get(new TileKey(level, tx, ty));
+        return tile == null ? null : tile.image;
+    }
+}
@@ -5,23 +5,26 @@ import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.IRelation;
 import org.openstreetmap.josm.data.osm.IWay;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.visitor.paint.PaintColors;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
-import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.NavigatableComponent;
-import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.mappaint.DividedScale.RangeViolatedError;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
 import org.openstreetmap.josm.gui.mappaint.styleelement.AreaElement;
@@ -57,15 +60,31 @@ import org.openstreetmap.josm.tools.Utils;
  * (For example untagged nodes and ways.)</li>
  * </ol>
  * The results are cached with respect to the current scale.
+ * When a style source changes, only the cached styles of the primitive types it applies to
+ * are discarded, by starting a new generation of {@link StyleCache}s for these types.
  *
  * Use {@link #setStyleSources(Collection)} to select the StyleSources that are applied.
  */
 public class ElemStyles implements PreferenceChangedListener {
+    private static final AtomicInteger GENERATIONS = new AtomicInteger();
+    private static final Set<OsmPrimitiveType> ALL_TYPES =
+            Collections.unmodifiableSet(EnumSet.of(OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION));
+
     private final List<StyleSource> styleSources;
     private boolean drawMultipolygon;
 
     private short cacheIdx = 1;
 
+    /**
+     * The current style cache generations of nodes, ways and relations. Replaced as a whole on change.
+     */
+    private volatile int[] generations = {GENERATIONS.incrementAndGet(), GENERATIONS.incrementAndGet(),
+            GENERATIONS.incrementAndGet()};
+    /**
+     * The primitive types each style source applied to when the caches were last cleared.
+     */
+    private final Map<StyleSource, Set<OsmPrimitiveType>> affectedTypes = new IdentityHashMap<>();
+
     private boolean defaultNodes;
     private boolean defaultLines;
 
@@ -88,14 +107,85 @@ public class ElemStyles implements PreferenceChangedListener {
      * Clear the style cache for all primitives of all DataSets.
      */
     public void clearCached() {
+        synchronized (affectedTypes) {
+            affectedTypes.clear();
+            for (StyleSource s : styleSources) {
+                affectedTypes.put(s, getAffectedTypes(s));
+            }
+            startGeneration(ALL_TYPES);
+        }
+    }
+
+    /**
+     * Clear the style cache for the primitives whose styles may depend on the given style source.
+     * The cached styles of other primitives are kept.
+     * @param source the style source that was changed, reloaded, activated or deactivated
+     * @since xxx
+     */
+    public void clearCached(StyleSource source) {
+        synchronized (affectedTypes) {
+            Set<OsmPrimitiveType> current = getAffectedTypes(source);
+            Set<OsmPrimitiveType> previous = affectedTypes.put(source, current);
+            Set<OsmPrimitiveType> types = previous != null ? EnumSet.copyOf(previous) : EnumSet.copyOf(ALL_TYPES);
+            types.addAll(current);
+            startGeneration(types);
+        }
+    }
+
+    private static Set<OsmPrimitiveType> getAffectedTypes(StyleSource source) {
+        return source.active ? source.getAffectedTypes() : EnumSet.noneOf(OsmPrimitiveType.class);
+    }
+
+    /**
+     * Starts a new style cache generation for the given primitive types and removes the old generations from
+     * the intern pool of {@link StyleCache}.
+     * @param types the primitive types whose cached styles are outdated
+     */
+    private void startGeneration(Set<OsmPrimitiveType> types) {
+        int[] old = generations;
+        int[] updated = old.clone();
+        for (OsmPrimitiveType type : types) {
+            updated[getIndex(type)] = GENERATIONS.incrementAndGet();
+        }
+        generations = updated;
+        StyleCache.removeGenerations(g -> g != updated[0] && g != updated[1] && g != updated[2]
+                && (g == old[0] || g == old[1] || g == old[2]));
+        cacheIdx++;
+        backgroundColorCache = null;
         // run in EDT to make sure this isn't called during rendering run
-        GuiHelper.runInEDT(() -> {
-            cacheIdx++;
-            preferenceCache.clear();
-            backgroundColorCache = null;
-            MainApplication.getLayerManager().getLayersOfType(OsmDataLayer.class).forEach(
-                    dl -> dl.data.clearMappaintCache());
-        });
+        GuiHelper.runInEDT(preferenceCache::clear);
+    }
+
+    private static int getIndex(OsmPrimitiveType type) {
+        switch (type) {
+        case NODE:
+            return 0;
+        case WAY:
+        case CLOSEDWAY:
+            return 1;
+        default:
+            return 2;
+        }
+    }
+
+    private static int getIndex(IPrimitive osm) {
+        if (osm instanceof INode) {
+            return 0;
+        } else if (osm instanceof IWay) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+
+    /**
+     * Returns the current style cache generation for a primitive.
+     * @param osm the primitive
+     * @return the generation, see {@link StyleCache#getGeneration()}
+     * @since xxx
+     */
+    public int getGeneration(IPrimitive osm) {
+        return generations[getIndex(osm)];
     }
 
     /**
@@ -150,13 +240,17 @@ public class ElemStyles implements PreferenceChangedListener {
      * @since 13810 (signature)
      */
     public Pair<StyleElementList, Range> getStyleCacheWithRange(IPrimitive osm, double scale, NavigatableComponent nc) {
-        if (!osm.isCachedStyleUpToDate() || scale <= 0) {
-            osm.setCachedStyle(StyleCache.EMPTY_STYLECACHE);
+        int generation = getGeneration(osm);
+        if (!osm.isCachedStyleUpToDate() || scale <= 0 || osm.getCachedStyle().getGeneration() != generation) {
+            osm.setCachedStyle(StyleCache.empty(generation));
         } else {
             Pair<StyleElementList, Range> lst = osm.getCachedStyle().getWithRange(scale, osm.isSelected());
-            if (lst.a != null)
+            if (lst.a != null) {
+                StyleCache.countHit();
                 return lst;
+            }
         }
+        StyleCache.countMiss();
         Pair<StyleElementList, Range> p = getImpl(osm, scale, nc);
         if (osm instanceof INode && isDefaultNodes()) {
             if (p.a.isEmpty()) {
@@ -198,15 +292,27 @@ public class ElemStyles implements PreferenceChangedListener {
                 p.a = new StyleElementList(p.a, line);
             }
         }
-        StyleCache style = osm.getCachedStyle() != null ? osm.getCachedStyle() : StyleCache.EMPTY_STYLECACHE;
-        try {
-            osm.setCachedStyle(style.put(p.a, p.b, osm.isSelected()));
-        } catch (RangeViolatedError e) {
-            throw new AssertionError("Range violated: " + e.getMessage()
-                    + " (object: " + osm.getPrimitiveId() + ", current style: "+osm.getCachedStyle()
-                    + ", scale: " + scale + ", new stylelist: " + p.a + ", new range: " + p.b + ')', e);
+        // Several renderers may compute the styles of the same primitive concurrently, see TilePyramidRenderer.
+        // The cache must then be updated atomically, keeping the styles stored by the other renderer for this scale.
+        synchronized (osm) {
+            StyleCache style = osm.getCachedStyle();
+            if (style == null || style.getGeneration() != generation) {
+                style = StyleCache.empty(generation);
+            } else {
+                Pair<StyleElementList, Range> cached = style.getWithRange(scale, osm.isSelected());
+                if (cached.a != null) {
+                    return cached;
+                }
+            }
+            try {
+                osm.setCachedStyle(style.put(p.a, p.b, osm.isSelected()));
+            } catch (RangeViolatedError e) {
+                throw new AssertionError("Range violated: " + e.getMessage()
+                        + " (object: " + osm.getPrimitiveId() + ", current style: "+osm.getCachedStyle()
+                        + ", scale: " + scale + ", new stylelist: " + p.a + ", new range: " + p.b + ')', e);
+            }
+            osm.declareCachedStyleUpToDate();
         }
-        osm.declareCachedStyleUpToDate();
         return p;
     }
 
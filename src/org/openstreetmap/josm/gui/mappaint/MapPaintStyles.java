@@ -56,7 +56,14 @@ public final class MapPaintStyles {
 
             @Override
             public void mapPaintStyleEntryUpdated(int index) {
-                mapPaintStylesUpdated();
+                SwingUtilities.invokeLater(() -> {
+                    List<StyleSource> sources = styles.getStyleSources();
+                    if (index >= 0 && index < sources.size()) {
+                        styles.clearCached(sources.get(index));
+                    } else {
+                        styles.clearCached();
+                    }
+                });
             }
         });
     }
@@ -75,6 +75,10 @@ public class RenderingCLI implements CLIModule {
     private Integer argHeightPx;
     private String argProjection;
     private Integer argMaxImageSize;
+    private Integer argTilesMinZoom;
+    private Integer argTilesMaxZoom;
+    private Integer argThreads;
+    private Integer argMetaTile;
 
     private StyleData argCurrentStyle;
 
@@ -95,7 +99,10 @@ public class RenderingCLI implements CLIModule {
         WIDTH_PX(true, '*'),
         HEIGHT_PX(true, '*'),
         PROJECTION(true, '*'),
-        MAX_IMAGE_SIZE(true, '*');
+        MAX_IMAGE_SIZE(true, '*'),
+        TILES(true, 't'),
+        THREADS(true, '*'),
+        METATILE(true, '*');
 
         private final String name;
         private final boolean requiresArg;
@@ -157,11 +164,15 @@ public class RenderingCLI implements CLIModule {
             parseArguments(argArray);
             initialize();
             DataSet ds = loadDataset();
-            RenderingArea area = determineRenderingArea(ds);
-            RenderingHelper rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
-            checkPreconditions(rh);
-            BufferedImage image = rh.render();
-            writeImageToFile(image);
+            if (argTilesMinZoom != null) {
+                renderTiles(ds);
+            } else {
+                RenderingArea area = determineRenderingArea(ds);
+                RenderingHelper rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
+                checkPreconditions(rh);
+                BufferedImage image = rh.render();
+                writeImageToFile(image);
+            }
         } catch (FileNotFoundException e) {
             if (Logging.isDebugEnabled()) {
                 e.printStackTrace();
@@ -358,6 +369,44 @@ public class RenderingCLI implements CLIModule {
                         tr("Expected integer number >= 0 for option {0}, but got ''{1}''", "--max-image-size", arg));
             }
             break;
+        case TILES:
+            String[] zooms = arg.split("-", 2);
+            try {
+                argTilesMinZoom = Integer.valueOf(zooms[0].trim());
+                argTilesMaxZoom = zooms.length == 2 ? Integer.valueOf(zooms[1].trim()) : argTilesMinZoom;
+            } catch (NumberFormatException nfe) {
+                throw new OptionParseException(
+                        tr("Expected zoom level or range of zoom levels for option {0}, but got ''{1}''", "--tiles", arg), nfe);
+            }
+            if (argTilesMinZoom < 0 || argTilesMinZoom > argTilesMaxZoom || argTilesMaxZoom > 30) {
+                throw new OptionParseException(
+                        tr("Expected zoom level or range of zoom levels for option {0}, but got ''{1}''", "--tiles", arg));
+            }
+            break;
+        case THREADS:
+            try {
+                argThreads = Integer.valueOf(arg);
+            } catch (NumberFormatException nfe) {
+                throw new OptionParseException(
+                        tr("Expected integer number for option {0}, but got ''{1}''", "--threads", arg), nfe);
+            }
+            if (argThreads <= 0) {
+                throw new OptionParseException(
+                        tr("Expected integer number > 0 for option {0}, but got ''{1}''", "--threads", arg));
+            }
+            break;
+        case METATILE:
+            try {
+                argMetaTile = Integer.valueOf(arg);
+            } catch (NumberFormatException nfe) {
+                throw new OptionParseException(
+                        tr("Expected integer number for option {0}, but got ''{1}''", "--metatile", arg), nfe);
+            }
+            if (argMetaTile <= 0) {
+                throw new OptionParseException(
+                        tr("Expected integer number > 0 for option {0}, but got ''{1}''", "--metatile", arg));
+            }
+            break;
         default:
             throw new AssertionError("Unexpected option index: " + o);
         }
@@ -402,6 +451,11 @@ public class RenderingCLI implements CLIModule {
                 "\t--projection <code>       "+tr("Projection to use, default value ''{0}'' (web-Mercator)", "epsg:3857")+"\n"+
                 "\t--max-image-size <number> "+tr("Maximum image width/height in pixel (''{0}'' means no limit), default value: {1}",
                                                    0, Integer.toString(DEFAULT_MAX_IMAGE_SIZE))+"\n"+
+                "\t--tiles|-t <min>[-<max>]  "+tr("Render all {0}x{0} pixel tiles of the given zoom levels instead of a single image", 256)+"\n"+
+                "\t                          "+tr("The output is a directory with <zoom>/<x>/<y>.png files, "
+                                                + "or a single archive file if it ends with ''{0}''; defaults to ''{1}''", ".zip", "tiles")+"\n"+
+                "\t--threads <number>        "+tr("Number of threads rendering tiles, defaults to the number of processors")+"\n"+
+                "\t--metatile <number>       "+tr("Number of tiles rendered at once in each direction, default value: {0}", 4)+"\n"+
                 "\n"+
                 tr("To specify the rendered area and scale, the options can be combined in various ways")+":\n"+
                 "  * --bounds (--zoom|--scale|--width-px|--height-px)\n"+
@@ -411,6 +465,8 @@ public class RenderingCLI implements CLIModule {
                 tr("If neither ''{0}'' nor ''{1}'' is given, the default value {2} takes effect "
                         + "and the bounds of the download area in the .osm input file are used.",
                         "bounds", "anchor", "--bounds=auto")+"\n\n"+
+                tr("In tile mode, only the options {0} and {1} determine the rendered area and the projection must be ''{2}''.",
+                        "--bounds", "--tiles", "epsg:3857")+"\n\n"+
                 tr("Examples")+":\n"+
                 "  java -jar josm.jar render -i data.osm -s style.mapcss -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --scale 5000\n"+
@@ -420,7 +476,9 @@ public class RenderingCLI implements CLIModule {
                 "  josm render -i data.osm -s style.mapcss --bounds 21.151,51.401,21.152,51.402 -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --anchor 21.151,51.401 --width-m 500 --height-m 300 -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --anchor 21.151,51.401 --width-m 500 --height-m 300 --width-px 1800\n"+
-                "  josm render -i data.osm -s style.mapcss --scale 5000 --projection epsg:4326\n";
+                "  josm render -i data.osm -s style.mapcss --scale 5000 --projection epsg:4326\n"+
+                "  josm render -i data.osm -s style.mapcss --tiles 12-17 -o tiles\n"+
+                "  josm render -i data.osm -s style.mapcss --tiles 16 --threads 4 -o tiles.zip\n";
     }
 
     /**
@@ -588,6 +646,44 @@ public class RenderingCLI implements CLIModule {
         }
     }
 
+    /**
+     * Renders the tile pyramid given by the {@code --tiles} option.
+     * @param ds the dataset
+     * @throws IOException in case of an IOException
+     * @throws IllegalDataException when illegal data is encountered (style has errors, etc.)
+     */
+    void renderTiles(DataSet ds) throws IOException, IllegalDataException {
+        if (argStyles.isEmpty())
+            throw new IllegalArgumentException(tr("Missing argument - at least one style expected ({0})", "--style"));
+        if (!"EPSG:3857".equals(ProjectionRegistry.getProjection().toCode())) {
+            throw new IllegalArgumentException(tr("Option {0} requires projection ''{1}''", "--tiles", "epsg:3857"));
+        }
+        Bounds bounds = argBounds;
+        if (bounds == null) {
+            if (ds.getDataSourceBounds().isEmpty()) {
+                throw new IllegalArgumentException(
+                        tr("{0} mode, but no bounds found in osm data input file", "--bounds=auto"));
+            }
+            bounds = ds.getDataSourceBounds().get(0);
+        }
+
+        TilePyramidRenderer renderer = new TilePyramidRenderer(ds, RenderingHelper.loadStyles(argStyles));
+        if (argThreads != null) {
+            renderer.setThreads(argThreads);
+        }
+        if (argMetaTile != null) {
+            renderer.setMetaTileSize(argMetaTile);
+        }
+        String output = Optional.ofNullable(argOutput).orElse("tiles");
+        TilePyramidRenderer.Statistics statistics;
+        try (TilePyramidRenderer.TileSink sink = output.toLowerCase(Locale.ENGLISH).endsWith(".zip")
+                ? new TilePyramidRenderer.ZipTileSink(Files.newOutputStream(Paths.get(output)))
+                : new TilePyramidRenderer.DirectoryTileSink(new File(output))) {
+            statistics = renderer.render(bounds, argTilesMinZoom, argTilesMaxZoom, sink);
+        }
+        Logging.info(statistics.toString());
+    }
+
     private void writeImageToFile(BufferedImage image) throws IOException {
         String output = Optional.ofNullable(argOutput).orElse("out.png");
         ImageIO.write(image, "png", new File(output));
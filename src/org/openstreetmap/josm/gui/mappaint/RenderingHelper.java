@@ -109,37 +109,7 @@ public class RenderingHelper {
      */
     public BufferedImage render() throws IOException, IllegalDataException {
         // load the styles
-        ElemStyles elemStyles = new ElemStyles();
-        MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().lock();
-        try {
-            for (StyleData sd : styles) {
-                MapCSSStyleSource source = new MapCSSStyleSource(sd.styleUrl, "cliRenderingStyle", "cli rendering style '" + sd.styleUrl + "'");
-                source.loadStyleSource();
-                elemStyles.add(source);
-                if (!source.getErrors().isEmpty()) {
-                    throw new IllegalDataException("Failed to load style file. Errors: " + source.getErrors());
-                }
-                for (String key : sd.settings.keySet()) {
-                    StyleSetting.BooleanStyleSetting match = source.settings.stream()
-                            .filter(s -> s instanceof StyleSetting.BooleanStyleSetting)
-                            .map(s -> (StyleSetting.BooleanStyleSetting) s)
-                            .filter(bs -> bs.prefKey.endsWith(":" + key))
-                            .findFirst().orElse(null);
-                    if (match == null) {
-                        Logging.warn(tr("Style setting not found: ''{0}''", key));
-                    } else {
-                        boolean value = Boolean.parseBoolean(sd.settings.get(key));
-                        Logging.trace("setting applied: ''{0}:{1}''", key, value);
-                        match.setValue(value);
-                    }
-                }
-                if (!sd.settings.isEmpty()) {
-                    source.loadStyleSource(); // reload to apply settings
-                }
-            }
-        } finally {
-            MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().unlock();
-        }
+        ElemStyles elemStyles = loadStyles(styles);
 
         Dimension imgDimPx = getImageSize();
         NavigatableComponent nc = new NavigatableComponent() {
@@ -164,7 +134,23 @@ public class RenderingHelper {
         BufferedImage image = new BufferedImage(imgDimPx.width, imgDimPx.height, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = image.createGraphics();
 
-        // Force all render hints to be defaults - do not use platform values
+        setRenderingHints(g);
+
+        if (fillBackground) {
+            g.setColor(Optional.ofNullable(backgroundColor).orElse(elemStyles.getBackgroundColor()));
+            g.fillRect(0, 0, imgDimPx.width, imgDimPx.height);
+        }
+        StyledMapRenderer smr = new StyledMapRenderer(g, nc, false);
+        smr.setStyles(elemStyles);
+        smr.render(ds, false, bounds);
+        return image;
+    }
+
+    /**
+     * Forces all render hints to be defaults - do not use platform values.
+     * @param g the graphics to configure
+     */
+    static void setRenderingHints(Graphics2D g) {
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
         g.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_QUALITY);
@@ -174,15 +160,49 @@ public class RenderingHelper {
         g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_NORMALIZE);
         g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    }
 
-        if (fillBackground) {
-            g.setColor(Optional.ofNullable(backgroundColor).orElse(elemStyles.getBackgroundColor()));
-            g.fillRect(0, 0, imgDimPx.width, imgDimPx.height);
+    /**
+     * Loads the given MapCSS styles and applies their settings.
+     * @param styles the styles
+     * @return the loaded styles
+     * @throws IOException in case of an IOException
+     * @throws IllegalDataException when illegal data is encountered (style has errors, etc.)
+     * @since xxx
+     */
+    public static ElemStyles loadStyles(Collection<StyleData> styles) throws IOException, IllegalDataException {
+        ElemStyles elemStyles = new ElemStyles();
+        MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().lock();
+        try {
+            for (StyleData sd : styles) {
+                MapCSSStyleSource source = new MapCSSStyleSource(sd.styleUrl, "cliRenderingStyle", "cli rendering style '" + sd.styleUrl + "'");
+                source.loadStyleSource();
+                elemStyles.add(source);
+                if (!source.getErrors().isEmpty()) {
+                    throw new IllegalDataException("Failed to load style file. Errors: " + source.getErrors());
+                }
+                for (String key : sd.settings.keySet()) {
+                    StyleSetting.BooleanStyleSetting match = source.settings.stream()
+                            .filter(s -> s instanceof StyleSetting.BooleanStyleSetting)
+                            .map(s -> (StyleSetting.BooleanStyleSetting) s)
+                            .filter(bs -> bs.prefKey.endsWith(":" + key))
+                            .findFirst().orElse(null);
+                    if (match == null) {
+                        Logging.warn(tr("Style setting not found: ''{0}''", key));
+                    } else {
+                        boolean value = Boolean.parseBoolean(sd.settings.get(key));
+                        Logging.trace("setting applied: ''{0}:{1}''", key, value);
+                        match.setValue(value);
+                    }
+                }
+                if (!sd.settings.isEmpty()) {
+                    source.loadStyleSource(); // reload to apply settings
+                }
+            }
+        } finally {
+            MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().unlock();
         }
-        StyledMapRenderer smr = new StyledMapRenderer(g, nc, false);
-        smr.setStyles(elemStyles);
-        smr.render(ds, false, bounds);
-        return image;
+        return elemStyles;
     }
 
 }
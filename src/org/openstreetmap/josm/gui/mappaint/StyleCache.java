@@ -1,39 +1,78 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint;
 
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
 
-import org.openstreetmap.josm.data.osm.Storage;
 import org.openstreetmap.josm.tools.Pair;
 
 /**
  * Caches styles for a single primitive.
  * <p>
+ * Each style cache belongs to a generation of the {@link ElemStyles} that computed it.
+ * When the styles change, the generation is increased and the old style caches are no longer used.
+ * <p>
  * This object is immutable.
  */
 public final class StyleCache {
 
-    // TODO: clean up the intern pool from time to time (after purge or layer removal)
-    private static final Storage<StyleCache> internPool = new Storage<>();
+    /**
+     * The maximum number of entries in the intern pool. If it is exceeded, the pool is cleared.
+     */
+    private static final int MAX_INTERN_POOL_SIZE = 100_000;
+
+    /**
+     * The intern pool. Entries that are no longer used by any primitive are removed by the garbage collector.
+     */
+    private static final Map<StyleCache, WeakReference<StyleCache>> internPool = new WeakHashMap<>();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
 
     /**
      * An empty style cache entry
      */
-    public static final StyleCache EMPTY_STYLECACHE = (new StyleCache()).intern();
+    public static final StyleCache EMPTY_STYLECACHE = (new StyleCache(0)).intern();
 
     private static final int PLAIN = 0;
     private static final int SELECTED = 1;
 
     @SuppressWarnings("unchecked")
     private final DividedScale<StyleElementList>[] states = new DividedScale[2];
+    private final int generation;
 
     private StyleCache(StyleCache sc) {
         states[0] = sc.states[0];
         states[1] = sc.states[1];
+        generation = sc.generation;
+    }
+
+    private StyleCache(int generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * Returns an empty style cache of the given generation.
+     * @param generation the generation
+     * @return the empty style cache
+     * @since xxx
+     */
+    public static StyleCache empty(int generation) {
+        return generation == 0 ? EMPTY_STYLECACHE : new StyleCache(generation).intern();
     }
 
-    private StyleCache() {
+    /**
+     * Returns the generation of this style cache.
+     * @return the generation
+     * @since xxx
+     */
+    public int getGeneration() {
+        return generation;
     }
 
     /**
@@ -71,12 +110,12 @@ public final class StyleCache {
 
     @Override
     public String toString() {
-        return "StyleCache{PLAIN: " + this.states[PLAIN] + " SELECTED: " + this.states[SELECTED] + "}";
+        return "StyleCache{PLAIN: " + this.states[PLAIN] + " SELECTED: " + this.states[SELECTED] + " generation: " + generation + "}";
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(this.states);
+        return 31 * Arrays.deepHashCode(this.states) + generation;
     }
 
     @Override
@@ -88,7 +127,7 @@ public final class StyleCache {
             return false;
         }
         final StyleCache other = (StyleCache) obj;
-        return Arrays.deepEquals(this.states, other.states);
+        return generation == other.generation && Arrays.deepEquals(this.states, other.states);
     }
 
     /**
@@ -97,22 +136,81 @@ public final class StyleCache {
      * @return style cache
      */
     private StyleCache intern() {
-        return internPool.putUnique(this);
+        synchronized (internPool) {
+            WeakReference<StyleCache> ref = internPool.get(this);
+            StyleCache interned = ref != null ? ref.get() : null;
+            if (interned == null) {
+                if (internPool.size() >= MAX_INTERN_POOL_SIZE) {
+                    internPool.clear();
+                }
+                internPool.put(this, new WeakReference<>(this));
+                interned = this;
+            }
+            return interned;
+        }
     }
 
     /**
-     * Clears the style cache. This should only be used for testing.
-     * It may be removed some day and replaced by a WeakReference implementation that automatically forgets old entries.
+     * Removes the style caches of the given generations from the intern pool.
+     * @param generations the generations to remove
+     * @since xxx
      */
-    static void clearStyleCachePool() {
-        internPool.clear();
+    static void removeGenerations(IntPredicate generations) {
+        synchronized (internPool) {
+            internPool.keySet().removeIf(sc -> generations.test(sc.generation));
+        }
     }
 
     /**
-     * Get the size of the intern pool. Only for tests!
+     * Clears the intern pool, e.g. after a layer has been removed.
+     * The style caches of the remaining primitives stay valid.
+     * @since xxx (public)
+     */
+    public static void clearStyleCachePool() {
+        synchronized (internPool) {
+            internPool.clear();
+        }
+    }
+
+    /**
+     * Get the size of the intern pool.
      * @return size of the intern pool
      */
     public static int getInternPoolSize() {
-        return internPool.size();
+        synchronized (internPool) {
+            return internPool.size();
+        }
+    }
+
+    /**
+     * Counts a style lookup that was answered from the cache.
+     */
+    static void countHit() {
+        hits.increment();
+    }
+
+    /**
+     * Counts a style lookup that required to compute the styles.
+     */
+    static void countMiss() {
+        misses.increment();
+    }
+
+    /**
+     * Returns the number of style lookups that were answered from the cache, for all primitives since startup.
+     * @return the number of cache hits
+     * @since xxx
+     */
+    public static long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of style lookups that required to compute the styles, for all primitives since startup.
+     * @return the number of cache misses
+     * @since xxx
+     */
+    public static long getMissCount() {
+        return misses.sum();
     }
 }
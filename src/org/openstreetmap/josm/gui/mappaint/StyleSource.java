@@ -10,6 +10,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +21,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
 import javax.swing.ImageIcon;
 
 import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
 import org.openstreetmap.josm.data.preferences.sources.SourceType;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.IconReference;
@@ -268,6 +270,16 @@ public abstract class StyleSource extends SourceEntry {
         return null;
     }
 
+    /**
+     * Returns the types of primitives whose styles may depend on this style source.
+     * When this style source changes, only the cached styles of these primitives have to be computed again.
+     * @return the primitive types
+     * @since xxx
+     */
+    public Set<OsmPrimitiveType> getAffectedTypes() {
+        return EnumSet.of(OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION);
+    }
+
     /**
      * Determines if the style has been loaded (initialized).
      * @return {@code true} if the style has been loaded
@@ -0,0 +1,413 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.gui.jmapviewer.OsmMercator;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Renders a pyramid of XYZ tiles (as used by slippy maps) for an area and a range of zoom levels.
+ * <p>
+ * The data and the styles are loaded only once. Several threads render the tiles in parallel, each using its own
+ * {@link StyledMapRenderer} on the shared data set, which is locked (made read-only) for this purpose.
+ * The tiles are rendered in blocks ("metatiles") of {@code n x n} tiles to reduce the overhead at the tile borders.
+ * <p>
+ * The tiles are only correct for the web-Mercator projection (EPSG:3857).
+ *
+ * @since xxx
+ */
+public class TilePyramidRenderer {
+
+    /**
+     * The size of a tile in pixel.
+     */
+    public static final int TILE_SIZE = OsmMercator.DEFAUL_TILE_SIZE;
+
+    /**
+     * The area rendered around each metatile, so that labels and symbols at the borders are not cut off.
+     */
+    private static final int MARGIN = 128;
+
+    private final DataSet ds;
+    private final ElemStyles styles;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int metaTileSize = 4;
+    private boolean fillBackground = true;
+    private Color backgroundColor;
+
+    /**
+     * Sink that receives the rendered tiles. Must be thread-safe.
+     */
+    public interface TileSink extends Closeable {
+        /**
+         * Stores a tile.
+         * @param zoom the zoom level
+         * @param x the tile column
+         * @param y the tile row (from north to south)
+         * @param png the PNG encoded tile
+         * @throws IOException if the tile cannot be written
+         */
+        void write(int zoom, int x, int y, byte[] png) throws IOException;
+    }
+
+    /**
+     * Writes the tiles to {@code <zoom>/<x>/<y>.png} files in a directory.
+     */
+    public static class DirectoryTileSink implements TileSink {
+        private final Path directory;
+
+        /**
+         * Constructs a new {@code DirectoryTileSink}.
+         * @param directory the base directory
+         */
+        public DirectoryTileSink(File directory) {
+            this.directory = directory.toPath();
+        }
+
+        @Override
+        public void write(int zoom, int x, int y, byte[] png) throws IOException {
+            Path column = directory.resolve(Integer.toString(zoom)).resolve(Integer.toString(x));
+            Files.createDirectories(column);
+            Files.write(column.resolve(y + ".png"), png);
+        }
+
+        @Override
+        public void close() {
+            // nothing to do
+        }
+    }
+
+    /**
+     * Writes all tiles to a single zip archive, with entries named {@code <zoom>/<x>/<y>.png}.
+     * The tiles are stored without compression, as PNG data is already compressed.
+     */
+    public static class ZipTileSink implements TileSink {
+        private final ZipOutputStream zip;
+
+        /**
+         * Constructs a new {@code ZipTileSink}.
+         * @param out the stream to write the archive to
+         */
+        public ZipTileSink(OutputStream out) {
+            zip = new ZipOutputStream(out);
+            zip.setMethod(ZipOutputStream.STORED);
+        }
+
+        @Override
+        public synchronized void write(int zoom, int x, int y, byte[] png) throws IOException {
+            ZipEntry entry = new ZipEntry(zoom + "/" + x + '/' + y + ".png");
+            CRC32 crc = new CRC32();
+            crc.update(png);
+            entry.setSize(png.length);
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(png);
+            zip.closeEntry();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            zip.close();
+        }
+    }
+
+    /**
+     * The statistics of a {@link TilePyramidRenderer#render} call.
+     */
+    public static class Statistics {
+        private final int tiles;
+        private final long nanos;
+        private final long maxUsedMemory;
+        private final int threads;
+
+        Statistics(int tiles, long nanos, long maxUsedMemory, int threads) {
+            this.tiles = tiles;
+            this.nanos = nanos;
+            this.maxUsedMemory = maxUsedMemory;
+            this.threads = threads;
+        }
+
+        /**
+         * Returns the number of rendered tiles.
+         * @return the number of rendered tiles
+         */
+        public int getTileCount() {
+            return tiles;
+        }
+
+        /**
+         * Returns the time needed to render all tiles.
+         * @return the time, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Returns the rendering speed.
+         * @return the number of tiles per second
+         */
+        public double getTilesPerSecond() {
+            return nanos == 0 ? 0 : tiles * 1e9 / nanos;
+        }
+
+        /**
+         * Returns the maximum heap memory in use that was observed while rendering.
+         * @return the memory, in bytes
+         */
+        public long getMaxUsedMemory() {
+            return maxUsedMemory;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "%d tiles in %.1f s (%.1f tiles/s, %d threads, max. %d MB used)",
+                    tiles, nanos / 1e9, getTilesPerSecond(), threads, maxUsedMemory / 1024 / 1024);
+        }
+    }
+
+    /**
+     * Constructs a new {@code TilePyramidRenderer}.
+     * @param ds the data set to render. It is locked by {@link #render}.
+     * @param styles the styles to use, see {@link RenderingHelper#loadStyles}
+     */
+    public TilePyramidRenderer(DataSet ds, ElemStyles styles) {
+        this.ds = Objects.requireNonNull(ds, "ds");
+        this.styles = Objects.requireNonNull(styles, "styles");
+    }
+
+    /**
+     * Sets the number of rendering threads.
+     * @param threads the number of threads, defaults to the number of available processors
+     */
+    public void setThreads(int threads) {
+        CheckParameterUtil.ensureThat(threads > 0, "threads > 0");
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the number of tiles that are rendered at once in each direction.
+     * @param metaTileSize the metatile size, defaults to 4 (16 tiles)
+     */
+    public void setMetaTileSize(int metaTileSize) {
+        CheckParameterUtil.ensureThat(metaTileSize > 0, "metaTileSize > 0");
+        this.metaTileSize = metaTileSize;
+    }
+
+    /**
+     * Decide if background should be filled or left transparent.
+     * @param fillBackground true, if background should be filled
+     */
+    public void setFillBackground(boolean fillBackground) {
+        this.fillBackground = fillBackground;
+    }
+
+    /**
+     * Set the background color to use for the rendering.
+     * @param backgroundColor the background color to use, {@code null} means to determine it from the style
+     */
+    public void setBackgroundColor(Color backgroundColor) {
+        this.backgroundColor = backgroundColor;
+    }
+
+    /**
+     * Returns the first tile column covering the given longitude.
+     * @param lon the longitude
+     * @param zoom the zoom level
+     * @return the tile column
+     */
+    static int lonToTileX(double lon, int zoom) {
+        return clampTile((int) Math.floor(OsmMercator.MERCATOR_256.lonToX(lon, zoom) / TILE_SIZE), zoom);
+    }
+
+    /**
+     * Returns the first tile row covering the given latitude.
+     * @param lat the latitude
+     * @param zoom the zoom level
+     * @return the tile row
+     */
+    static int latToTileY(double lat, int zoom) {
+        return clampTile((int) Math.floor(OsmMercator.MERCATOR_256.latToY(lat, zoom) / TILE_SIZE), zoom);
+    }
+
+    private static int clampTile(int tile, int zoom) {
+        return Utils.clamp(tile, 0, (1 << zoom) - 1);
+    }
+
+    /**
+     * Returns the scale of the tiles at a zoom level.
+     * @param zoom the zoom level
+     * @return the scale in east-north units per pixel
+     */
+    static double getScale(int zoom) {
+        Projection proj = ProjectionRegistry.getProjection();
+        return OsmMercator.EARTH_RADIUS * Math.PI * 2 / Math.pow(2, zoom) / TILE_SIZE / proj.getMetersPerUnit();
+    }
+
+    /**
+     * Renders all tiles covering the bounds.
+     * @param bounds the area to render
+     * @param minZoom the lowest zoom level
+     * @param maxZoom the highest zoom level
+     * @param sink receives the tiles
+     * @return the statistics
+     * @throws IOException if a tile cannot be written
+     */
+    public Statistics render(Bounds bounds, int minZoom, int maxZoom, TileSink sink) throws IOException {
+        CheckParameterUtil.ensureThat(minZoom >= 0 && minZoom <= maxZoom && maxZoom < 31, "0 <= minZoom <= maxZoom < 31");
+        List<MetaTile> metaTiles = new ArrayList<>();
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            int minX = lonToTileX(bounds.getMinLon(), zoom);
+            int maxX = lonToTileX(bounds.getMaxLon(), zoom);
+            int minY = latToTileY(bounds.getMaxLat(), zoom);
+            int maxY = latToTileY(bounds.getMinLat(), zoom);
+            for (int y = minY; y <= maxY; y += metaTileSize) {
+                for (int x = minX; x <= maxX; x += metaTileSize) {
+                    metaTiles.add(new MetaTile(zoom, x, y,
+                            Math.min(metaTileSize, maxX - x + 1), Math.min(metaTileSize, maxY - y + 1)));
+                }
+            }
+        }
+        Logging.debug("rendering {0} metatiles with {1} threads", metaTiles.size(), threads);
+
+        boolean wasLocked = ds.isLocked();
+        ds.lock();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger tiles = new AtomicInteger();
+        AtomicLong maxUsedMemory = new AtomicLong();
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                Utils.newThreadFactory("tile-pyramid-renderer-%d", Thread.NORM_PRIORITY));
+        try {
+            List<Future<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    TileView view = new TileView();
+                    int index;
+                    while ((index = next.getAndIncrement()) < metaTiles.size()) {
+                        tiles.addAndGet(render(metaTiles.get(index), view, sink));
+                        Runtime runtime = Runtime.getRuntime();
+                        maxUsedMemory.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            next.set(metaTiles.size()); // stop the other workers
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdown();
+            if (!wasLocked) {
+                ds.unlock();
+            }
+        }
+        return new Statistics(tiles.get(), System.nanoTime() - start, maxUsedMemory.get(), threads);
+    }
+
+    private int render(MetaTile metaTile, TileView view, TileSink sink) throws IOException {
+        double scale = getScale(metaTile.zoom);
+        double halfWorld = (1L << metaTile.zoom) * TILE_SIZE * scale / 2;
+        int width = metaTile.width * TILE_SIZE;
+        int height = metaTile.height * TILE_SIZE;
+        EastNorth topLeft = new EastNorth(((long) metaTile.x * TILE_SIZE - MARGIN) * scale - halfWorld,
+                halfWorld - ((long) metaTile.y * TILE_SIZE - MARGIN) * scale);
+        MapViewState state = MapViewState.createDefaultState(width + 2 * MARGIN, height + 2 * MARGIN)
+                .usingScale(scale).usingArea(topLeft, width + 2 * MARGIN, height + 2 * MARGIN);
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            RenderingHelper.setRenderingHints(g);
+            if (fillBackground) {
+                g.setColor(backgroundColor != null ? backgroundColor : styles.getBackgroundColor());
+                g.fillRect(0, 0, width, height);
+            }
+            g.translate(-MARGIN, -MARGIN);
+            view.show(state);
+            StyledMapRenderer smr = new StyledMapRenderer(g, view, false);
+            smr.setStyles(styles);
+            smr.render(ds, false, state.getViewArea().getLatLonBoundsBox());
+        } finally {
+            g.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int y = 0; y < metaTile.height; y++) {
+            for (int x = 0; x < metaTile.width; x++) {
+                out.reset();
+                ImageIO.write(image.getSubimage(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE), "png", out);
+                sink.write(metaTile.zoom, metaTile.x + x, metaTile.y + y, out.toByteArray());
+            }
+        }
+        return metaTile.width * metaTile.height;
+    }
+
+    private static final class MetaTile {
+        private final int zoom;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+
+        MetaTile(int zoom, int x, int y, int width, int height) {
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static class TileView extends NavigatableComponent {
+        void show(MapViewState state) {
+            setBounds(0, 0, (int) state.getViewWidth(), (int) state.getViewHeight());
+            setState(state);
+        }
+    }
+}
@@ -39,7 +39,12 @@ public class MapPaintStyleLoader extends PleaseWaitRunnable {
 
     @Override
     protected void finish() {
-        MapPaintStyles.fireMapPaintSylesUpdated();
+        int index = sources.size() == 1 ? MapPaintStyles.getStyles().getStyleSources().indexOf(sources.iterator().next()) : -1;
+        if (index >= 0) {
+            MapPaintStyles.fireMapPaintStyleEntryUpdated(index);
+        } else {
+            MapPaintStyles.fireMapPaintSylesUpdated();
+        }
     }
 
     @Override
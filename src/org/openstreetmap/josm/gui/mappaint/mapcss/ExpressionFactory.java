@@ -1129,7 +1129,7 @@ public final class ExpressionFactory {
      */
     public static class CondOperator implements Expression {
 
-        private final Expression condition, firstOption, secondOption;
+        final Expression condition, firstOption, secondOption;
 
         /**
          * Constructs a new {@code CondOperator}.
@@ -1158,7 +1158,7 @@ public final class ExpressionFactory {
      */
     public static class AndOperator implements Expression {
 
-        private final List<Expression> args;
+        final List<Expression> args;
 
         /**
          * Constructs a new {@code AndOperator}.
@@ -1185,7 +1185,7 @@ public final class ExpressionFactory {
      */
     public static class OrOperator implements Expression {
 
-        private final List<Expression> args;
+        final List<Expression> args;
 
         /**
          * Constructs a new {@code OrOperator}.
@@ -1217,7 +1217,7 @@ public final class ExpressionFactory {
      */
     public static class LengthFunction implements Expression {
 
-        private final Expression arg;
+        final Expression arg;
 
         /**
          * Constructs a new {@code LengthFunction}.
@@ -1244,8 +1244,8 @@ public final class ExpressionFactory {
      */
     public static class MinMaxFunction implements Expression {
 
-        private final List<Expression> args;
-        private final boolean computeMax;
+        final List<Expression> args;
+        final boolean computeMax;
 
         /**
          * Constructs a new {@code MinMaxFunction}.
@@ -1285,11 +1285,11 @@ public final class ExpressionFactory {
      */
     public static class ParameterFunction implements Expression {
 
-        private final Method m;
-        private final boolean nullable;
-        private final List<Expression> args;
-        private final Class<?>[] expectedParameterTypes;
-        private final boolean needsEnvironment;
+        final Method m;
+        final boolean nullable;
+        final List<Expression> args;
+        final Class<?>[] expectedParameterTypes;
+        final boolean needsEnvironment;
 
         /**
          * Constructs a new {@code ParameterFunction}.
@@ -1366,10 +1366,10 @@ public final class ExpressionFactory {
      */
     public static class ArrayFunction implements Expression {
 
-        private final Method m;
-        private final boolean nullable;
-        private final List<Expression> args;
-        private final Class<?>[] expectedParameterTypes;
+        final Method m;
+        final boolean nullable;
+        final List<Expression> args;
+        final Class<?>[] expectedParameterTypes;
         private final Class<?> arrayComponentType;
 
         /**
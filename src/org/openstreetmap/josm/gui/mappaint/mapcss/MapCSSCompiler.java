@@ -0,0 +1,529 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.openstreetmap.josm.gui.mappaint.Cascade;
+import org.openstreetmap.josm.gui.mappaint.Environment;
+import org.openstreetmap.josm.gui.mappaint.StyleSource;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.ExpressionCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyMatchType;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyValueCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.Op;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.OpenEndPseudoClassCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.PseudoClassCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.AndOperator;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ArrayFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.CondOperator;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.LengthFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.MinMaxFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.NullExpression;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.OrOperator;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ParameterFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction.AssignmentInstruction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule.Declaration;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.AbstractSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.ChildOrParentSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.LinkSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.OptimizedGeneralSelector;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Compiles parsed MapCSS rules into specialized evaluators.
+ * <p>
+ * The parser creates generic {@link Condition}s and {@link Expression}s which dispatch on their operation and call
+ * functions by reflection every time a rule is matched against a primitive. This compiler replaces them by
+ * equivalent closures:
+ * <ul>
+ * <li>key and key/value conditions are specialized for their match type and operation, numeric reference values are
+ * parsed once;</li>
+ * <li>pseudo classes and functions are bound to their implementation method by {@link LambdaMetafactory} (or a
+ * {@link MethodHandle} for functions with many parameters) instead of being called by {@link Method#invoke};</li>
+ * <li>functions and operators with only literal arguments are evaluated once (constant folding), as well as the
+ * {@code setting()} function of the style source. Rules whose conditions are constantly false are dropped.</li>
+ * </ul>
+ * The compiled rules keep their original {@link MapCSSRule#selector}, so that the rule index of
+ * {@link MapCSSStyleSource} is built from the interpreted conditions.
+ * @since xxx
+ */
+public class MapCSSCompiler {
+
+    /** Functions without environment that must not be evaluated at compile time */
+    private static final Collection<String> IMPURE_FUNCTIONS = Arrays.asList("random", "print", "println");
+    /** Functions whose result only depends on the style source, which does not change until the style is reloaded */
+    private static final Collection<String> SOURCE_FUNCTIONS = Collections.singletonList("setting");
+
+    private static final Pattern ONE_OF_SEPARATOR = Pattern.compile("\\s*;\\s*");
+
+    private static final MethodType PREDICATE_ERASED = MethodType.methodType(boolean.class, Object.class);
+    private static final MethodType PREDICATE_ENVIRONMENT = MethodType.methodType(boolean.class, Environment.class);
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private final Map<Declaration, Declaration> declarations = new IdentityHashMap<>();
+    private final Environment sourceEnvironment;
+
+    /**
+     * Constructs a new {@code MapCSSCompiler}.
+     */
+    public MapCSSCompiler() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new {@code MapCSSCompiler} for the rules of a style source. Calls of {@code setting()} are evaluated
+     * once, so the rules have to be compiled again when the style settings change (the style is reloaded anyway).
+     * @param source the style source, can be {@code null}
+     */
+    public MapCSSCompiler(StyleSource source) {
+        if (source != null) {
+            sourceEnvironment = new Environment();
+            sourceEnvironment.source = source;
+        } else {
+            sourceEnvironment = null;
+        }
+    }
+
+    /**
+     * Compiles a rule.
+     * @param rule the rule
+     * @return a rule with the same selector and index that matches and executes the compiled selector and declaration,
+     * or {@code null} if the compiled rule can never match
+     */
+    public MapCSSRule compile(MapCSSRule rule) {
+        Selector matcher = compile(rule.selector);
+        Selector rightmost = matcher;
+        while (rightmost instanceof ChildOrParentSelector) {
+            rightmost = ((ChildOrParentSelector) rightmost).right;
+        }
+        if (rightmost instanceof AbstractSelector && ((AbstractSelector) rightmost).getConditions().contains(Constant.FALSE))
+            return null;
+        return new MapCSSRule(rule.selector, declarations.computeIfAbsent(rule.declaration, this::compile), matcher);
+    }
+
+    private Declaration compile(Declaration declaration) {
+        List<Instruction> instructions = new ArrayList<>(declaration.instructions.size());
+        for (Instruction i : declaration.instructions) {
+            instructions.add(compile(i));
+        }
+        return new Declaration(instructions, declaration.idx);
+    }
+
+    private Instruction compile(Instruction instruction) {
+        if (instruction instanceof AssignmentInstruction && ((AssignmentInstruction) instruction).val instanceof Expression) {
+            AssignmentInstruction ai = (AssignmentInstruction) instruction;
+            Expression e = compile((Expression) ai.val);
+            // a folded value is given as is, a literal expression would be interpreted again (e.g. as tag reference for text)
+            return new AssignmentInstruction(ai.key, isConstant(e) ? e.evaluate(null) : e, ai.isSetInstruction);
+        }
+        return instruction;
+    }
+
+    /**
+     * Compiles a selector.
+     * @param selector the selector
+     * @return a selector of the same type with compiled conditions
+     */
+    public Selector compile(Selector selector) {
+        if (selector instanceof ChildOrParentSelector) {
+            ChildOrParentSelector s = (ChildOrParentSelector) selector;
+            return new ChildOrParentSelector(compile(s.left), new LinkSelector(compileAll(s.link.conds, false)),
+                    compile(s.right), s.type);
+        } else if (selector instanceof GeneralSelector) {
+            GeneralSelector s = (GeneralSelector) selector;
+            return new GeneralSelector(s.base, s.range, compileAll(s.conds, true), s.subpart);
+        } else if (selector != null && selector.getClass() == OptimizedGeneralSelector.class) {
+            OptimizedGeneralSelector s = (OptimizedGeneralSelector) selector;
+            return new OptimizedGeneralSelector(s.base, s.range, compileAll(s.conds, true), s.subpart);
+        }
+        return selector;
+    }
+
+    private List<Condition> compileAll(List<Condition> conditions, boolean dropTrue) {
+        if (conditions == null)
+            return null;
+        List<Condition> result = new ArrayList<>(conditions.size());
+        for (Condition c : conditions) {
+            Condition compiled = compile(c);
+            if (!dropTrue || compiled != Constant.TRUE) {
+                result.add(compiled);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compiles a condition.
+     * @param c the condition
+     * @return an equivalent condition, or {@code c} if it cannot be compiled
+     */
+    public Condition compile(Condition c) {
+        if (c instanceof KeyCondition) {
+            return compileKeyCondition((KeyCondition) c);
+        } else if (c != null && c.getClass() == KeyValueCondition.class) {
+            return compileKeyValueCondition((KeyValueCondition) c);
+        } else if (c instanceof PseudoClassCondition && !(c instanceof OpenEndPseudoClassCondition)) {
+            return compilePseudoClassCondition((PseudoClassCondition) c);
+        } else if (c instanceof ExpressionCondition) {
+            Expression e = compile(((ExpressionCondition) c).e);
+            if (isConstant(e)) {
+                Boolean b = Cascade.convertTo(e.evaluate(null), Boolean.class);
+                return b != null && b ? Constant.TRUE : Constant.FALSE;
+            }
+            return new ExpressionCondition(e);
+        }
+        return c;
+    }
+
+    private static Condition compileKeyCondition(KeyCondition c) {
+        final String key = c.label;
+        final boolean not = c.negateResult;
+        if (c.matchType == KeyMatchType.TRUE) {
+            return e -> e.osm.isKeyTrue(key) ^ not;
+        } else if (c.matchType == KeyMatchType.FALSE) {
+            return e -> e.osm.isKeyFalse(key) ^ not;
+        } else if (c.matchType == KeyMatchType.EQ) {
+            return not ? e -> !e.osm.hasKey(key) : e -> e.osm.hasKey(key);
+        }
+        return c;
+    }
+
+    private static Condition compileKeyValueCondition(KeyValueCondition c) {
+        if (c.considerValAsKey)
+            return c;
+        final String k = c.k;
+        final String v = c.v;
+        switch (c.op) {
+        case EQ:
+            return e -> v.equals(e.osm.get(k));
+        case NEQ:
+            return e -> !v.equals(e.osm.get(k));
+        case BEGINS_WITH:
+            return e -> {
+                String value = e.osm.get(k);
+                return value != null && value.startsWith(v);
+            };
+        case ENDS_WITH:
+            return e -> {
+                String value = e.osm.get(k);
+                return value != null && value.endsWith(v);
+            };
+        case CONTAINS:
+            return e -> {
+                String value = e.osm.get(k);
+                return value != null && value.contains(v);
+            };
+        case ONE_OF:
+            return e -> {
+                String value = e.osm.get(k);
+                return value != null && (value.indexOf(';') < 0
+                        ? value.equals(v) : Arrays.asList(ONE_OF_SEPARATOR.split(value)).contains(v));
+            };
+        case GREATER_OR_EQUAL:
+        case GREATER:
+        case LESS_OR_EQUAL:
+        case LESS:
+            return compileComparison(c);
+        default:
+            return c;
+        }
+    }
+
+    private static Condition compileComparison(KeyValueCondition c) {
+        final float reference;
+        try {
+            reference = Float.parseFloat(c.v);
+        } catch (NumberFormatException ex) {
+            // fails at every evaluation, keep the behaviour
+            Logging.trace(ex);
+            return c;
+        }
+        final String k = c.k;
+        final Op op = c.op;
+        return e -> {
+            String value = e.osm.get(k);
+            if (value == null)
+                return false;
+            float f;
+            try {
+                f = Float.parseFloat(value);
+            } catch (NumberFormatException ex) {
+                return false;
+            }
+            int res = Float.compare(f, reference);
+            switch (op) {
+            case GREATER_OR_EQUAL: return res >= 0;
+            case GREATER: return res > 0;
+            case LESS_OR_EQUAL: return res <= 0;
+            default: return res < 0;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private Condition compilePseudoClassCondition(PseudoClassCondition c) {
+        final Predicate<Environment> predicate;
+        try {
+            predicate = (Predicate<Environment>) bind(lookup.unreflect(c.method), Predicate.class, "test",
+                    PREDICATE_ERASED, PREDICATE_ENVIRONMENT);
+        } catch (IllegalAccessException | LambdaConversionException | RuntimeException ex) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to compile pseudo class " + c, ex);
+            return c;
+        }
+        return c.not ? e -> !predicate.test(e) : predicate::test;
+    }
+
+    /**
+     * Compiles an expression.
+     * @param e the expression
+     * @return an equivalent expression, a {@link LiteralExpression} or {@link NullExpression} if it has a constant value,
+     * or {@code e} if it cannot be compiled
+     */
+    public Expression compile(Expression e) {
+        if (e instanceof ParameterFunction) {
+            ParameterFunction f = (ParameterFunction) e;
+            List<Expression> args = compileAll(f.args);
+            if (args.stream().allMatch(MapCSSCompiler::isConstant)) {
+                if (!f.needsEnvironment && !IMPURE_FUNCTIONS.contains(f.m.getName()))
+                    return fold(new ParameterFunction(f.m, args, false), null);
+                if (sourceEnvironment != null && SOURCE_FUNCTIONS.contains(f.m.getName()))
+                    return fold(new ParameterFunction(f.m, args, true), sourceEnvironment);
+            }
+            return compileFunction(f, args);
+        } else if (e instanceof ArrayFunction) {
+            ArrayFunction f = (ArrayFunction) e;
+            List<Expression> args = compileAll(f.args);
+            if (!IMPURE_FUNCTIONS.contains(f.m.getName()) && args.stream().allMatch(MapCSSCompiler::isConstant))
+                return fold(new ArrayFunction(f.m, args), null);
+            return compileFunction(f, args);
+        } else if (e instanceof CondOperator) {
+            CondOperator op = (CondOperator) e;
+            Expression condition = compile(op.condition);
+            if (isConstant(condition)) {
+                Boolean b = Cascade.convertTo(condition.evaluate(null), boolean.class);
+                return compile(b != null && b ? op.firstOption : op.secondOption);
+            }
+            return new CondOperator(condition, compile(op.firstOption), compile(op.secondOption));
+        } else if (e instanceof AndOperator) {
+            return foldIfConstant(new AndOperator(compileAll(((AndOperator) e).args)));
+        } else if (e instanceof OrOperator) {
+            return foldIfConstant(new OrOperator(compileAll(((OrOperator) e).args)));
+        } else if (e instanceof MinMaxFunction) {
+            MinMaxFunction f = (MinMaxFunction) e;
+            return foldIfConstant(new MinMaxFunction(compileAll(f.args), f.computeMax));
+        } else if (e instanceof LengthFunction) {
+            Expression arg = compile(((LengthFunction) e).arg);
+            return isConstant(arg) ? fold(new LengthFunction(arg), null) : new LengthFunction(arg);
+        }
+        return e;
+    }
+
+    private List<Expression> compileAll(List<Expression> expressions) {
+        List<Expression> result = new ArrayList<>(expressions.size());
+        for (Expression e : expressions) {
+            result.add(compile(e));
+        }
+        return result;
+    }
+
+    private Expression compileFunction(ParameterFunction f, List<Expression> args) {
+        try {
+            return new CompiledFunction(createInvoker(f.m), args, f.expectedParameterTypes, f.needsEnvironment, f.nullable);
+        } catch (IllegalAccessException | LambdaConversionException | RuntimeException ex) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to compile function " + f, ex);
+            return new ParameterFunction(f.m, args, f.needsEnvironment);
+        }
+    }
+
+    private Expression compileFunction(ArrayFunction f, List<Expression> args) {
+        try {
+            return new CompiledArrayFunction(createInvoker(f.m), args, f.expectedParameterTypes[0].getComponentType(), f.nullable);
+        } catch (IllegalAccessException | LambdaConversionException | RuntimeException ex) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to compile function " + f, ex);
+            return new ArrayFunction(f.m, args);
+        }
+    }
+
+    /**
+     * Binds a static method to an {@link Invoker}. Methods with up to two parameters are bound by
+     * {@link LambdaMetafactory}, so that they are called like a lambda expression; others by a spreading method handle.
+     */
+    @SuppressWarnings("unchecked")
+    private Invoker createInvoker(Method m) throws IllegalAccessException, LambdaConversionException {
+        MethodHandle handle = lookup.unreflect(m).asFixedArity();
+        MethodType generic = handle.type().generic();
+        MethodType wrapped = handle.type().wrap();
+        switch (m.getParameterCount()) {
+        case 0:
+            Supplier<Object> supplier = (Supplier<Object>) bind(handle, Supplier.class, "get", generic, wrapped);
+            return args -> supplier.get();
+        case 1:
+            Function<Object, Object> function = (Function<Object, Object>) bind(handle, Function.class, "apply", generic, wrapped);
+            return args -> function.apply(args[0]);
+        case 2:
+            BiFunction<Object, Object, Object> biFunction =
+                    (BiFunction<Object, Object, Object>) bind(handle, BiFunction.class, "apply", generic, wrapped);
+            return args -> biFunction.apply(args[0], args[1]);
+        default:
+            MethodHandle spreader = handle.asSpreader(Object[].class, m.getParameterCount()).asType(INVOKER_TYPE);
+            return args -> (Object) spreader.invokeExact(args);
+        }
+    }
+
+    /**
+     * Creates an instance of a functional interface that calls the given method handle, like a method reference.
+     */
+    private Object bind(MethodHandle handle, Class<?> functionalInterface, String name, MethodType erasedType,
+            MethodType instantiatedType) throws LambdaConversionException {
+        CallSite site = LambdaMetafactory.metafactory(lookup, name, MethodType.methodType(functionalInterface),
+                erasedType, handle, instantiatedType);
+        try {
+            return site.getTarget().invoke();
+        } catch (Throwable ex) { // NOPMD
+            throw new JosmRuntimeException(ex);
+        }
+    }
+
+    private static boolean isConstant(Expression e) {
+        return e instanceof LiteralExpression || e instanceof NullExpression;
+    }
+
+    private static Expression fold(Expression e, Environment env) {
+        Object value = e.evaluate(env);
+        return value == null ? NullExpression.INSTANCE : new LiteralExpression(value);
+    }
+
+    private static Expression foldIfConstant(Expression e) {
+        List<Expression> args = e instanceof AndOperator ? ((AndOperator) e).args
+                : e instanceof OrOperator ? ((OrOperator) e).args
+                : ((MinMaxFunction) e).args;
+        return args.stream().allMatch(MapCSSCompiler::isConstant) ? fold(e, null) : e;
+    }
+
+    /**
+     * A condition with a constant result.
+     */
+    private enum Constant implements Condition {
+        TRUE, FALSE;
+
+        @Override
+        public boolean applies(Environment e) {
+            return this == TRUE;
+        }
+    }
+
+    /**
+     * A bound function.
+     */
+    @FunctionalInterface
+    private interface Invoker {
+        Object invoke(Object[] args) throws Throwable;
+    }
+
+    /**
+     * A compiled {@link ParameterFunction}.
+     */
+    private static final class CompiledFunction implements Expression {
+        private final Invoker invoker;
+        private final Expression[] args;
+        private final Class<?>[] types;
+        private final int offset;
+        private final boolean nullable;
+
+        CompiledFunction(Invoker invoker, List<Expression> args, Class<?>[] types, boolean needsEnvironment, boolean nullable) {
+            this.invoker = invoker;
+            this.args = args.toArray(new Expression[0]);
+            this.types = types;
+            this.offset = needsEnvironment ? 1 : 0;
+            this.nullable = nullable;
+        }
+
+        @Override
+        public Object evaluate(Environment env) {
+            Object[] convertedArgs = new Object[types.length];
+            if (offset > 0) {
+                convertedArgs[0] = env;
+            }
+            for (int i = 0; i < args.length; i++) {
+                Object o = Cascade.convertTo(args[i].evaluate(env), types[i + offset]);
+                if (o == null && !nullable) {
+                    return null;
+                }
+                convertedArgs[i + offset] = o;
+            }
+            try {
+                return invoker.invoke(convertedArgs);
+            } catch (Throwable ex) { // NOPMD
+                Logging.error(ex);
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "CompiledFunction" + Arrays.toString(args);
+        }
+    }
+
+    /**
+     * A compiled {@link ArrayFunction}.
+     */
+    private static final class CompiledArrayFunction implements Expression {
+        private final Invoker invoker;
+        private final Expression[] args;
+        private final Class<?> componentType;
+        private final boolean nullable;
+
+        CompiledArrayFunction(Invoker invoker, List<Expression> args, Class<?> componentType, boolean nullable) {
+            this.invoker = invoker;
+            this.args = args.toArray(new Expression[0]);
+            this.componentType = componentType;
+            this.nullable = nullable;
+        }
+
+        @Override
+        public Object evaluate(Environment env) {
+            Object array = Array.newInstance(componentType, args.length);
+            for (int i = 0; i < args.length; i++) {
+                Object o = Cascade.convertTo(args[i].evaluate(env), componentType);
+                if (o == null && !nullable) {
+                    return null;
+                }
+                Array.set(array, i, o);
+            }
+            try {
+                return invoker.invoke(new Object[] {array});
+            } catch (Throwable ex) { // NOPMD
+                Logging.error(ex);
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "CompiledArrayFunction" + Arrays.toString(args);
+        }
+    }
+}
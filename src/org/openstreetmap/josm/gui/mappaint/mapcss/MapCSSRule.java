@@ -26,6 +26,11 @@ public class MapCSSRule implements Comparable<MapCSSRule> {
      */
     public final Declaration declaration;
 
+    /**
+     * The selector used for matching, either {@link #selector} or a compiled copy of it
+     */
+    private final Selector matcher;
+
     /**
      * A declaration is a set of {@link Instruction}s
      */
@@ -88,8 +93,31 @@ public class MapCSSRule implements Comparable<MapCSSRule> {
      * @param declaration The declaration
      */
     public MapCSSRule(Selector selector, Declaration declaration) {
+        this(selector, declaration, selector);
+    }
+
+    /**
+     * Constructs a new {@code MapCSSRule} that matches by a compiled selector.
+     * @param selector The selector
+     * @param declaration The declaration
+     * @param matcher The selector used for matching
+     * @see MapCSSCompiler
+     */
+    MapCSSRule(Selector selector, Declaration declaration, Selector matcher) {
         this.selector = selector;
         this.declaration = declaration;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Checks if this rule applies in the environment {@code env}.
+     * @param env the environment
+     * @return {@code true} if the (compiled) selector matches
+     * @see Selector#matches(Environment)
+     * @since xxx
+     */
+    public boolean matches(Environment env) {
+        return matcher.matches(env);
     }
 
     /**
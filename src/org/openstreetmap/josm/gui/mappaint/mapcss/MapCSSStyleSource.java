@@ -14,6 +14,7 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -35,8 +36,10 @@ import org.openstreetmap.josm.data.osm.IRelation;
 import org.openstreetmap.josm.data.osm.IWay;
 import org.openstreetmap.josm.data.osm.KeyValueVisitor;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Tagged;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
 import org.openstreetmap.josm.gui.mappaint.Cascade;
 import org.openstreetmap.josm.gui.mappaint.Environment;
@@ -122,6 +125,13 @@ public class MapCSSStyleSource extends StyleSource {
      */
     public static final ReadWriteLock STYLE_SOURCE_LOCK = new ReentrantReadWriteLock();
 
+    /**
+     * Whether the rules are compiled into specialized evaluators when the style is loaded.
+     * @see MapCSSCompiler
+     * @since xxx
+     */
+    public static final BooleanProperty PROPERTY_COMPILE = new BooleanProperty("mappaint.mapcss.compile", true);
+
     /**
      * Set of all supported MapCSS keys.
      */
@@ -379,6 +389,15 @@ public class MapCSSStyleSource extends StyleSource {
             index.clear();
             remaining.clear();
         }
+
+        /**
+         * Determines if this index contains no rules.
+         * @return {@code true} if this index contains no rules
+         * @since xxx
+         */
+        public boolean isEmpty() {
+            return rules.isEmpty();
+        }
     }
 
     /**
@@ -461,6 +480,7 @@ public class MapCSSStyleSource extends StyleSource {
             if (metadataOnly) {
                 return;
             }
+            MapCSSCompiler compiler = PROPERTY_COMPILE.get() ? new MapCSSCompiler(this) : null;
             // optimization: filter rules for different primitive types
             for (MapCSSRule r: rules) {
                 // find the rightmost selector, this must be a GeneralSelector
@@ -470,6 +490,12 @@ public class MapCSSStyleSource extends StyleSource {
                 }
                 MapCSSRule optRule = new MapCSSRule(r.selector.optimizedBaseCheck(), r.declaration);
                 final String base = ((GeneralSelector) selRightmost).getBase();
+                if (compiler != null) {
+                    optRule = compiler.compile(optRule);
+                    if (optRule == null) {
+                        continue; // cannot match with the current settings
+                    }
+                }
                 switch (base) {
                     case "node":
                         nodeRules.add(optRule);
@@ -494,7 +520,7 @@ public class MapCSSStyleSource extends StyleSource {
                         multipolygonRules.add(optRule);
                         break;
                     case "canvas":
-                        canvasRules.add(r);
+                        canvasRules.add(compiler != null ? compiler.compile(r) : r);
                         break;
                     case "meta":
                     case "setting":
@@ -644,6 +670,28 @@ public class MapCSSStyleSource extends StyleSource {
         return backgroundColorOverride;
     }
 
+    @Override
+    public Set<OsmPrimitiveType> getAffectedTypes() {
+        Set<OsmPrimitiveType> types = EnumSet.noneOf(OsmPrimitiveType.class);
+        STYLE_SOURCE_LOCK.readLock().lock();
+        try {
+            // the canvas defines whether untagged nodes and ways are drawn
+            if (!nodeRules.isEmpty() || !canvasRules.isEmpty()) {
+                types.add(OsmPrimitiveType.NODE);
+            }
+            // outer ways of multipolygons take styles from the relation
+            if (!wayRules.isEmpty() || !wayNoAreaRules.isEmpty() || !multipolygonRules.isEmpty() || !canvasRules.isEmpty()) {
+                types.add(OsmPrimitiveType.WAY);
+            }
+            if (!relationRules.isEmpty() || !multipolygonRules.isEmpty()) {
+                types.add(OsmPrimitiveType.RELATION);
+            }
+        } finally {
+            STYLE_SOURCE_LOCK.readLock().unlock();
+        }
+        return types;
+    }
+
     @Override
     public void apply(MultiCascade mc, IPrimitive osm, double scale, boolean pretendWayIsClosed) {
         MapCSSRuleIndex matchingRuleIndex;
@@ -677,7 +725,7 @@ public class MapCSSStyleSource extends StyleSource {
             env.clearSelectorMatchingInformation();
             env.layer = r.selector.getSubpart().getId(env);
             String sub = env.layer;
-            if (r.selector.matches(env)) { // as side effect env.parent will be set (if s is a child selector)
+            if (r.matches(env)) { // as side effect env.parent will be set (if s is a child selector)
                 Selector s = r.selector;
                 if (s.getRange().contains(scale)) {
                     mc.range = Range.cut(mc.range, s.getRange());
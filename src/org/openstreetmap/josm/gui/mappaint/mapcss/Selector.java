@@ -549,6 +549,10 @@ public interface Selector {
             super(base, zoom, conds, subpart);
         }
 
+        GeneralSelector(String base, Range range, List<Condition> conds, Subpart subpart) {
+            super(base, range, conds, subpart);
+        }
+
         public boolean matchesConditions(Environment e) {
             return super.matches(e);
         }
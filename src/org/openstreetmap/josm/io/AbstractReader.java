@@ -33,6 +33,7 @@ import org.openstreetmap.josm.data.osm.RelationData;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.RelationMemberData;
 import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.TagDictionary;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.UploadPolicy;
 import org.openstreetmap.josm.data.osm.User;
@@ -132,11 +133,13 @@ public abstract class AbstractReader {
      *
      */
     protected void processNodesAfterParsing() {
+        List<OsmPrimitive> nodes = new ArrayList<>();
         for (OsmPrimitive primitive: externalIdMap.values()) {
             if (primitive instanceof Node) {
-                this.ds.addPrimitive(primitive);
+                nodes.add(primitive);
             }
         }
+        this.ds.addPrimitives(nodes);
     }
 
     /**
@@ -146,6 +149,7 @@ public abstract class AbstractReader {
      * @throws IllegalDataException if a data integrity problem is detected
      */
     protected void processWaysAfterParsing() throws IllegalDataException {
+        List<Way> parsedWays = new ArrayList<>(ways.size());
         for (Entry<Long, Collection<Long>> entry : ways.entrySet()) {
             Long externalWayId = entry.getKey();
             Way w = (Way) externalIdMap.get(new SimplePrimitiveId(externalWayId, OsmPrimitiveType.WAY));
@@ -176,8 +180,9 @@ public abstract class AbstractReader {
                 Logging.info(tr("Way {0} with {1} nodes is incomplete because at least one node was missing in the loaded data.",
                         Long.toString(externalWayId), w.getNodesCount()));
             }
-            ds.addPrimitive(w);
+            parsedWays.add(w);
         }
+        ds.addPrimitives(parsedWays);
     }
 
     /**
@@ -189,12 +194,13 @@ public abstract class AbstractReader {
     protected void processRelationsAfterParsing() throws IllegalDataException {
 
         // First add all relations to make sure that when relation reference other relation, the referenced will be already in dataset
+        List<Relation> parsedRelations = new ArrayList<>(relations.size());
         for (Long externalRelationId : relations.keySet()) {
-            Relation relation = (Relation) externalIdMap.get(
+            parsedRelations.add((Relation) externalIdMap.get(
                     new SimplePrimitiveId(externalRelationId, OsmPrimitiveType.RELATION)
-            );
-            ds.addPrimitive(relation);
+            ));
         }
+        ds.addPrimitives(parsedRelations);
 
         for (Entry<Long, Collection<RelationMemberData>> entry : relations.entrySet()) {
             Long externalRelationId = entry.getKey();
@@ -280,8 +286,38 @@ public abstract class AbstractReader {
         void accept(InputStreamReader ir) throws IllegalDataException, IOException;
     }
 
+    @FunctionalInterface
+    protected interface BinaryParserWorker {
+        /**
+         * Effectively parses the file, for binary formats (PBF, etc.)
+         * @param is input stream
+         * @throws IllegalDataException in case of invalid data
+         * @throws IOException in case of I/O error
+         * @since xxx
+         */
+        void accept(InputStream is) throws IllegalDataException, IOException;
+    }
+
     protected final DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor, ParserWorker parserWorker)
             throws IllegalDataException {
+        return doParseBinaryDataSet(source, progressMonitor, is -> {
+            try (InputStreamReader ir = UTFInputStreamReader.create(is)) {
+                parserWorker.accept(ir);
+            }
+        });
+    }
+
+    /**
+     * Parses a binary input stream and prepares the data set, see {@link #doParseDataSet(InputStream, ProgressMonitor, ParserWorker)}.
+     * @param source input stream
+     * @param progressMonitor progress monitor, can be {@code null}
+     * @param parserWorker the parser
+     * @return the data set
+     * @throws IllegalDataException in case of invalid data
+     * @since xxx
+     */
+    protected final DataSet doParseBinaryDataSet(InputStream source, ProgressMonitor progressMonitor, BinaryParserWorker parserWorker)
+            throws IllegalDataException {
         if (progressMonitor == null) {
             progressMonitor = NullProgressMonitor.INSTANCE;
         }
@@ -292,9 +328,7 @@ public abstract class AbstractReader {
             progressMonitor.beginTask(tr("Prepare OSM data...", 2));
             progressMonitor.indeterminateSubTask(tr("Parsing OSM data..."));
 
-            try (InputStreamReader ir = UTFInputStreamReader.create(source)) {
-                parserWorker.accept(ir);
-            }
+            parserWorker.accept(source);
             progressMonitor.worked(1);
 
             boolean readOnly = getDataSet().isLocked();
@@ -549,7 +583,7 @@ public abstract class AbstractReader {
             // Drop the tag on import, but flag the primitive as modified
             ((AbstractPrimitive) t).setModified(true);
         } else {
-            t.put(key.intern(), value.intern());
+            t.put(TagDictionary.intern(key), TagDictionary.intern(value));
         }
     }
 
@@ -603,11 +637,22 @@ public abstract class AbstractReader {
         return !Double.isNaN(lat) && !Double.isNaN(lon);
     }
 
-    private Node addNode(NodeData nd, NodeReader nodeReader) throws IllegalDataException {
+    private static Node buildNode(NodeData nd, NodeReader nodeReader) throws IllegalDataException {
         Node n = new Node(nd.getId(), nd.getVersion());
         n.setVisible(nd.isVisible());
         n.load(nd);
         nodeReader.accept(n);
+        return n;
+    }
+
+    /**
+     * Registers a node that was built by {@link #buildNode(NodeData, String, String, CommonReader, NodeReader)}.
+     * @param nd node data, used to get the external id
+     * @param n node
+     * @return {@code n}
+     * @since xxx
+     */
+    protected final Node addNode(NodeData nd, Node n) {
         externalIdMap.put(nd.getPrimitiveId(), n);
         return n;
     }
@@ -615,6 +660,24 @@ public abstract class AbstractReader {
     protected final Node parseNode(double lat, double lon, CommonReader commonReader, NodeReader nodeReader)
             throws IllegalDataException {
         NodeData nd = new NodeData();
+        return addNode(nd, buildNode(nd, lat, lon, commonReader, nodeReader));
+    }
+
+    /**
+     * Builds a node without registering it in this reader.
+     * Like {@link #buildNode(NodeData, String, String, CommonReader, NodeReader)}, this method may be called from worker threads.
+     * @param nd node data, filled by this method
+     * @param lat latitude, may be {@link Double#NaN}
+     * @param lon longitude, may be {@link Double#NaN}
+     * @param commonReader reader of the common primitive attributes
+     * @param nodeReader reader of the node tags
+     * @return the new node
+     * @throws IllegalDataException in case of invalid data
+     * @see #addNode(NodeData, Node)
+     * @since xxx
+     */
+    protected final Node buildNode(NodeData nd, double lat, double lon, CommonReader commonReader, NodeReader nodeReader)
+            throws IllegalDataException {
         LatLon ll = null;
         if (areLatLonDefined(lat, lon)) {
             try {
@@ -629,12 +692,31 @@ public abstract class AbstractReader {
             throw new IllegalDataException(tr("Illegal value for attributes ''lat'', ''lon'' on node with ID {0}. Got ''{1}'', ''{2}''.",
                     Long.toString(nd.getId()), lat, lon));
         }
-        return addNode(nd, nodeReader);
+        return buildNode(nd, nodeReader);
     }
 
     protected final Node parseNode(String lat, String lon, CommonReader commonReader, NodeReader nodeReader)
             throws IllegalDataException {
         NodeData nd = new NodeData();
+        return addNode(nd, buildNode(nd, lat, lon, commonReader, nodeReader));
+    }
+
+    /**
+     * Builds a node without registering it in this reader.
+     * Unlike the {@code parse...} methods, this method does not modify the state of this reader and may be called from
+     * worker threads once the data set version is known.
+     * @param nd node data, filled by this method
+     * @param lat latitude, may be {@code null}
+     * @param lon longitude, may be {@code null}
+     * @param commonReader reader of the common primitive attributes
+     * @param nodeReader reader of the node tags
+     * @return the new node
+     * @throws IllegalDataException in case of invalid data
+     * @see #addNode(NodeData, Node)
+     * @since xxx
+     */
+    protected final Node buildNode(NodeData nd, String lat, String lon, CommonReader commonReader, NodeReader nodeReader)
+            throws IllegalDataException {
         LatLon ll = null;
         if (areLatLonDefined(lat, lon)) {
             try {
@@ -649,41 +731,99 @@ public abstract class AbstractReader {
             throw new IllegalDataException(tr("Illegal value for attributes ''lat'', ''lon'' on node with ID {0}. Got ''{1}'', ''{2}''.",
                     Long.toString(nd.getId()), lat, lon));
         }
-        return addNode(nd, nodeReader);
+        return buildNode(nd, nodeReader);
     }
 
     protected final Way parseWay(CommonReader commonReader, WayReader wayReader) throws IllegalDataException {
         WayData wd = new WayData();
+        Collection<Long> nodeIds = new ArrayList<>();
+        return addWay(wd, buildWay(wd, commonReader, wayReader, nodeIds), nodeIds);
+    }
+
+    /**
+     * Builds a way without registering it in this reader.
+     * Like {@link #buildNode(NodeData, String, String, CommonReader, NodeReader)}, this method may be called from worker threads.
+     * @param wd way data, filled by this method
+     * @param commonReader reader of the common primitive attributes
+     * @param wayReader reader of the way nodes and tags
+     * @param nodeIds collection of resulting node ids
+     * @return the new way
+     * @throws IllegalDataException in case of invalid data
+     * @see #addWay(WayData, Way, Collection)
+     * @since xxx
+     */
+    protected final Way buildWay(WayData wd, CommonReader commonReader, WayReader wayReader, Collection<Long> nodeIds)
+            throws IllegalDataException {
         commonReader.accept(wd);
         Way w = new Way(wd.getId(), wd.getVersion());
         w.setVisible(wd.isVisible());
         w.load(wd);
-        externalIdMap.put(wd.getPrimitiveId(), w);
 
-        Collection<Long> nodeIds = new ArrayList<>();
         wayReader.accept(w, nodeIds);
         if (w.isDeleted() && !nodeIds.isEmpty()) {
             Logging.info(tr("Deleted way {0} contains nodes", Long.toString(w.getUniqueId())));
-            nodeIds = new ArrayList<>();
+            nodeIds.clear();
         }
+        return w;
+    }
+
+    /**
+     * Registers a way that was built by {@link #buildWay(WayData, CommonReader, WayReader, Collection)}.
+     * @param wd way data, used to get the external id
+     * @param w way
+     * @param nodeIds ids of the way nodes
+     * @return {@code w}
+     * @since xxx
+     */
+    protected final Way addWay(WayData wd, Way w, Collection<Long> nodeIds) {
+        externalIdMap.put(wd.getPrimitiveId(), w);
         ways.put(wd.getUniqueId(), nodeIds);
         return w;
     }
 
     protected final Relation parseRelation(CommonReader commonReader, RelationReader relationReader) throws IllegalDataException {
         RelationData rd = new RelationData();
+        Collection<RelationMemberData> members = new ArrayList<>();
+        return addRelation(rd, buildRelation(rd, commonReader, relationReader, members), members);
+    }
+
+    /**
+     * Builds a relation without registering it in this reader.
+     * Like {@link #buildNode(NodeData, String, String, CommonReader, NodeReader)}, this method may be called from worker threads.
+     * @param rd relation data, filled by this method
+     * @param commonReader reader of the common primitive attributes
+     * @param relationReader reader of the relation members and tags
+     * @param members collection of resulting members
+     * @return the new relation
+     * @throws IllegalDataException in case of invalid data
+     * @see #addRelation(RelationData, Relation, Collection)
+     * @since xxx
+     */
+    protected final Relation buildRelation(RelationData rd, CommonReader commonReader, RelationReader relationReader,
+            Collection<RelationMemberData> members) throws IllegalDataException {
         commonReader.accept(rd);
         Relation r = new Relation(rd.getId(), rd.getVersion());
         r.setVisible(rd.isVisible());
         r.load(rd);
-        externalIdMap.put(rd.getPrimitiveId(), r);
 
-        Collection<RelationMemberData> members = new ArrayList<>();
         relationReader.accept(r, members);
         if (r.isDeleted() && !members.isEmpty()) {
             Logging.info(tr("Deleted relation {0} contains members", Long.toString(r.getUniqueId())));
-            members = new ArrayList<>();
+            members.clear();
         }
+        return r;
+    }
+
+    /**
+     * Registers a relation that was built by {@link #buildRelation(RelationData, CommonReader, RelationReader, Collection)}.
+     * @param rd relation data, used to get the external id
+     * @param r relation
+     * @param members relation members
+     * @return {@code r}
+     * @since xxx
+     */
+    protected final Relation addRelation(RelationData rd, Relation r, Collection<RelationMemberData> members) {
+        externalIdMap.put(rd.getPrimitiveId(), r);
         relations.put(rd.getUniqueId(), members);
         return r;
     }
@@ -12,18 +12,24 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Stack;
+import java.util.function.Consumer;
 
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.CompactGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.Extensions;
 import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxLink;
 import org.openstreetmap.josm.data.gpx.GpxRoute;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.XmlUtils;
@@ -61,13 +67,38 @@ public class GpxReader implements GpxConstants, IGpxReader {
     /** The resulting gpx data */
     private GpxData gpxData;
     private final InputSource inputSource;
+    private boolean compact;
+    private double decimation;
+    private GpxData streamingData;
+    private Consumer<Runnable> streamingExecutor;
+    private long streamingInterval;
 
     private class Parser extends DefaultHandler {
 
         private GpxData data;
-        private Collection<Collection<WayPoint>> currentTrack;
+        private List<GpxTrackSegment> currentTrack;
         private Map<String, Object> currentTrackAttr;
-        private Collection<WayPoint> currentTrackSeg;
+        private List<WayPoint> currentTrackSeg;
+        private CompactGpxTrackSegment.Builder currentCompactTrackSeg;
+        /** last track point added to the current segment, for decimation */
+        private LatLon lastTrackPoint;
+        /** last track point skipped by decimation, added if it ends the segment */
+        private WayPoint skippedTrackPoint;
+
+        /** tracks parsed but not yet added to {@link #streamingData} */
+        private final List<GpxTrack> pendingTracks = new ArrayList<>();
+        /** parts of the current track shown in {@link #streamingData}, replaced by the whole track when it ends */
+        private final List<GpxTrack> partialTracks = new ArrayList<>();
+        /** parts of the tracks parsed since the last batch, to remove from {@link #streamingData} */
+        private final List<GpxTrack> obsoleteTracks = new ArrayList<>();
+        /** points of the ended segments of the current track not yet shown in {@link #streamingData} */
+        private final List<List<WayPoint>> unpublishedSegments = new ArrayList<>();
+        /** points of the current segment not yet shown in {@link #streamingData} */
+        private final List<WayPoint> unpublishedPoints = new ArrayList<>();
+        /** last point of the current segment shown in {@link #streamingData}, to connect the next part */
+        private WayPoint lastPublishedPoint;
+        private int streamedTracks;
+        private long lastBatch;
         private GpxRoute currentRoute;
         private WayPoint currentWayPoint;
 
@@ -216,7 +247,14 @@ public class GpxReader implements GpxConstants, IGpxReader {
                 case "trkseg":
                     states.push(currentState);
                     currentState = State.TRKSEG;
-                    currentTrackSeg = new ArrayList<>();
+                    if (compact) {
+                        currentCompactTrackSeg = new CompactGpxTrackSegment.Builder();
+                    } else {
+                        currentTrackSeg = new ArrayList<>();
+                    }
+                    lastTrackPoint = null;
+                    skippedTrackPoint = null;
+                    lastPublishedPoint = null;
                     break;
                 case "link":
                     states.push(currentState);
@@ -454,7 +492,15 @@ public class GpxReader implements GpxConstants, IGpxReader {
                 case "trkpt":
                     currentState = states.pop();
                     convertUrlToLink(currentWayPoint.attr);
-                    currentTrackSeg.add(currentWayPoint);
+                    if (decimation > 0 && lastTrackPoint != null
+                            && lastTrackPoint.greatCircleDistance(currentWayPoint.getCoor()) < decimation) {
+                        skippedTrackPoint = currentWayPoint;
+                    } else {
+                        addTrackPoint(currentWayPoint);
+                    }
+                    if (streamingData != null) {
+                        publishIfDue();
+                    }
                     break;
                 case "wpt":
                     currentState = states.pop();
@@ -470,7 +516,18 @@ public class GpxReader implements GpxConstants, IGpxReader {
             case TRKSEG:
                 if ("trkseg".equals(localName)) {
                     currentState = states.pop();
-                    currentTrack.add(currentTrackSeg);
+                    if (skippedTrackPoint != null) {
+                        addTrackPoint(skippedTrackPoint);
+                    }
+                    GpxTrackSegment segment = buildTrackSegment();
+                    if (segment != null) {
+                        currentTrack.add(segment);
+                    }
+                    if (streamingData != null && !unpublishedPoints.isEmpty()) {
+                        unpublishedSegments.add(takeUnpublishedPoints());
+                    }
+                    currentTrackSeg = null;
+                    currentCompactTrackSeg = null;
                 }
                 break;
             case TRK:
@@ -478,7 +535,17 @@ public class GpxReader implements GpxConstants, IGpxReader {
                 case "trk":
                     currentState = states.pop();
                     convertUrlToLink(currentTrackAttr);
-                    data.addTrack(new ImmutableGpxTrack(currentTrack, currentTrackAttr));
+                    GpxTrack track = new ImmutableGpxTrack(currentTrack, currentTrackAttr);
+                    currentTrack = null;
+                    if (streamingData != null) {
+                        obsoleteTracks.addAll(partialTracks);
+                        partialTracks.clear();
+                        unpublishedSegments.clear();
+                        pendingTracks.add(track);
+                        publishIfDue();
+                    } else {
+                        data.addTrack(track);
+                    }
                     break;
                 case "name":
                 case "cmt":
@@ -524,7 +591,112 @@ public class GpxReader implements GpxConstants, IGpxReader {
             if (metaExt != null && "true".equals(metaExt.get("from-server"))) {
                 data.fromServer = true;
             }
-            gpxData = data;
+            if (streamingData != null) {
+                publish(true);
+                gpxData = streamingData;
+            } else {
+                gpxData = data;
+            }
+        }
+
+        private void addTrackPoint(WayPoint wp) {
+            if (compact) {
+                currentCompactTrackSeg.add(wp);
+            } else {
+                currentTrackSeg.add(wp);
+            }
+            lastTrackPoint = wp.getCoor();
+            skippedTrackPoint = null;
+            if (streamingData != null) {
+                unpublishedPoints.add(wp);
+            }
+        }
+
+        /**
+         * Takes the points of the current segment not yet shown, with the last point shown before to connect them.
+         * @return the points
+         */
+        private List<WayPoint> takeUnpublishedPoints() {
+            List<WayPoint> points = new ArrayList<>(unpublishedPoints.size() + 1);
+            if (lastPublishedPoint != null) {
+                points.add(lastPublishedPoint);
+            }
+            points.addAll(unpublishedPoints);
+            unpublishedPoints.clear();
+            lastPublishedPoint = points.get(points.size() - 1);
+            return points;
+        }
+
+        private GpxTrackSegment newTrackSegment(List<WayPoint> points) {
+            return compact ? new CompactGpxTrackSegment(points) : new ImmutableGpxTrackSegment(points);
+        }
+
+        private GpxTrackSegment buildTrackSegment() {
+            if (compact) {
+                return currentCompactTrackSeg.size() > 0 ? currentCompactTrackSeg.build() : null;
+            }
+            return currentTrackSeg.isEmpty() ? null : new ImmutableGpxTrackSegment(currentTrackSeg);
+        }
+
+        private void publishIfDue() {
+            if (System.currentTimeMillis() - lastBatch >= streamingInterval) {
+                publish(false);
+            }
+        }
+
+        /**
+         * Adds the tracks parsed so far to {@link #streamingData} in one batch. The points of the current track
+         * parsed since the last batch are added as a partial track; the partial tracks are replaced by the whole track
+         * when it ends. The last batch also adds the waypoints, routes and metadata.
+         * @param last {@code true} if the document is complete
+         */
+        private void publish(boolean last) {
+            List<GpxTrackSegment> segments = new ArrayList<>(unpublishedSegments.size() + 1);
+            for (List<WayPoint> points : unpublishedSegments) {
+                segments.add(newTrackSegment(points));
+            }
+            unpublishedSegments.clear();
+            if (!unpublishedPoints.isEmpty()) {
+                segments.add(newTrackSegment(takeUnpublishedPoints()));
+            }
+            final GpxTrack partialTrack = segments.isEmpty() ? null : new ImmutableGpxTrack(segments, currentTrackAttr);
+            if (partialTrack != null) {
+                partialTracks.add(partialTrack);
+            }
+            if (!last && pendingTracks.isEmpty() && obsoleteTracks.isEmpty() && partialTrack == null) {
+                return;
+            }
+            final List<GpxTrack> tracks = new ArrayList<>(pendingTracks);
+            final List<GpxTrack> obsolete = new ArrayList<>(obsoleteTracks);
+            final GpxData target = streamingData;
+            final GpxData source = data;
+            pendingTracks.clear();
+            obsoleteTracks.clear();
+            streamedTracks += tracks.size();
+            streamingExecutor.accept(() -> {
+                target.beginUpdate();
+                try {
+                    obsolete.forEach(target::removeTrack);
+                    tracks.forEach(target::addTrack);
+                    if (partialTrack != null) {
+                        target.addTrack(partialTrack);
+                    }
+                    if (last) {
+                        target.creator = source.creator;
+                        target.fromServer = source.fromServer;
+                        target.attr.putAll(source.attr);
+                        source.getRoutes().forEach(target::addRoute);
+                        source.getWaypoints().forEach(target::addWaypoint);
+                    }
+                } finally {
+                    target.endUpdate();
+                }
+            });
+            lastBatch = System.currentTimeMillis();
+        }
+
+        boolean isEmpty() {
+            return data.isEmpty() && streamedTracks == 0 && pendingTracks.isEmpty();
         }
 
         /**
@@ -568,6 +740,45 @@ public class GpxReader implements GpxConstants, IGpxReader {
         this.inputSource = new InputSource(filtered);
     }
 
+    /**
+     * Sets the compact mode. In compact mode, track segments are stored as {@link CompactGpxTrackSegment},
+     * which needs much less memory for large files. Must be called before {@link #parse}.
+     * @param compact {@code true} to enable the compact mode
+     * @since xxx
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * Sets the decimation distance. Track points closer than this distance to the previous point kept
+     * in the same segment are dropped, except the last point of each segment. Must be called before {@link #parse}.
+     * @param distance minimum distance between two track points, in meters. 0 keeps all points
+     * @since xxx
+     */
+    public void setDecimation(double distance) {
+        this.decimation = distance;
+    }
+
+    /**
+     * Enables the streaming mode. In streaming mode, the tracks are added to the given data while parsing,
+     * so that they can be displayed before the whole file is read. The track being parsed is shown
+     * as an incomplete copy, replaced in the next batch. Waypoints, routes and metadata are added at the end.
+     * <p>
+     * Each batch of changes is passed to {@code executor} and fires a single change event of {@code data}.
+     * The executor should wait for the batch to be done, e.g. run it in the event dispatch thread and wait.
+     * Must be called before {@link #parse}. {@link #getGpxData()} then returns {@code data}.
+     * @param data the data to add the parsed tracks to
+     * @param executor runs each batch of changes
+     * @param interval minimum time between two batches, in milliseconds
+     * @since xxx
+     */
+    public void setStreaming(GpxData data, Consumer<Runnable> executor, long interval) {
+        this.streamingData = Objects.requireNonNull(data, "data");
+        this.streamingExecutor = Objects.requireNonNull(executor, "executor");
+        this.streamingInterval = interval;
+    }
+
     /**
      * Parse the GPX data.
      *
@@ -587,7 +798,7 @@ public class GpxReader implements GpxConstants, IGpxReader {
         } catch (SAXException e) {
             if (tryToFinish) {
                 parser.tryToFinish();
-                if (parser.data.isEmpty())
+                if (parser.isEmpty())
                     throw e;
                 String message = e.getMessage();
                 if (e instanceof SAXParseException) {
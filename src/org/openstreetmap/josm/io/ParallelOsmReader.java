@@ -0,0 +1,391 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.Tagged;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.UncheckedParseException;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Parser for OSM XML files that uses several threads.
+ * <p>
+ * The work is split in a pipeline:
+ * <ol>
+ * <li>The calling thread tokenizes the XML stream. It only collects the raw attributes and children of each
+ * node, way and relation, which are grouped in batches.</li>
+ * <li>Worker threads convert the batches into primitives: numbers, dates, users and tags are parsed there.</li>
+ * <li>The calling thread registers the finished batches in document order and finally inserts all primitives
+ * into the data set in bulk, see {@link AbstractReader#prepareDataSet()}.</li>
+ * </ol>
+ * The resulting data set is the same as the one of {@link OsmReader}.
+ * @since xxx
+ */
+public class ParallelOsmReader extends OsmReader {
+
+    /**
+     * Determines if {@link org.openstreetmap.josm.gui.io.importexport.OsmImporter} uses this reader.
+     * Disabled by default, until a gain is measured on multi-core machines.
+     */
+    public static final BooleanProperty PROP_ENABLED = new BooleanProperty("osm-reader.parallel", false);
+
+    private static final int BATCH_SIZE = 2048;
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("osm-reader.numberOfThreads", "osm-reader-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
+    /**
+     * A node, way or relation as found in the XML stream, and the primitive that was built from it.
+     */
+    private static final class Element {
+        private final String type;
+        private final String[] attributes;
+        private final Location location;
+        /** key, value, key, value, ... */
+        private final List<String> tags = new ArrayList<>();
+        /** node refs of ways, or ref, type, role of each relation member */
+        private final List<String> refs = new ArrayList<>();
+
+        private PrimitiveData data;
+        private OsmPrimitive primitive;
+        private Collection<Long> nodeIds;
+        private Collection<RelationMemberData> members;
+
+        Element(String type, String[] attributes, Location location) {
+            this.type = type;
+            this.attributes = attributes;
+            this.location = location;
+        }
+
+        String getAttribute(String name) {
+            for (int i = 0; i < attributes.length; i += 2) {
+                if (name.equals(attributes[i])) {
+                    return attributes[i + 1];
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A copy of the parser location. The location of the parser itself is changed while parsing continues.
+     */
+    private static final class ElementLocation implements Location {
+        private final int line;
+        private final int column;
+        private final int offset;
+
+        ElementLocation(Location location) {
+            this.line = location.getLineNumber();
+            this.column = location.getColumnNumber();
+            this.offset = location.getCharacterOffset();
+        }
+
+        @Override
+        public int getLineNumber() {
+            return line;
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return column;
+        }
+
+        @Override
+        public int getCharacterOffset() {
+            return offset;
+        }
+
+        @Override
+        public String getPublicId() {
+            return null;
+        }
+
+        @Override
+        public String getSystemId() {
+            return null;
+        }
+    }
+
+    private final int maxPendingBatches = 4 * (THREAD_POOL != null ? THREAD_POOL.getParallelism() : 1);
+    private final Deque<Future<List<Element>>> pendingBatches = new ArrayDeque<>();
+    private List<Element> batch = new ArrayList<>(BATCH_SIZE);
+
+    /**
+     * constructor (for private and subclasses use only)
+     *
+     * @see #parseDataSet(InputStream, ProgressMonitor)
+     */
+    protected ParallelOsmReader() {
+        // Restricts visibility
+    }
+
+    @Override
+    protected void parse() throws XMLStreamException {
+        try {
+            super.parse();
+            submitBatch();
+            while (!pendingBatches.isEmpty()) {
+                addBatch(pendingBatches.poll());
+            }
+        } finally {
+            for (Future<List<Element>> f : pendingBatches) {
+                f.cancel(true);
+            }
+            pendingBatches.clear();
+        }
+    }
+
+    /**
+     * Reads a node. It is built asynchronously.
+     * @return always {@code null}
+     * @throws XMLStreamException if the XML stream cannot be read
+     */
+    @Override
+    protected Node parseNode() throws XMLStreamException {
+        readElement("node");
+        return null;
+    }
+
+    /**
+     * Reads a way. It is built asynchronously.
+     * @return always {@code null}
+     * @throws XMLStreamException if the XML stream cannot be read
+     */
+    @Override
+    protected Way parseWay() throws XMLStreamException {
+        readElement("way");
+        return null;
+    }
+
+    /**
+     * Reads a relation. It is built asynchronously.
+     * @return always {@code null}
+     * @throws XMLStreamException if the XML stream cannot be read
+     */
+    @Override
+    protected Relation parseRelation() throws XMLStreamException {
+        readElement("relation");
+        return null;
+    }
+
+    private void readElement(String type) throws XMLStreamException {
+        String[] attributes = new String[2 * parser.getAttributeCount()];
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            attributes[2 * i] = parser.getAttributeLocalName(i);
+            attributes[2 * i + 1] = parser.getAttributeValue(i);
+        }
+        Element element = new Element(type, attributes, new ElementLocation(parser.getLocation()));
+        while (parser.hasNext()) {
+            int event = parser.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String child = parser.getLocalName();
+                if ("tag".equals(child)) {
+                    element.tags.add(parser.getAttributeValue(null, "k"));
+                    element.tags.add(parser.getAttributeValue(null, "v"));
+                    jumpToEnd();
+                } else if ("nd".equals(child) && "way".equals(type)) {
+                    element.refs.add(parser.getAttributeValue(null, "ref"));
+                    jumpToEnd();
+                } else if ("member".equals(child) && "relation".equals(type)) {
+                    element.refs.add(parser.getAttributeValue(null, "ref"));
+                    element.refs.add(parser.getAttributeValue(null, "type"));
+                    element.refs.add(parser.getAttributeValue(null, "role"));
+                    jumpToEnd();
+                } else {
+                    parseUnknown();
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+        }
+        batch.add(element);
+        if (batch.size() >= BATCH_SIZE) {
+            submitBatch();
+        }
+    }
+
+    private void submitBatch() throws XMLStreamException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<Element> elements = batch;
+        batch = new ArrayList<>(BATCH_SIZE);
+        FutureTask<List<Element>> task = new FutureTask<>(() -> buildPrimitives(elements));
+        if (THREAD_POOL != null) {
+            THREAD_POOL.execute(task);
+        } else {
+            task.run();
+        }
+        pendingBatches.add(task);
+        // Register the batches that are already done and limit the memory used by pending batches
+        while (!pendingBatches.isEmpty() && (pendingBatches.size() > maxPendingBatches || pendingBatches.peek().isDone())) {
+            addBatch(pendingBatches.poll());
+        }
+    }
+
+    private void addBatch(Future<List<Element>> future) throws XMLStreamException {
+        List<Element> elements;
+        try {
+            elements = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XmlStreamParsingException(tr("Reading was canceled"), parser.getLocation(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XMLStreamException) {
+                throw (XMLStreamException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new XmlStreamParsingException(e.getCause().getMessage(), parser.getLocation(), e.getCause());
+        }
+        for (Element element : elements) {
+            if (element.primitive instanceof Node) {
+                addNode((NodeData) element.data, (Node) element.primitive);
+            } else if (element.primitive instanceof Way) {
+                addWay((WayData) element.data, (Way) element.primitive, element.nodeIds);
+            } else {
+                addRelation((RelationData) element.data, (Relation) element.primitive, element.members);
+            }
+        }
+    }
+
+    /**
+     * Builds the primitives of a batch. Called by the worker threads.
+     * @param elements the batch
+     * @return the same batch, with the primitives set
+     * @throws XMLStreamException if the data of an element is invalid
+     */
+    private List<Element> buildPrimitives(List<Element> elements) throws XMLStreamException {
+        for (Element element : elements) {
+            try {
+                buildPrimitive(element);
+            } catch (IllegalDataException e) {
+                throw new XmlStreamParsingException(e.getMessage(), element.location, e);
+            }
+        }
+        return elements;
+    }
+
+    private void buildPrimitive(Element element) throws IllegalDataException {
+        switch (element.type) {
+        case "node":
+            NodeData nd = new NodeData();
+            element.data = nd;
+            element.primitive = buildNode(nd, element.getAttribute("lat"), element.getAttribute("lon"),
+                    pd -> readCommon(element, pd), n -> readTags(element, n));
+            break;
+        case "way":
+            WayData wd = new WayData();
+            element.data = wd;
+            element.nodeIds = new ArrayList<>(element.refs.size());
+            element.primitive = buildWay(wd, pd -> readCommon(element, pd),
+                    (w, nodeIds) -> readWayNodesAndTags(element, w, nodeIds), element.nodeIds);
+            break;
+        default:
+            RelationData rd = new RelationData();
+            element.data = rd;
+            element.members = new ArrayList<>(element.refs.size() / 3);
+            element.primitive = buildRelation(rd, pd -> readCommon(element, pd),
+                    (r, members) -> readRelationMembersAndTags(element, r, members), element.members);
+        }
+        // the raw data is not needed any more
+        element.tags.clear();
+        element.refs.clear();
+    }
+
+    private void readCommon(Element element, PrimitiveData current) throws IllegalDataException {
+        try {
+            parseId(current, getLong("id", element.getAttribute("id")));
+            parseTimestamp(current, element.getAttribute("timestamp"));
+            parseUser(current, element.getAttribute("user"), element.getAttribute("uid"));
+            parseVisible(current, element.getAttribute("visible"));
+            parseVersion(current, element.getAttribute("version"));
+            parseAction(current, element.getAttribute("action"));
+            parseChangeset(current, element.getAttribute("changeset"));
+        } catch (UncheckedParseException e) {
+            throw new IllegalDataException(e);
+        }
+    }
+
+    private void readTags(Element element, Tagged t) throws IllegalDataException {
+        for (int i = 0; i < element.tags.size(); i += 2) {
+            parseTag(t, element.tags.get(i), element.tags.get(i + 1));
+        }
+    }
+
+    private void readWayNodesAndTags(Element element, Way w, Collection<Long> nodeIds) throws IllegalDataException {
+        for (String ref : element.refs) {
+            if (ref == null) {
+                throw new IllegalDataException(
+                        tr("Missing mandatory attribute ''{0}'' on <nd> of way {1}.", "ref", Long.toString(w.getUniqueId())));
+            }
+            long id = getLong("ref", ref);
+            if (id == 0) {
+                throw new IllegalDataException(
+                        tr("Illegal value of attribute ''ref'' of element <nd>. Got {0}.", Long.toString(id)));
+            }
+            nodeIds.add(id);
+        }
+        readTags(element, w);
+    }
+
+    private void readRelationMembersAndTags(Element element, Relation r, Collection<RelationMemberData> members)
+            throws IllegalDataException {
+        for (int i = 0; i < element.refs.size(); i += 3) {
+            members.add(parseRelationMember(r, element.refs.get(i), element.refs.get(i + 1), element.refs.get(i + 2)));
+        }
+        readTags(element, r);
+    }
+
+    /**
+     * Parse the given input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return new ParallelOsmReader().doParseDataSet(source, progressMonitor);
+    }
+}
@@ -0,0 +1,749 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.Tagged;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Parser for the OSM PBF format.
+ * <p>
+ * A PBF file is a sequence of blobs, each holding a protocol buffer message. The first blob is the file header, every
+ * following data blob contains up to a few thousand primitives. Data blobs are independent of each other, so they are
+ * decompressed and decoded by worker threads while the calling thread continues reading the file. The decoded primitives
+ * are registered in file order, the resulting data set is the same as the one of {@link OsmReader} for the same data.
+ * <p>
+ * Only uncompressed and zlib compressed blobs are supported, as written by all common tools.
+ * @see PbfWriter
+ * @see <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">PBF Format</a>
+ * @since xxx
+ */
+public class PbfReader extends AbstractReader {
+
+    /** The maximum size of a blob header, as defined by the format */
+    private static final int MAX_BLOB_HEADER_SIZE = 64 * 1024;
+    /** The maximum size of a blob, as defined by the format */
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+    private static final List<String> SUPPORTED_FEATURES = Arrays.asList("OsmSchema-V0.6", "DenseNodes");
+
+    private static final String[] MEMBER_TYPES = {
+        OsmPrimitiveType.NODE.getAPIName(), OsmPrimitiveType.WAY.getAPIName(), OsmPrimitiveType.RELATION.getAPIName()};
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("pbf-reader.numberOfThreads", "pbf-reader-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
+    /**
+     * The shared data of a primitive block: the string table and the units of coordinates and dates.
+     */
+    private static final class Block {
+        private String[] strings = new String[0];
+        private long granularity = 100;
+        private long latOffset;
+        private long lonOffset;
+        private long dateGranularity = 1000;
+
+        String getString(long index) throws IllegalDataException {
+            if (index < 0 || index >= strings.length) {
+                throw new IllegalDataException(tr("Invalid string table index {0}", Long.toString(index)));
+            }
+            return strings[(int) index];
+        }
+
+        double getLat(long lat) {
+            return 1e-9 * (latOffset + granularity * lat);
+        }
+
+        double getLon(long lon) {
+            return 1e-9 * (lonOffset + granularity * lon);
+        }
+    }
+
+    /**
+     * The metadata of a primitive. Values that are not present are negative, or 0 for the changeset.
+     */
+    private static final class Info {
+        private long version = -1;
+        private long timestamp = -1;
+        private long changeset;
+        private long uid = -1;
+        private long userSid = -1;
+        private boolean visible = true;
+    }
+
+    /**
+     * A primitive built by a worker thread, with the data needed to register it.
+     */
+    private static final class Entry {
+        private final PrimitiveData data;
+        private final OsmPrimitive primitive;
+        private final Collection<Long> nodeIds;
+        private final Collection<RelationMemberData> members;
+
+        Entry(PrimitiveData data, OsmPrimitive primitive, Collection<Long> nodeIds, Collection<RelationMemberData> members) {
+            this.data = data;
+            this.primitive = primitive;
+            this.nodeIds = nodeIds;
+            this.members = members;
+        }
+    }
+
+    /**
+     * Exception thrown after user cancelation.
+     */
+    private static final class PbfParsingCanceledException extends IllegalDataException implements ImportCancelException {
+        /**
+         * Constructs a new {@code PbfParsingCanceledException}.
+         */
+        PbfParsingCanceledException() {
+            super(tr("Reading was canceled"));
+        }
+    }
+
+    private final int maxPendingBlocks = 2 * (THREAD_POOL != null ? THREAD_POOL.getParallelism() : 1);
+    private final Deque<Future<List<Entry>>> pendingBlocks = new ArrayDeque<>();
+
+    /**
+     * constructor (for private and subclasses use only)
+     *
+     * @see #parseDataSet(InputStream, ProgressMonitor)
+     */
+    protected PbfReader() {
+        // Restricts visibility
+    }
+
+    @Override
+    protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return doParseBinaryDataSet(source, progressMonitor, this::parse);
+    }
+
+    private void parse(InputStream source) throws IllegalDataException, IOException {
+        // the version is needed by the worker threads
+        ds.setVersion("0.6");
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source));
+        try {
+            while (true) {
+                if (cancel) {
+                    throw new PbfParsingCanceledException();
+                }
+                int headerSize;
+                try {
+                    headerSize = in.readInt();
+                } catch (EOFException e) {
+                    Logging.trace(e);
+                    break;
+                }
+                if (headerSize < 0 || headerSize > MAX_BLOB_HEADER_SIZE) {
+                    throw new IllegalDataException(tr("Invalid PBF blob header size: {0}", headerSize));
+                }
+                byte[] header = new byte[headerSize];
+                in.readFully(header);
+                String type = null;
+                long dataSize = -1;
+                ProtobufDecoder blobHeader = new ProtobufDecoder(header);
+                while (blobHeader.hasNext()) {
+                    switch (blobHeader.nextField()) {
+                    case 1:
+                        type = blobHeader.readString();
+                        break;
+                    case 3:
+                        dataSize = blobHeader.readVarint();
+                        break;
+                    default:
+                        blobHeader.skip();
+                    }
+                }
+                if (type == null || dataSize < 0 || dataSize > MAX_BLOB_SIZE) {
+                    throw new IllegalDataException(tr("Invalid PBF blob header"));
+                }
+                byte[] blob = new byte[(int) dataSize];
+                in.readFully(blob);
+                if ("OSMHeader".equals(type)) {
+                    parseHeader(new ProtobufDecoder(decompress(blob)));
+                } else if ("OSMData".equals(type)) {
+                    submitBlock(blob);
+                } else {
+                    Logging.info(tr("Skipping unknown PBF blob type ''{0}''", type));
+                }
+            }
+            while (!pendingBlocks.isEmpty()) {
+                addBlock(pendingBlocks.poll());
+            }
+        } catch (EOFException e) {
+            throw new IllegalDataException(tr("Unexpected end of PBF file"), e);
+        } finally {
+            for (Future<List<Entry>> f : pendingBlocks) {
+                f.cancel(true);
+            }
+            pendingBlocks.clear();
+        }
+    }
+
+    private void parseHeader(ProtobufDecoder header) throws IllegalDataException {
+        ProtobufDecoder bbox = null;
+        String program = null;
+        String source = null;
+        while (header.hasNext()) {
+            switch (header.nextField()) {
+            case 1:
+                bbox = header.readMessage();
+                break;
+            case 4:
+                String feature = header.readString();
+                if (!SUPPORTED_FEATURES.contains(feature)) {
+                    throw new IllegalDataException(tr("Unsupported PBF feature: {0}", feature));
+                }
+                break;
+            case 16:
+                program = header.readString();
+                break;
+            case 17:
+                source = header.readString();
+                break;
+            default:
+                header.skip();
+            }
+        }
+        if (bbox != null) {
+            double[] values = new double[4];
+            while (bbox.hasNext()) {
+                int field = bbox.nextField();
+                if (field >= 1 && field <= 4) {
+                    values[field - 1] = 1e-9 * bbox.readSignedVarint();
+                } else {
+                    bbox.skip();
+                }
+            }
+            // left, right, top, bottom
+            parseBounds(program, Double.toString(values[0]), Double.toString(values[3]),
+                    Double.toString(values[1]), Double.toString(values[2]), source);
+        }
+    }
+
+    private static byte[] decompress(byte[] blob) throws IllegalDataException {
+        ProtobufDecoder decoder = new ProtobufDecoder(blob);
+        byte[] raw = null;
+        byte[] zlib = null;
+        long rawSize = -1;
+        while (decoder.hasNext()) {
+            switch (decoder.nextField()) {
+            case 1:
+                raw = decoder.readBytes();
+                break;
+            case 2:
+                rawSize = decoder.readVarint();
+                break;
+            case 3:
+                zlib = decoder.readBytes();
+                break;
+            case 4:
+            case 5:
+            case 6:
+            case 7:
+                throw new IllegalDataException(tr("Unsupported PBF blob compression"));
+            default:
+                decoder.skip();
+            }
+        }
+        if (raw != null) {
+            return raw;
+        }
+        if (zlib == null || rawSize < 0 || rawSize > MAX_BLOB_SIZE) {
+            throw new IllegalDataException(tr("Invalid PBF blob"));
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlib);
+            byte[] result = new byte[(int) rawSize];
+            int length = 0;
+            while (length < result.length && !inflater.finished() && !inflater.needsInput()) {
+                length += inflater.inflate(result, length, result.length - length);
+            }
+            if (length != result.length) {
+                throw new IllegalDataException(tr("Invalid PBF blob"));
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void submitBlock(byte[] blob) throws IllegalDataException {
+        FutureTask<List<Entry>> task = new FutureTask<>(() -> parseBlock(blob));
+        if (THREAD_POOL != null) {
+            THREAD_POOL.execute(task);
+        } else {
+            task.run();
+        }
+        pendingBlocks.add(task);
+        // Register the blocks that are already done and limit the memory used by pending blocks
+        while (!pendingBlocks.isEmpty() && (pendingBlocks.size() > maxPendingBlocks || pendingBlocks.peek().isDone())) {
+            addBlock(pendingBlocks.poll());
+        }
+    }
+
+    private void addBlock(Future<List<Entry>> future) throws IllegalDataException {
+        List<Entry> entries;
+        try {
+            entries = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalDataException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalDataException) {
+                throw (IllegalDataException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalDataException(e.getCause());
+        }
+        for (Entry entry : entries) {
+            if (entry.primitive instanceof Node) {
+                addNode((NodeData) entry.data, (Node) entry.primitive);
+            } else if (entry.primitive instanceof Way) {
+                addWay((WayData) entry.data, (Way) entry.primitive, entry.nodeIds);
+            } else {
+                addRelation((RelationData) entry.data, (Relation) entry.primitive, entry.members);
+            }
+        }
+    }
+
+    /**
+     * Decodes a primitive block. Called by the worker threads.
+     * @param blob the compressed block
+     * @return the primitives of the block
+     * @throws IllegalDataException if the block is invalid
+     */
+    private List<Entry> parseBlock(byte[] blob) throws IllegalDataException {
+        ProtobufDecoder decoder = new ProtobufDecoder(decompress(blob));
+        Block block = new Block();
+        // the groups are stored before the granularity, so they are decoded in a second pass
+        List<ProtobufDecoder> groups = new ArrayList<>();
+        while (decoder.hasNext()) {
+            switch (decoder.nextField()) {
+            case 1:
+                block.strings = parseStringTable(decoder.readMessage());
+                break;
+            case 2:
+                groups.add(decoder.readMessage());
+                break;
+            case 17:
+                block.granularity = decoder.readVarint();
+                break;
+            case 18:
+                block.dateGranularity = decoder.readVarint();
+                break;
+            case 19:
+                block.latOffset = decoder.readVarint();
+                break;
+            case 20:
+                block.lonOffset = decoder.readVarint();
+                break;
+            default:
+                decoder.skip();
+            }
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (ProtobufDecoder group : groups) {
+            while (group.hasNext()) {
+                switch (group.nextField()) {
+                case 1:
+                    entries.add(parseNode(block, group.readMessage()));
+                    break;
+                case 2:
+                    parseDenseNodes(block, group.readMessage(), entries);
+                    break;
+                case 3:
+                    entries.add(parseWay(block, group.readMessage()));
+                    break;
+                case 4:
+                    entries.add(parseRelation(block, group.readMessage()));
+                    break;
+                default:
+                    // changesets are not supported
+                    group.skip();
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static String[] parseStringTable(ProtobufDecoder table) throws IllegalDataException {
+        List<String> strings = new ArrayList<>();
+        while (table.hasNext()) {
+            if (table.nextField() == 1) {
+                strings.add(table.readString());
+            } else {
+                table.skip();
+            }
+        }
+        return strings.toArray(new String[0]);
+    }
+
+    private static Info parseInfo(ProtobufDecoder decoder) throws IllegalDataException {
+        Info info = new Info();
+        while (decoder.hasNext()) {
+            switch (decoder.nextField()) {
+            case 1:
+                info.version = decoder.readVarint();
+                break;
+            case 2:
+                info.timestamp = decoder.readVarint();
+                break;
+            case 3:
+                info.changeset = decoder.readVarint();
+                break;
+            case 4:
+                info.uid = decoder.readVarint();
+                break;
+            case 5:
+                info.userSid = decoder.readVarint();
+                break;
+            case 6:
+                info.visible = decoder.readVarint() != 0;
+                break;
+            default:
+                decoder.skip();
+            }
+        }
+        return info;
+    }
+
+    private void readCommon(Block block, PrimitiveData current, long id, Info info) throws IllegalDataException {
+        parseId(current, id);
+        if (info == null || info.version < 0) {
+            // Files without metadata: a primitive without version would be incomplete
+            parseVersion(current, current.isNew() ? 0 : 1);
+        } else {
+            parseVersion(current, (int) info.version);
+        }
+        if (info == null) {
+            return;
+        }
+        if (info.timestamp >= 0) {
+            current.setRawTimestamp((int) (info.timestamp * block.dateGranularity / 1000));
+        }
+        if (info.uid > 0) {
+            parseUser(current, info.userSid >= 0 ? block.getString(info.userSid) : null, info.uid);
+        }
+        current.setVisible(info.visible);
+        if (info.changeset != 0) {
+            parseChangeset(current, (int) info.changeset);
+        }
+    }
+
+    private void readTags(Block block, Tagged t, long[] keys, long[] values) throws IllegalDataException {
+        if (keys.length != values.length) {
+            throw new IllegalDataException(tr("Number of tag keys and values differ"));
+        }
+        for (int i = 0; i < keys.length; i++) {
+            parseTag(t, block.getString(keys[i]), block.getString(values[i]));
+        }
+    }
+
+    private Entry parseNode(Block block, ProtobufDecoder decoder) throws IllegalDataException {
+        long id = 0;
+        long lat = 0;
+        long lon = 0;
+        long[] keys = new long[0];
+        long[] values = new long[0];
+        Info info = null;
+        while (decoder.hasNext()) {
+            switch (decoder.nextField()) {
+            case 1:
+                id = decoder.readSignedVarint();
+                break;
+            case 2:
+                keys = decoder.readVarints(keys);
+                break;
+            case 3:
+                values = decoder.readVarints(values);
+                break;
+            case 4:
+                info = parseInfo(decoder.readMessage());
+                break;
+            case 8:
+                lat = decoder.readSignedVarint();
+                break;
+            case 9:
+                lon = decoder.readSignedVarint();
+                break;
+            default:
+                decoder.skip();
+            }
+        }
+        final long nodeId = id;
+        final Info nodeInfo = info;
+        final long[] nodeKeys = keys;
+        final long[] nodeValues = values;
+        NodeData nd = new NodeData();
+        Node n = buildNode(nd, block.getLat(lat), block.getLon(lon),
+                pd -> readCommon(block, pd, nodeId, nodeInfo), node -> readTags(block, node, nodeKeys, nodeValues));
+        return new Entry(nd, n, null, null);
+    }
+
+    private void parseDenseNodes(Block block, ProtobufDecoder decoder, List<Entry> entries) throws IllegalDataException {
+        long[] ids = new long[0];
+        long[] lats = new long[0];
+        long[] lons = new long[0];
+        long[] tags = new long[0];
+        ProtobufDecoder denseInfo = null;
+        while (decoder.hasNext()) {
+            switch (decoder.nextField()) {
+            case 1:
+                ids = decoder.readVarints(ids);
+                break;
+            case 5:
+                denseInfo = decoder.readMessage();
+                break;
+            case 8:
+                lats = decoder.readVarints(lats);
+                break;
+            case 9:
+                lons = decoder.readVarints(lons);
+                break;
+            case 10:
+                tags = decoder.readVarints(tags);
+                break;
+            default:
+                decoder.skip();
+            }
+        }
+        if (lats.length != ids.length || lons.length != ids.length) {
+            throw new IllegalDataException(tr("Invalid PBF dense nodes"));
+        }
+        long[][] infos = new long[6][];
+        if (denseInfo != null) {
+            while (denseInfo.hasNext()) {
+                int field = denseInfo.nextField();
+                if (field >= 1 && field <= 6) {
+                    infos[field - 1] = denseInfo.readVarints(infos[field - 1] != null ? infos[field - 1] : new long[0]);
+                } else {
+                    denseInfo.skip();
+                }
+            }
+        }
+        final long[] keysVals = tags;
+        long id = 0;
+        long lat = 0;
+        long lon = 0;
+        // timestamp, changeset, uid and user_sid are delta coded
+        long[] deltas = new long[6];
+        int keyVal = 0;
+        for (int i = 0; i < ids.length; i++) {
+            id += ProtobufDecoder.decodeZigZag(ids[i]);
+            lat += ProtobufDecoder.decodeZigZag(lats[i]);
+            lon += ProtobufDecoder.decodeZigZag(lons[i]);
+            Info info = null;
+            if (denseInfo != null) {
+                info = new Info();
+                info.version = getDenseValue(infos[0], i, -1);
+                for (int field = 1; field <= 4; field++) {
+                    deltas[field] += ProtobufDecoder.decodeZigZag(getDenseValue(infos[field], i, 0));
+                }
+                info.timestamp = infos[1] != null ? deltas[1] : -1;
+                info.changeset = deltas[2];
+                info.uid = infos[3] != null ? deltas[3] : -1;
+                info.userSid = infos[4] != null ? deltas[4] : -1;
+                info.visible = getDenseValue(infos[5], i, 1) != 0;
+            }
+            // keys_vals is empty if no node of the block has tags
+            final int tagsStart = keyVal;
+            if (keysVals.length > 0) {
+                while (keyVal < keysVals.length && keysVals[keyVal] != 0) {
+                    keyVal += 2;
+                }
+                if (keyVal >= keysVals.length) {
+                    throw new IllegalDataException(tr("Number of tag keys and values differ"));
+                }
+            }
+            final long nodeId = id;
+            final Info nodeInfo = info;
+            final int tagsEnd = keyVal;
+            if (keysVals.length > 0) {
+                // skip the 0 delimiter
+                keyVal++;
+            }
+            NodeData nd = new NodeData();
+            Node n = buildNode(nd, block.getLat(lat), block.getLon(lon),
+                    pd -> readCommon(block, pd, nodeId, nodeInfo), node -> {
+                        for (int k = tagsStart; k < tagsEnd; k += 2) {
+                            parseTag(node, block.getString(keysVals[k]), block.getString(keysVals[k + 1]));
+                        }
+                    });
+            entries.add(new Entry(nd, n, null, null));
+        }
+    }
+
+    private static long getDenseValue(long[] values, int index, long defaultValue) throws IllegalDataException {
+        if (values == null) {
+            return defaultValue;
+        }
+        if (index >= values.length) {
+            throw new IllegalDataException(tr("Invalid PBF dense nodes"));
+        }
+        return values[index];
+    }
+
+    private Entry parseWay(Block block, ProtobufDecoder decoder) throws IllegalDataException {
+        long id = 0;
+        long[] keys = new long[0];
+        long[] values = new long[0];
+        long[] refs = new long[0];
+        Info info = null;
+        while (decoder.hasNext()) {
+            switch (decoder.nextField()) {
+            case 1:
+                id = decoder.readVarint();
+                break;
+            case 2:
+                keys = decoder.readVarints(keys);
+                break;
+            case 3:
+                values = decoder.readVarints(values);
+                break;
+            case 4:
+                info = parseInfo(decoder.readMessage());
+                break;
+            case 8:
+                refs = decoder.readVarints(refs);
+                break;
+            default:
+                decoder.skip();
+            }
+        }
+        final long wayId = id;
+        final Info wayInfo = info;
+        final long[] wayKeys = keys;
+        final long[] wayValues = values;
+        final long[] wayRefs = refs;
+        WayData wd = new WayData();
+        Collection<Long> nodeIds = new ArrayList<>(refs.length);
+        Way w = buildWay(wd, pd -> readCommon(block, pd, wayId, wayInfo), (way, ids) -> {
+            long ref = 0;
+            for (long delta : wayRefs) {
+                ref += ProtobufDecoder.decodeZigZag(delta);
+                ids.add(ref);
+            }
+            readTags(block, way, wayKeys, wayValues);
+        }, nodeIds);
+        return new Entry(wd, w, nodeIds, null);
+    }
+
+    private Entry parseRelation(Block block, ProtobufDecoder decoder) throws IllegalDataException {
+        long id = 0;
+        long[] keys = new long[0];
+        long[] values = new long[0];
+        long[] roles = new long[0];
+        long[] memberIds = new long[0];
+        long[] types = new long[0];
+        Info info = null;
+        while (decoder.hasNext()) {
+            switch (decoder.nextField()) {
+            case 1:
+                id = decoder.readVarint();
+                break;
+            case 2:
+                keys = decoder.readVarints(keys);
+                break;
+            case 3:
+                values = decoder.readVarints(values);
+                break;
+            case 4:
+                info = parseInfo(decoder.readMessage());
+                break;
+            case 8:
+                roles = decoder.readVarints(roles);
+                break;
+            case 9:
+                memberIds = decoder.readVarints(memberIds);
+                break;
+            case 10:
+                types = decoder.readVarints(types);
+                break;
+            default:
+                decoder.skip();
+            }
+        }
+        if (roles.length != memberIds.length || types.length != memberIds.length) {
+            throw new IllegalDataException(tr("Invalid PBF relation members"));
+        }
+        final long relationId = id;
+        final Info relationInfo = info;
+        final long[] relationKeys = keys;
+        final long[] relationValues = values;
+        final long[] relationRoles = roles;
+        final long[] relationMemberIds = memberIds;
+        final long[] relationTypes = types;
+        RelationData rd = new RelationData();
+        Collection<RelationMemberData> members = new ArrayList<>(memberIds.length);
+        Relation r = buildRelation(rd, pd -> readCommon(block, pd, relationId, relationInfo), (relation, list) -> {
+            long memberId = 0;
+            for (int i = 0; i < relationMemberIds.length; i++) {
+                memberId += ProtobufDecoder.decodeZigZag(relationMemberIds[i]);
+                long type = relationTypes[i];
+                String typeName = type >= 0 && type < MEMBER_TYPES.length ? MEMBER_TYPES[(int) type] : Long.toString(type);
+                list.add(parseRelationMember(relation, memberId, typeName, block.getString(relationRoles[i])));
+            }
+            readTags(block, relation, relationKeys, relationValues);
+        }, members);
+        return new Entry(rd, r, null, members);
+    }
+
+    /**
+     * Parse the given input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return new PbfReader().doParseDataSet(source, progressMonitor);
+    }
+}
@@ -0,0 +1,300 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Writes a data set in the OSM PBF format.
+ * <p>
+ * Nodes are stored as dense nodes. Primitives are sorted by type, then by id, and are grouped in zlib compressed blocks
+ * of {@value #BLOCK_SIZE} primitives. The format does not know about local modifications: deleted primitives, incomplete
+ * primitives and nodes without coordinates are not written, new primitives are written with their negative ids.
+ * @see PbfReader
+ * @since xxx
+ */
+public class PbfWriter implements Closeable {
+
+    /** The number of primitives per block */
+    public static final int BLOCK_SIZE = 8000;
+
+    private static final Comparator<OsmPrimitive> ID_ORDER = Comparator.comparingLong(OsmPrimitive::getUniqueId);
+
+    private final DataOutputStream out;
+
+    /**
+     * The string table of a block. Index 0 is reserved as delimiter.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        StringTable() {
+            strings.add("");
+        }
+
+        int get(String s) {
+            return indices.computeIfAbsent(s, k -> {
+                strings.add(k);
+                return strings.size() - 1;
+            });
+        }
+
+        ProtobufEncoder encode() {
+            ProtobufEncoder encoder = new ProtobufEncoder();
+            for (String s : strings) {
+                encoder.writeString(1, s);
+            }
+            return encoder;
+        }
+    }
+
+    /**
+     * Constructs a new {@code PbfWriter}.
+     * @param out the output stream, closed by {@link #close()}
+     */
+    public PbfWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Writes a data set: the file header, then all nodes, ways and relations.
+     * @param ds the data set
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(DataSet ds) throws IOException {
+        ds.getReadLock().lock();
+        try {
+            writeHeader(ds);
+            List<Node> nodes = sorted(ds.getNodes());
+            for (int i = 0; i < nodes.size(); i += BLOCK_SIZE) {
+                writeNodes(nodes.subList(i, Math.min(i + BLOCK_SIZE, nodes.size())));
+            }
+            List<Way> ways = sorted(ds.getWays());
+            for (int i = 0; i < ways.size(); i += BLOCK_SIZE) {
+                writeWays(ways.subList(i, Math.min(i + BLOCK_SIZE, ways.size())));
+            }
+            List<Relation> relations = sorted(ds.getRelations());
+            for (int i = 0; i < relations.size(); i += BLOCK_SIZE) {
+                writeRelations(relations.subList(i, Math.min(i + BLOCK_SIZE, relations.size())));
+            }
+        } finally {
+            ds.getReadLock().unlock();
+        }
+        out.flush();
+    }
+
+    private static boolean isWritable(OsmPrimitive p) {
+        return !p.isDeleted() && !p.isIncomplete() && (!(p instanceof Node) || ((Node) p).isLatLonKnown());
+    }
+
+    private static <T extends OsmPrimitive> List<T> sorted(Collection<T> primitives) {
+        return primitives.stream().filter(PbfWriter::isWritable).sorted(ID_ORDER).collect(Collectors.toList());
+    }
+
+    private void writeHeader(DataSet ds) throws IOException {
+        ProtobufEncoder header = new ProtobufEncoder();
+        Collection<DataSource> dataSources = ds.getDataSources();
+        DataSource dataSource = dataSources.size() == 1 ? dataSources.iterator().next() : null;
+        if (dataSource != null) {
+            Bounds b = dataSource.bounds;
+            ProtobufEncoder bbox = new ProtobufEncoder();
+            bbox.writeSignedVarint(1, Math.round(b.getMinLon() * 1e9));
+            bbox.writeSignedVarint(2, Math.round(b.getMaxLon() * 1e9));
+            bbox.writeSignedVarint(3, Math.round(b.getMaxLat() * 1e9));
+            bbox.writeSignedVarint(4, Math.round(b.getMinLat() * 1e9));
+            header.writeMessage(1, bbox);
+        }
+        header.writeString(4, "OsmSchema-V0.6");
+        header.writeString(4, "DenseNodes");
+        header.writeString(5, "Sort.Type_then_ID");
+        header.writeString(16, "JOSM");
+        if (dataSource != null && dataSource.origin != null) {
+            header.writeString(17, dataSource.origin);
+        }
+        writeBlob("OSMHeader", header);
+    }
+
+    private void writeNodes(List<Node> nodes) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufEncoder ids = new ProtobufEncoder();
+        ProtobufEncoder lats = new ProtobufEncoder();
+        ProtobufEncoder lons = new ProtobufEncoder();
+        ProtobufEncoder keysVals = new ProtobufEncoder();
+        ProtobufEncoder versions = new ProtobufEncoder();
+        ProtobufEncoder timestamps = new ProtobufEncoder();
+        ProtobufEncoder changesets = new ProtobufEncoder();
+        ProtobufEncoder uids = new ProtobufEncoder();
+        ProtobufEncoder userSids = new ProtobufEncoder();
+        boolean tagged = false;
+        long[] last = new long[7];
+        for (Node n : nodes) {
+            long[] values = {
+                n.getUniqueId(),
+                Math.round(n.lat() * 1e7),
+                Math.round(n.lon() * 1e7),
+                n.getRawTimestamp(),
+                n.getChangesetId(),
+                n.getUser() != null ? n.getUser().getId() : 0,
+                n.getUser() != null ? strings.get(n.getUser().getName()) : 0
+            };
+            ids.writeSignedVarint(values[0] - last[0]);
+            lats.writeSignedVarint(values[1] - last[1]);
+            lons.writeSignedVarint(values[2] - last[2]);
+            versions.writeVarint(n.getVersion());
+            timestamps.writeSignedVarint(values[3] - last[3]);
+            changesets.writeSignedVarint(values[4] - last[4]);
+            uids.writeSignedVarint(values[5] - last[5]);
+            userSids.writeSignedVarint(values[6] - last[6]);
+            last = values;
+            for (Map.Entry<String, String> tag : n.getKeys().entrySet()) {
+                keysVals.writeVarint(strings.get(tag.getKey()));
+                keysVals.writeVarint(strings.get(tag.getValue()));
+                tagged = true;
+            }
+            keysVals.writeVarint(0);
+        }
+        ProtobufEncoder info = new ProtobufEncoder();
+        info.writeMessage(1, versions);
+        info.writeMessage(2, timestamps);
+        info.writeMessage(3, changesets);
+        info.writeMessage(4, uids);
+        info.writeMessage(5, userSids);
+        ProtobufEncoder dense = new ProtobufEncoder();
+        dense.writeMessage(1, ids);
+        dense.writeMessage(5, info);
+        dense.writeMessage(8, lats);
+        dense.writeMessage(9, lons);
+        if (tagged) {
+            dense.writeMessage(10, keysVals);
+        }
+        ProtobufEncoder group = new ProtobufEncoder();
+        group.writeMessage(2, dense);
+        writeBlock(strings, group);
+    }
+
+    private void writeWays(List<Way> ways) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufEncoder group = new ProtobufEncoder();
+        for (Way w : ways) {
+            ProtobufEncoder way = new ProtobufEncoder();
+            writeCommon(way, w, strings);
+            ProtobufEncoder refs = new ProtobufEncoder();
+            long last = 0;
+            for (Node n : w.getNodes()) {
+                refs.writeSignedVarint(n.getUniqueId() - last);
+                last = n.getUniqueId();
+            }
+            way.writeMessage(8, refs);
+            group.writeMessage(3, way);
+        }
+        writeBlock(strings, group);
+    }
+
+    private void writeRelations(List<Relation> relations) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufEncoder group = new ProtobufEncoder();
+        for (Relation r : relations) {
+            ProtobufEncoder relation = new ProtobufEncoder();
+            writeCommon(relation, r, strings);
+            ProtobufEncoder roles = new ProtobufEncoder();
+            ProtobufEncoder memberIds = new ProtobufEncoder();
+            ProtobufEncoder types = new ProtobufEncoder();
+            long last = 0;
+            for (RelationMember m : r.getMembers()) {
+                roles.writeVarint(strings.get(m.getRole()));
+                memberIds.writeSignedVarint(m.getUniqueId() - last);
+                last = m.getUniqueId();
+                // NODE, WAY, RELATION have the ordinal values 0, 1, 2 of the format
+                types.writeVarint(m.getType().ordinal());
+            }
+            relation.writeMessage(8, roles);
+            relation.writeMessage(9, memberIds);
+            relation.writeMessage(10, types);
+            group.writeMessage(4, relation);
+        }
+        writeBlock(strings, group);
+    }
+
+    private static void writeCommon(ProtobufEncoder encoder, OsmPrimitive p, StringTable strings) {
+        encoder.writeVarint(1, p.getUniqueId());
+        ProtobufEncoder keys = new ProtobufEncoder();
+        ProtobufEncoder values = new ProtobufEncoder();
+        for (Map.Entry<String, String> tag : p.getKeys().entrySet()) {
+            keys.writeVarint(strings.get(tag.getKey()));
+            values.writeVarint(strings.get(tag.getValue()));
+        }
+        encoder.writeMessage(2, keys);
+        encoder.writeMessage(3, values);
+        ProtobufEncoder info = new ProtobufEncoder();
+        info.writeVarint(1, p.getVersion());
+        info.writeVarint(2, p.getRawTimestamp());
+        info.writeVarint(3, p.getChangesetId());
+        User user = p.getUser();
+        if (user != null) {
+            info.writeVarint(4, user.getId());
+            info.writeVarint(5, strings.get(user.getName()));
+        }
+        encoder.writeMessage(4, info);
+    }
+
+    private void writeBlock(StringTable strings, ProtobufEncoder group) throws IOException {
+        ProtobufEncoder block = new ProtobufEncoder();
+        block.writeMessage(1, strings.encode());
+        block.writeMessage(2, group);
+        writeBlob("OSMData", block);
+    }
+
+    private void writeBlob(String type, ProtobufEncoder data) throws IOException {
+        Deflater deflater = new Deflater();
+        byte[] compressed = new byte[data.size() / 2 + 64];
+        int length = 0;
+        try {
+            deflater.setInput(data.getBuffer(), 0, data.size());
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, 2 * compressed.length);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+        } finally {
+            deflater.end();
+        }
+        ProtobufEncoder blob = new ProtobufEncoder();
+        blob.writeVarint(2, data.size());
+        blob.writeBytes(3, compressed, length);
+        ProtobufEncoder header = new ProtobufEncoder();
+        header.writeString(1, type);
+        header.writeVarint(3, blob.size());
+        out.writeInt(header.size());
+        header.writeTo(out);
+        blob.writeTo(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
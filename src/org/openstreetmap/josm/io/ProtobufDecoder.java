@@ -0,0 +1,206 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A minimal decoder for protocol buffer messages, as used by the PBF format.
+ * <p>
+ * The decoder reads the fields of a message stored in a byte array. Nested messages, strings and packed repeated fields
+ * are returned as new decoders on the same array, so no data is copied.
+ * @see <a href="https://developers.google.com/protocol-buffers/docs/encoding">Protocol Buffers Encoding</a>
+ * @since xxx
+ */
+final class ProtobufDecoder {
+    /** Wire type of varint fields (int32, int64, uint32, uint64, sint32, sint64, bool, enum) */
+    static final int VARINT = 0;
+    /** Wire type of 64-bit fields (fixed64, sfixed64, double) */
+    static final int FIXED64 = 1;
+    /** Wire type of length-delimited fields (string, bytes, embedded messages, packed repeated fields) */
+    static final int LENGTH_DELIMITED = 2;
+    /** Wire type of 32-bit fields (fixed32, sfixed32, float) */
+    static final int FIXED32 = 5;
+
+    private final byte[] data;
+    private int position;
+    private final int limit;
+    private int tag;
+
+    /**
+     * Constructs a new {@code ProtobufDecoder} for a whole array.
+     * @param data the encoded message
+     */
+    ProtobufDecoder(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    private ProtobufDecoder(byte[] data, int offset, int limit) {
+        this.data = data;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Determines if there are more fields, or more values of a packed field.
+     * @return {@code true} if the end of the message is not reached yet
+     */
+    boolean hasNext() {
+        return position < limit;
+    }
+
+    /**
+     * Reads the key of the next field.
+     * @return the field number
+     * @throws IllegalDataException if the data is truncated
+     */
+    int nextField() throws IllegalDataException {
+        tag = (int) readVarint();
+        return tag >>> 3;
+    }
+
+    /**
+     * Returns the wire type of the current field.
+     * @return the wire type
+     */
+    int getWireType() {
+        return tag & 7;
+    }
+
+    /**
+     * Reads a varint value (int32, int64, uint32, uint64, bool, enum).
+     * @return the value
+     * @throws IllegalDataException if the data is truncated
+     */
+    long readVarint() throws IllegalDataException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) {
+                throw new IllegalDataException(tr("Unexpected end of protocol buffer message"));
+            }
+            byte b = data[position++];
+            result |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalDataException(tr("Malformed varint in protocol buffer message"));
+    }
+
+    /**
+     * Reads a zigzag encoded varint value (sint32, sint64).
+     * @return the value
+     * @throws IllegalDataException if the data is truncated
+     */
+    long readSignedVarint() throws IllegalDataException {
+        return decodeZigZag(readVarint());
+    }
+
+    /**
+     * Decodes a zigzag encoded value, e.g. a value returned by {@link #readVarints(long[])} for a sint32 or sint64 field.
+     * @param value the encoded value
+     * @return the signed value
+     */
+    static long decodeZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads the values of a repeated varint field. Both packed and unpacked encodings are supported.
+     * @param values the values read for earlier occurrences of the same field
+     * @return an array of the previous values followed by the ones of the current field
+     * @throws IllegalDataException if the data is truncated
+     */
+    long[] readVarints(long[] values) throws IllegalDataException {
+        if (getWireType() != LENGTH_DELIMITED) {
+            long[] result = Arrays.copyOf(values, values.length + 1);
+            result[values.length] = readVarint();
+            return result;
+        }
+        ProtobufDecoder packed = readMessage();
+        // every value needs at least one byte
+        long[] result = Arrays.copyOf(values, values.length + packed.limit - packed.position);
+        int count = values.length;
+        while (packed.hasNext()) {
+            result[count++] = packed.readVarint();
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Reads a length-delimited field as a new decoder: an embedded message or the values of a packed repeated field.
+     * @return a decoder for the field content
+     * @throws IllegalDataException if the data is truncated
+     */
+    ProtobufDecoder readMessage() throws IllegalDataException {
+        int length = readLength();
+        ProtobufDecoder message = new ProtobufDecoder(data, position, position + length);
+        position += length;
+        return message;
+    }
+
+    /**
+     * Reads a length-delimited field as a byte array.
+     * @return a copy of the field content
+     * @throws IllegalDataException if the data is truncated
+     */
+    byte[] readBytes() throws IllegalDataException {
+        int length = readLength();
+        byte[] result = new byte[length];
+        System.arraycopy(data, position, result, 0, length);
+        position += length;
+        return result;
+    }
+
+    /**
+     * Reads a length-delimited field as an UTF-8 string.
+     * @return the string
+     * @throws IllegalDataException if the data is truncated
+     */
+    String readString() throws IllegalDataException {
+        int length = readLength();
+        String result = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return result;
+    }
+
+    private int readLength() throws IllegalDataException {
+        long length = readVarint();
+        if (length < 0 || length > limit - position) {
+            throw new IllegalDataException(tr("Unexpected end of protocol buffer message"));
+        }
+        return (int) length;
+    }
+
+    /**
+     * Skips the value of the current field.
+     * @throws IllegalDataException if the data is truncated or the wire type is not supported
+     */
+    void skip() throws IllegalDataException {
+        switch (getWireType()) {
+        case VARINT:
+            readVarint();
+            break;
+        case FIXED64:
+            skipBytes(8);
+            break;
+        case LENGTH_DELIMITED:
+            skipBytes(readLength());
+            break;
+        case FIXED32:
+            skipBytes(4);
+            break;
+        default:
+            throw new IllegalDataException(tr("Unsupported protocol buffer wire type {0}", getWireType()));
+        }
+    }
+
+    private void skipBytes(int count) throws IllegalDataException {
+        if (count > limit - position) {
+            throw new IllegalDataException(tr("Unexpected end of protocol buffer message"));
+        }
+        position += count;
+    }
+}
@@ -0,0 +1,138 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A minimal encoder for protocol buffer messages, as used by the PBF format.
+ * <p>
+ * Fields are appended to a growing byte array. Nested messages and packed repeated fields are built with another
+ * encoder and then added with {@link #writeMessage(int, ProtobufEncoder)}.
+ * @see ProtobufDecoder
+ * @since xxx
+ */
+final class ProtobufEncoder {
+    private byte[] buffer = new byte[64];
+    private int size;
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+
+    private void writeKey(int field, int wireType) {
+        writeVarint(((long) field << 3) | wireType);
+    }
+
+    /**
+     * Appends a raw varint value, e.g. a value of a packed repeated field.
+     * @param value the value
+     */
+    void writeVarint(long value) {
+        ensureCapacity(10);
+        long v = value;
+        while ((v & ~0x7fL) != 0) {
+            buffer[size++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        buffer[size++] = (byte) v;
+    }
+
+    /**
+     * Appends a raw zigzag encoded varint value, e.g. a value of a packed repeated field.
+     * @param value the value
+     */
+    void writeSignedVarint(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a varint field (int32, int64, uint32, uint64, bool, enum).
+     * @param field the field number
+     * @param value the value
+     */
+    void writeVarint(int field, long value) {
+        writeKey(field, ProtobufDecoder.VARINT);
+        writeVarint(value);
+    }
+
+    /**
+     * Writes a zigzag encoded varint field (sint32, sint64).
+     * @param field the field number
+     * @param value the value
+     */
+    void writeSignedVarint(int field, long value) {
+        writeKey(field, ProtobufDecoder.VARINT);
+        writeSignedVarint(value);
+    }
+
+    /**
+     * Writes a bytes field.
+     * @param field the field number
+     * @param bytes the value
+     * @param length the number of bytes to write
+     */
+    void writeBytes(int field, byte[] bytes, int length) {
+        writeKey(field, ProtobufDecoder.LENGTH_DELIMITED);
+        writeVarint(length);
+        ensureCapacity(length);
+        System.arraycopy(bytes, 0, buffer, size, length);
+        size += length;
+    }
+
+    /**
+     * Writes a string field.
+     * @param field the field number
+     * @param value the value
+     */
+    void writeString(int field, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeBytes(field, bytes, bytes.length);
+    }
+
+    /**
+     * Writes an embedded message or a packed repeated field.
+     * @param field the field number
+     * @param message the encoded message or values
+     */
+    void writeMessage(int field, ProtobufEncoder message) {
+        writeBytes(field, message.buffer, message.size);
+    }
+
+    /**
+     * Determines if nothing was written yet.
+     * @return {@code true} if this encoder is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of bytes written.
+     * @return the size of the encoded message
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the internal buffer. Only the first {@link #size()} bytes are valid.
+     * @return the buffer
+     */
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Writes the encoded message to a stream.
+     * @param out the stream
+     * @throws IOException if an I/O error occurs
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+}
@@ -1,7 +1,6 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.tools;
 
-import java.awt.geom.Area;
 import java.awt.geom.Path2D;
 import java.util.Collection;
 
@@ -15,7 +14,7 @@ import org.openstreetmap.josm.data.osm.Way;
  */
 public class DefaultGeoProperty implements GeoProperty<Boolean> {
 
-    private final Area area;
+    private final PolygonClipper.Polygon area;
 
     /**
      * Create DefaultGeoProperty based on a collection of closed ways.
@@ -28,7 +27,7 @@ public class DefaultGeoProperty implements GeoProperty<Boolean> {
         for (Way w : ways) {
             Geometry.buildPath2DLatLon(w.getNodes(), path);
         }
-        this.area = new Area(path);
+        this.area = new PolygonClipper.Polygon(path);
     }
 
     /**
@@ -37,7 +36,7 @@ public class DefaultGeoProperty implements GeoProperty<Boolean> {
      * @param multipolygon the multipolygon
      */
     public DefaultGeoProperty(Relation multipolygon) {
-        this.area = Geometry.getAreaLatLon(multipolygon);
+        this.area = Geometry.getPolygonLatLon(multipolygon);
     }
 
     @Override
@@ -47,7 +46,7 @@ public class DefaultGeoProperty implements GeoProperty<Boolean> {
 
     @Override
     public Boolean get(BBox box) {
-        Area abox = new Area(box.toRectangle());
+        PolygonClipper.Polygon abox = new PolygonClipper.Polygon(box.toRectangle());
         Geometry.PolygonIntersection is = Geometry.polygonIntersection(abox, area, 1e-10 /* using deg and not meters */);
         switch (is) {
             case FIRST_INSIDE_SECOND:
@@ -5,6 +5,7 @@ import java.awt.Rectangle;
 import java.awt.geom.Area;
 import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.util.ArrayList;
@@ -45,6 +46,9 @@ import org.openstreetmap.josm.data.projection.Projections;
  */
 public final class Geometry {
 
+    /** a polygon is inside another one if less than this part of its area is outside */
+    private static final double INSIDE_TOLERANCE = 1e-9;
+
     private Geometry() {
         // Hide default constructor for utils classes
     }
@@ -568,6 +572,45 @@ public final class Geometry {
         return new Area(path);
     }
 
+    /**
+     * Returns the polygon formed by a list of nodes, for the {@link PolygonClipper}.
+     * @param polygon List of nodes forming polygon
+     * @return polygon for the given list of nodes (EastNorth coordinates)
+     * @since xxx
+     */
+    public static PolygonClipper.Polygon getPolygon(List<? extends INode> polygon) {
+        double[] coords = new double[2 * polygon.size()];
+        int points = 0;
+        for (INode n : polygon) {
+            EastNorth en = n.getEastNorth();
+            if (en != null) {
+                coords[2 * points] = en.getX();
+                coords[2 * points + 1] = en.getY();
+                points++;
+            }
+        }
+        return new PolygonClipper.Polygon(coords, points > 0 ? new int[] {points} : new int[0], PathIterator.WIND_NON_ZERO);
+    }
+
+    /**
+     * Returns the polygon of a multipolygon relation, for the {@link PolygonClipper}.
+     * @param multipolygon the multipolygon relation
+     * @return polygon for the multipolygon (LatLon coordinates)
+     * @since xxx
+     */
+    public static PolygonClipper.Polygon getPolygonLatLon(Relation multipolygon) {
+        final Multipolygon mp = MultipolygonCache.getInstance().get(multipolygon);
+        Path2D path = new Path2D.Double();
+        path.setWindingRule(Path2D.WIND_EVEN_ODD);
+        for (Multipolygon.PolyData pd : mp.getCombinedPolygons()) {
+            buildPath2DLatLon(pd.getNodes(), path);
+            for (Multipolygon.PolyData pdInner : pd.getInners()) {
+                buildPath2DLatLon(pdInner.getNodes(), path);
+            }
+        }
+        return new PolygonClipper.Polygon(path);
+    }
+
     /**
      * Tests if two polygons intersect.
      * @param first List of nodes forming first polygon
@@ -575,9 +618,44 @@ public final class Geometry {
      * @return intersection kind
      */
     public static PolygonIntersection polygonIntersection(List<? extends INode> first, List<? extends INode> second) {
-        Area a1 = getArea(first);
-        Area a2 = getArea(second);
-        return polygonIntersection(a1, a2);
+        return polygonIntersection(getPolygon(first), getPolygon(second));
+    }
+
+    /**
+     * Tests if two polygons intersect.
+     * @param p1 first polygon
+     * @param p2 second polygon
+     * @return intersection kind
+     * @since xxx
+     */
+    public static PolygonIntersection polygonIntersection(PolygonClipper.Polygon p1, PolygonClipper.Polygon p2) {
+        return polygonIntersection(p1, p2, 1.0);
+    }
+
+    /**
+     * Tests if two polygons intersect. Same as {@link #polygonIntersection(Area, Area, double)}, without building
+     * {@link Area} objects.
+     * @param p1 first polygon
+     * @param p2 second polygon
+     * @param eps an area threshold, everything below is considered an empty intersection
+     * @return intersection kind
+     * @since xxx
+     */
+    public static PolygonIntersection polygonIntersection(PolygonClipper.Polygon p1, PolygonClipper.Polygon p2, double eps) {
+        PolygonClipper.Overlap overlap = PolygonClipper.getInstance().overlap(p1, p2);
+
+        // same threshold as with Area#getBounds(), which is rounded to integers
+        Rectangle bounds = overlap.commonBounds != null ? overlap.commonBounds.getBounds() : null;
+
+        if (bounds == null || bounds.getHeight()*bounds.getWidth() <= eps) {
+            return PolygonIntersection.OUTSIDE;
+        } else if (p2.boundsContain(p1) && overlap.firstOnly <= INSIDE_TOLERANCE * (overlap.firstOnly + overlap.common)) {
+            return PolygonIntersection.FIRST_INSIDE_SECOND;
+        } else if (p1.boundsContain(p2) && overlap.secondOnly <= INSIDE_TOLERANCE * (overlap.secondOnly + overlap.common)) {
+            return PolygonIntersection.SECOND_INSIDE_FIRST;
+        } else {
+            return PolygonIntersection.CROSSING;
+        }
     }
 
     /**
@@ -964,19 +1042,20 @@ public final class Geometry {
             Logging.debug("Invalid multipolygon " + multiPolygon);
             return false;
         }
+        final PolygonClipper.Polygon polygon = nodes.size() == 1 ? null : getPolygon(nodes);
         // Test if object is inside an outer member
         for (JoinedPolygon out : outerInner.a) {
             if (nodes.size() == 1
-                    ? nodeInsidePolygon(nodes.get(0), out.getNodes())
+                    ? nodeInsidePolygon(nodes.get(0), out.nodes)
                     : EnumSet.of(PolygonIntersection.FIRST_INSIDE_SECOND, PolygonIntersection.CROSSING).contains(
-                            polygonIntersection(nodes, out.getNodes()))) {
+                            polygonIntersection(polygon, out.polygon))) {
                 boolean insideInner = false;
                 // If inside an outer, check it is not inside an inner
                 for (JoinedPolygon in : outerInner.b) {
-                    if (polygonIntersection(in.getNodes(), out.getNodes()) == PolygonIntersection.FIRST_INSIDE_SECOND
+                    if (polygonIntersection(in.polygon, out.polygon) == PolygonIntersection.FIRST_INSIDE_SECOND
                             && (nodes.size() == 1
-                            ? nodeInsidePolygon(nodes.get(0), in.getNodes())
-                            : polygonIntersection(nodes, in.getNodes()) == PolygonIntersection.FIRST_INSIDE_SECOND)) {
+                            ? nodeInsidePolygon(nodes.get(0), in.nodes)
+                            : polygonIntersection(polygon, in.polygon) == PolygonIntersection.FIRST_INSIDE_SECOND)) {
                         insideInner = true;
                         break;
                     }
@@ -0,0 +1,695 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Boolean operations on polygons, a faster replacement of {@link java.awt.geom.Area} for the geometric tests of JOSM.
+ * <p>
+ * The edges of both polygons are swept from bottom to top. The plane is cut into horizontal slabs at each vertex and
+ * at each edge crossing, so that in a slab the edges are ordered from left to right and do not cross. Each slab is then
+ * made of trapezoids lying between two consecutive edges, which are inside or outside of each polygon.
+ * <p>
+ * All computations use doubles. Edges closer than a tolerance relative to the coordinates are considered coincident,
+ * so that polygons sharing nodes or segments do not produce slivers.
+ * <p>
+ * An instance keeps its scratch buffers from one operation to the next and must not be shared between threads,
+ * see {@link #getInstance()}.
+ * @since xxx
+ */
+public final class PolygonClipper {
+
+    /** coordinates closer than this, relative to the magnitude of the coordinates, are considered equal */
+    private static final double COORDINATE_TOLERANCE = 1e-12;
+
+    private static final ThreadLocal<PolygonClipper> INSTANCE = ThreadLocal.withInitial(PolygonClipper::new);
+
+    /**
+     * Boolean operations.
+     */
+    public enum Operation {
+        /** The parts inside both polygons */
+        INTERSECTION {
+            @Override
+            boolean test(boolean inFirst, boolean inSecond) {
+                return inFirst && inSecond;
+            }
+        },
+        /** The parts inside at least one polygon */
+        UNION {
+            @Override
+            boolean test(boolean inFirst, boolean inSecond) {
+                return inFirst || inSecond;
+            }
+        },
+        /** The parts inside the first polygon but not inside the second one */
+        DIFFERENCE {
+            @Override
+            boolean test(boolean inFirst, boolean inSecond) {
+                return inFirst && !inSecond;
+            }
+        },
+        /** The parts inside exactly one polygon */
+        XOR {
+            @Override
+            boolean test(boolean inFirst, boolean inSecond) {
+                return inFirst != inSecond;
+            }
+        };
+
+        abstract boolean test(boolean inFirst, boolean inSecond);
+    }
+
+    /**
+     * A set of closed rings, filled according to a winding rule.
+     * Unlike {@link java.awt.geom.Area}, the rings are kept as given, the polygon is only a light wrapper around
+     * an array of coordinates.
+     */
+    public static final class Polygon {
+        private final double[] coords;
+        private final int[] ringEnds;
+        private final boolean evenOdd;
+        private final double minX;
+        private final double minY;
+        private final double maxX;
+        private final double maxY;
+
+        /**
+         * Constructs a new {@code Polygon}.
+         * @param coords the coordinates of the points of all rings: {@code x0, y0, x1, y1, ...}. The rings are implicitly closed.
+         * @param ringEnds for each ring, the index of the point following its last point
+         * @param windingRule {@link PathIterator#WIND_EVEN_ODD} or {@link PathIterator#WIND_NON_ZERO}
+         */
+        public Polygon(double[] coords, int[] ringEnds, int windingRule) {
+            this.coords = coords;
+            this.ringEnds = ringEnds;
+            this.evenOdd = windingRule == PathIterator.WIND_EVEN_ODD;
+            int points = ringEnds.length > 0 ? ringEnds[ringEnds.length - 1] : 0;
+            double x0 = Double.POSITIVE_INFINITY;
+            double y0 = Double.POSITIVE_INFINITY;
+            double x1 = Double.NEGATIVE_INFINITY;
+            double y1 = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < points; i++) {
+                x0 = Math.min(x0, coords[2 * i]);
+                y0 = Math.min(y0, coords[2 * i + 1]);
+                x1 = Math.max(x1, coords[2 * i]);
+                y1 = Math.max(y1, coords[2 * i + 1]);
+            }
+            minX = x0;
+            minY = y0;
+            maxX = x1;
+            maxY = y1;
+        }
+
+        /**
+         * Constructs a new {@code Polygon} from the outline of a shape, using its winding rule.
+         * Curves are flattened.
+         * @param shape the shape
+         */
+        public Polygon(Shape shape) {
+            this(new PathReader(shape.getPathIterator(null, 0)));
+        }
+
+        private Polygon(PathReader reader) {
+            this(Arrays.copyOf(reader.coords, 2 * reader.points), Arrays.copyOf(reader.ringEnds, reader.rings), reader.windingRule);
+        }
+
+        /**
+         * Determines if this polygon has no extent.
+         * @return {@code true} if this polygon has less than two points
+         */
+        public boolean isEmpty() {
+            return !(minX < maxX || minY < maxY);
+        }
+
+        /**
+         * Returns the bounding box of the points of this polygon.
+         * @return the bounding box, an empty rectangle for an empty polygon
+         */
+        public Rectangle2D getBounds2D() {
+            return minX <= maxX ? new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY) : new Rectangle2D.Double();
+        }
+
+        /**
+         * Tests if a point is inside this polygon.
+         * @param x X coordinate of the point
+         * @param y Y coordinate of the point
+         * @return {@code true} if the point is inside this polygon
+         */
+        public boolean contains(double x, double y) {
+            if (x < minX || x > maxX || y < minY || y > maxY) {
+                return false;
+            }
+            int winding = 0;
+            int start = 0;
+            for (int end : ringEnds) {
+                for (int i = start; i < end; i++) {
+                    int j = i + 1 < end ? i + 1 : start;
+                    double y0 = coords[2 * i + 1];
+                    double y1 = coords[2 * j + 1];
+                    if ((y0 <= y) != (y1 <= y)) {
+                        double x0 = coords[2 * i];
+                        double x1 = coords[2 * j];
+                        if (x0 + (y - y0) * (x1 - x0) / (y1 - y0) > x) {
+                            winding += y1 > y0 ? 1 : -1;
+                        }
+                    }
+                }
+                start = end;
+            }
+            return evenOdd ? (winding & 1) != 0 : winding != 0;
+        }
+
+        boolean boundsContain(Polygon other) {
+            return minX <= other.minX && other.maxX <= maxX && minY <= other.minY && other.maxY <= maxY;
+        }
+
+        boolean boundsIntersect(Polygon other) {
+            return minX <= other.maxX && other.minX <= maxX && minY <= other.maxY && other.minY <= maxY;
+        }
+
+        double magnitude() {
+            return isEmpty() ? 0 : Math.max(Math.max(Math.abs(minX), Math.abs(maxX)), Math.max(Math.abs(minY), Math.abs(maxY)));
+        }
+    }
+
+    /**
+     * Reads the rings of a path.
+     */
+    private static final class PathReader {
+        double[] coords = new double[64];
+        int points;
+        int[] ringEnds = new int[4];
+        int rings;
+        final int windingRule;
+
+        PathReader(PathIterator it) {
+            windingRule = it.getWindingRule();
+            double[] c = new double[6];
+            int ringStart = 0;
+            for (; !it.isDone(); it.next()) {
+                switch (it.currentSegment(c)) {
+                case PathIterator.SEG_MOVETO:
+                    endRing(ringStart);
+                    ringStart = points;
+                    addPoint(c[0], c[1]);
+                    break;
+                case PathIterator.SEG_LINETO:
+                    if (points == ringStart && rings > 0 && ringEnds[rings - 1] == ringStart) {
+                        // a segment after SEG_CLOSE starts a new ring at the start point of the closed one
+                        int previousStart = rings > 1 ? ringEnds[rings - 2] : 0;
+                        addPoint(coords[2 * previousStart], coords[2 * previousStart + 1]);
+                    }
+                    addPoint(c[0], c[1]);
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    endRing(ringStart);
+                    ringStart = points;
+                    break;
+                default:
+                    // the path iterator is flattened
+                    throw new IllegalArgumentException("Unexpected path segment");
+                }
+            }
+            endRing(ringStart);
+        }
+
+        private void addPoint(double x, double y) {
+            if (2 * points + 2 > coords.length) {
+                coords = Arrays.copyOf(coords, 2 * coords.length);
+            }
+            coords[2 * points] = x;
+            coords[2 * points + 1] = y;
+            points++;
+        }
+
+        private void endRing(int ringStart) {
+            if (points > ringStart) {
+                if (rings == ringEnds.length) {
+                    ringEnds = Arrays.copyOf(ringEnds, 2 * ringEnds.length);
+                }
+                ringEnds[rings++] = points;
+            }
+        }
+    }
+
+    /**
+     * The result of a boolean operation, as a set of disjoint trapezoids with horizontal bases.
+     */
+    public static final class Result {
+        /** for each trapezoid: bottom y, top y, bottom left x, bottom right x, top left x, top right x */
+        private final double[] trapezoids;
+        private final double area;
+        private final Rectangle2D bounds;
+
+        Result(double[] trapezoids, double area, Rectangle2D bounds) {
+            this.trapezoids = trapezoids;
+            this.area = area;
+            this.bounds = bounds;
+        }
+
+        /**
+         * Determines if the result is empty.
+         * @return {@code true} if the result is empty
+         */
+        public boolean isEmpty() {
+            return trapezoids.length == 0;
+        }
+
+        /**
+         * Returns the area of the result.
+         * @return the area of the result
+         */
+        public double getArea() {
+            return area;
+        }
+
+        /**
+         * Returns the bounding box of the result.
+         * @return the bounding box, an empty rectangle if the result is empty
+         */
+        public Rectangle2D getBounds2D() {
+            return (Rectangle2D) bounds.clone();
+        }
+
+        /**
+         * Returns the result as a path, made of one subpath per trapezoid.
+         * @return the result as a path
+         */
+        public Path2D toPath2D() {
+            Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO, 5 * trapezoids.length / 6);
+            for (int i = 0; i < trapezoids.length; i += 6) {
+                path.moveTo(trapezoids[i + 2], trapezoids[i]);
+                path.lineTo(trapezoids[i + 3], trapezoids[i]);
+                path.lineTo(trapezoids[i + 5], trapezoids[i + 1]);
+                path.lineTo(trapezoids[i + 4], trapezoids[i + 1]);
+                path.closePath();
+            }
+            return path;
+        }
+    }
+
+    /**
+     * The areas of the parts of two polygons, see {@link PolygonClipper#overlap}.
+     */
+    static final class Overlap {
+        final double firstOnly;
+        final double secondOnly;
+        final double common;
+        /** bounds of the common part, or {@code null} if it is empty */
+        final Rectangle2D commonBounds;
+
+        Overlap(double firstOnly, double secondOnly, double common, Rectangle2D commonBounds) {
+            this.firstOnly = firstOnly;
+            this.secondOnly = secondOnly;
+            this.common = common;
+            this.commonBounds = commonBounds;
+        }
+    }
+
+    // edges, lower point first
+    private double[] ex0 = new double[0];
+    private double[] ey0 = new double[0];
+    private double[] ex1 = new double[0];
+    private double[] ey1 = new double[0];
+    /** bit 0: edge of the second polygon, bit 1: edge going upwards in its ring */
+    private int[] edgeFlags = new int[0];
+    private int edgeCount;
+    // edge ids sorted by lower y, the edges crossing the current slab, and sort buffer
+    private int[] byStart = new int[0];
+    private int[] active = new int[0];
+    private int[] buffer = new int[0];
+    // x of the edges at the bottom, top and middle of the current slab, by edge id
+    private double[] xb = new double[0];
+    private double[] xt = new double[0];
+    private double[] xm = new double[0];
+    private double[] events = new double[0];
+
+    // state of the current sweep
+    private double tolerance;
+    private boolean evenOddFirst;
+    private boolean evenOddSecond;
+    private Operation operation;
+    private final double[] stateArea = new double[4];
+    private final double[] commonBounds = new double[4];
+    private double[] trapezoids = new double[0];
+    private int trapezoidCount;
+    private double trapezoidArea;
+    private final double[] trapezoidBounds = new double[4];
+
+    /**
+     * Returns the instance of the current thread.
+     * @return the instance of the current thread
+     */
+    public static PolygonClipper getInstance() {
+        return INSTANCE.get();
+    }
+
+    /**
+     * Computes a boolean operation of two polygons.
+     * @param operation the operation
+     * @param first the first polygon
+     * @param second the second polygon
+     * @return the result
+     */
+    public Result apply(Operation operation, Polygon first, Polygon second) {
+        double fromY = Double.NEGATIVE_INFINITY;
+        double toY = Double.POSITIVE_INFINITY;
+        if (operation == Operation.INTERSECTION) {
+            // bbox prefilter: only the band common to both polygons can be part of the result
+            if (!first.boundsIntersect(second)) {
+                return new Result(new double[0], 0, new Rectangle2D.Double());
+            }
+            fromY = Math.max(first.minY, second.minY);
+            toY = Math.min(first.maxY, second.maxY);
+        } else if (operation == Operation.DIFFERENCE) {
+            fromY = first.minY;
+            toY = first.maxY;
+        }
+        sweep(first, second, fromY, toY, operation);
+        double[] t = Arrays.copyOf(trapezoids, 6 * trapezoidCount);
+        return new Result(t, trapezoidArea, trapezoidCount == 0 ? new Rectangle2D.Double() : toRectangle(trapezoidBounds));
+    }
+
+    /**
+     * Computes the areas of the parts of two polygons which are only in the first one, only in the second one, and in both.
+     * Only the horizontal band common to the bounding boxes of both polygons is swept: the exclusive areas
+     * are complete only for a polygon whose bounding box is within the bounding box of the other.
+     * @param first the first polygon
+     * @param second the second polygon
+     * @return the areas of the parts of the polygons
+     */
+    Overlap overlap(Polygon first, Polygon second) {
+        if (first.isEmpty() || second.isEmpty() || !first.boundsIntersect(second)) {
+            return new Overlap(0, 0, 0, null);
+        }
+        sweep(first, second, Math.max(first.minY, second.minY), Math.min(first.maxY, second.maxY), null);
+        return new Overlap(stateArea[1], stateArea[2], stateArea[3],
+                commonBounds[0] <= commonBounds[2] ? toRectangle(commonBounds) : null);
+    }
+
+    private static Rectangle2D toRectangle(double[] b) {
+        return new Rectangle2D.Double(b[0], b[1], b[2] - b[0], b[3] - b[1]);
+    }
+
+    private void sweep(Polygon first, Polygon second, double fromY, double toY, Operation op) {
+        operation = op;
+        evenOddFirst = first.evenOdd;
+        evenOddSecond = second.evenOdd;
+        tolerance = COORDINATE_TOLERANCE * Math.max(first.magnitude(), second.magnitude());
+        Arrays.fill(stateArea, 0);
+        resetBounds(commonBounds);
+        resetBounds(trapezoidBounds);
+        trapezoidCount = 0;
+        trapezoidArea = 0;
+        edgeCount = 0;
+        addEdges(first, 0, fromY, toY);
+        addEdges(second, 1, fromY, toY);
+        if (edgeCount < 2) {
+            return;
+        }
+        int eventCount = collectEvents(fromY, toY);
+        sortByStart();
+
+        int next = 0;
+        int activeCount = 0;
+        for (int k = 0; k + 1 < eventCount; k++) {
+            double y0 = events[k];
+            double yEnd = events[k + 1];
+            int n = 0;
+            for (int i = 0; i < activeCount; i++) {
+                if (ey1[active[i]] > y0) {
+                    active[n++] = active[i];
+                }
+            }
+            activeCount = n;
+            while (next < edgeCount && ey0[byStart[next]] <= y0) {
+                int e = byStart[next++];
+                if (ey1[e] > y0) {
+                    active[activeCount++] = e;
+                }
+            }
+            while (activeCount > 1 && y0 < yEnd) {
+                double y1 = firstCrossing(activeCount, y0, yEnd);
+                emitSlab(activeCount, y0, y1);
+                y0 = y1;
+            }
+        }
+    }
+
+    private static void resetBounds(double[] b) {
+        b[0] = b[1] = Double.POSITIVE_INFINITY;
+        b[2] = b[3] = Double.NEGATIVE_INFINITY;
+    }
+
+    private static void extendBounds(double[] b, double x0, double y0, double x1, double y1) {
+        b[0] = Math.min(b[0], x0);
+        b[1] = Math.min(b[1], y0);
+        b[2] = Math.max(b[2], x1);
+        b[3] = Math.max(b[3], y1);
+    }
+
+    private void addEdges(Polygon p, int owner, double fromY, double toY) {
+        double[] c = p.coords;
+        int start = 0;
+        for (int end : p.ringEnds) {
+            ensureEdgeCapacity(edgeCount + end - start);
+            for (int i = start; i < end; i++) {
+                int j = i + 1 < end ? i + 1 : start;
+                double x0 = c[2 * i];
+                double y0 = c[2 * i + 1];
+                double x1 = c[2 * j];
+                double y1 = c[2 * j + 1];
+                // horizontal edges do not change the inside state within a slab
+                if (y0 < y1 ? (y1 <= fromY || y0 >= toY) : (y0 <= fromY || y1 >= toY || y0 == y1)) {
+                    continue;
+                }
+                int e = edgeCount++;
+                if (y0 < y1) {
+                    ex0[e] = x0;
+                    ey0[e] = y0;
+                    ex1[e] = x1;
+                    ey1[e] = y1;
+                    edgeFlags[e] = owner | 2;
+                } else {
+                    ex0[e] = x1;
+                    ey0[e] = y1;
+                    ex1[e] = x0;
+                    ey1[e] = y0;
+                    edgeFlags[e] = owner;
+                }
+            }
+            start = end;
+        }
+    }
+
+    private void ensureEdgeCapacity(int capacity) {
+        if (capacity > ex0.length) {
+            int size = Math.max(capacity, 2 * ex0.length);
+            ex0 = Arrays.copyOf(ex0, size);
+            ey0 = Arrays.copyOf(ey0, size);
+            ex1 = Arrays.copyOf(ex1, size);
+            ey1 = Arrays.copyOf(ey1, size);
+            edgeFlags = Arrays.copyOf(edgeFlags, size);
+            byStart = new int[size];
+            active = new int[size];
+            buffer = new int[size];
+            xb = new double[size];
+            xt = new double[size];
+            xm = new double[size];
+            events = new double[2 * size + 2];
+        }
+    }
+
+    /**
+     * Collects the sorted distinct y coordinates of the edge end points within {@code [fromY, toY]}.
+     */
+    private int collectEvents(double fromY, double toY) {
+        int n = 0;
+        if (!Double.isInfinite(fromY)) {
+            events[n++] = fromY;
+        }
+        if (!Double.isInfinite(toY)) {
+            events[n++] = toY;
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            if (ey0[e] > fromY) {
+                events[n++] = ey0[e];
+            }
+            if (ey1[e] < toY) {
+                events[n++] = ey1[e];
+            }
+        }
+        Arrays.sort(events, 0, n);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (count == 0 || events[i] != events[count - 1]) {
+                events[count++] = events[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sorts the edges by lower y (bottom-up merge sort, to avoid boxing).
+     */
+    private void sortByStart() {
+        int[] src = byStart;
+        int[] dst = buffer;
+        for (int i = 0; i < edgeCount; i++) {
+            src[i] = i;
+        }
+        for (int width = 1; width < edgeCount; width *= 2) {
+            for (int lo = 0; lo < edgeCount; lo += 2 * width) {
+                int mid = Math.min(lo + width, edgeCount);
+                int hi = Math.min(lo + 2 * width, edgeCount);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    dst[k] = j >= hi || (i < mid && ey0[src[i]] <= ey0[src[j]]) ? src[i++] : src[j++];
+                }
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        byStart = src;
+        buffer = dst;
+    }
+
+    private double xAt(int e, double y) {
+        if (y <= ey0[e]) {
+            return ex0[e];
+        } else if (y >= ey1[e]) {
+            return ex1[e];
+        }
+        return ex0[e] + (ex1[e] - ex0[e]) * ((y - ey0[e]) / (ey1[e] - ey0[e]));
+    }
+
+    /**
+     * Finds the first crossing of two active edges above {@code y0}. Before it, the active edges are ordered as just above
+     * {@code y0}, so that the first crossing is between two edges which are adjacent in this order.
+     * @return the y of the first crossing, or {@code yEnd} if the edges do not cross below it
+     */
+    private double firstCrossing(int n, double y0, double yEnd) {
+        for (int i = 0; i < n; i++) {
+            int e = active[i];
+            xb[e] = xAt(e, y0);
+            xt[e] = xAt(e, yEnd);
+        }
+        sortActive(n, xb, xt);
+        double y = yEnd;
+        for (int i = 0; i + 1 < n; i++) {
+            int a = active[i];
+            int b = active[i + 1];
+            double d1 = xt[b] - xt[a];
+            if (d1 < -tolerance) {
+                double d0 = xb[b] - xb[a];
+                double yc = y0 + (yEnd - y0) * (d0 / (d0 - d1));
+                if (yc > y0 && yc < y) {
+                    y = yc;
+                }
+            }
+        }
+        return y;
+    }
+
+    /**
+     * Insertion sort of the active edges, which are mostly sorted from the previous slab.
+     * Keys closer than the tolerance are considered equal and the edges are then sorted by the second key, if any.
+     */
+    private void sortActive(int n, double[] key, double[] key2) {
+        for (int i = 1; i < n; i++) {
+            int e = active[i];
+            int j = i - 1;
+            while (j >= 0 && isAfter(active[j], e, key, key2)) {
+                active[j + 1] = active[j];
+                j--;
+            }
+            active[j + 1] = e;
+        }
+    }
+
+    private boolean isAfter(int a, int b, double[] key, double[] key2) {
+        double d = key[a] - key[b];
+        if (key2 != null && Math.abs(d) <= tolerance) {
+            d = key2[a] - key2[b];
+        }
+        return d > 0;
+    }
+
+    /**
+     * Accounts the trapezoids of a slab without edge crossings.
+     */
+    private void emitSlab(int n, double y0, double y1) {
+        for (int i = 0; i < n; i++) {
+            int e = active[i];
+            xb[e] = xAt(e, y0);
+            xt[e] = xAt(e, y1);
+            xm[e] = (xb[e] + xt[e]) / 2;
+        }
+        // the order in the middle of the slab is not affected by crossings rounded to the slab boundaries
+        sortActive(n, xm, null);
+        double h = y1 - y0;
+        int windingFirst = 0;
+        int windingSecond = 0;
+        int opStart = -1;
+        for (int i = 0; i < n; i++) {
+            int e = active[i];
+            int flags = edgeFlags[e];
+            int dir = (flags & 2) != 0 ? 1 : -1;
+            if ((flags & 1) == 0) {
+                windingFirst += dir;
+            } else {
+                windingSecond += dir;
+            }
+            boolean inFirst = evenOddFirst ? (windingFirst & 1) != 0 : windingFirst != 0;
+            boolean inSecond = evenOddSecond ? (windingSecond & 1) != 0 : windingSecond != 0;
+            int state = (inFirst ? 1 : 0) | (inSecond ? 2 : 0);
+            if (state != 0 && i + 1 < n) {
+                int f = active[i + 1];
+                double wb = xb[f] - xb[e];
+                double wt = xt[f] - xt[e];
+                if (wb > tolerance || wt > tolerance) {
+                    stateArea[state] += h * (wb + wt) / 2;
+                    if (state == 3) {
+                        extendBounds(commonBounds, Math.min(xb[e], xt[e]), y0, Math.max(xb[f], xt[f]), y1);
+                    }
+                }
+            }
+            if (operation != null) {
+                boolean inResult = operation.test(inFirst, inSecond);
+                if (inResult && opStart < 0) {
+                    opStart = e;
+                } else if (!inResult && opStart >= 0) {
+                    addTrapezoid(opStart, e, y0, y1);
+                    opStart = -1;
+                }
+            }
+        }
+    }
+
+    private void addTrapezoid(int left, int right, double y0, double y1) {
+        double wb = xb[right] - xb[left];
+        double wt = xt[right] - xt[left];
+        if (wb <= tolerance && wt <= tolerance) {
+            return;
+        }
+        if (6 * trapezoidCount + 6 > trapezoids.length) {
+            trapezoids = Arrays.copyOf(trapezoids, Math.max(60, 2 * trapezoids.length));
+        }
+        int i = 6 * trapezoidCount++;
+        trapezoids[i] = y0;
+        trapezoids[i + 1] = y1;
+        trapezoids[i + 2] = xb[left];
+        trapezoids[i + 3] = xb[right];
+        trapezoids[i + 4] = xt[left];
+        trapezoids[i + 5] = xt[right];
+        trapezoidArea += (y1 - y0) * (wb + wt) / 2;
+        extendBounds(trapezoidBounds, Math.min(xb[left], xt[left]), y0, Math.max(xb[right], xt[right]), y1);
+    }
+}
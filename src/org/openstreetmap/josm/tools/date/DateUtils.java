@@ -70,7 +70,7 @@ public final class DateUtils {
      * @throws UncheckedParseException if the date does not match any of the supported date formats
      * @throws DateTimeException if the value of any field is out of range, or if the day-of-month is invalid for the month-year
      */
-    public static synchronized Date fromString(String str) {
+    public static Date fromString(String str) {
         return new Date(tsFromString(str));
     }
 
@@ -81,7 +81,7 @@ public final class DateUtils {
      * @throws UncheckedParseException if the date does not match any of the supported date formats
      * @throws DateTimeException if the value of any field is out of range, or if the day-of-month is invalid for the month-year
      */
-    public static synchronized long tsFromString(String str) {
+    public static long tsFromString(String str) {
         // "2007-07-25T09:26:24{Z|{+|-}01[:00]}"
         if (checkLayout(str, "xxxx-xx-xxTxx:xx:xxZ") ||
                 checkLayout(str, "xxxx-xx-xxTxx:xx:xx") ||
@@ -140,7 +140,10 @@ public final class DateUtils {
         }
 
         try {
-            return XML_DATE.newXMLGregorianCalendar(str).toGregorianCalendar().getTimeInMillis();
+            // DatatypeFactory is not guaranteed to be thread-safe, the fast paths above are
+            synchronized (XML_DATE) {
+                return XML_DATE.newXMLGregorianCalendar(str).toGregorianCalendar().getTimeInMillis();
+            }
         } catch (IllegalArgumentException ex) {
             throw new UncheckedParseException("The date string (" + str + ") could not be parsed.", ex);
         }
@@ -0,0 +1,150 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.command.ChangeCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.spi.preferences.Config;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Measures the heap used by the undo history of {@link UndoRedoHandler} for many large commands.
+ */
+public class UndoRedoHandlerPerformanceTest {
+    private static final int COMMAND_COUNT = 10_000;
+    private static final int WAY_COUNT = 100;
+    private static final int WAY_SIZE = 500;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init();
+    }
+
+    /**
+     * Cleans the undo history and the preferences.
+     */
+    @After
+    public void tearDown() {
+        UndoRedoHandler.getInstance().clean();
+        Config.getPref().put("undo.max", null);
+        Config.getPref().put("undo.max.memory", null);
+        Config.getPref().put("undo.spill", null);
+    }
+
+    @SuppressFBWarnings(value = "DM_GC", justification = "Performance test code")
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<Way> createWays() {
+        DataSet ds = new DataSet();
+        List<Way> ways = new ArrayList<>();
+        for (int i = 0; i < WAY_COUNT; i++) {
+            List<Node> nodes = new ArrayList<>();
+            for (int j = 0; j < WAY_SIZE; j++) {
+                Node n = new Node(new LatLon(i * 1e-3, j * 1e-5));
+                ds.addPrimitive(n);
+                nodes.add(n);
+            }
+            Way w = new Way();
+            w.setNodes(nodes);
+            w.put("highway", "residential");
+            ds.addPrimitive(w);
+            ways.add(w);
+        }
+        return ways;
+    }
+
+    private static Command createCommand(List<Way> ways, int i) {
+        Way w = ways.get(i % ways.size());
+        Way copy = new Way(w);
+        copy.put("name", Integer.toString(i));
+        return new ChangeCommand(w, copy);
+    }
+
+    /**
+     * Measures the heap used by 10,000 commands changing a tag of ways of 500 nodes, executed without
+     * undo history, through the undo history, and through the undo history with a memory budget.
+     */
+    @Test
+    public void testLargeCommands() {
+        List<Way> ways = createWays();
+        long before = usedMemory();
+        List<Command> commands = new ArrayList<>();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("execute " + COMMAND_COUNT + " commands (full states)");
+        for (int i = 0; i < COMMAND_COUNT; i++) {
+            Command c = createCommand(ways, i);
+            c.executeCommand();
+            commands.add(c);
+        }
+        timer.done();
+        PerformanceTestUtils.measurementPlotsPluginOutput("Heap MB of commands (full states)",
+                (double) (usedMemory() - before) / 1024 / 1024);
+        commands.clear();
+
+        UndoRedoHandler handler = UndoRedoHandler.getInstance();
+        Config.getPref().putInt("undo.max", COMMAND_COUNT);
+        runTest(handler, ways, "compacted");
+        assertEquals(COMMAND_COUNT, handler.commands.size());
+
+        Config.getPref().putLong("undo.max.memory", 16);
+        runTest(handler, ways, "16 MB");
+        assertTrue(handler.getMemoryFootprint() <= 16 * 1024 * 1024);
+        System.out.println(handler.commands.size() + " commands kept with 16 MB");
+
+        Config.getPref().putBoolean("undo.spill", true);
+        runTest(handler, ways, "16 MB with spill");
+        assertTrue(handler.getMemoryFootprint() <= 16 * 1024 * 1024);
+        System.out.println(handler.commands.size() + " commands kept with 16 MB with spill");
+
+        timer = PerformanceTestUtils.startTimer("undo " + handler.commands.size() + " commands (16 MB with spill)");
+        handler.undo(handler.commands.size());
+        timer.done();
+    }
+
+    private static void runTest(UndoRedoHandler handler, List<Way> ways, String mode) {
+        handler.clean();
+        long before = usedMemory();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("add " + COMMAND_COUNT + " commands (" + mode + ")");
+        for (int i = 0; i < COMMAND_COUNT; i++) {
+            handler.add(createCommand(ways, i));
+        }
+        timer.done();
+        PerformanceTestUtils.measurementPlotsPluginOutput("Heap MB of commands (" + mode + ")",
+                (double) (usedMemory() - before) / 1024 / 1024);
+        PerformanceTestUtils.measurementPlotsPluginOutput("Estimated MB of commands (" + mode + ")",
+                (double) handler.getMemoryFootprint() / 1024 / 1024);
+    }
+}
@@ -0,0 +1,169 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Random;
+
+import org.apache.commons.jcs.auxiliary.AuxiliaryCache;
+import org.apache.commons.jcs.auxiliary.AuxiliaryCacheAttributes;
+import org.apache.commons.jcs.auxiliary.AuxiliaryCacheFactory;
+import org.apache.commons.jcs.auxiliary.disk.behavior.IDiskCacheAttributes;
+import org.apache.commons.jcs.auxiliary.disk.block.BlockDiskCacheAttributes;
+import org.apache.commons.jcs.auxiliary.disk.block.BlockDiskCacheFactory;
+import org.apache.commons.jcs.auxiliary.disk.indexed.IndexedDiskCacheAttributes;
+import org.apache.commons.jcs.auxiliary.disk.indexed.IndexedDiskCacheFactory;
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Compares cold-start time, lookup latency and heap usage of the JCS block and indexed disk caches
+ * with the {@link MappedDiskCache}, for a tile cache of 20000 tiles.
+ */
+public class DiskCachePerformanceTest {
+    private static final int TILES = 20_000;
+    private static final int TILE_SIZE = 10 * 1024;
+    private static final int MAX_SIZE_KB = 512 * 1024;
+    private static final int LOOKUPS = 20_000;
+
+    private static String[] keys;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Cache directory.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates the tile keys, like the ones of a TMS layer.
+     */
+    @BeforeClass
+    public static void createKeys() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        keys = new String[TILES];
+        for (int i = 0; i < TILES; i++) {
+            keys[i] = "Bing aerial imagery:18/" + (137_000 + i % 200) + '/' + (91_000 + i / 200);
+        }
+    }
+
+    /**
+     * Measures the JCS block disk cache, used by default.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testBlockDiskCache() throws Exception {
+        BlockDiskCacheAttributes attributes = new BlockDiskCacheAttributes();
+        attributes.setMaxKeySize(MAX_SIZE_KB);
+        attributes.setBlockSizeBytes(4096);
+        runTest("block", new BlockDiskCacheFactory(), attributes);
+    }
+
+    /**
+     * Measures the JCS indexed disk cache.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testIndexedDiskCache() throws Exception {
+        IndexedDiskCacheAttributes attributes = new IndexedDiskCacheAttributes();
+        attributes.setMaxKeySize(MAX_SIZE_KB);
+        runTest("indexed", new IndexedDiskCacheFactory(), attributes);
+    }
+
+    /**
+     * Measures the memory-mapped disk cache.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testMappedDiskCache() throws Exception {
+        MappedDiskCacheAttributes attributes = new MappedDiskCacheAttributes();
+        attributes.setMaxKeySize(MAX_SIZE_KB);
+        runTest("mapped", new MappedDiskCacheFactory(), attributes);
+    }
+
+    private static AuxiliaryCache<String, BufferedImageCacheEntry> open(AuxiliaryCacheFactory factory, IDiskCacheAttributes attributes)
+            throws Exception {
+        return factory.createCache((AuxiliaryCacheAttributes) attributes, null, null, new StandardSerializer());
+    }
+
+    /**
+     * Waits until the queued elements are written, as they are dropped when the purgatory is full.
+     */
+    private static void waitForPurgatory(AuxiliaryCache<?, ?> cache) throws InterruptedException {
+        while (cache.getStatistics().getStatElements().stream()
+                .anyMatch(e -> "Purgatory Size".equals(e.getName()) && !Integer.valueOf(0).equals(e.getData()))) {
+            Thread.sleep(10);
+        }
+    }
+
+    @SuppressFBWarnings(value = "DM_GC", justification = "Performance test code")
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void runTest(String name, AuxiliaryCacheFactory factory, IDiskCacheAttributes attributes) throws Exception {
+        attributes.setDiskPath(folder.getRoot().getPath());
+        attributes.setCacheName("perf");
+        attributes.setDiskLimitType(IDiskCacheAttributes.DiskLimitType.SIZE);
+
+        AuxiliaryCache<String, BufferedImageCacheEntry> cache = open(factory, attributes);
+        Random random = new Random(42);
+        byte[] content = new byte[TILE_SIZE];
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(name + ": store " + TILES + " tiles");
+        for (int i = 0; i < TILES; i++) {
+            random.nextBytes(content);
+            cache.update(new CacheElement<>("perf", keys[i], new BufferedImageCacheEntry(content), new CacheEntryAttributes()));
+            if (i % 1000 == 999) {
+                waitForPurgatory(cache);
+            }
+        }
+        waitForPurgatory(cache);
+        cache.dispose();
+        timer.done();
+        cache = null;
+
+        long heapBefore = usedHeap();
+        timer = PerformanceTestUtils.startTimer(name + ": cold start");
+        cache = open(factory, attributes);
+        assertNotNull(cache.get(keys[0]));
+        timer.done();
+        long heap = usedHeap() - heapBefore;
+        System.out.println(name + ": heap used after opening " + heap / 1024 + " kB");
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + ": heap used after opening (kB)", heap / 1024.);
+
+        int[] lookups = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = random.nextInt(TILES);
+        }
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            for (int i : lookups) {
+                assertNotNull(cache.get(keys[i]).getVal().getContentBuffer());
+            }
+            double latency = (System.nanoTime() - start) / 1000. / LOOKUPS;
+            System.out.println(name + ": lookup latency " + latency + " us");
+            PerformanceTestUtils.measurementPlotsPluginOutput(name + ": lookup latency (us)", latency);
+        }
+        cache.dispose();
+    }
+}
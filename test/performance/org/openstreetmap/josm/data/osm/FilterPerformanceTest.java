@@ -0,0 +1,135 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.search.SearchMode;
+import org.openstreetmap.josm.data.osm.search.SearchParseError;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Measures the time needed to apply the filters after toggling one of them, sequentially and with the
+ * {@link FilterMatchCache}.
+ */
+public class FilterPerformanceTest {
+    private static final int WAYS = 100_000;
+    private static final int NODES_PER_WAY = 10;
+    private static final int RUNS = 5;
+
+    private static DataSet ds;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Creates a data set of tagged ways.
+     */
+    @BeforeClass
+    public static void createDataSet() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        Random random = new Random(42);
+        String[] highways = {"residential", "service", "footway", "primary", "track"};
+        ds = new DataSet();
+        ds.beginUpdate();
+        try {
+            for (int i = 0; i < WAYS; i++) {
+                List<Node> nodes = new ArrayList<>();
+                for (int j = 0; j < NODES_PER_WAY; j++) {
+                    Node n = new Node(new LatLon(random.nextDouble(), random.nextDouble()));
+                    if (random.nextInt(50) == 0) {
+                        n.put("barrier", "gate");
+                    }
+                    ds.addPrimitive(n);
+                    nodes.add(n);
+                }
+                Way w = new Way();
+                w.setNodes(nodes);
+                if (i % 3 == 0) {
+                    w.put("building", "yes");
+                } else {
+                    w.put("highway", highways[i % highways.length]);
+                    w.put("name", "Street " + (i % 1000));
+                }
+                ds.addPrimitive(w);
+            }
+        } finally {
+            ds.endUpdate();
+        }
+    }
+
+    private static List<Filter> createFilters() {
+        Filter f1 = new Filter();
+        f1.text = "building=*";
+        f1.hiding = true;
+        Filter f2 = new Filter();
+        f2.text = "highway=footway OR highway=track";
+        Filter f3 = new Filter();
+        f3.text = "name~\"Street 1.*\"";
+        f3.mode = SearchMode.remove;
+        Filter f4 = new Filter();
+        f4.text = "type:way";
+        f4.inverted = true;
+        List<Filter> filters = new ArrayList<>();
+        filters.add(f1);
+        filters.add(f2);
+        filters.add(f3);
+        filters.add(f4);
+        return filters;
+    }
+
+    /**
+     * Measures the time needed to apply the filters after toggling the inverted flag or the enabled flag of one filter.
+     * @throws SearchParseError if a filter cannot be parsed
+     */
+    @Test
+    public void testToggleFilter() throws SearchParseError {
+        List<Filter> filters = createFilters();
+        FilterMatcher filterMatcher = new FilterMatcher();
+        FilterMatchCache cache = new FilterMatchCache();
+
+        filterMatcher.update(filters);
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("first evaluation, parallel");
+        ds.beginUpdate();
+        try {
+            FilterWorker.executeFilters(ds, filterMatcher, cache);
+        } finally {
+            ds.endUpdate();
+        }
+        timer.done();
+
+        for (int run = 0; run < RUNS; run++) {
+            filters.get(3).inverted = !filters.get(3).inverted;
+            filters.get(1).enable = !filters.get(1).enable;
+            filterMatcher.update(filters);
+
+            // like FilterModel, lock the data set once for all primitives
+            ds.beginUpdate();
+            try {
+                timer = PerformanceTestUtils.startTimer("toggle filter, sequential");
+                FilterWorker.executeFilters(ds.allNonDeletedCompletePrimitives(), filterMatcher);
+                timer.done();
+
+                timer = PerformanceTestUtils.startTimer("toggle filter, parallel and cached");
+                FilterWorker.executeFilters(ds, filterMatcher, cache);
+                timer.done();
+            } finally {
+                ds.endUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.osm.OsmDataGenerator.NodeDataGenerator;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.data.projection.Projections;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Measures the memory footprint of nodes and the cost of accessing their projected coordinates,
+ * with and without {@link DataSet#setCompactCoordinates(boolean) compact mode}.
+ */
+public class NodeCoordinatesPerformanceTest {
+    private static final int NODE_COUNT = 1_000_000;
+    private static final int ACCESS_RUNS = 5;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init();
+    }
+
+    @SuppressFBWarnings(value = "DM_GC", justification = "Performance test code")
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Measures memory and access time with the projected coordinate cache of the data set and in compact mode.
+     */
+    @Test
+    public void testNodeCoordinates() {
+        long before = usedMemory();
+        NodeDataGenerator generator = OsmDataGenerator.getNodes(NODE_COUNT);
+        DataSet ds = generator.generateDataSet();
+        runTest(ds, before, "cached");
+        ds.setCompactCoordinates(true);
+        runTest(ds, before, "compact");
+        assertNotNull(generator.randomNode().getEastNorth());
+    }
+
+    private static void runTest(DataSet ds, long memoryBefore, String mode) {
+        accessAll(ds);
+        PerformanceTestUtils.measurementPlotsPluginOutput(
+                "Heap bytes per node (" + mode + ")", (double) (usedMemory() - memoryBefore) / NODE_COUNT);
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(
+                "Node#getEastNorth() " + ACCESS_RUNS + "x" + NODE_COUNT + " (" + mode + ")");
+        for (int i = 0; i < ACCESS_RUNS; i++) {
+            accessAll(ds);
+        }
+        timer.done();
+
+        timer = PerformanceTestUtils.startTimer("Projection change and first access (" + mode + ")");
+        ProjectionRegistry.setProjection(Projections.getProjectionByCode(
+                ProjectionRegistry.getProjection().toCode().equals("EPSG:4326") ? "EPSG:3857" : "EPSG:4326"));
+        accessAll(ds);
+        timer.done();
+    }
+
+    private static void accessAll(DataSet ds) {
+        for (Node n : ds.getNodes()) {
+            n.getEastNorth();
+        }
+    }
+}
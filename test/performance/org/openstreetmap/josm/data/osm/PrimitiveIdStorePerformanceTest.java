@@ -0,0 +1,124 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Compares the lookup throughput of {@link Storage} and {@link PrimitiveIdStore} with several parallel readers.
+ */
+public class PrimitiveIdStorePerformanceTest {
+    private static final int PRIMITIVE_COUNT = 2_000_000;
+    private static final int LOOKUPS_PER_THREAD = 2_000_000;
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+    private static final int RUNS = 3;
+
+    private static List<OsmPrimitive> primitives;
+    private static long[] lookupIds;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Creates the primitives. They are not added to any data set.
+     */
+    @BeforeClass
+    public static void createPrimitives() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        primitives = new ArrayList<>(PRIMITIVE_COUNT);
+        for (int i = 1; i <= PRIMITIVE_COUNT; i++) {
+            // 80% nodes, 18% ways, 2% relations, similar to real world data
+            int kind = i % 50;
+            primitives.add(kind < 40 ? new Node(i) : kind < 49 ? new Way(i) : new Relation(i));
+        }
+        Random random = new Random(42);
+        lookupIds = new long[LOOKUPS_PER_THREAD];
+        for (int i = 0; i < lookupIds.length; i++) {
+            lookupIds[i] = 1 + random.nextInt(PRIMITIVE_COUNT);
+        }
+    }
+
+    /**
+     * Measures lookups in the synchronized {@link Storage} that was used by {@link DataSet}.
+     * @throws Exception if a lookup thread fails
+     */
+    @Test
+    public void testStorageLookup() throws Exception {
+        Storage<OsmPrimitive> storage = new Storage<>(new Storage.PrimitiveIdHash(), true);
+        Map<PrimitiveId, OsmPrimitive> map = storage.foreignKey(new Storage.PrimitiveIdHash());
+        storage.addAll(primitives);
+        runLookups("Storage", map::get);
+    }
+
+    /**
+     * Measures lookups in the {@link PrimitiveIdStore}.
+     * @throws Exception if a lookup thread fails
+     */
+    @Test
+    public void testPrimitiveIdStoreLookup() throws Exception {
+        PrimitiveIdStore<OsmPrimitive> store = new PrimitiveIdStore<>();
+        store.addAll(primitives);
+        runLookups("PrimitiveIdStore", store::get);
+    }
+
+    private static void runLookups(String name, Function<PrimitiveId, OsmPrimitive> lookup) throws Exception {
+        for (int threads : THREADS) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                long best = Long.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    List<Callable<Integer>> tasks = new ArrayList<>();
+                    for (int t = 0; t < threads; t++) {
+                        final int offset = t;
+                        tasks.add(() -> lookupAll(lookup, offset));
+                    }
+                    long start = System.nanoTime();
+                    for (Future<Integer> f : executor.invokeAll(tasks)) {
+                        assertEquals(LOOKUPS_PER_THREAD, (int) f.get());
+                    }
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                double lookupsPerMs = (double) threads * LOOKUPS_PER_THREAD / (best / 1_000_000d);
+                PerformanceTestUtils.measurementPlotsPluginOutput(
+                        name + " lookups/ms with " + threads + " threads on " + PRIMITIVE_COUNT + " primitives", lookupsPerMs);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static int lookupAll(Function<PrimitiveId, OsmPrimitive> lookup, int offset) {
+        int found = 0;
+        for (int i = 0; i < lookupIds.length; i++) {
+            long id = lookupIds[(i + offset * 7919) % lookupIds.length];
+            int kind = (int) (id % 50);
+            OsmPrimitiveType type = kind < 40 ? OsmPrimitiveType.NODE : kind < 49 ? OsmPrimitiveType.WAY : OsmPrimitiveType.RELATION;
+            if (lookup.apply(new SimplePrimitiveId(id, type)) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
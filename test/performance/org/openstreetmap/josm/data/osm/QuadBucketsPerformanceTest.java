@@ -0,0 +1,98 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Compares building {@link QuadBuckets} one primitive at a time and in bulk, and the search latency of the resulting trees.
+ */
+public class QuadBucketsPerformanceTest {
+    private static final int NODE_COUNT = 1_000_000;
+    private static final int SEARCH_COUNT = 100_000;
+    private static final int RUNS = 3;
+
+    private static List<Node> nodes;
+    private static List<BBox> searches;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Creates the nodes, clustered in towns like real world data, and the search areas.
+     */
+    @BeforeClass
+    public static void createNodes() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        Random random = new Random(42);
+        nodes = new ArrayList<>(NODE_COUNT);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            int town = i / 10_000;
+            double lat = 40 + (town % 10) + random.nextGaussian() * 0.02;
+            double lon = (town / 10) + random.nextGaussian() * 0.02;
+            nodes.add(new Node(new LatLon(lat, lon)));
+        }
+        searches = new ArrayList<>(SEARCH_COUNT);
+        for (int i = 0; i < SEARCH_COUNT; i++) {
+            LatLon center = nodes.get(random.nextInt(NODE_COUNT)).getCoor();
+            // roughly the area of a map view zoomed to street level
+            searches.add(new BBox(center.lon() - 0.005, center.lat() - 0.003, center.lon() + 0.005, center.lat() + 0.003));
+        }
+    }
+
+    /**
+     * Measures {@link QuadBuckets#add}.
+     */
+    @Test
+    public void testIncremental() {
+        runTest("incremental", qb -> nodes.forEach(qb::add));
+    }
+
+    /**
+     * Measures {@link QuadBuckets#addAll}.
+     */
+    @Test
+    public void testBulk() {
+        runTest("bulk", qb -> qb.addAll(nodes));
+    }
+
+    private static void runTest(String name, Consumer<QuadBuckets<Node>> builder) {
+        QuadBuckets<Node> qb = null;
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            qb = new QuadBuckets<>();
+            long start = System.nanoTime();
+            builder.accept(qb);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertEquals(NODE_COUNT, qb.size());
+        PerformanceTestUtils.measurementPlotsPluginOutput("build " + name + " (ms)", best / 1_000_000);
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("search " + SEARCH_COUNT + " bboxes in " + name);
+        long found = 0;
+        for (BBox bbox : searches) {
+            found += qb.search(bbox).size();
+        }
+        timer.done();
+        PerformanceTestUtils.measurementPlotsPluginOutput("nodes found in " + name, found);
+    }
+}
@@ -0,0 +1,121 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.TagIndex;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Compares searches scanning the whole dataset with searches using the {@link TagIndex}.
+ */
+public class SearchPerformanceTest {
+    private static final int NODES = 1_000_000;
+    private static final List<String> AMENITIES = Arrays.asList("school", "restaurant", "bench", "parking", "cafe");
+    private static final List<String> SEARCHES = Arrays.asList(
+            "amenity=pharmacy", "amenity=pharmacy AND name=*", "shop=bakery OR amenity=pharmacy", "amenity=bench", "ref:12");
+
+    private static DataSet ds;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Creates a dataset of tagged nodes, with a few pharmacies and bakeries.
+     */
+    @BeforeClass
+    public static void createDataSet() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        Random random = new Random(42);
+        ds = new DataSet();
+        ds.beginUpdate();
+        try {
+            for (int i = 0; i < NODES; i++) {
+                Node n = new Node(new LatLon(random.nextDouble() * 10, random.nextDouble() * 10));
+                int kind = random.nextInt(1000);
+                if (kind == 0) {
+                    n.put("amenity", "pharmacy");
+                    n.put("name", "Pharmacy " + i);
+                } else if (kind == 1) {
+                    n.put("shop", "bakery");
+                } else if (kind < 300) {
+                    n.put("amenity", AMENITIES.get(kind % AMENITIES.size()));
+                    n.put("ref", Integer.toString(kind));
+                }
+                ds.addPrimitive(n);
+            }
+        } finally {
+            ds.endUpdate();
+        }
+    }
+
+    private static int scan(Match m) {
+        int found = 0;
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            if (m.match(p)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static int lookup(Match m) {
+        Collection<OsmPrimitive> candidates = m.getCandidates(ds.getTagIndex());
+        assertNotNull(m.toString(), candidates);
+        int found = 0;
+        for (OsmPrimitive p : candidates) {
+            if (m.match(p)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Measures the searches with and without the tag index.
+     * @throws SearchParseError if a search cannot be parsed
+     */
+    @Test
+    public void testSearch() throws SearchParseError {
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("build tag index of " + NODES + " nodes");
+        ds.getTagIndex().getKeys();
+        timer.done();
+
+        for (String search : SEARCHES) {
+            Match m = SearchCompiler.compile(search);
+            int expected = scan(m);
+            assertEquals(search, expected, lookup(m));
+            for (int run = 0; run < 3; run++) {
+                timer = PerformanceTestUtils.startTimer(search + ": scan");
+                scan(m);
+                timer.done();
+                timer = PerformanceTestUtils.startTimer(search + ": tag index");
+                lookup(m);
+                timer.done();
+            }
+        }
+    }
+}
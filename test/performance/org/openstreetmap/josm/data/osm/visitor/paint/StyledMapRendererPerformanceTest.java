@@ -8,7 +8,16 @@ import javax.imageio.ImageIO;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.NavigatableComponent;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.spi.preferences.Config;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -34,6 +43,83 @@ public class StyledMapRendererPerformanceTest extends AbstractMapRendererPerform
         return new StyledMapRenderer(g, nc, false);
     }
 
+    /**
+     * Simulates moving the view over the city in small steps. The view is rendered completely for each step, and then
+     * with a {@link RenderedTileCache} that only renders the tiles that become visible.
+     */
+    @Test
+    public void testCityPan() {
+        nc.zoomTo(new Bounds(53.55, 13.25, 53.57, 13.28));
+        MapViewState start = nc.getState();
+        int steps = 40;
+        int step = 32;
+        // compute the styles before measuring
+        new StyledMapRenderer(g, nc, false).render(dsCity, false, start.getViewArea().getLatLonBoundsBox());
+
+        long time = System.nanoTime();
+        for (int i = 0; i < steps; i++) {
+            MapViewState state = start.movedTo(start.getForView(i * step, i * step / 2), start.getCenter().getEastNorth());
+            NavigatableComponent view = new NavigatableComponent() {
+                {
+                    setBounds(nc.getBounds());
+                    setState(state);
+                }
+            };
+            new StyledMapRenderer(g, view, false).render(dsCity, false, state.getViewArea().getLatLonBoundsBox());
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput("pan " + steps + " steps, full rendering (ms)",
+                (System.nanoTime() - time) / 1_000_000);
+
+        RenderedTileCache cache = new RenderedTileCache(dsCity, Runnable::run, () -> { });
+        try {
+            time = System.nanoTime();
+            for (int i = 0; i < steps; i++) {
+                MapViewState state = start.movedTo(start.getForView(i * step, i * step / 2), start.getCenter().getEastNorth());
+                cache.paint(g, state, false, false);
+            }
+            PerformanceTestUtils.measurementPlotsPluginOutput("pan " + steps + " steps, tiled rendering (ms)",
+                    (System.nanoTime() - time) / 1_000_000);
+        } finally {
+            cache.destroy();
+        }
+    }
+
+    /**
+     * Measures the frame time over the city at zoom levels 12 to 15, with and without simplified way geometries.
+     */
+    @Test
+    public void testCityZoomLevels() {
+        EastNorth center = new LatLon(53.555, 13.27).getEastNorth(ProjectionRegistry.getProjection());
+        int frames = 10;
+        try {
+            for (boolean measure : new boolean[] {false, true}) {
+                for (int zoom = 12; zoom <= 15; zoom++) {
+                    // scale of the zoom level in Web Mercator
+                    nc.zoomTo(center, 2 * Math.PI * 6378137 / 256 / (1 << zoom));
+                    Bounds bounds = nc.getState().getViewArea().getLatLonBoundsBox();
+                    for (boolean simplify : new boolean[] {true, false}) {
+                        Config.getPref().putInt("mappaint.simplify", simplify ? 0 : Integer.MAX_VALUE);
+                        if (!measure) {
+                            // compute the styles and simplifications, and warm up
+                            for (int i = 0; i < 3; i++) {
+                                new StyledMapRenderer(g, nc, false).render(dsCity, false, bounds);
+                            }
+                            continue;
+                        }
+                        long time = System.nanoTime();
+                        for (int i = 0; i < frames; i++) {
+                            new StyledMapRenderer(g, nc, false).render(dsCity, false, bounds);
+                        }
+                        PerformanceTestUtils.measurementPlotsPluginOutput("zoom " + zoom + " frame, "
+                                + (simplify ? "simplified" : "full") + " geometry (ms)", (System.nanoTime() - time) / 1_000_000 / frames);
+                    }
+                }
+            }
+        } finally {
+            Config.getPref().put("mappaint.simplify", null);
+        }
+    }
+
     /**
      * run this manually to verify that the rendering is set up properly
      * @throws IOException if any I/O error occurs
@@ -0,0 +1,169 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint.relations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Measures how fast the {@link MultipolygonCache} follows node moves in a multipolygon with 5000 members.
+ */
+public class MultipolygonCachePerformanceTest {
+    private static final int OUTER_WAYS = 1000;
+    private static final int NODES_PER_OUTER_WAY = 10;
+    private static final int INNER_ROWS = 40;
+    private static final int INNER_COLUMNS = 100;
+    private static final int MOVE_STEPS = 20;
+    private static final int MOVED_NODES = 50;
+
+    private static DataSet ds;
+    private static Relation relation;
+    private static List<Node> outerNodes;
+    private static List<Node> innerNodes;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Creates a multipolygon of 1000 outer ways forming one ring around 4000 closed inner ways.
+     */
+    @BeforeClass
+    public static void createDataSet() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        List<OsmPrimitive> primitives = new ArrayList<>();
+        relation = new Relation();
+        relation.put("type", "multipolygon");
+        relation.put("landuse", "forest");
+
+        outerNodes = new ArrayList<>();
+        int ringSize = OUTER_WAYS * NODES_PER_OUTER_WAY;
+        for (int i = 0; i < ringSize; i++) {
+            double angle = 2 * Math.PI * i / ringSize;
+            outerNodes.add(new Node(new LatLon(45 + Math.sin(angle), 10 + Math.cos(angle))));
+        }
+        primitives.addAll(outerNodes);
+        for (int i = 0; i < OUTER_WAYS; i++) {
+            Way w = new Way();
+            for (int j = 0; j <= NODES_PER_OUTER_WAY; j++) {
+                w.addNode(outerNodes.get((i * NODES_PER_OUTER_WAY + j) % ringSize));
+            }
+            primitives.add(w);
+            relation.addMember(new RelationMember("outer", w));
+        }
+
+        innerNodes = new ArrayList<>();
+        for (int row = 0; row < INNER_ROWS; row++) {
+            for (int column = 0; column < INNER_COLUMNS; column++) {
+                double lat = 44.6 + row * 0.02;
+                double lon = 9.5 + column * 0.01;
+                Node n1 = new Node(new LatLon(lat, lon));
+                Node n2 = new Node(new LatLon(lat, lon + 0.005));
+                Node n3 = new Node(new LatLon(lat + 0.01, lon + 0.005));
+                Node n4 = new Node(new LatLon(lat + 0.01, lon));
+                Way w = new Way();
+                w.addNode(n1);
+                w.addNode(n2);
+                w.addNode(n3);
+                w.addNode(n4);
+                w.addNode(n1);
+                innerNodes.add(n3);
+                primitives.add(n1);
+                primitives.add(n2);
+                primitives.add(n3);
+                primitives.add(n4);
+                primitives.add(w);
+                relation.addMember(new RelationMember("inner", w));
+            }
+        }
+        primitives.add(relation);
+        ds = new DataSet();
+        ds.addPrimitives(primitives);
+        ds.addDataSetListener(MultipolygonCache.getInstance());
+        assertEquals(OUTER_WAYS + INNER_ROWS * INNER_COLUMNS, relation.getMembersCount());
+    }
+
+    /**
+     * Removes the cache listener.
+     */
+    @AfterClass
+    public static void tearDown() {
+        ds.removeDataSetListener(MultipolygonCache.getInstance());
+        MultipolygonCache.getInstance().clear(ds);
+    }
+
+    /**
+     * Uses all outlines, like the renderer does when painting the multipolygon.
+     */
+    private static void paint(Multipolygon multipolygon) {
+        for (PolyData pd : multipolygon.getCombinedPolygons()) {
+            pd.get();
+            pd.getBounds();
+        }
+    }
+
+    /**
+     * Measures the time to build the multipolygon from scratch.
+     */
+    @Test
+    public void testBuild() {
+        PerformanceTestUtils.runPerformanceTest("build multipolygon with 5000 members (ms)",
+                () -> paint(MultipolygonCache.getInstance().get(relation, true)));
+    }
+
+    /**
+     * Moves nodes of the outer ring, as a drag of several selected nodes would do, and paints after each step.
+     */
+    @Test
+    public void testMoveOuterNodes() {
+        moveNodes("move outer nodes of multipolygon", outerNodes);
+    }
+
+    /**
+     * Moves nodes of the inner rings and paints after each step.
+     */
+    @Test
+    public void testMoveInnerNodes() {
+        moveNodes("move inner nodes of multipolygon", innerNodes);
+    }
+
+    private static void moveNodes(String name, List<Node> nodes) {
+        Multipolygon multipolygon = MultipolygonCache.getInstance().get(relation, true);
+        paint(multipolygon);
+        int stride = nodes.size() / MOVED_NODES;
+        PerformanceTestUtils.PerformanceTestTimer timer = PerformanceTestUtils.startTimer(name);
+        for (int step = 0; step < MOVE_STEPS; step++) {
+            double offset = (step % 2 == 0 ? 1 : -1) * 1e-4;
+            for (int i = 0; i < MOVED_NODES; i++) {
+                Node n = nodes.get(i * stride);
+                n.setCoor(new LatLon(n.lat() + offset, n.lon() + offset));
+            }
+            paint(MultipolygonCache.getInstance().get(relation));
+        }
+        timer.done();
+        assertSame(multipolygon, MultipolygonCache.getInstance().get(relation));
+    }
+}
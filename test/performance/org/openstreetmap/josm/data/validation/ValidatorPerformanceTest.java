@@ -0,0 +1,169 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Measures a full validation with all enabled tests of a large generated data set, sequentially and with
+ * {@link ValidationRunner} at 1, 4 and 8 threads, and the revalidation of small edits with an {@link IncrementalValidator}.
+ */
+public class ValidatorPerformanceTest {
+    private static final int WAY_COUNT = 10_000;
+    private static final int RUNS = 2;
+    private static final String[][] TAGS = {
+        {"highway", "residential"},
+        {"highway", "primary", "ref", "B 1"},
+        {"building", "yes", "addr:street", "Main Street"},
+        {"landuse", "residential"},
+        {"waterway", "stream"},
+        {"highway", "footway", "surface", "asphalt  "},
+        {"amenity", "parking", "fixme", "check"},
+        {"barrier", "fence"},
+    };
+
+    private static DataSet ds;
+    private static Collection<Test> tests;
+    private static int expectedErrors = -1;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Initializes the validator and creates the data.
+     */
+    @BeforeClass
+    public static void createDataSet() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        OsmValidator.initializeTests();
+        tests = OsmValidator.getEnabledTests(false);
+        Random random = new Random(42);
+        List<OsmPrimitive> primitives = new ArrayList<>();
+        for (int i = 0; i < WAY_COUNT; i++) {
+            double lat = 50 + random.nextDouble() * 0.5;
+            double lon = 8 + random.nextDouble() * 0.5;
+            String[] tags = TAGS[i % TAGS.length];
+            boolean closed = tags[0].equals("building") || tags[0].equals("landuse") || tags[0].equals("amenity");
+            List<Node> nodes = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                nodes.add(new Node(new LatLon(lat + (j == 1 || j == 2 ? 1e-3 : 0), lon + (j >= 2 ? 1e-3 : 0))));
+            }
+            primitives.addAll(nodes);
+            if (closed) {
+                nodes.add(nodes.get(0));
+            }
+            Way w = new Way();
+            w.setNodes(nodes);
+            for (int t = 0; t < tags.length; t += 2) {
+                w.put(tags[t], tags[t + 1]);
+            }
+            if (w.hasTag("highway", "residential")) {
+                w.put("name", "Street " + i);
+            } else if (w.hasKey("addr:street")) {
+                w.put("addr:housenumber", Integer.toString(i));
+            }
+            primitives.add(w);
+            if (i % 10 == 0) {
+                Node poi = new Node(new LatLon(lat, lon + 5e-4));
+                poi.put(i % 20 == 0 ? "amenity" : "shop", i % 20 == 0 ? "bench" : "yes");
+                primitives.add(poi);
+            }
+        }
+        ds = new DataSet();
+        ds.addPrimitives(primitives);
+    }
+
+    private static void runTest(String name, ValidationRunner runner) {
+        List<OsmPrimitive> primitives = new ArrayList<>(ds.allPrimitives());
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            List<TestError> errors = runner.run(tests, primitives, false, NullProgressMonitor.INSTANCE);
+            best = Math.min(best, System.nanoTime() - start);
+            if (expectedErrors < 0) {
+                expectedErrors = errors.size();
+            }
+            assertEquals(expectedErrors, errors.size());
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput("validate " + primitives.size() + " primitives, " + name + " (ms)",
+                best / 1_000_000);
+    }
+
+    /**
+     * Measures a sequential run.
+     */
+    @org.junit.Test
+    public void testSequential() {
+        runTest("sequential", new ValidationRunner(false));
+    }
+
+    /**
+     * Measures parallel runs at 1, 4 and 8 threads.
+     */
+    @org.junit.Test
+    public void testParallel() {
+        for (int threads : Arrays.asList(1, 4, 8)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                runTest(threads + " threads", new ValidationRunner(pool));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Measures the revalidation after moving single nodes, compared to the initial full validation.
+     */
+    @org.junit.Test
+    public void testIncremental() {
+        DataSet copy = new DataSet(ds);
+        IncrementalValidator validator = new IncrementalValidator(copy, tests, new ValidationRunner(false));
+        try {
+            long start = System.nanoTime();
+            validator.revalidate(NullProgressMonitor.INSTANCE);
+            long full = System.nanoTime() - start;
+            Random random = new Random(42);
+            List<Node> nodes = new ArrayList<>(copy.getNodes());
+            int edits = 50;
+            start = System.nanoTime();
+            for (int i = 0; i < edits; i++) {
+                Node n = nodes.get(random.nextInt(nodes.size()));
+                n.setCoor(new LatLon(n.lat() + 1e-4, n.lon()));
+                assertFalse(validator.revalidate(NullProgressMonitor.INSTANCE).isComplete());
+            }
+            long incremental = (System.nanoTime() - start) / edits;
+            PerformanceTestUtils.measurementPlotsPluginOutput("validate " + copy.allPrimitives().size()
+                    + " primitives, incremental initial run (ms)", full / 1_000_000);
+            PerformanceTestUtils.measurementPlotsPluginOutput("revalidate after moving one node (ms)",
+                    incremental / 1_000_000);
+        } finally {
+            validator.destroy();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Measures the heat map rasterization of a synthetic GPX data set with 3 million points.
+ */
+public class GpxHeatMapPerformanceTest {
+    private static final int TRACKS = 3000;
+    private static final int POINTS_PER_TRACK = 1000;
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final double SCALE = 8;
+    private static final double DIST_100_PIXEL = 535;
+    private static final int RUNS = 5;
+
+    private static GpxData data;
+    private static Projection projection;
+    private static Point2D origin;
+    private static Color[] lut;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Creates random walk tracks of 10 m steps in an area of about 10 km.
+     */
+    @BeforeClass
+    public static void createData() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        projection = ProjectionRegistry.getProjection();
+        Random random = new Random(42);
+        data = new GpxData();
+        for (int t = 0; t < TRACKS; t++) {
+            List<WayPoint> points = new ArrayList<>(POINTS_PER_TRACK);
+            double lat = 48.1 + random.nextGaussian() * 0.02;
+            double lon = 11.5 + random.nextGaussian() * 0.03;
+            double bearing = random.nextDouble() * 2 * Math.PI;
+            for (int i = 0; i < POINTS_PER_TRACK; i++) {
+                WayPoint wp = new WayPoint(new LatLon(lat, lon));
+                wp.drawLine = i > 0;
+                points.add(wp);
+                bearing += random.nextGaussian() * 0.2;
+                lat += Math.cos(bearing) * 0.00009;
+                lon += Math.sin(bearing) * 0.000135;
+            }
+            data.addTrack(new ImmutableGpxTrack(Collections.singletonList(points), Collections.emptyMap()));
+        }
+        EastNorth center = projection.latlon2eastNorth(new LatLon(48.1, 11.5));
+        origin = new Point2D.Double(WIDTH / 2.0 - center.east() / SCALE, HEIGHT / 2.0 + center.north() / SCALE);
+        lut = GpxDrawHelper.createColorLut(0, GpxDrawHelper.selectColorMap(Color.WHITE, 3));
+    }
+
+    private static Graphics2D createGraphics() {
+        return new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB).createGraphics();
+    }
+
+    private static Point2D shifted(double dx, double dy) {
+        return new Point2D.Double(origin.getX() + dx, origin.getY() + dy);
+    }
+
+    /**
+     * Measures collecting the points, rasterizing a full view, panning, changing the gain and repainting from cache.
+     */
+    @Test
+    public void testHeatMap() {
+        Rectangle clip = new Rectangle(WIDTH, HEIGHT);
+        for (int run = 0; run < RUNS; run++) {
+            GpxHeatMap heatMap = new GpxHeatMap();
+            PerformanceTestTimer timer = PerformanceTestUtils.startTimer("collect " + TRACKS * POINTS_PER_TRACK + " points");
+            heatMap.setData(data.getLinesIterable(null), projection);
+            timer.done();
+
+            heatMap.setLevel(SCALE, DIST_100_PIXEL, 1, false);
+            heatMap.setColors(lut, 0, false);
+            Graphics2D g = createGraphics();
+            timer = PerformanceTestUtils.startTimer("rasterize full view");
+            heatMap.paint(g, origin, clip);
+            timer.done();
+
+            timer = PerformanceTestUtils.startTimer("pan by half a screen");
+            heatMap.paint(g, shifted(WIDTH / 2.0, 0), clip);
+            timer.done();
+
+            heatMap.setColors(lut, 5, false);
+            timer = PerformanceTestUtils.startTimer("change gain");
+            heatMap.paint(g, origin, clip);
+            timer.done();
+
+            timer = PerformanceTestUtils.startTimer("repaint from cache");
+            heatMap.paint(g, origin, clip);
+            timer.done();
+
+            heatMap.setLevel(SCALE, DIST_100_PIXEL, 1, true);
+            timer = PerformanceTestUtils.startTimer("rasterize full view, point mode");
+            heatMap.paint(g, origin, clip);
+            timer.done();
+            g.dispose();
+        }
+    }
+
+    /**
+     * Measures drawing the same view with Java2D alpha blended polylines, for comparison.
+     */
+    @Test
+    public void testJava2DLines() {
+        for (int run = 0; run < RUNS; run++) {
+            Graphics2D g = createGraphics();
+            g.setComposite(AlphaComposite.SrcOver.derive(0.05f));
+            g.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            g.setColor(Color.WHITE);
+            PerformanceTestTimer timer = PerformanceTestUtils.startTimer("Java2D polylines of full view");
+            for (Collection<WayPoint> line : data.getLinesIterable(null)) {
+                int[] x = new int[line.size()];
+                int[] y = new int[line.size()];
+                int n = 0;
+                for (WayPoint wp : line) {
+                    EastNorth en = wp.getEastNorth(projection);
+                    x[n] = (int) (origin.getX() + en.east() / SCALE);
+                    y[n] = (int) (origin.getY() - en.north() / SCALE);
+                    n++;
+                }
+                g.drawPolyline(x, y, n);
+            }
+            timer.done();
+            g.dispose();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.tools.RightAndLefthandTraffic;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Performance test of {@link TilePyramidRenderer}, rendering a tile pyramid of a city with an increasing number of threads.
+ */
+public class TilePyramidRendererPerformanceTest {
+
+    private static final Bounds BOUNDS_CITY_CENTER = new Bounds(53.545, 13.235, 53.570, 13.285);
+
+    private static DataSet dsCity;
+    private static ElemStyles styles;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Initializes test environment.
+     * @throws Exception if any error occurs
+     */
+    @BeforeClass
+    public static void load() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init();
+        RightAndLefthandTraffic.initialize();
+        StyleData style = new StyleData();
+        style.styleUrl = "resource://styles/standard/elemstyles.mapcss";
+        styles = RenderingHelper.loadStyles(Collections.singleton(style));
+        try (
+            InputStream fisC = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"));
+        ) {
+            dsCity = OsmReader.parseDataSet(fisC, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    /**
+     * Renders zoom levels 14 to 17 of the city center with 1 to N threads and reports tiles/s and memory.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testCityCenter() throws Exception {
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        // warm-up
+        render(maxThreads, 14, 15);
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            TilePyramidRenderer.Statistics statistics = render(threads, 14, 17);
+            System.out.println(statistics);
+            PerformanceTestUtils.measurementPlotsPluginOutput("tiles/s (" + threads + " threads)", statistics.getTilesPerSecond());
+            PerformanceTestUtils.measurementPlotsPluginOutput("max. used memory (MB, " + threads + " threads)",
+                    statistics.getMaxUsedMemory() / 1024 / 1024);
+        }
+    }
+
+    private static TilePyramidRenderer.Statistics render(int threads, int minZoom, int maxZoom) throws Exception {
+        TilePyramidRenderer renderer = new TilePyramidRenderer(dsCity, styles);
+        renderer.setThreads(threads);
+        AtomicLong bytes = new AtomicLong();
+        TilePyramidRenderer.Statistics statistics;
+        try (TilePyramidRenderer.TileSink sink = new TilePyramidRenderer.TileSink() {
+            @Override
+            public void write(int zoom, int x, int y, byte[] png) {
+                bytes.addAndGet(png.length);
+            }
+
+            @Override
+            public void close() {
+                // nothing to do
+            }
+        }) {
+            statistics = renderer.render(BOUNDS_CITY_CENTER, minZoom, maxZoom, sink);
+        }
+        Assert.assertTrue(bytes.get() > 0);
+        return statistics;
+    }
+}
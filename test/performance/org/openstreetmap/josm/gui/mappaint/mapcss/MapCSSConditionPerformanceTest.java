@@ -1,11 +1,21 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint.mapcss;
 
+import java.io.StringReader;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
 import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.gui.mappaint.Environment;
 import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.Op;
+import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.MapCSSParser;
+import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.ParseException;
 
 /**
  * Performance test of MapCSS Condition objects.
@@ -28,6 +38,35 @@ public class MapCSSConditionPerformanceTest {
         }
     }
 
+    /**
+     * Compares the interpreted and compiled conditions of some typical selectors on a few primitives.
+     * @throws ParseException if a condition cannot be parsed
+     */
+    @Test
+    public void testCompiledConditions() throws ParseException {
+        JOSMFixture.createPerformanceTestFixture().init();
+        List<Environment> environments = Stream.of("way highway=residential name=Main lanes=2", "way building=yes height=12",
+                "node amenity=restaurant;cafe", "way highway=primary oneway=yes layer=1", "node")
+                .map(s -> new Environment(OsmUtils.createPrimitive(s))).collect(Collectors.toList());
+        MapCSSCompiler compiler = new MapCSSCompiler();
+        for (String css : Arrays.asList("[highway]", "[!name]", "[oneway?]", "[highway!=primary]", "[lanes>=2]",
+                "[amenity~=cafe]", "[name^=Ma]", "[tag(\"height\")>10]", "[has_tag_key(\"name\")]")) {
+            Condition condition = new MapCSSParser(new StringReader(css)).condition(Condition.Context.PRIMITIVE);
+            Condition compiled = compiler.compile(condition);
+            for (Condition c : Arrays.asList(condition, compiled)) {
+                Runnable r = () -> {
+                    for (int i = 0; i < 100000; i++) {
+                        for (Environment env : environments) {
+                            c.applies(env);
+                        }
+                    }
+                };
+                r.run();
+                PerformanceTestUtils.runPerformanceTest("Condition " + css + (c == compiled ? " compiled" : " interpreted"), r);
+            }
+        }
+    }
+
     private void runTest(Op op) {
         Runnable r = getRunner(op);
         PerformanceTestUtils.runPerformanceTest("Condition.Op." + op, r);
@@ -7,18 +7,24 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
 import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
 import org.openstreetmap.josm.data.preferences.sources.SourceType;
 import org.openstreetmap.josm.gui.NavigatableComponent;
 import org.openstreetmap.josm.gui.mappaint.MapRendererPerformanceTest;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.OptimizedGeneralSelector;
 import org.openstreetmap.josm.io.Compression;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.OsmReader;
@@ -67,7 +73,7 @@ public class MapCSSPerformanceTest {
         return after - before;
     }
 
-    void loadStyle() {
+    MapCSSStyleSource loadStyle() {
         System.out.print("Loading style '"+STYLE_FILE+"' ...");
         MapCSSStyleSource source = new MapCSSStyleSource(
             new SourceEntry(
@@ -85,6 +91,7 @@ public class MapCSSPerformanceTest {
         }
         MapRendererPerformanceTest.resetStylesToSingle(source);
         System.out.println("DONE");
+        return source;
     }
 
     void loadData() throws IllegalDataException, IOException {
@@ -120,4 +127,34 @@ public class MapCSSPerformanceTest {
         System.out.println("");
         System.out.println("Rendering took "+time+" ms.");
     }
+
+    /**
+     * Measures the time for applying the style to all primitives at some zoom levels, by the interpreter and by the
+     * compiled rules (see {@link MapCSSCompiler}).
+     * @throws IOException if any I/O error occurs
+     * @throws IllegalDataException if any invalid data is found
+     */
+    @Test
+    public void measureTimeForStyleApplication() throws IllegalDataException, IOException {
+        loadData();
+        List<OsmPrimitive> primitives = new ArrayList<>(ds.allPrimitives());
+        for (boolean compile : new boolean[] {false, true}) {
+            MapCSSStyleSource source;
+            try {
+                MapCSSStyleSource.PROPERTY_COMPILE.put(compile);
+                source = loadStyle();
+            } finally {
+                MapCSSStyleSource.PROPERTY_COMPILE.remove();
+            }
+            PerformanceTestUtils.runPerformanceTest("apply " + STYLE_FILE + " to " + primitives.size() + " primitives, "
+                    + (compile ? "compiled" : "interpreted") + " (ms)", () -> {
+                for (int zoom : new int[] {14, 16, 18}) {
+                    double scale = OptimizedGeneralSelector.level2scale(zoom);
+                    for (OsmPrimitive p : primitives) {
+                        source.apply(new MultiCascade(), p, scale, false);
+                    }
+                }
+            });
+        }
+    }
 }
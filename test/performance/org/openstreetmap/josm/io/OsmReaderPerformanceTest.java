@@ -9,6 +9,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -18,6 +21,9 @@ import org.openstreetmap.josm.JOSMFixture;
 import org.openstreetmap.josm.PerformanceTestUtils;
 import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.TagDictionary;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -53,7 +59,7 @@ public class OsmReaderPerformanceTest {
      */
     @Test
     public void testCompressed() throws Exception {
-        runTest("compressed (.osm.bz2)", false);
+        runTest("compressed (.osm.bz2)", false, OsmReader::parseDataSet);
     }
 
     /**
@@ -62,17 +68,103 @@ public class OsmReaderPerformanceTest {
      */
     @Test
     public void testPlain() throws Exception {
-        runTest(".osm-file", true);
+        runTest(".osm-file", true, OsmReader::parseDataSet);
     }
 
-    private void runTest(String what, boolean decompressBeforeRead) throws IllegalDataException, IOException {
+    /**
+     * Simulates a plain read of a .osm file (from memory) with the {@link ParallelOsmReader}
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPlainParallel() throws Exception {
+        runTest(".osm-file in parallel", true, ParallelOsmReader::parseDataSet);
+    }
+
+    /**
+     * Simulates a plain read of a .osm.bz2 file (from memory) with the {@link ParallelOsmReader}
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCompressedParallel() throws Exception {
+        runTest("compressed (.osm.bz2) in parallel", false, ParallelOsmReader::parseDataSet);
+    }
+
+    /**
+     * Simulates a read of the same data as .osm.pbf file (from memory)
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPbf() throws Exception {
+        ByteArrayOutputStream pbf = new ByteArrayOutputStream();
+        try (PbfWriter writer = new PbfWriter(pbf)) {
+            writer.write(OsmReader.parseDataSet(loadFile(true), null));
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput(".osm.pbf size", pbf.size());
+        InputStream is = new ByteArrayInputStream(pbf.toByteArray());
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load .osm.pbf-file " + TIMES + " times");
+        DataSet ds = null;
+        for (int i = 0; i < TIMES; i++) {
+            is.reset();
+            ds = PbfReader.parseDataSet(is, null);
+        }
+        timer.done();
+        assertNotNull(ds);
+    }
+
+    /**
+     * Reports the heap used by the parsed data and the number of tag strings that are shared by {@link TagDictionary}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testTagMemory() throws Exception {
+        InputStream is = loadFile(true);
+        long before = usedMemory();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load .osm-file with tag dictionary");
+        DataSet ds = OsmReader.parseDataSet(is, null);
+        timer.done();
+        PerformanceTestUtils.measurementPlotsPluginOutput("heap bytes of data set", usedMemory() - before);
+
+        Map<String, Boolean> instances = new IdentityHashMap<>();
+        long references = 0;
+        long savedBytes = 0;
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            for (Map.Entry<String, String> tag : p.getKeys().entrySet()) {
+                for (String s : Arrays.asList(tag.getKey(), tag.getValue())) {
+                    references++;
+                    if (instances.put(s, Boolean.TRUE) != null) {
+                        // object header, hash and array reference of the string and the char[] that would be duplicated
+                        savedBytes += 40 + 2L * s.length();
+                    }
+                }
+            }
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput("tag string references", references);
+        PerformanceTestUtils.measurementPlotsPluginOutput("tag string instances", instances.size());
+        PerformanceTestUtils.measurementPlotsPluginOutput("estimated heap bytes saved by tag dictionary", savedBytes);
+    }
+
+    @SuppressFBWarnings(value = "DM_GC", justification = "Performance test code")
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @FunctionalInterface
+    private interface Parser {
+        DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException;
+    }
+
+    private void runTest(String what, boolean decompressBeforeRead, Parser parser) throws IllegalDataException, IOException {
         InputStream is = loadFile(decompressBeforeRead);
         PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load " + what + " " + TIMES + " times");
         DataSet ds = null;
         for (int i = 0; i < TIMES; i++) {
             is.reset();
 
-            ds = OsmReader.parseDataSet(decompressBeforeRead ? is : Compression.byExtension(DATA_FILE)
+            ds = parser.parseDataSet(decompressBeforeRead ? is : Compression.byExtension(DATA_FILE)
                     .getUncompressedInputStream(is), null);
         }
         timer.done();
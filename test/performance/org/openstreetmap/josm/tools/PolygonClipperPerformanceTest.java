@@ -0,0 +1,236 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.MultipolygonBuilder;
+import org.openstreetmap.josm.data.osm.MultipolygonBuilder.JoinedPolygon;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.tools.Geometry.PolygonIntersection;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Compares the {@link PolygonClipper} with {@link Area} for the intersection tests of {@link Geometry}.
+ */
+public class PolygonClipperPerformanceTest {
+    private static final int RUNS = 3;
+
+    private static DataSet city;
+    private static DataSet boundaries;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Loads the data sets.
+     * @throws Exception if the data cannot be loaded
+     */
+    @BeforeClass
+    public static void loadData() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init();
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            city = OsmReader.parseDataSet(in, null);
+        }
+        try (InputStream in = new FileInputStream("data/boundaries.osm")) {
+            boundaries = OsmReader.parseDataSet(in, null);
+        }
+    }
+
+    /**
+     * Measures the intersection tests between the rings of the multipolygon relations, as done by {@link MultipolygonBuilder}.
+     */
+    @Test
+    public void testMultipolygonRings() {
+        List<JoinedPolygon> rings = new ArrayList<>();
+        for (Relation r : city.getRelations()) {
+            if (r.isMultipolygon() && !r.isIncomplete()) {
+                try {
+                    Pair<List<JoinedPolygon>, List<JoinedPolygon>> outerInner = MultipolygonBuilder.joinWays(r);
+                    rings.addAll(outerInner.a);
+                    rings.addAll(outerInner.b);
+                } catch (MultipolygonBuilder.JoinedPolygonCreationException e) {
+                    Logging.trace(e);
+                }
+            }
+        }
+        // pairs of rings with intersecting bounds
+        List<JoinedPolygon[]> pairs = new ArrayList<>();
+        for (JoinedPolygon a : rings) {
+            for (JoinedPolygon b : rings) {
+                if (a != b && a.bounds.intersects(b.bounds)) {
+                    pairs.add(new JoinedPolygon[] {a, b});
+                }
+            }
+        }
+        System.out.println(rings.size() + " multipolygon rings, " + pairs.size() + " pairs");
+
+        PolygonIntersection[] expected = new PolygonIntersection[pairs.size()];
+        PolygonIntersection[] actual = new PolygonIntersection[pairs.size()];
+        for (int run = 0; run < RUNS; run++) {
+            PerformanceTestTimer timer = PerformanceTestUtils.startTimer("Area");
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = Geometry.polygonIntersection(pairs.get(i)[0].getArea(), pairs.get(i)[1].getArea());
+            }
+            timer.done();
+            timer = PerformanceTestUtils.startTimer("PolygonClipper");
+            for (int i = 0; i < actual.length; i++) {
+                actual[i] = Geometry.polygonIntersection(pairs.get(i)[0].polygon, pairs.get(i)[1].polygon);
+            }
+            timer.done();
+        }
+        assertEquals(0, countDifferences(expected, actual));
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("build Area of rings");
+        for (JoinedPolygon ring : rings) {
+            Geometry.getArea(ring.nodes);
+        }
+        timer.done();
+        timer = PerformanceTestUtils.startTimer("build PolygonClipper.Polygon of rings");
+        for (JoinedPolygon ring : rings) {
+            Geometry.getPolygon(ring.nodes);
+        }
+        timer.done();
+    }
+
+    /**
+     * Measures the tests of bounding boxes against the country boundaries, as done by {@link DefaultGeoProperty}.
+     */
+    @Test
+    public void testBoundaries() {
+        List<Area> areas = new ArrayList<>();
+        List<PolygonClipper.Polygon> polygons = new ArrayList<>();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("build Area of boundaries");
+        for (Relation r : boundaries.getRelations()) {
+            if (r.isMultipolygon()) {
+                areas.add(Geometry.getAreaLatLon(r));
+            }
+        }
+        timer.done();
+        timer = PerformanceTestUtils.startTimer("build PolygonClipper.Polygon of boundaries");
+        for (Relation r : boundaries.getRelations()) {
+            if (r.isMultipolygon()) {
+                polygons.add(Geometry.getPolygonLatLon(r));
+            }
+        }
+        timer.done();
+
+        Random random = new Random(42);
+        List<BBox> boxes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            double lon = random.nextDouble() * 360 - 180;
+            double lat = random.nextDouble() * 140 - 70;
+            double size = Math.pow(10, -random.nextInt(4));
+            boxes.add(new BBox(lon, lat, lon + size, lat + size));
+        }
+        System.out.println(polygons.size() + " boundaries, " + boxes.size() + " boxes");
+
+        PolygonIntersection[] expected = new PolygonIntersection[boxes.size() * areas.size()];
+        PolygonIntersection[] actual = new PolygonIntersection[expected.length];
+        for (int run = 0; run < RUNS; run++) {
+            timer = PerformanceTestUtils.startTimer("Area");
+            for (int i = 0; i < boxes.size(); i++) {
+                Area box = new Area(boxes.get(i).toRectangle());
+                for (int j = 0; j < areas.size(); j++) {
+                    expected[i * areas.size() + j] = Geometry.polygonIntersection(box, areas.get(j), 1e-10);
+                }
+            }
+            timer.done();
+            timer = PerformanceTestUtils.startTimer("PolygonClipper");
+            for (int i = 0; i < boxes.size(); i++) {
+                PolygonClipper.Polygon box = new PolygonClipper.Polygon(boxes.get(i).toRectangle());
+                for (int j = 0; j < polygons.size(); j++) {
+                    actual[i * polygons.size() + j] = Geometry.polygonIntersection(box, polygons.get(j), 1e-10);
+                }
+            }
+            timer.done();
+        }
+        assertEquals(0, countDifferences(expected, actual));
+    }
+
+    /**
+     * Measures the tests of the closed ways against the union of many overlapping download areas.
+     */
+    @Test
+    public void testDataSourceBounds() {
+        List<Way> ways = new ArrayList<>();
+        BBox bbox = new BBox();
+        for (Way w : city.getWays()) {
+            if (w.isClosed() && !w.isIncomplete() && w.getNodesCount() > 3) {
+                ways.add(w);
+                bbox.add(w.getBBox());
+            }
+        }
+        System.out.println(ways.size() + " closed ways");
+
+        Rectangle2D bounds = bbox.toRectangle();
+        Random random = new Random(42);
+        Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO);
+        for (int i = 0; i < 100; i++) {
+            double w = bounds.getWidth() * random.nextDouble() / 5;
+            double h = bounds.getHeight() * random.nextDouble() / 5;
+            path.append(new Rectangle2D.Double(bounds.getMinX() + random.nextDouble() * (bounds.getWidth() - w),
+                    bounds.getMinY() + random.nextDouble() * (bounds.getHeight() - h), w, h), false);
+        }
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("build Area of data sources");
+        Area area = new Area(path);
+        timer.done();
+        timer = PerformanceTestUtils.startTimer("build PolygonClipper.Polygon of data sources");
+        PolygonClipper.Polygon polygon = new PolygonClipper.Polygon(path);
+        timer.done();
+
+        PolygonIntersection[] expected = new PolygonIntersection[ways.size()];
+        PolygonIntersection[] actual = new PolygonIntersection[ways.size()];
+        for (int run = 0; run < RUNS; run++) {
+            timer = PerformanceTestUtils.startTimer("Area");
+            for (int i = 0; i < expected.length; i++) {
+                Area way = new Area(Geometry.buildPath2DLatLon(ways.get(i).getNodes(), null));
+                expected[i] = Geometry.polygonIntersection(way, area, 1e-10);
+            }
+            timer.done();
+            timer = PerformanceTestUtils.startTimer("PolygonClipper");
+            for (int i = 0; i < actual.length; i++) {
+                PolygonClipper.Polygon way = new PolygonClipper.Polygon(Geometry.buildPath2DLatLon(ways.get(i).getNodes(), null));
+                actual[i] = Geometry.polygonIntersection(way, polygon, 1e-10);
+            }
+            timer.done();
+        }
+        assertEquals(0, countDifferences(expected, actual));
+    }
+
+    private static int countDifferences(PolygonIntersection[] expected, PolygonIntersection[] actual) {
+        int differences = 0;
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != actual[i]) {
+                differences++;
+            }
+        }
+        return differences;
+    }
+}
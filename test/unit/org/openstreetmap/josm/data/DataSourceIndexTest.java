@@ -0,0 +1,131 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Area;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests for class {@link DataSourceIndex}.
+ */
+public class DataSourceIndexTest {
+
+    private static DataSourceIndex index(Bounds... bounds) {
+        List<DataSource> dataSources = new ArrayList<>();
+        for (Bounds b : bounds) {
+            dataSources.add(new DataSource(b, "test"));
+        }
+        return new DataSourceIndex(dataSources);
+    }
+
+    /**
+     * Tests an index without data sources.
+     */
+    @Test
+    public void testEmpty() {
+        DataSourceIndex index = new DataSourceIndex(Collections.emptyList());
+        assertTrue(index.isEmpty());
+        assertFalse(index.contains(new LatLon(0, 0)));
+        assertFalse(index.contains(new Bounds(0, 0, 1, 1)));
+        assertTrue(index.getBounds(new Bounds(0, 0, 1, 1)).isEmpty());
+        assertNull(index.getArea());
+    }
+
+    /**
+     * Tests {@link DataSourceIndex#contains(org.openstreetmap.josm.data.coor.ILatLon)}.
+     */
+    @Test
+    public void testContainsPoint() {
+        DataSourceIndex index = index(new Bounds(0, 0, 1, 1), new Bounds(0.5, 0.5, 2, 2), new Bounds(10, 10, 11, 11));
+        assertFalse(index.isEmpty());
+        assertTrue(index.contains(new LatLon(0.5, 0.5)));
+        assertTrue(index.contains(new LatLon(1.5, 1.5)));
+        assertTrue(index.contains(new LatLon(10.5, 10.5)));
+        assertTrue(index.contains(new LatLon(0, 0)));
+        assertTrue(index.contains(new LatLon(2, 2)));
+        assertFalse(index.contains(new LatLon(0.2, 1.8)));
+        assertFalse(index.contains(new LatLon(5, 5)));
+        assertFalse(index.contains(new LatLon(-1, 0.5)));
+        assertFalse(index.contains(LatLon.NORTH_POLE));
+    }
+
+    /**
+     * Tests {@link DataSourceIndex#contains(Bounds)} with bounds covered by several data sources.
+     */
+    @Test
+    public void testContainsBounds() {
+        DataSourceIndex index = index(new Bounds(0, 0, 1, 1), new Bounds(0, 1, 1, 2), new Bounds(1, 0, 2, 2));
+        assertTrue(index.contains(new Bounds(0.2, 0.2, 0.8, 0.8)));
+        assertTrue(index.contains(new Bounds(0.5, 0.5, 1.5, 1.5)));
+        assertTrue(index.contains(new Bounds(0, 0, 2, 2)));
+        assertFalse(index.contains(new Bounds(0.5, 0.5, 2.5, 1.5)));
+
+        DataSourceIndex holed = index(new Bounds(0, 0, 1, 3), new Bounds(2, 0, 3, 3), new Bounds(0, 0, 3, 1), new Bounds(0, 2, 3, 3));
+        assertTrue(holed.contains(new Bounds(0, 0, 3, 1)));
+        assertFalse(holed.contains(new Bounds(0, 0, 3, 3)));
+        assertTrue(holed.contains(new LatLon(0.5, 1.5)));
+        assertFalse(holed.contains(new LatLon(1.5, 1.5)));
+    }
+
+    /**
+     * Tests bounds crossing the 180th meridian.
+     */
+    @Test
+    public void testCrossing180thMeridian() {
+        DataSourceIndex index = index(new Bounds(0, 170, 10, -170));
+        assertTrue(index.contains(new LatLon(5, 175)));
+        assertTrue(index.contains(new LatLon(5, -175)));
+        assertFalse(index.contains(new LatLon(5, 0)));
+        assertTrue(index.contains(new Bounds(1, 175, 9, -175)));
+        assertFalse(index.contains(new Bounds(1, 165, 9, -175)));
+        assertEquals(1, index.getBounds(new Bounds(4, -178, 6, -176)).size());
+        assertTrue(index.getBounds(new Bounds(4, -10, 6, 10)).isEmpty());
+    }
+
+    /**
+     * Tests {@link DataSourceIndex#getBounds(Bounds)}.
+     */
+    @Test
+    public void testGetBounds() {
+        Bounds b1 = new Bounds(0, 0, 1, 1);
+        Bounds b2 = new Bounds(0.5, 0.5, 2, 2);
+        Bounds b3 = new Bounds(10, 10, 11, 11);
+        DataSourceIndex index = index(b1, b2, b3);
+        assertEquals(Arrays.asList(b1, b2, b3), index.getBounds());
+        assertEquals(Arrays.asList(b1, b2), index.getBounds(new Bounds(0.8, 0.8, 0.9, 0.9)));
+        assertEquals(Arrays.asList(b2), index.getBounds(new Bounds(1.5, 1.5, 5, 5)));
+        assertEquals(Arrays.asList(b1, b2, b3), index.getBounds(new Bounds(-1, -1, 20, 20)));
+        assertTrue(index.getBounds(new Bounds(5, 5, 6, 6)).isEmpty());
+    }
+
+    /**
+     * Compares the point tests with the ones of the {@link Area} of many random data sources.
+     */
+    @Test
+    public void testCompareWithArea() {
+        Random random = new Random(42);
+        List<DataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            double lat = random.nextDouble() * 10;
+            double lon = random.nextDouble() * 10;
+            dataSources.add(new DataSource(new Bounds(lat, lon, lat + random.nextDouble(), lon + random.nextDouble()), "test"));
+        }
+        DataSourceIndex index = new DataSourceIndex(dataSources);
+        Area area = index.getArea();
+        for (int i = 0; i < 10000; i++) {
+            LatLon ll = new LatLon(random.nextDouble() * 12 - 1, random.nextDouble() * 12 - 1);
+            assertEquals(ll.toString(), ll.isIn(area), index.contains(ll));
+        }
+    }
+}
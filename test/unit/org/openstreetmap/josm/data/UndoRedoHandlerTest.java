@@ -0,0 +1,199 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.command.AddPrimitivesCommand;
+import org.openstreetmap.josm.command.ChangeCommand;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.MoveCommand;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link UndoRedoHandler} class.
+ */
+public class UndoRedoHandlerTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private DataSet ds;
+
+    /**
+     * Creates an empty data set and cleans the undo history.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        UndoRedoHandler.getInstance().clean();
+    }
+
+    /**
+     * Cleans the undo history.
+     */
+    @After
+    public void tearDown() {
+        UndoRedoHandler.getInstance().clean();
+    }
+
+    private Way createWay(int nodes) {
+        List<Node> list = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            Node n = new Node(new LatLon(0, i * 1e-4));
+            ds.addPrimitive(n);
+            list.add(n);
+        }
+        Way w = new Way();
+        w.setNodes(list);
+        w.put("highway", "residential");
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Tests that compacted commands are undone and redone correctly.
+     */
+    @Test
+    public void testUndoRedo() {
+        UndoRedoHandler handler = UndoRedoHandler.getInstance();
+        Way w = createWay(100);
+        Node first = w.firstNode();
+        String before = w.save().toString() + w.getKeys() + first.getCoor();
+
+        Way shorter = new Way(w);
+        shorter.setNodes(w.getNodes().subList(10, 90));
+        shorter.put("name", "a");
+        handler.add(new ChangeCommand(w, shorter));
+        handler.add(new ChangePropertyCommand(w, "highway", "service"));
+        // the commands of a sequence modify the same way
+        Way reversed = new Way(w);
+        List<Node> nodes = new ArrayList<>(w.getNodes());
+        Collections.reverse(nodes);
+        reversed.setNodes(nodes);
+        handler.add(new SequenceCommand("test", Arrays.<Command>asList(
+                new ChangeCommand(w, reversed),
+                new ChangePropertyCommand(w, "name", "b"),
+                new MoveCommand(first, 1, 1))));
+        NodeData added = new NodeData(-1000);
+        added.setCoor(new LatLon(1, 1));
+        handler.add(new AddPrimitivesCommand(Collections.<PrimitiveData>singletonList(added), ds));
+        String after = w.save().toString() + w.getKeys() + first.getCoor();
+        assertTrue(handler.getMemoryFootprint() > 0);
+
+        handler.undo(4);
+        assertEquals(before, w.save().toString() + w.getKeys() + first.getCoor());
+        assertEquals(null, ds.getPrimitiveById(added));
+        handler.redo(4);
+        assertEquals(after, w.save().toString() + w.getKeys() + first.getCoor());
+        assertTrue(ds.getPrimitiveById(added) != null);
+        handler.undo(4);
+        assertEquals(before, w.save().toString() + w.getKeys() + first.getCoor());
+    }
+
+    /**
+     * Tests that the oldest commands are dropped when the undo history exceeds its memory budget.
+     */
+    @Test
+    public void testMemoryBudget() {
+        UndoRedoHandler handler = UndoRedoHandler.getInstance();
+        Config.getPref().putLong("undo.max.memory", 1);
+        Way w = createWay(1000);
+        Command last = null;
+        for (int i = 0; i < 200; i++) {
+            Way copy = new Way(w);
+            copy.put("name", Integer.toString(i));
+            last = new ChangeCommand(w, copy);
+            handler.add(last);
+        }
+        assertTrue(handler.commands.size() < 200);
+        assertTrue(handler.getMemoryFootprint() <= 1024 * 1024);
+        assertSame(last, handler.getLastCommand());
+
+        // a single command over the budget is kept
+        Way big = createWay(200_000);
+        Way copy = new Way(big);
+        copy.put("name", "big");
+        last = new ChangeCommand(big, copy);
+        handler.add(last);
+        assertEquals(Collections.singletonList(last), handler.commands);
+        assertEquals(last.getMemoryFootprint(), handler.getMemoryFootprint());
+        handler.undo();
+        assertFalse(big.hasKey("name"));
+        assertEquals(0, handler.commands.size());
+    }
+
+    /**
+     * Tests that the saved states of the oldest commands are moved to a temporary file when enabled.
+     */
+    @Test
+    public void testSpill() {
+        UndoRedoHandler handler = UndoRedoHandler.getInstance();
+        Config.getPref().putLong("undo.max.memory", 1);
+        Config.getPref().putBoolean("undo.spill", true);
+        Way w = createWay(1000);
+        for (int i = 0; i < 100; i++) {
+            Way copy = new Way(w);
+            List<Node> nodes = new ArrayList<>(copy.getNodes());
+            nodes.remove(nodes.size() - 1);
+            copy.setNodes(nodes);
+            handler.add(new ChangeCommand(w, copy));
+        }
+        assertEquals(100, handler.commands.size());
+        assertEquals(900, w.getNodesCount());
+        assertTrue(handler.getMemoryFootprint() <= 1024 * 1024);
+        handler.undo(100);
+        assertEquals(1000, w.getNodesCount());
+        handler.redo(100);
+        assertEquals(900, w.getNodesCount());
+    }
+
+    /**
+     * Tests that a command is not partially undone when its objects have been modified outside of the undo history.
+     */
+    @Test
+    public void testUndoModifiedObjects() {
+        UndoRedoHandler handler = UndoRedoHandler.getInstance();
+        Way w = createWay(10);
+        handler.add(new ChangePropertyCommand(w, "highway", "service"));
+        handler.add(new SequenceCommand("sequence",
+                new ChangePropertyCommand(w, "name", "x"),
+                new ChangePropertyCommand(w.getNode(0), "name", "y")));
+        // e.g. a download merging a newer version of the way
+        w.removeNode(w.getNode(5));
+        handler.undo();
+        assertEquals("service", w.get("highway"));
+        assertEquals("x", w.get("name"));
+        assertEquals("y", w.getNode(0).get("name"));
+        assertEquals(9, w.getNodesCount());
+        assertFalse(handler.hasUndoCommands());
+        assertFalse(handler.hasRedoCommands());
+        assertEquals(0, handler.getMemoryFootprint());
+    }
+}
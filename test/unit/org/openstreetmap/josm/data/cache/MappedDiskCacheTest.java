@@ -0,0 +1,170 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link MappedDiskCache}.
+ */
+public class MappedDiskCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Temporary cache directory.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedDiskCache<String, BufferedImageCacheEntry> open(int maxKeySize) {
+        MappedDiskCacheAttributes attributes = new MappedDiskCacheAttributes();
+        attributes.setDiskPath(folder.getRoot());
+        attributes.setCacheName("test_MAPPED_v1");
+        attributes.setMaxKeySize(maxKeySize);
+        MappedDiskCache<String, BufferedImageCacheEntry> cache = new MappedDiskCache<>(attributes, new StandardSerializer());
+        assertTrue(cache.isAlive());
+        return cache;
+    }
+
+    private static void put(MappedDiskCache<String, BufferedImageCacheEntry> cache, String key, byte[] content)
+            throws IOException {
+        CacheEntryAttributes attributes = new CacheEntryAttributes();
+        attributes.setEtag("etag-" + key);
+        cache.processUpdate(new CacheElement<>("test", key, new BufferedImageCacheEntry(content), attributes));
+    }
+
+    private static byte[] content(int size, int seed) {
+        byte[] ret = new byte[size];
+        Arrays.fill(ret, (byte) seed);
+        return ret;
+    }
+
+    private static void assertContent(MappedDiskCache<String, BufferedImageCacheEntry> cache, String key, byte[] expected) {
+        ICacheElement<String, BufferedImageCacheEntry> element = cache.processGet(key);
+        assertNotNull(key, element);
+        assertEquals(key, element.getKey());
+        assertArrayEquals(expected, element.getVal().getContent());
+        assertEquals("etag-" + key, ((CacheEntryAttributes) element.getElementAttributes()).getEtag());
+    }
+
+    /**
+     * Tests storing, reading and removing elements.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testUpdateGetRemove() throws Exception {
+        MappedDiskCache<String, BufferedImageCacheEntry> cache = open(-1);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB), "png", png);
+        put(cache, "a:0/0/0", png.toByteArray());
+        put(cache, "a:1/0/0", content(100, 1));
+        put(cache, "b:1/0/0", content(200, 2));
+        put(cache, "b:1/0/0", content(300, 3));
+        assertEquals(3, cache.getSize());
+        assertEquals(new HashSet<>(Arrays.asList("a:0/0/0", "a:1/0/0", "b:1/0/0")), cache.getKeySet());
+
+        assertContent(cache, "a:0/0/0", png.toByteArray());
+        BufferedImage image = cache.processGet("a:0/0/0").getVal().getImage();
+        assertEquals(3, image.getWidth());
+        assertEquals(2, image.getHeight());
+        assertContent(cache, "b:1/0/0", content(300, 3));
+        assertNull(cache.processGet("c:1/0/0"));
+
+        assertTrue(cache.processRemove("b:1/0/0"));
+        assertNull(cache.processGet("b:1/0/0"));
+        assertTrue(cache.processRemove("a:"));
+        assertEquals(0, cache.getSize());
+        cache.processDispose();
+    }
+
+    /**
+     * Tests that elements are kept when closing and reopening the cache, and after a crash.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReopen() throws Exception {
+        MappedDiskCache<String, BufferedImageCacheEntry> cache = open(-1);
+        for (int i = 0; i < 400; i++) {
+            put(cache, "a:" + i, content(i % 300, i));
+        }
+        cache.processRemove("a:5");
+        put(cache, "a:6", content(10, 42));
+        long length = cache.getDataLength();
+        cache.processDispose();
+
+        cache = open(-1);
+        assertEquals(length, cache.getDataLength());
+        assertEquals(399, cache.getSize());
+        assertContent(cache, "a:399", content(399 % 300, 399));
+        assertNull(cache.processGet("a:5"));
+        assertContent(cache, "a:6", content(10, 42));
+        cache.processRemove("a:7");
+        put(cache, "a:8", content(10, 43));
+
+        // not disposed: the index is rebuilt from the data file
+        cache = open(-1);
+        assertEquals(398, cache.getSize());
+        assertNull(cache.processGet("a:5"));
+        assertNull(cache.processGet("a:7"));
+        assertContent(cache, "a:6", content(10, 42));
+        assertContent(cache, "a:8", content(10, 43));
+        assertContent(cache, "a:300", content(300 % 300, 300));
+        cache.processDispose();
+    }
+
+    /**
+     * Tests that the compaction keeps the most recently used elements.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCompaction() throws Exception {
+        MappedDiskCache<String, BufferedImageCacheEntry> cache = open(1000);
+        for (int i = 0; i < 9; i++) {
+            put(cache, "a:" + i, content(100 * 1024, i));
+        }
+        cache.processRemove("a:8");
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(cache.processGet("a:" + i));
+        }
+        cache.compact();
+        assertTrue(cache.getDataLength() <= 750 * 1024);
+        assertEquals(new HashSet<>(Arrays.asList("a:0", "a:1", "a:2", "a:4", "a:5", "a:6", "a:7")), cache.getKeySet());
+        for (int i : new int[] {0, 1, 2, 4, 5, 6, 7}) {
+            assertContent(cache, "a:" + i, content(100 * 1024, i));
+        }
+
+        // the compacted files are used after reopening
+        cache.processDispose();
+        cache = open(1000);
+        assertEquals(7, cache.getSize());
+        assertContent(cache, "a:7", content(100 * 1024, 7));
+        cache.processDispose();
+    }
+}
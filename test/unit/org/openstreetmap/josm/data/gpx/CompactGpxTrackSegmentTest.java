@@ -0,0 +1,114 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.io.GpxReader;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.xml.sax.SAXException;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link CompactGpxTrackSegment}.
+ */
+public class CompactGpxTrackSegmentTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static GpxData read(String filename, boolean compact) throws IOException, SAXException {
+        try (InputStream in = new FileInputStream(filename)) {
+            GpxReader reader = new GpxReader(in);
+            reader.setCompact(compact);
+            assertTrue(reader.parse(false));
+            return reader.getGpxData();
+        }
+    }
+
+    private static void assertSameTracks(String filename) throws IOException, SAXException {
+        GpxData expected = read(filename, false);
+        GpxData actual = read(filename, true);
+        assertEquals(expected.getTracks().size(), actual.getTracks().size());
+        Iterator<GpxTrack> it = actual.getTracks().iterator();
+        for (GpxTrack expectedTrack : expected.getTracks()) {
+            GpxTrack actualTrack = it.next();
+            assertEquals(expectedTrack.getAttributes(), actualTrack.getAttributes());
+            assertEquals(expectedTrack.getBounds(), actualTrack.getBounds());
+            assertEquals(expectedTrack.length(), actualTrack.length(), 1e-6);
+            assertEquals(expectedTrack.getSegments().size(), actualTrack.getSegments().size());
+            Iterator<GpxTrackSegment> itSeg = actualTrack.getSegments().iterator();
+            for (GpxTrackSegment expectedSeg : expectedTrack.getSegments()) {
+                GpxTrackSegment actualSeg = itSeg.next();
+                assertTrue(actualSeg instanceof CompactGpxTrackSegment);
+                assertEquals(new ArrayList<>(expectedSeg.getWayPoints()), new ArrayList<>(actualSeg.getWayPoints()));
+            }
+        }
+        assertEquals(new ArrayList<>(expected.waypoints), new ArrayList<>(actual.waypoints));
+    }
+
+    /**
+     * Reading in compact mode gives the same way points, with attributes.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadCompact() throws Exception {
+        assertSameTracks("data_nodist/munich.gpx");
+        assertSameTracks("data_nodist/2094047.gpx");
+    }
+
+    /**
+     * Tests the column accessors, and that text which cannot be restored from numbers is kept.
+     */
+    @Test
+    public void testColumns() {
+        WayPoint wp1 = new WayPoint(new LatLon(47.5, 8.5));
+        wp1.put(GpxConstants.PT_ELE, "512");
+        wp1.put(GpxConstants.PT_TIME, "2016-01-03T11:59:58Z");
+        wp1.setTime();
+        WayPoint wp2 = new WayPoint(new LatLon(47.6, 8.6));
+        wp2.put(GpxConstants.PT_ELE, "512.30");
+        wp2.put(GpxConstants.PT_TIME, "2016-01-03T13:00:00+01:00");
+        wp2.put(GpxConstants.PT_HDOP, 2.5f);
+        wp2.setTime();
+        WayPoint wp3 = new WayPoint(new LatLon(47.7, 8.7));
+        List<WayPoint> wps = Arrays.asList(wp1, wp2, wp3);
+
+        CompactGpxTrackSegment segment = new CompactGpxTrackSegment(wps);
+        assertEquals(3, segment.size());
+        assertEquals(47.6, segment.lat(1), 0);
+        assertEquals(8.7, segment.lon(2), 0);
+        assertEquals(wp1.time, segment.getTime(0), 0);
+        assertEquals(wp2.time, segment.getTime(1), 0);
+        assertEquals(0, segment.getTime(2), 0);
+        assertEquals("512", segment.get(0, GpxConstants.PT_ELE));
+        assertEquals("512.30", segment.get(1, GpxConstants.PT_ELE));
+        assertEquals("2016-01-03T13:00:00+01:00", segment.get(1, GpxConstants.PT_TIME));
+        assertEquals(2.5f, segment.get(1, GpxConstants.PT_HDOP));
+        assertNull(segment.get(2, GpxConstants.PT_ELE));
+        assertEquals(wps, segment.getWayPoints());
+        assertEquals(new ImmutableGpxTrackSegment(wps).getBounds(), segment.getBounds());
+        assertEquals(new ImmutableGpxTrackSegment(wps).length(), segment.length(), 1e-6);
+
+        assertSame(segment, CompactGpxTrackSegment.getSegment(segment.getWayPoints()));
+        assertNull(CompactGpxTrackSegment.getSegment(wps));
+    }
+}
@@ -437,13 +437,38 @@ public class GpxDataTest {
         assertNull(cl2.lastEvent);
     }
 
+    /**
+     * Test method for {@link GpxData#beginUpdate()} and {@link GpxData#endUpdate()}.
+     */
+    @Test
+    public void testChangeListenerBatch() {
+        TestChangeListener cl = new TestChangeListener();
+        data.addChangeListener(cl);
+
+        data.beginUpdate();
+        data.addTrack(singleWaypointGpxTrack());
+        data.beginUpdate();
+        data.addRoute(singleWaypointRoute());
+        data.endUpdate();
+        assertEquals(0, cl.count);
+        data.endUpdate();
+        assertEquals(1, cl.count);
+        assertEquals(data, cl.lastEvent.getSource());
+
+        data.beginUpdate();
+        data.endUpdate();
+        assertEquals(1, cl.count);
+    }
+
     private static class TestChangeListener implements GpxDataChangeListener {
 
         private GpxDataChangeEvent lastEvent;
+        private int count;
 
         @Override
         public void gpxDataChanged(GpxDataChangeEvent e) {
             lastEvent = e;
+            count++;
         }
 
     }
@@ -473,7 +498,8 @@ public class GpxDataTest {
     public void testEqualsContract() {
         TestUtils.assumeWorkingEqualsVerifier();
         EqualsVerifier.forClass(GpxData.class).usingGetClass()
-            .withIgnoredFields("attr", "creator", "fromServer", "storageFile", "listeners", "tracks", "routes", "waypoints", "proxy", "segSpans")
+            .withIgnoredFields("attr", "creator", "fromServer", "storageFile", "listeners", "tracks", "routes", "waypoints", "proxy", "segSpans",
+                    "updateCount", "changedDuringUpdate")
             .withPrefabValues(WayPoint.class, new WayPoint(LatLon.NORTH_POLE), new WayPoint(LatLon.SOUTH_POLE))
             .withPrefabValues(ListenerList.class, ListenerList.create(), ListenerList.create())
             .verify();
@@ -0,0 +1,195 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.imagery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.jcs.access.behavior.ICacheAccess;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
+import org.openstreetmap.gui.jmapviewer.tilesources.TMSTileSource;
+import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
+import org.openstreetmap.josm.data.cache.HostLimitQueue;
+import org.openstreetmap.josm.data.cache.JCSCacheManager;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for the download scheduling of {@link TMSCachedTileLoader}, against a mocked tile server.
+ */
+public class TMSCachedTileLoaderTest {
+
+    /**
+     * Setup tests
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().timeout(20 * 1000);
+
+    /**
+     * mocked tile server, answering each request after 200 ms
+     */
+    @Rule
+    public WireMockRule tileServer = new WireMockRule(WireMockConfiguration.options()
+            .dynamicPort());
+
+    private static final int ZOOM = 3;
+
+    private final List<String> finished = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Clears the cache and sets up the tile server.
+     * @throws IOException never
+     */
+    @Before
+    public void setUp() throws IOException {
+        getCache().clear();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), "png", png);
+        tileServer.stubFor(WireMock.get(WireMock.urlMatching("/tiles/.*"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withBody(png.toByteArray())
+                        .withFixedDelay(200)));
+    }
+
+    private static ICacheAccess<String, BufferedImageCacheEntry> getCache() {
+        return JCSCacheManager.getCache("test");
+    }
+
+    private class Layer implements TileLoaderListener {
+        private final String name;
+        private final TMSCachedTileLoader loader;
+        private final TMSTileSource tileSource;
+        private final Map<Integer, Double> priorities = new ConcurrentHashMap<>();
+
+        Layer(String name, ThreadPoolExecutor executor) {
+            this.name = name;
+            loader = new TMSCachedTileLoader(this, getCache(), new TileJobOptions(30000, 30000, null, 0));
+            loader.setDownloadExecutor(executor);
+            loader.setTilePriority(t -> priorities.getOrDefault(t.getXtile(), 0d));
+            tileSource = new TMSTileSource(new ImageryInfo(name, tileServer.url("/tiles")));
+        }
+
+        Tile load(int x, double priority) {
+            priorities.put(x, priority);
+            Tile tile = new Tile(tileSource, x, 0, ZOOM);
+            loader.createTileLoaderJob(tile).submit();
+            return tile;
+        }
+
+        @Override
+        public void tileLoadingFinished(Tile tile, boolean success) {
+            synchronized (finished) {
+                finished.add(name + tile.getXtile() + (success ? "" : "-failed"));
+                finished.notifyAll();
+            }
+        }
+    }
+
+    private void waitFinished(int count) throws InterruptedException {
+        synchronized (finished) {
+            while (finished.size() < count) {
+                finished.wait();
+            }
+        }
+    }
+
+    private void verifyRequests(int count, int x) {
+        tileServer.verify(count, WireMock.getRequestedFor(WireMock.urlEqualTo("/tiles/" + ZOOM + "/" + x + "/0.png")));
+    }
+
+    /**
+     * Queued tiles are downloaded by priority, not in submission order.
+     * @throws Exception in case of error
+     */
+    @Test
+    public void testPriority() throws Exception {
+        ThreadPoolExecutor executor = TMSCachedTileLoader.getNewThreadPoolExecutor("test-%d", 1, 1);
+        Layer layer = new Layer("a", executor);
+        layer.load(0, 0); // runs immediately, the other tiles are queued meanwhile
+        layer.load(1, 3);
+        layer.load(2, 1);
+        layer.load(3, 5);
+        layer.load(4, 2);
+        layer.load(5, 4);
+        waitFinished(6);
+        assertEquals(Arrays.asList("a0", "a2", "a4", "a1", "a5", "a3"), finished);
+
+        HostLimitQueue queue = (HostLimitQueue) executor.getQueue();
+        assertEquals(5, queue.getTakenJobCount());
+        assertTrue(queue.getMaximumWaitTime() >= 200);
+        assertTrue(layer.loader.getStats().contains("Queue depth: 0"));
+        executor.shutdown();
+    }
+
+    /**
+     * Requests of several layers for the same URL are downloaded once, with the best priority of the layers.
+     * @throws Exception in case of error
+     */
+    @Test
+    public void testCoalescing() throws Exception {
+        ThreadPoolExecutor executor = TMSCachedTileLoader.getNewThreadPoolExecutor("test-%d", 1, 1);
+        Layer layerA = new Layer("a", executor);
+        Layer layerB = new Layer("b", executor);
+        layerA.load(0, 0);
+        layerA.load(1, 10);
+        layerA.load(2, 5);
+        layerB.load(1, 1);
+        waitFinished(4);
+        assertEquals("a0", finished.get(0));
+        assertEquals(new HashSet<>(Arrays.asList("a1", "b1")), new HashSet<>(finished.subList(1, 3)));
+        assertEquals("a2", finished.get(3));
+        verifyRequests(1, 1);
+        executor.shutdown();
+    }
+
+    /**
+     * Queued tiles that left the view of all layers requesting them are canceled.
+     * @throws Exception in case of error
+     */
+    @Test
+    public void testCancelUnneededTasks() throws Exception {
+        ThreadPoolExecutor executor = TMSCachedTileLoader.getNewThreadPoolExecutor("test-%d", 1, 1);
+        Layer layerA = new Layer("a", executor);
+        Layer layerB = new Layer("b", executor);
+        layerA.load(0, 0);
+        Tile tile1 = layerA.load(1, 1);
+        layerA.load(2, 2);
+        layerB.load(2, 2);
+        layerA.priorities.put(1, Double.POSITIVE_INFINITY);
+        layerA.priorities.put(2, Double.POSITIVE_INFINITY);
+        layerA.loader.cancelUnneededTasks();
+        waitFinished(4);
+        assertTrue(finished.contains("a1-failed"));
+        assertFalse(tile1.isLoading());
+        verifyRequests(0, 1);
+        // still needed by layer b
+        assertTrue(finished.contains("b2"));
+        verifyRequests(1, 2);
+        executor.shutdown();
+    }
+}
@@ -3,6 +3,8 @@ package org.openstreetmap.josm.data.osm;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.FileInputStream;
@@ -18,6 +20,8 @@ import org.junit.Test;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.Filter.FilterPreferenceEntry;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
 import org.openstreetmap.josm.data.osm.search.SearchMode;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
@@ -191,6 +195,97 @@ public class FilterTest {
         }
     }
 
+    /**
+     * Unit test of {@link FilterWorker#executeFilters(DataSet, FilterMatcher, FilterMatchCache)}: the parallel and cached
+     * evaluation must give the same results as the sequential one, when filters are toggled.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testFilterMatchCache() throws Exception {
+        DataSet ds1;
+        DataSet ds2;
+        try (InputStream is = new FileInputStream("data_nodist/filterTests.osm")) {
+            ds1 = OsmReader.parseDataSet(is, NullProgressMonitor.INSTANCE);
+        }
+        try (InputStream is = new FileInputStream("data_nodist/filterTests.osm")) {
+            ds2 = OsmReader.parseDataSet(is, NullProgressMonitor.INSTANCE);
+        }
+        Filter f1 = new Filter();
+        f1.text = "highway";
+        f1.inverted = true;
+        f1.hiding = true;
+        Filter f2 = new Filter();
+        f2.text = "water";
+        f2.mode = SearchMode.remove;
+        Filter f3 = new Filter();
+        f3.text = "natural";
+
+        FilterMatchCache cache = new FilterMatchCache();
+        OsmPrimitive[] primitives = null;
+        for (int i = 0; i < 8; i++) {
+            f1.inverted = (i & 1) == 0;
+            f2.enable = (i & 2) == 0;
+            f3.enable = (i & 4) == 0;
+            FilterMatcher filterMatcher = FilterMatcher.of(f1, f2, f3);
+            FilterWorker.executeFilters(ds1.allPrimitives(), filterMatcher);
+            FilterWorker.executeFilters(ds2, filterMatcher, cache);
+            if (primitives != null) {
+                assertSame(primitives, cache.getPrimitives());
+            }
+            primitives = cache.getPrimitives();
+            for (OsmPrimitive osm : ds1.allNonDeletedCompletePrimitives()) {
+                OsmPrimitive other = ds2.getPrimitiveById(osm);
+                assertEquals(i + " " + osm, filterState(osm), filterState(other));
+            }
+        }
+
+        // the cache is reset after modifications
+        ds2.getNodes().iterator().next().put("natural", "tree");
+        FilterWorker.executeFilters(ds2, FilterMatcher.of(f1, f2, f3), cache);
+        assertNotSame(primitives, cache.getPrimitives());
+    }
+
+    /**
+     * Unit test of {@link FilterWorker#executeFilters(DataSet, FilterMatcher, FilterMatchCache)}: the results of filters
+     * depending on the selection are not cached, since selecting does not modify the data set.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testFilterMatchCacheSelection() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(LatLon.ZERO);
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        Filter f = new Filter();
+        f.text = "selected";
+        FilterMatcher filterMatcher = FilterMatcher.of(f);
+        FilterMatchCache cache = new FilterMatchCache();
+
+        ds.setSelected(n1);
+        FilterWorker.executeFilters(ds, filterMatcher, cache);
+        assertTrue(n1.isDisabled());
+        assertFalse(n2.isDisabled());
+
+        ds.setSelected(n2);
+        FilterWorker.executeFilters(ds, filterMatcher, cache);
+        assertFalse(n1.isDisabled());
+        assertTrue(n2.isDisabled());
+    }
+
+    /**
+     * Unit test of {@link Match#isCacheable}.
+     * @throws SearchParseError if an error occurs
+     */
+    @Test
+    public void testIsCacheable() throws SearchParseError {
+        assertTrue(SearchCompiler.compile("highway=primary | (natural and child building)").isCacheable());
+        assertFalse(SearchCompiler.compile("highway=primary | selected").isCacheable());
+        assertFalse(SearchCompiler.compile("parent modified").isCacheable());
+        assertFalse(SearchCompiler.compile("-indownloadedarea").isCacheable());
+        assertFalse(SearchCompiler.compile("new").isCacheable());
+    }
+
     /**
      * Unit tests of {@link Filter.FilterPreferenceEntry} class.
      */
@@ -255,4 +350,8 @@ public class FilterTest {
             return "d";
         return "h";
     }
+
+    private static String filterState(OsmPrimitive osm) {
+        return filterCode(osm) + osm.getHiddenType() + osm.getDisabledType();
+    }
 }
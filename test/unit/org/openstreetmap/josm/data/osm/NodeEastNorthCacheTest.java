@@ -0,0 +1,162 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of the {@link NodeEastNorthCache} class.
+ */
+public class NodeEastNorthCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection();
+
+    /**
+     * Tests that the slot of a removed node is only reused once the column was replaced, without giving its
+     * coordinates to the new node.
+     */
+    @Test
+    public void testSlotReuse() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(10, 10));
+        ds.addPrimitive(n1);
+        EastNorth en1 = n1.getEastNorth();
+        int index = n1.getEastNorthIndex();
+        ds.removePrimitive(n1);
+        assertEquals(-1, n1.getEastNorthIndex());
+
+        Node n2 = new Node(new LatLon(20, 20));
+        ds.addPrimitive(n2);
+        assertNotEquals(index, n2.getEastNorthIndex());
+
+        ds.invalidateEastNorthCache();
+        Node n3 = new Node(new LatLon(30, 30));
+        ds.addPrimitive(n3);
+        assertEquals(index, n3.getEastNorthIndex());
+        assertEquals(ProjectionRegistry.getProjection().latlon2eastNorth(n3.getCoor()), n3.getEastNorth());
+        assertEquals(en1, n1.getEastNorth());
+        assertEquals(2, ds.getEastNorthCache().size());
+    }
+
+    /**
+     * Tests that a cache hit returns the cached coordinates, without projecting the node again.
+     */
+    @Test
+    public void testCacheHit() {
+        DataSet ds = new DataSet();
+        Node n = new Node(new LatLon(10, 10));
+        ds.addPrimitive(n);
+        EastNorth en = n.getEastNorth();
+        assertSame(en, n.getEastNorth());
+        ds.invalidateEastNorthCache();
+        assertNotSame(en, n.getEastNorth());
+        assertEquals(en, n.getEastNorth());
+    }
+
+    /**
+     * Tests the coordinates of a node given as east/north are kept exactly, in and out of a data set.
+     */
+    @Test
+    public void testExactEastNorth() {
+        EastNorth en = new EastNorth(1234.5678, 8765.4321);
+        Node n = new Node(en);
+        assertEquals(en, n.getEastNorth());
+        DataSet ds = new DataSet();
+        ds.addPrimitive(n);
+        assertEquals(en, n.getEastNorth());
+    }
+
+    /**
+     * Tests that a cache does not fail for an other projection when no projection is set.
+     * @throws ReflectiveOperationException if a reflection operation error occurs
+     */
+    @Test
+    public void testNoProjection() throws ReflectiveOperationException {
+        DataSet ds = new DataSet();
+        Node n = new Node(new LatLon(10, 10));
+        ds.addPrimitive(n);
+        Projection mercator = ProjectionRegistry.getProjection();
+        Projection wgs84 = Projections.getProjectionByCode("EPSG:4326");
+        EastNorth en = n.getEastNorth(mercator);
+        TestUtils.setPrivateStaticField(ProjectionRegistry.class, "proj", null);
+        try {
+            assertEquals(wgs84.latlon2eastNorth(n.getCoor()), n.getEastNorth(wgs84));
+            assertEquals(en, n.getEastNorth(mercator));
+        } finally {
+            TestUtils.setPrivateStaticField(ProjectionRegistry.class, "proj", mercator);
+        }
+    }
+
+    /**
+     * Tests that concurrent readers always get the coordinates of the right node while the cache is invalidated
+     * and slots are reused.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        DataSet ds = new DataSet();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Node n = new Node(new LatLon(i * 0.01, i * 0.01));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        Projection projection = ProjectionRegistry.getProjection();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> error = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                for (Node n : nodes) {
+                    EastNorth expected = projection.latlon2eastNorth(n.getCoor());
+                    EastNorth en = n.getEastNorth();
+                    if (!expected.equals(en)) {
+                        error.set(n + ": " + en + " instead of " + expected);
+                    }
+                }
+            }
+        });
+        reader.start();
+        try {
+            for (int run = 0; run < 200; run++) {
+                ds.invalidateEastNorthCache();
+                Node n = nodes.get(run % nodes.size());
+                ds.removePrimitive(n);
+                Node other = new Node(new LatLon(-10, -10));
+                ds.addPrimitive(other);
+                other.getEastNorth();
+                ds.removePrimitive(other);
+                ds.addPrimitive(n);
+            }
+        } finally {
+            running.set(false);
+            reader.join();
+        }
+        assertEquals(null, error.get());
+        assertTrue(ds.getEastNorthCache().size() <= nodes.size() + 1);
+    }
+}
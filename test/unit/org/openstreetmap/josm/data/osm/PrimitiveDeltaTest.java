@@ -0,0 +1,169 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link PrimitiveDelta} class.
+ */
+public class PrimitiveDeltaTest {
+
+    private static List<Long> ids(int from, int to) {
+        List<Long> ids = new ArrayList<>();
+        for (long i = from; i < to; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    /**
+     * Tests the delta of node states.
+     */
+    @Test
+    public void testNode() {
+        NodeData before = new NodeData(1);
+        before.setCoor(new LatLon(1, 2));
+        before.put("amenity", "bench");
+        before.put("backrest", "yes");
+        before.setVersion(3);
+        NodeData after = new NodeData(before);
+        after.setCoor(new LatLon(3, 4));
+        after.put("amenity", "waste_basket");
+        after.remove("backrest");
+        after.put("name", "x");
+        after.setModified(true);
+
+        NodeData restored = (NodeData) new PrimitiveDelta(before, after).restore(after);
+        assertEquals(before.getKeys(), restored.getKeys());
+        assertEquals(new LatLon(1, 2), restored.getCoor());
+        assertEquals(3, restored.getVersion());
+        assertEquals(before.isModified(), restored.isModified());
+    }
+
+    /**
+     * Tests the delta of way states, only the changed nodes being kept.
+     */
+    @Test
+    public void testWay() {
+        WayData before = new WayData(1);
+        before.setNodeIds(ids(0, 1000));
+        before.put("highway", "residential");
+
+        WayData same = new WayData(before);
+        same.put("name", "x");
+        PrimitiveDelta delta = new PrimitiveDelta(before, same);
+        assertEquals(before.getNodeIds(), ((WayData) delta.restore(same)).getNodeIds());
+        assertEquals(before.getKeys(), delta.restore(same).getKeys());
+        assertTrue(delta.getEstimatedSize() < PrimitiveDelta.estimateSize(before) / 10);
+
+        for (List<Long> nodes : Arrays.asList(ids(0, 500), ids(500, 1000), ids(10, 990), ids(-10, 1010), ids(2000, 2001))) {
+            WayData after = new WayData(before);
+            after.setNodeIds(nodes);
+            assertEquals(before.getNodeIds(), ((WayData) new PrimitiveDelta(before, after).restore(after)).getNodeIds());
+        }
+        WayData after = new WayData(before);
+        List<Long> changed = ids(0, 1000);
+        changed.set(500, -1L);
+        after.setNodeIds(changed);
+        delta = new PrimitiveDelta(before, after);
+        assertEquals(before.getNodeIds(), ((WayData) delta.restore(after)).getNodeIds());
+        assertTrue(delta.getEstimatedSize() < PrimitiveDelta.estimateSize(before) / 10);
+    }
+
+    /**
+     * Tests that the nodes are not restored if they have been modified in the meantime.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testModifiedNodes() {
+        WayData before = new WayData(1);
+        before.setNodeIds(ids(0, 100));
+        WayData after = new WayData(before);
+        after.put("highway", "residential");
+        PrimitiveDelta delta = new PrimitiveDelta(before, after);
+        WayData modified = new WayData(after);
+        modified.setNodeIds(ids(0, 10));
+        delta.restore(modified);
+    }
+
+    /**
+     * Tests that the tags are not restored if they have been modified in the meantime.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testModifiedTags() {
+        NodeData before = new NodeData(1);
+        before.put("amenity", "bench");
+        NodeData after = new NodeData(before);
+        after.put("amenity", "waste_basket");
+        PrimitiveDelta delta = new PrimitiveDelta(before, after);
+        NodeData modified = new NodeData(after);
+        modified.put("name", "x");
+        delta.restore(modified);
+    }
+
+    /**
+     * Tests the delta of relation states.
+     */
+    @Test
+    public void testRelation() {
+        RelationData before = new RelationData(1);
+        List<RelationMemberData> members = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            members.add(new RelationMemberData(i % 2 == 0 ? "outer" : "inner", OsmPrimitiveType.WAY, i));
+        }
+        before.setMembers(members);
+        RelationData after = new RelationData(before);
+        List<RelationMemberData> changed = new ArrayList<>(members);
+        changed.set(50, new RelationMemberData("outer", OsmPrimitiveType.WAY, 50));
+        changed.remove(10);
+        after.setMembers(changed);
+        assertEquals(members, ((RelationData) new PrimitiveDelta(before, after).restore(after)).getMembers());
+    }
+
+    /**
+     * Tests that a delta can be serialized, to be moved to a temporary file.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    @SuppressFBWarnings(value = "OBJECT_DESERIALIZATION")
+    public void testSerialization() throws Exception {
+        WayData before = new WayData(1);
+        before.setNodeIds(ids(0, 100));
+        before.put("highway", "residential");
+        WayData after = new WayData(before);
+        after.setNodeIds(ids(0, 50));
+        after.put("highway", "service");
+        final Object read;
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+             ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new PrimitiveDelta(before, after));
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                read = in.readObject();
+            }
+        }
+        WayData restored = (WayData) ((PrimitiveDelta) read).restore(after);
+        assertEquals(before.getNodeIds(), restored.getNodeIds());
+        assertEquals(before.getKeys(), restored.getKeys());
+    }
+
+    /**
+     * Tests that states of different types are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentTypes() {
+        new PrimitiveDelta(new NodeData(1), new WayData(1));
+    }
+}
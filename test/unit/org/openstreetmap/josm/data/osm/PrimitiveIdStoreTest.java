@@ -0,0 +1,119 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link PrimitiveIdStore}.
+ */
+public class PrimitiveIdStoreTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Unit test of {@link PrimitiveIdStore#get} for primitives of different types with the same id.
+     */
+    @Test
+    public void testGetByIdAndType() {
+        PrimitiveIdStore<OsmPrimitive> store = new PrimitiveIdStore<>();
+        Node n = new Node(1);
+        Way w = new Way(1);
+        Relation r = new Relation(1);
+        assertTrue(store.add(n));
+        assertTrue(store.add(w));
+        assertTrue(store.add(r));
+        assertFalse(store.add(new Node(1)));
+        assertEquals(3, store.size());
+
+        assertSame(n, store.get(new SimplePrimitiveId(1, OsmPrimitiveType.NODE)));
+        assertSame(w, store.get(1, OsmPrimitiveType.WAY));
+        assertSame(r, store.get(new SimplePrimitiveId(1, OsmPrimitiveType.RELATION)));
+        assertNull(store.get(2, OsmPrimitiveType.NODE));
+        assertNull(store.get(null));
+        assertTrue(store.contains(new SimplePrimitiveId(1, OsmPrimitiveType.WAY)));
+        assertFalse(store.contains("1"));
+    }
+
+    /**
+     * Adds and removes many primitives and compares the result with a {@link HashSet}.
+     */
+    @Test
+    public void testAddRemove() {
+        PrimitiveIdStore<Node> store = new PrimitiveIdStore<>(4);
+        HashSet<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long id = 1 + random.nextInt(5_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(id), store.add(new Node(id)));
+            } else {
+                assertEquals(expected.remove(id), store.remove(new SimplePrimitiveId(id, OsmPrimitiveType.NODE)));
+            }
+        }
+        assertEquals(expected.size(), store.size());
+        for (long id = 1; id <= 5_000; id++) {
+            Node n = store.get(id, OsmPrimitiveType.NODE);
+            assertEquals(expected.contains(id), n != null);
+            if (n != null) {
+                assertEquals(id, n.getUniqueId());
+            }
+        }
+        HashSet<Long> iterated = new HashSet<>();
+        for (Node n : store) {
+            assertTrue(iterated.add(n.getUniqueId()));
+        }
+        assertEquals(expected, iterated);
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertFalse(store.iterator().hasNext());
+    }
+
+    /**
+     * Checks that modifications during iteration are not visible to the iterator.
+     */
+    @Test
+    public void testSnapshotIterator() {
+        PrimitiveIdStore<Node> store = new PrimitiveIdStore<>();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            Node n = new Node(i);
+            nodes.add(n);
+            store.add(n);
+        }
+        Iterator<Node> it = store.iterator();
+        for (Node n : nodes) {
+            store.remove(n);
+        }
+        store.add(new Node(1000));
+        int count = 0;
+        while (it.hasNext()) {
+            assertTrue(it.next().getUniqueId() <= 100);
+            count++;
+        }
+        assertEquals(100, count);
+        assertEquals(1, store.size());
+        assertSame(store.iterator().next(), store.get(1000, OsmPrimitiveType.NODE));
+    }
+}
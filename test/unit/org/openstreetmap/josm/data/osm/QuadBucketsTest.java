@@ -9,14 +9,17 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.coor.QuadTiling;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
 import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
@@ -260,4 +263,109 @@ public class QuadBucketsTest {
         }
         Assert.assertEquals(0, qb.size());
     }
+
+    private static Node newNode(Random random, double lat, double lon, double size) {
+        Node n = new Node(new LatLon(lat + random.nextDouble() * size, lon + random.nextDouble() * size));
+        n.setOsmId(random.nextInt(Integer.MAX_VALUE) + 1L, 1);
+        return n;
+    }
+
+    /**
+     * Test that the quad key of bulk insertion gives the same index as {@link BBox#getIndex(int)}.
+     */
+    @Test
+    public void testBatchIndex() {
+        Random random = new Random(42);
+        QuadBuckets.Batch batch = new QuadBuckets.Batch(1_000);
+        List<Way> ways = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            double size = Math.pow(10, -random.nextInt(8));
+            Way w = new Way();
+            w.setNodes(Arrays.asList(newNode(random, -90, -180, 180), newNode(random, 0, 0, size)));
+            if (i % 2 == 0) {
+                w.setNodes(w.getNodes().subList(1, 2));
+            }
+            batch.set(i, w);
+            ways.add(w);
+        }
+        for (int i = 0; i < ways.size(); i++) {
+            for (int level = 0; level < QuadTiling.NR_LEVELS; level++) {
+                byte expected = ways.get(i).getBBox().getIndex(level);
+                Assert.assertEquals(expected, batch.getIndex(i, level));
+                if (expected == -1) {
+                    // the primitive is stored at this level, deeper levels are never looked at
+                    break;
+                }
+            }
+        }
+    }
+
+    private static Set<Node> search(QuadBuckets<Node> qb, BBox bbox) {
+        List<Node> result = qb.search(bbox);
+        Set<Node> set = new HashSet<>(result);
+        Assert.assertEquals("duplicate search results", result.size(), set.size());
+        return set;
+    }
+
+    /**
+     * Test that bulk insertion gives the same results as adding primitives one by one, also into a non-empty tree.
+     */
+    @Test
+    public void testAddAllSameAsAdd() {
+        Random random = new Random(42);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            // dense clusters force deep trees, the others are spread over the world
+            nodes.add(i % 2 == 0 ? newNode(random, 50, 10, 1e-5) : newNode(random, -90, -180, 180));
+        }
+        nodes.add(new Node(1));
+        List<Node> first = nodes.subList(0, 3_000);
+        List<Node> second = nodes.subList(3_000, nodes.size());
+
+        QuadBuckets<Node> incremental = new QuadBuckets<>();
+        first.forEach(incremental::add);
+        QuadBuckets<Node> bulk = new QuadBuckets<>();
+        bulk.addAll(first);
+        Assert.assertEquals(incremental.size(), bulk.size());
+        Assert.assertEquals(new HashSet<>(incremental), new HashSet<>(bulk));
+
+        second.forEach(incremental::add);
+        bulk.addAll(second);
+        Assert.assertEquals(nodes.size(), bulk.size());
+        Assert.assertEquals(new HashSet<>(nodes), new HashSet<>(bulk.toList()));
+
+        for (int i = 0; i < 200; i++) {
+            double lat = 50 + random.nextDouble() * 1e-5;
+            double lon = 10 + random.nextDouble() * 1e-5;
+            BBox small = new BBox(lon, lat, lon + random.nextDouble() * 1e-6, lat + random.nextDouble() * 1e-6);
+            Assert.assertEquals(search(incremental, small), search(bulk, small));
+            BBox large = new BBox(random.nextDouble() * 360 - 180, random.nextDouble() * 180 - 90,
+                    random.nextDouble() * 360 - 180, random.nextDouble() * 180 - 90);
+            Assert.assertEquals(search(incremental, large), search(bulk, large));
+        }
+
+        for (Node n : nodes) {
+            Assert.assertTrue(bulk.contains(n));
+            Assert.assertTrue(bulk.remove(n));
+        }
+        Assert.assertTrue(bulk.isEmpty());
+        checkIterator(bulk, 0);
+    }
+
+    /**
+     * Test that all primitives can be removed from the Quad Buckets after a bulk insertion by {@link DataSet#addPrimitives}.
+     * @throws Exception never
+     */
+    @Test
+    public void testRemoveAfterAddPrimitives() throws Exception {
+        try (InputStream fis = new FileInputStream("data_nodist/restriction.osm")) {
+            DataSet source = OsmReader.parseDataSet(fis, NullProgressMonitor.INSTANCE);
+            DataSet ds = new DataSet();
+            new DataSetMerger(ds, source).merge();
+            Assert.assertEquals(source.allPrimitives().size(), ds.allPrimitives().size());
+            Assert.assertEquals(source.searchNodes(new BBox(-180, -90, 180, 90)).size(),
+                    ds.searchNodes(new BBox(-180, -90, 180, 90)).size());
+            removeAllTest(ds);
+        }
+    }
 }
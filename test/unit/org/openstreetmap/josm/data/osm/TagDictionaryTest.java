@@ -0,0 +1,63 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link TagDictionary}.
+ */
+public class TagDictionaryTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Unit test of {@link TagDictionary#intern}.
+     */
+    @Test
+    public void testIntern() {
+        String value = new String("residential");
+        String canonical = TagDictionary.intern(value);
+        assertEquals("residential", canonical);
+        assertSame("residential", canonical);
+        assertSame(canonical, TagDictionary.intern(new String("residential")));
+        assertNull(TagDictionary.intern(null));
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals("v" + i, TagDictionary.intern("v" + i));
+        }
+        assertSame("residential", TagDictionary.intern(new String("residential")));
+    }
+
+    /**
+     * Checks that tags set on primitives use the canonical strings.
+     */
+    @Test
+    public void testPrimitiveTags() {
+        Node n1 = new Node();
+        Node n2 = new Node();
+        n1.put(new String("highway"), new String("residential"));
+        n2.put(new String("highway"), new String("residential"));
+        n2.put(new String("highway"), new String("service"));
+        assertSame("highway", n1.getKeys().keySet().iterator().next());
+        assertSame("residential", n1.get("highway"));
+        assertSame("service", n2.get("highway"));
+
+        Way w = new Way();
+        w.setKeys(Collections.singletonMap(new String("building"), new String("yes")));
+        assertSame("yes", w.get("building"));
+    }
+}
@@ -0,0 +1,111 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TagIndex} class.
+ */
+public class TagIndexTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static Node node(DataSet ds, String... tags) {
+        Node n = new Node(LatLon.ZERO);
+        for (int i = 0; i < tags.length; i += 2) {
+            n.put(tags[i], tags[i + 1]);
+        }
+        ds.addPrimitive(n);
+        return n;
+    }
+
+    private static Set<OsmPrimitive> set(OsmPrimitive... primitives) {
+        return new HashSet<>(Arrays.asList(primitives));
+    }
+
+    /**
+     * Tests that the index follows the changes of the dataset.
+     */
+    @Test
+    public void testUpdates() {
+        DataSet ds = new DataSet();
+        Node n1 = node(ds, "amenity", "pharmacy");
+        Node n2 = node(ds, "amenity", "school", "name", "Foo");
+        TagIndex index = ds.getTagIndex();
+        assertEquals(set(n1), new HashSet<>(index.get("amenity", "pharmacy")));
+        assertEquals(set(n1, n2), new HashSet<>(index.getByKey("amenity")));
+        assertEquals(set(n2), new HashSet<>(index.getByValue("Foo")));
+
+        n2.put("amenity", "pharmacy");
+        Node n3 = node(ds, "amenity", "pharmacy");
+        ds.removePrimitive(n1);
+        assertEquals(set(n2, n3), new HashSet<>(index.get("amenity", "pharmacy")));
+        assertTrue(index.get("amenity", "school").isEmpty());
+
+        n3.remove("amenity");
+        assertEquals(set(n2), new HashSet<>(index.getByKey("amenity")));
+        assertEquals(new HashSet<>(Arrays.asList("amenity", "name")), index.getKeys());
+
+        // too many events for single events: the index is rebuilt
+        ds.beginUpdate();
+        try {
+            for (int i = 0; i < 2000; i++) {
+                node(ds, "shop", "bakery");
+            }
+            n2.remove("amenity");
+        } finally {
+            ds.endUpdate();
+        }
+        assertEquals(2000, index.get("shop", "bakery").size());
+        assertTrue(index.getByKey("amenity").isEmpty());
+    }
+
+    /**
+     * Tests that the candidates of a search contain all matching primitives.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCandidates() throws Exception {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < 100; i++) {
+            node(ds, "amenity", i % 10 == 0 ? "pharmacy" : "school", "name", "Name " + i, "Ref", Integer.toString(i % 7));
+        }
+        node(ds);
+        TagIndex index = ds.getTagIndex();
+        for (String search : Arrays.asList("amenity=pharmacy", "amenity=*", "*=pharmacy", "amenity=pharmacy AND name=\"Name 10\"",
+                "ref:3", "ame:harm", "name=\"Name 1\" OR ref=5", "amenity=pharmacy AND -name=\"Name 10\"", "foo=bar")) {
+            Match m = SearchCompiler.compile(search);
+            Collection<OsmPrimitive> candidates = m.getCandidates(index);
+            Set<OsmPrimitive> expected = ds.allPrimitives().stream().filter(m).collect(Collectors.toSet());
+            assertEquals(search, expected, candidates.stream().filter(m).collect(Collectors.toSet()));
+            assertEquals(search, candidates.size(), new HashSet<>(candidates).size());
+        }
+        assertEquals(10, SearchCompiler.compile("amenity=pharmacy AND name:\"Name\"").getCandidates(index).size());
+        assertEquals(Collections.emptyList(), SearchCompiler.compile("foo=bar AND amenity=*").getCandidates(index));
+        assertNull(SearchCompiler.compile("-amenity=pharmacy").getCandidates(index));
+        assertNull(SearchCompiler.compile("amenity=pharmacy OR untagged").getCandidates(index));
+    }
+}
@@ -0,0 +1,228 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link RenderedTileCache}.
+ */
+public class RenderedTileCacheTest {
+
+    private static final int WIDTH = 1200;
+    private static final int HEIGHT = 900;
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection().mapStyles().timeout(30_000);
+
+    private DataSet ds;
+    private Node node;
+    private MapViewState state;
+    private final AtomicInteger rendered = new AtomicInteger();
+
+    /**
+     * Creates a grid of roads around a single node.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        for (int i = 0; i < 10; i++) {
+            Way row = new Way();
+            Way column = new Way();
+            for (int j = 0; j < 2; j++) {
+                Node n1 = new Node(new LatLon(50 + i * 0.001, 8 + j * 0.01));
+                Node n2 = new Node(new LatLon(50 + j * 0.01, 8 + i * 0.001));
+                ds.addPrimitive(n1);
+                ds.addPrimitive(n2);
+                row.addNode(n1);
+                column.addNode(n2);
+            }
+            row.put("highway", "residential");
+            column.put("waterway", "stream");
+            ds.addPrimitive(row);
+            ds.addPrimitive(column);
+        }
+        node = new Node(new LatLon(50.005, 8.005));
+        node.put("amenity", "bench");
+        ds.addPrimitive(node);
+        EastNorth center = ProjectionRegistry.getProjection().latlon2eastNorth(new LatLon(50.005, 8.005));
+        state = MapViewState.createDefaultState(WIDTH, HEIGHT).usingScale(0.2).usingCenter(center);
+    }
+
+    private RenderedTileCache createCache() {
+        RenderedTileCache cache = new RenderedTileCache(ds, Runnable::run, rendered::incrementAndGet);
+        ds.addDataSetListener(new DataSetListenerAdapter(cache::invalidate));
+        return cache;
+    }
+
+    private static BufferedImage createImage() {
+        return new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private static int paint(RenderedTileCache cache, BufferedImage image, MapViewState state) {
+        Graphics2D g = image.createGraphics();
+        try {
+            return cache.paint(g, state, false, false);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Checks that tiles are reused when the view is moved.
+     */
+    @Test
+    public void testPan() {
+        RenderedTileCache cache = createCache();
+        try {
+            int visible = paint(cache, createImage(), state);
+            assertTrue(visible >= 6);
+            assertEquals(visible, rendered.get());
+            assertEquals(0, paint(cache, createImage(), state));
+            assertEquals(visible, rendered.get());
+
+            MapViewState moved = state.movedTo(state.getForView(RenderedTileCache.TILE_SIZE, 0), state.getCenter().getEastNorth());
+            int missing = paint(cache, createImage(), moved);
+            assertTrue(missing > 0 && missing < visible);
+            assertEquals(visible + missing, rendered.get());
+            assertEquals(visible + missing, cache.getTileCount());
+        } finally {
+            cache.destroy();
+        }
+    }
+
+    /**
+     * Checks that only the tiles around a changed primitive are rendered again.
+     */
+    @Test
+    public void testInvalidation() {
+        RenderedTileCache cache = createCache();
+        try {
+            int visible = paint(cache, createImage(), state);
+            node.setCoor(new LatLon(50.0051, 8.0051));
+            int invalidated = rendered.get();
+            paint(cache, createImage(), state);
+            invalidated = rendered.get() - invalidated;
+            assertTrue(invalidated > 0 && invalidated < visible);
+
+            cache.invalidateAll();
+            int before = rendered.get();
+            assertEquals(visible, paint(cache, createImage(), state));
+            assertEquals(before + visible, rendered.get());
+        } finally {
+            cache.destroy();
+        }
+    }
+
+    /**
+     * Checks that the tiles show the same as a rendering of the whole view.
+     */
+    @Test
+    public void testSameAsFullRendering() {
+        BufferedImage full = createImage();
+        Graphics2D g = full.createGraphics();
+        NavigatableComponent nc = new NavigatableComponent() {
+            {
+                setBounds(0, 0, WIDTH, HEIGHT);
+                setState(state);
+            }
+        };
+        new StyledMapRenderer(g, nc, false).render(ds, false, state.getViewArea().getLatLonBoundsBox());
+        g.dispose();
+
+        RenderedTileCache cache = createCache();
+        try {
+            BufferedImage tiled = createImage();
+            paint(cache, tiled, state);
+            int differences = 0;
+            int drawn = 0;
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    if (full.getRGB(x, y) != tiled.getRGB(x, y)) {
+                        differences++;
+                    }
+                    if (full.getRGB(x, y) != 0) {
+                        drawn++;
+                    }
+                }
+            }
+            assertTrue(drawn > 1000);
+            assertTrue(Integer.toString(differences), differences < WIDTH * HEIGHT / 1000);
+        } finally {
+            cache.destroy();
+        }
+    }
+
+    /**
+     * Checks that a tile is not marked as rendered when the data set is locked, and rendered once it is unlocked.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testLocked() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        RenderedTileCache cache = new RenderedTileCache(ds, tasks::add, rendered::incrementAndGet);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            ds.beginUpdate();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                ds.endUpdate();
+            }
+        });
+        writer.start();
+        try {
+            locked.await();
+            int visible = paint(cache, createImage(), state);
+            assertEquals(visible, tasks.size());
+            tasks.remove(0).run();
+            // not rendered, queued again
+            assertEquals(0, rendered.get());
+            assertEquals(visible, tasks.size());
+            assertEquals(visible, paint(cache, createImage(), state));
+            assertEquals(visible, tasks.size());
+
+            release.countDown();
+            writer.join();
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+            assertEquals(visible, rendered.get());
+            assertEquals(0, paint(cache, createImage(), state));
+        } finally {
+            release.countDown();
+            cache.destroy();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link SimplifiedWayCache}.
+ */
+public class SimplifiedWayCacheTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private DataSet ds;
+    private Way way;
+
+    private static List<Node> nodes(double... coordinates) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            nodes.add(new Node(new EastNorth(coordinates[i], coordinates[i + 1])));
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates a way of 11 nodes, the inner ones 1 unit off the straight line.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        way = new Way();
+        for (Node n : nodes(0, 0, 10, 1, 20, 0, 30, 1, 40, 0, 50, 1, 60, 0, 70, 1, 80, 0, 90, 1, 100, 0)) {
+            ds.addPrimitive(n);
+            way.addNode(n);
+        }
+        ds.addPrimitive(way);
+        SimplifiedWayCache.getInstance().register(ds);
+    }
+
+    /**
+     * Unregisters the data set.
+     */
+    @After
+    public void tearDown() {
+        SimplifiedWayCache.getInstance().unregister(ds);
+    }
+
+    /**
+     * Tests {@link SimplifiedWayCache#simplify}
+     */
+    @Test
+    public void testSimplify() {
+        List<Node> line = nodes(0, 0, 1, 0.1, 2, 0, 3, 5, 4, 0);
+        assertEquals(Arrays.asList(line.get(0), line.get(2), line.get(3), line.get(4)), SimplifiedWayCache.simplify(line, 0.5));
+        assertEquals(Arrays.asList(line.get(0), line.get(4)), SimplifiedWayCache.simplify(line, 10));
+        assertEquals(line, SimplifiedWayCache.simplify(line, 0.01));
+    }
+
+    /**
+     * A closed way keeps its start node and the node farthest from it.
+     */
+    @Test
+    public void testSimplifyClosed() {
+        List<Node> ring = nodes(0, 0, 5, 0.1, 10, 0, 10, 10, 0, 10);
+        ring.add(ring.get(0));
+        assertEquals(Arrays.asList(ring.get(0), ring.get(2), ring.get(3), ring.get(4), ring.get(0)),
+                SimplifiedWayCache.simplify(ring, 0.5));
+        assertEquals(Arrays.asList(ring.get(0), ring.get(3), ring.get(0)), SimplifiedWayCache.simplify(ring, 20));
+    }
+
+    /**
+     * Scales of the same band share the simplification.
+     */
+    @Test
+    public void testBands() {
+        SimplifiedWayCache cache = SimplifiedWayCache.getInstance();
+        List<Node> coarse = cache.getNodes(way, 4);
+        assertEquals(2, coarse.size());
+        assertSame(coarse, cache.getNodes(way, 7.9));
+        assertEquals(11, cache.getNodes(way, 1).size());
+        assertEquals(11, cache.getNodes(way, 0.5).size());
+        assertEquals(2, cache.getNodes(way, 2.1).size());
+    }
+
+    /**
+     * Moving a node or changing the nodes drops the simplifications of the way.
+     */
+    @Test
+    public void testInvalidation() {
+        SimplifiedWayCache cache = SimplifiedWayCache.getInstance();
+        List<Node> coarse = cache.getNodes(way, 32);
+        way.getNode(5).setEastNorth(new EastNorth(50, 20));
+        List<Node> moved = cache.getNodes(way, 32);
+        assertNotSame(coarse, moved);
+        assertEquals(Arrays.asList(way.getNode(0), way.getNode(5), way.getNode(10)), moved);
+
+        way.removeNode(way.getNode(5));
+        assertEquals(2, cache.getNodes(way, 4).size());
+    }
+
+    /**
+     * The ways of unregistered data sets are simplified, but not cached.
+     */
+    @Test
+    public void testUnregistered() {
+        SimplifiedWayCache cache = SimplifiedWayCache.getInstance();
+        cache.unregister(ds);
+        List<Node> coarse = cache.getNodes(way, 4);
+        assertEquals(2, coarse.size());
+        assertNotSame(coarse, cache.getNodes(way, 4));
+        way.getNode(5).setEastNorth(new EastNorth(50, 20));
+        assertEquals(3, cache.getNodes(way, 32).size());
+    }
+}
@@ -0,0 +1,179 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint.relations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of the {@link MultipolygonCache} class.
+ */
+public class MultipolygonCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private DataSet ds;
+    private Node a, b, c, d, e;
+    private Way outer1, outer2, inner;
+    private Relation r;
+
+    private static Node node(DataSet ds, double lat, double lon) {
+        Node n = new Node(new LatLon(lat, lon));
+        ds.addPrimitive(n);
+        return n;
+    }
+
+    private static Way way(DataSet ds, Node... nodes) {
+        Way w = new Way();
+        w.setNodes(Arrays.asList(nodes));
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Creates a multipolygon with an outer ring of two ways and an inner ring of one closed way.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        a = node(ds, 0, 0);
+        b = node(ds, 0, 1);
+        c = node(ds, 1, 1);
+        d = node(ds, 1, 0);
+        outer1 = way(ds, a, b, c);
+        outer2 = way(ds, c, d, a);
+        e = node(ds, 0.2, 0.2);
+        Node f = node(ds, 0.2, 0.4);
+        Node g = node(ds, 0.4, 0.4);
+        inner = way(ds, e, f, g, e);
+        r = new Relation();
+        r.put("type", "multipolygon");
+        r.addMember(new RelationMember("outer", outer1));
+        r.addMember(new RelationMember("outer", outer2));
+        r.addMember(new RelationMember("inner", inner));
+        ds.addPrimitive(r);
+        ds.addDataSetListener(MultipolygonCache.getInstance());
+    }
+
+    /**
+     * Removes the cache listener.
+     */
+    @After
+    public void tearDown() {
+        ds.removeDataSetListener(MultipolygonCache.getInstance());
+        MultipolygonCache.getInstance().clear(ds);
+    }
+
+    private static List<Double> coordinates(Path2D.Double path) {
+        List<Double> result = new ArrayList<>();
+        double[] coords = new double[6];
+        for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next()) {
+            result.add((double) it.currentSegment(coords));
+            result.add(coords[0]);
+            result.add(coords[1]);
+        }
+        return result;
+    }
+
+    private void assertSameAsRebuilt(Multipolygon cached) {
+        Multipolygon rebuilt = new Multipolygon(r);
+        assertEquals(rebuilt.getCombinedPolygons().size(), cached.getCombinedPolygons().size());
+        for (int i = 0; i < rebuilt.getCombinedPolygons().size(); i++) {
+            PolyData expected = rebuilt.getCombinedPolygons().get(i);
+            PolyData actual = cached.getCombinedPolygons().get(i);
+            // a joined ring may start at another node than the rebuilt one
+            assertEquals(new HashSet<>(expected.getNodes()), new HashSet<>(actual.getNodes()));
+            assertEquals(coordinates(expected.get()).size(), coordinates(actual.get()).size());
+            assertEquals(expected.getBounds(), actual.getBounds());
+        }
+    }
+
+    /**
+     * Moving a node of the outer ring updates the cached multipolygon.
+     */
+    @Test
+    public void testOuterNodeMoved() {
+        Multipolygon m = MultipolygonCache.getInstance().get(r);
+        double before = m.getCombinedPolygons().get(0).getBounds().getMaxX();
+        b.setCoor(new LatLon(0, 2));
+        assertSame(m, MultipolygonCache.getInstance().get(r));
+        assertNotEquals(before, m.getCombinedPolygons().get(0).getBounds().getMaxX(), 1e-9);
+        assertSameAsRebuilt(m);
+    }
+
+    /**
+     * Moving a node of an inner ring updates the combined polygon.
+     */
+    @Test
+    public void testInnerNodeMoved() {
+        Multipolygon m = MultipolygonCache.getInstance().get(r);
+        List<Double> before = coordinates(m.getCombinedPolygons().get(0).get());
+        e.setCoor(new LatLon(0.1, 0.1));
+        assertSame(m, MultipolygonCache.getInstance().get(r));
+        assertNotEquals(before, coordinates(m.getCombinedPolygons().get(0).get()));
+        assertSameAsRebuilt(m);
+    }
+
+    /**
+     * Several node moves are applied together.
+     */
+    @Test
+    public void testSeveralNodesMoved() {
+        Multipolygon m = MultipolygonCache.getInstance().get(r);
+        a.setCoor(new LatLon(-0.5, -0.5));
+        c.setCoor(new LatLon(1.5, 1.5));
+        e.setCoor(new LatLon(0.3, 0.1));
+        assertSameAsRebuilt(m);
+    }
+
+    /**
+     * Adding a node to an outer way updates its ring in place.
+     */
+    @Test
+    public void testWayNodesChanged() {
+        Multipolygon m = MultipolygonCache.getInstance().get(r);
+        Node n = node(ds, -0.5, 0.5);
+        outer1.addNode(1, n);
+        assertSame(m, MultipolygonCache.getInstance().get(r));
+        assertEquals(6, m.getCombinedPolygons().get(0).getNodes().size());
+        assertSameAsRebuilt(m);
+    }
+
+    /**
+     * Opening the outer ring drops the cached multipolygon, see #13591.
+     */
+    @Test
+    public void testWayNodesChangedOpensRing() {
+        Multipolygon m = MultipolygonCache.getInstance().get(r);
+        outer2.removeNode(a);
+        assertNotSame(m, MultipolygonCache.getInstance().get(r));
+    }
+}
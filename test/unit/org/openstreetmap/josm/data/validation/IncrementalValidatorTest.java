@@ -0,0 +1,191 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.IncrementalValidator.Update;
+import org.openstreetmap.josm.data.validation.tests.CrossingWays;
+import org.openstreetmap.josm.data.validation.tests.DuplicateNode;
+import org.openstreetmap.josm.data.validation.tests.DuplicateWay;
+import org.openstreetmap.josm.data.validation.tests.DuplicatedWayNodes;
+import org.openstreetmap.josm.data.validation.tests.UntaggedNode;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link IncrementalValidator}.
+ */
+public class IncrementalValidatorTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection();
+
+    private static List<Test> createTests() {
+        return Arrays.asList(new CrossingWays.Ways(), new CrossingWays.Barrier(), new DuplicateNode(), new UntaggedNode(),
+                new DuplicatedWayNodes(), new DuplicateWay());
+    }
+
+    private static List<String> toStrings(Collection<TestError> errors) {
+        return errors.stream()
+                .map(e -> e.getTester().getClass().getSimpleName() + ' ' + e.getCode() + ' ' + e.getMessage() + ' '
+                        + e.getPrimitives().stream().map(p -> Long.toString(p.getUniqueId())).sorted().collect(Collectors.joining(",")))
+                .sorted().collect(Collectors.toList());
+    }
+
+    private static List<String> validateAll(DataSet ds) {
+        List<Test> tests = createTests();
+        return toStrings(new ValidationRunner(false).run(tests, ds.allNonDeletedPrimitives(), false, NullProgressMonitor.INSTANCE));
+    }
+
+    private static LatLon randomLatLon(Random random) {
+        return new LatLon(random.nextInt(500) * 1e-4, random.nextInt(500) * 1e-4);
+    }
+
+    private static LatLon randomLatLonNear(Random random, LatLon ll) {
+        return new LatLon(ll.lat() + (random.nextInt(20) - 10) * 1e-4, ll.lon() + (random.nextInt(20) - 10) * 1e-4);
+    }
+
+    private static DataSet createDataSet(Random random, int wayCount) {
+        DataSet ds = new DataSet();
+        List<OsmPrimitive> primitives = new ArrayList<>();
+        for (int i = 0; i < wayCount; i++) {
+            Node n1 = new Node(randomLatLon(random));
+            Node n2 = new Node(new LatLon(n1.lat() + random.nextInt(10) * 1e-4, n1.lon() + random.nextInt(10) * 1e-4));
+            Node n3 = new Node(new LatLon(n2.lat() + random.nextInt(10) * 1e-4, n2.lon() - random.nextInt(10) * 1e-4));
+            Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2, n3));
+            w.put(i % 4 == 0 ? "barrier" : "highway", i % 4 == 0 ? "fence" : "residential");
+            primitives.addAll(Arrays.asList(n1, n2, n3, w));
+            if (i % 3 == 0) {
+                primitives.add(new Node(randomLatLon(random)));
+            }
+        }
+        ds.addPrimitives(primitives);
+        return ds;
+    }
+
+    private static void edit(DataSet ds, Random random) {
+        List<Node> nodes = new ArrayList<>(ds.getNodes());
+        nodes.removeIf(OsmPrimitive::isDeleted);
+        List<Way> ways = new ArrayList<>(ds.getWays());
+        ways.removeIf(OsmPrimitive::isDeleted);
+        Node node = nodes.get(random.nextInt(nodes.size()));
+        Way way = ways.get(random.nextInt(ways.size()));
+        switch (random.nextInt(6)) {
+        case 0:
+            node.setCoor(randomLatLonNear(random, node.getCoor()));
+            break;
+        case 1:
+            Node other = nodes.get(random.nextInt(nodes.size()));
+            if (other.getCoor().greatCircleDistance(node.getCoor()) < 500) {
+                node.setCoor(other.getCoor());
+            } else {
+                node.setCoor(randomLatLonNear(random, node.getCoor()));
+            }
+            break;
+        case 2:
+            way.put("layer", way.hasKey("layer") ? null : "1");
+            break;
+        case 3:
+            if (node.getReferrers().isEmpty()) {
+                node.setDeleted(true);
+            } else {
+                node.put("name", node.hasKey("name") ? null : "foo");
+            }
+            break;
+        case 4:
+            Node n1 = new Node(randomLatLon(random));
+            Node n2 = new Node(randomLatLonNear(random, n1.getCoor()));
+            ds.addPrimitive(n1);
+            ds.addPrimitive(n2);
+            Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2));
+            w.put("highway", "service");
+            ds.addPrimitive(w);
+            break;
+        default:
+            List<Node> wayNodes = new ArrayList<>(way.getNodes());
+            wayNodes.add(1, wayNodes.get(0));
+            way.setNodes(wayNodes);
+        }
+    }
+
+    /**
+     * Checks that the errors after each revalidation are the errors of a full validation of the modified data.
+     */
+    @org.junit.Test
+    public void testRevalidateAfterEdits() {
+        Random random = new Random(1);
+        DataSet ds = createDataSet(random, 100);
+        IncrementalValidator validator = new IncrementalValidator(ds, createTests(), new ValidationRunner(false));
+        try {
+            assertTrue(validator.hasChanges());
+            Update update = validator.revalidate(NullProgressMonitor.INSTANCE);
+            assertTrue(update.isComplete());
+            List<String> expected = validateAll(ds);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, toStrings(validator.getErrors()));
+            assertEquals(expected, toStrings(update.getAddedErrors()));
+            assertFalse(validator.hasChanges());
+
+            for (int i = 0; i < 60; i++) {
+                edit(ds, random);
+                update = validator.revalidate(NullProgressMonitor.INSTANCE);
+                assertFalse(update.isComplete());
+                assertEquals("after edit " + i, validateAll(ds), toStrings(validator.getErrors()));
+            }
+        } finally {
+            validator.destroy();
+        }
+    }
+
+    /**
+     * Checks that only the neighbourhood of a change is revalidated, and that {@link Update#isObsolete} tells which
+     * of the former errors are replaced.
+     */
+    @org.junit.Test
+    public void testNeighbourhood() {
+        DataSet ds = createDataSet(new Random(2), 300);
+        IncrementalValidator validator = new IncrementalValidator(ds, createTests(), new ValidationRunner(false));
+        try {
+            validator.revalidate(NullProgressMonitor.INSTANCE);
+            List<TestError> errors = new ArrayList<>(validator.getErrors());
+            TestError crossing = errors.stream().filter(e -> e.getTester() instanceof CrossingWays).findFirst().get();
+            Way way = (Way) crossing.getPrimitives().iterator().next();
+            Node node = way.getNode(0);
+            node.setCoor(new LatLon(node.lat() + 5e-4, node.lon()));
+
+            Update update = validator.revalidate(NullProgressMonitor.INSTANCE);
+            assertFalse(update.isComplete());
+            assertTrue(update.getRevalidatedPrimitives().containsAll(crossing.getPrimitives()));
+            assertTrue(update.getRevalidatedPrimitives().size() < ds.allPrimitives().size() / 2);
+            assertTrue(update.isObsolete(crossing));
+            errors.removeIf(update::isObsolete);
+            errors.addAll(update.getAddedErrors());
+            assertEquals(validateAll(ds), toStrings(errors));
+        } finally {
+            validator.destroy();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.tests.DuplicateNode;
+import org.openstreetmap.josm.data.validation.tests.DuplicatedWayNodes;
+import org.openstreetmap.josm.data.validation.tests.SelfIntersectingWay;
+import org.openstreetmap.josm.data.validation.tests.UntaggedNode;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link ValidationRunner}.
+ */
+public class ValidationRunnerTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection();
+
+    /**
+     * A test that is not thread safe and must therefore run on the calling thread.
+     */
+    private static class ThreadCheckingTest extends Test {
+        private final Thread expectedThread = Thread.currentThread();
+
+        ThreadCheckingTest() {
+            super("thread checking test");
+        }
+
+        @Override
+        public void visit(Way w) {
+            assertEquals(expectedThread, Thread.currentThread());
+            if (w.getNodesCount() > 3) {
+                errors.add(TestError.builder(this, Severity.OTHER, 1).message("long way").primitives(w).build());
+            }
+        }
+    }
+
+    private static DataSet createDataSet() {
+        DataSet ds = new DataSet();
+        List<OsmPrimitive> primitives = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            double lat = (i % 100) / 100.0;
+            double lon = (i / 100) / 100.0;
+            Node n1 = new Node(new LatLon(lat, lon));
+            Node n2 = new Node(new LatLon(lat + 0.001, lon));
+            Node n3 = new Node(new LatLon(lat + 0.001, lon + 0.001));
+            Node loose = new Node(new LatLon(i % 7 == 0 ? lat : lat + 0.005, lon + 0.005));
+            if (i % 3 == 0) {
+                loose.put("amenity", "bench");
+            }
+            Way w = new Way();
+            w.setNodes(i % 5 == 0 ? Arrays.asList(n1, n2, n2, n3) : i % 5 == 1 ? Arrays.asList(n1, n2, n3, n2) : Arrays.asList(n1, n2, n3));
+            w.put("highway", "residential");
+            primitives.addAll(Arrays.asList(n1, n2, n3, loose, w));
+        }
+        ds.addPrimitives(primitives);
+        return ds;
+    }
+
+    private static List<String> run(ValidationRunner runner, DataSet ds) {
+        List<Test> tests = Arrays.asList(new DuplicateNode(), new ThreadCheckingTest(), new UntaggedNode(),
+                new DuplicatedWayNodes(), new SelfIntersectingWay());
+        return runner.run(tests, new ArrayList<>(ds.allPrimitives()), false, NullProgressMonitor.INSTANCE).stream()
+                .map(e -> e.getTester().getName() + ' ' + e.getCode() + ' ' + e.getMessage() + ' '
+                        + e.getPrimitives().stream().map(p -> Long.toString(p.getUniqueId())).collect(Collectors.joining(",")))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks that a parallel run reports the same errors in the same order as a sequential run.
+     */
+    @org.junit.Test
+    public void testSameErrorsAsSequential() {
+        DataSet ds = createDataSet();
+        List<String> expected = run(new ValidationRunner(false), ds);
+        assertFalse(expected.isEmpty());
+        for (int threads : new int[] {1, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                assertEquals(expected, run(new ValidationRunner(pool), ds));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
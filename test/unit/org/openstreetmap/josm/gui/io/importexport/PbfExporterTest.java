@@ -0,0 +1,74 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.io.importexport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link PbfExporter} class.
+ */
+public class PbfExporterTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary folder for the exported files.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that layers with modified or deleted objects are not exported, since these changes would be lost.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testLocalChanges() throws IOException {
+        DataSet ds = new DataSet();
+        Node existing = new Node(1, 1);
+        existing.setCoor(new LatLon(1, 1));
+        ds.addPrimitive(existing);
+        ds.addPrimitive(new Node(new LatLon(2, 2)));
+        OsmDataLayer layer = new OsmDataLayer(ds, "test", null);
+        File file = folder.newFile("test.osm.pbf");
+
+        // new objects are kept as new objects
+        assertFalse(PbfExporter.hasLocalChanges(ds));
+        new PbfExporter().exportData(file, layer);
+        assertTrue(file.length() > 0);
+
+        existing.setModified(true);
+        assertTrue(PbfExporter.hasLocalChanges(ds));
+        existing.setModified(false);
+        existing.setDeleted(true);
+        assertTrue(PbfExporter.hasLocalChanges(ds));
+        long length = file.length();
+        try {
+            new PbfExporter().exportData(file, layer);
+            fail("Local changes should not be exported");
+        } catch (IOException e) {
+            assertEquals(length, file.length());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link GpxHeatMap} class.
+ */
+public class GpxHeatMapTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private static final int SIZE = GpxHeatMap.TILE_SIZE;
+
+    private static int sum(int[] counts) {
+        return Arrays.stream(counts).sum();
+    }
+
+    /**
+     * Creates a track line.
+     * @param coordinates east and north coordinates of the points
+     * @return the way points, connected by lines
+     */
+    private static List<WayPoint> line(double... coordinates) {
+        List<WayPoint> line = new ArrayList<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            WayPoint wp = new WayPoint(ProjectionRegistry.getProjection().eastNorth2latlon(
+                    new EastNorth(coordinates[i], coordinates[i + 1])));
+            wp.drawLine = i > 0;
+            line.add(wp);
+        }
+        return line;
+    }
+
+    private static GpxHeatMap createHeatMap(List<List<WayPoint>> lines) {
+        GpxHeatMap heatMap = new GpxHeatMap();
+        heatMap.setData(lines, ProjectionRegistry.getProjection());
+        heatMap.setLevel(1, 100, 1, false);
+        heatMap.setColors(GpxDrawHelper.createColorLut(0, Color.BLACK, Color.WHITE), 0, false);
+        return heatMap;
+    }
+
+    private static void paint(GpxHeatMap heatMap) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        heatMap.paint(g, new Point2D.Double(0, 0), new Rectangle(SIZE, SIZE));
+        g.dispose();
+    }
+
+    /**
+     * Test of {@link GpxHeatMap#drawLine}.
+     */
+    @Test
+    public void testDrawLine() {
+        int[] counts = new int[SIZE * SIZE];
+        GpxHeatMap.drawLine(counts, 10.2, 20.5, 30.7, 20.5, 2, 1);
+        assertEquals(40, sum(counts));
+        assertEquals(1, counts[20 * SIZE + 10]);
+        assertEquals(1, counts[21 * SIZE + 29]);
+        assertEquals(0, counts[20 * SIZE + 30]);
+        assertEquals(0, counts[22 * SIZE + 15]);
+
+        // the same line in the other direction
+        counts = new int[SIZE * SIZE];
+        GpxHeatMap.drawLine(counts, 30.7, 20.5, 10.2, 20.5, 2, 1);
+        assertEquals(40, sum(counts));
+
+        // steep line, clipped to the tile
+        counts = new int[SIZE * SIZE];
+        GpxHeatMap.drawLine(counts, 5.5, -100, 5.5, 10.5, 1, 1);
+        assertEquals(10, sum(counts));
+
+        // foreground channel
+        counts = new int[SIZE * SIZE];
+        GpxHeatMap.drawLine(counts, 0.5, 0.5, 3.5, 0.5, 1, 1 << 16);
+        assertEquals(1 << 16, counts[0]);
+    }
+
+    /**
+     * Consecutive segments must not count their common point twice.
+     */
+    @Test
+    public void testDrawLineJoint() {
+        int[] counts = new int[SIZE * SIZE];
+        GpxHeatMap.drawLine(counts, 10.5, 10.5, 20.5, 10.5, 1, 1);
+        GpxHeatMap.drawLine(counts, 20.5, 10.5, 30.5, 10.5, 1, 1);
+        for (int x = 10; x < 30; x++) {
+            assertEquals(1, counts[10 * SIZE + x]);
+        }
+        assertEquals(20, sum(counts));
+    }
+
+    /**
+     * Tests that repeated tracks accumulate and that only the colors are recomputed when the gain changes.
+     */
+    @Test
+    public void testAccumulationAndColors() {
+        List<List<WayPoint>> lines = new ArrayList<>();
+        lines.add(line(10.5, -50.5, 100.5, -50.5));
+        lines.add(line(10.5, -50.5, 100.5, -50.5));
+        GpxHeatMap heatMap = createHeatMap(lines);
+        paint(heatMap);
+
+        int[] counts = heatMap.getCounts(0, 0);
+        assertNotNull(counts);
+        assertEquals(2, counts[50 * SIZE + 50]);
+        assertEquals(0, counts[100 * SIZE + 50]);
+        assertNull(heatMap.getCounts(1, 1));
+
+        BufferedImage image = heatMap.getImage(0, 0);
+        int rgb = image.getRGB(50, 50);
+        assertNotEquals(0, rgb);
+        assertEquals(0, image.getRGB(50, 100));
+
+        heatMap.setColors(GpxDrawHelper.createColorLut(0, Color.BLACK, Color.WHITE), 10, false);
+        paint(heatMap);
+        assertSame(counts, heatMap.getCounts(0, 0));
+        assertNotEquals(rgb, heatMap.getImage(0, 0).getRGB(50, 50));
+    }
+
+    /**
+     * Tests that the grids are cached per zoom level and dropped when the data changes.
+     */
+    @Test
+    public void testLevels() {
+        List<List<WayPoint>> lines = new ArrayList<>();
+        lines.add(line(10.5, -50.5, 100.5, -50.5, 100.5, -150.5));
+        GpxHeatMap heatMap = createHeatMap(lines);
+        paint(heatMap);
+        int[] counts = heatMap.getCounts(0, 0);
+        assertNotNull(counts);
+
+        heatMap.setLevel(2, 200, 1, false);
+        paint(heatMap);
+        int[] counts2 = heatMap.getCounts(0, 0);
+        assertNotNull(counts2);
+        assertEquals(1, counts2[25 * SIZE + 30]);
+
+        heatMap.setLevel(1, 100, 1, false);
+        paint(heatMap);
+        assertSame(counts, heatMap.getCounts(0, 0));
+
+        heatMap.setData(lines, ProjectionRegistry.getProjection());
+        heatMap.setLevel(1, 100, 1, false);
+        assertNull(heatMap.getCounts(0, 0));
+    }
+
+    /**
+     * Tests that segments crossing tile borders are drawn in all tiles.
+     */
+    @Test
+    public void testTileBorders() {
+        List<List<WayPoint>> lines = new ArrayList<>();
+        lines.add(line(100.5, -100.5, 400.5, -100.5));
+        GpxHeatMap heatMap = createHeatMap(lines);
+        BufferedImage image = new BufferedImage(2 * SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        heatMap.paint(g, new Point2D.Double(0, 0), new Rectangle(2 * SIZE, SIZE));
+        g.dispose();
+        assertEquals(2 * (SIZE - 100), sum(heatMap.getCounts(0, 0)));
+        assertEquals(2 * (400 - SIZE), sum(heatMap.getCounts(1, 0)));
+        assertNotEquals(0, image.getRGB(300, 100));
+    }
+}
@@ -0,0 +1,177 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderBenchmarkCollector.CapturingBenchmark;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ElemStyles}.
+ */
+public class ElemStylesTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static MapCSSStyleSource load(String css) {
+        MapCSSStyleSource source = new MapCSSStyleSource(css);
+        source.loadStyleSource();
+        assertTrue(source.getErrors().toString(), source.getErrors().isEmpty());
+        return source;
+    }
+
+    /**
+     * Checks that changing a style source only discards the cached styles of the primitive types it applies to.
+     */
+    @Test
+    public void testClearCachedPerSource() {
+        MapCSSStyleSource nodeStyle = load("node[amenity] { symbol-shape: circle; symbol-size: 10; }");
+        MapCSSStyleSource wayStyle = load("way[highway] { width: 2; color: red; }");
+        assertEquals(EnumSet.of(OsmPrimitiveType.NODE), nodeStyle.getAffectedTypes());
+        assertEquals(EnumSet.of(OsmPrimitiveType.WAY), wayStyle.getAffectedTypes());
+
+        ElemStyles styles = new ElemStyles();
+        styles.add(nodeStyle);
+        styles.add(wayStyle);
+        styles.clearCached();
+
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(0, 1));
+        Way w = new Way();
+        w.addNode(n1);
+        w.addNode(n2);
+        w.put("highway", "residential");
+        n1.put("amenity", "bench");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(w);
+
+        StyleElementList nodeStyles = styles.get(n1, 1, null);
+        StyleElementList wayStyles = styles.get(w, 1, null);
+        long hits = StyleCache.getHitCount();
+        assertSame(wayStyles, styles.get(w, 1, null));
+        assertSame(nodeStyles, styles.get(n1, 1, null));
+        assertEquals(hits + 2, StyleCache.getHitCount());
+        int nodeGeneration = styles.getGeneration(n1);
+        int wayGeneration = styles.getGeneration(w);
+        assertEquals(nodeGeneration, n1.getCachedStyle().getGeneration());
+
+        // deactivating the node style keeps the way styles
+        nodeStyle.active = false;
+        styles.clearCached(nodeStyle);
+        assertNotEquals(nodeGeneration, styles.getGeneration(n1));
+        assertEquals(wayGeneration, styles.getGeneration(w));
+        long misses = StyleCache.getMissCount();
+        assertSame(wayStyles, styles.get(w, 1, null));
+        assertNotEquals(nodeStyles, styles.get(n1, 1, null));
+        assertEquals(misses + 1, StyleCache.getMissCount());
+
+        // changes of inactive styles do not discard anything
+        nodeGeneration = styles.getGeneration(n1);
+        styles.clearCached(nodeStyle);
+        assertEquals(nodeGeneration, styles.getGeneration(n1));
+        assertEquals(wayGeneration, styles.getGeneration(w));
+
+        styles.clearCached();
+        assertNotEquals(nodeGeneration, styles.getGeneration(n1));
+        assertNotEquals(wayGeneration, styles.getGeneration(w));
+    }
+
+    /**
+     * Checks that the style cache statistics are captured by the benchmark.
+     */
+    @Test
+    public void testBenchmarkStatistics() {
+        ElemStyles styles = new ElemStyles();
+        styles.add(load("node { symbol-shape: square; }"));
+        styles.clearCached();
+        DataSet ds = new DataSet();
+        Node n = new Node(new LatLon(0, 0));
+        ds.addPrimitive(n);
+
+        CapturingBenchmark benchmark = new CapturingBenchmark();
+        benchmark.renderStart(1);
+        styles.get(n, 1, null);
+        styles.get(n, 1, null);
+        styles.get(n, 1, null);
+        benchmark.renderSort();
+        assertEquals(2, benchmark.getStyleCacheHits());
+        assertEquals(1, benchmark.getStyleCacheMisses());
+        assertTrue(benchmark.getStyleCacheSize() > 0);
+    }
+
+    /**
+     * Checks that styles computed concurrently for the same primitives are cached without range violations.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testConcurrentStyles() throws Exception {
+        ElemStyles styles = new ElemStyles();
+        styles.add(load("way[highway] { width: 2; color: red; } way|z16-[highway] { width: 4; }"));
+        DataSet ds = new DataSet();
+        List<Way> ways = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Node n1 = new Node(new LatLon(i * 0.001, 0));
+            Node n2 = new Node(new LatLon(i * 0.001, 0.001));
+            Way w = new Way();
+            w.addNode(n1);
+            w.addNode(n2);
+            w.put("highway", "residential");
+            ds.addPrimitive(n1);
+            ds.addPrimitive(n2);
+            ds.addPrimitive(w);
+            ways.add(w);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int run = 0; run < 20; run++) {
+                styles.clearCached();
+                List<Callable<Object>> tasks = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    tasks.add(() -> {
+                        for (Way w : ways) {
+                            styles.get(w, 1, null);
+                            styles.get(w, 1000, null);
+                        }
+                        return null;
+                    });
+                }
+                for (Future<Object> f : executor.invokeAll(tasks)) {
+                    f.get();
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (Way w : ways) {
+            assertSame(styles.get(w, 1, null), styles.get(w, 1, null));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TilePyramidRenderer}.
+ */
+public class TilePyramidRendererTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection().mapStyles().timeout(60_000);
+
+    /**
+     * Temporary folder for the tiles
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Bounds BOUNDS = new Bounds(50, 8, 50.01, 8.01);
+
+    private DataSet ds;
+
+    /**
+     * Creates a grid of roads.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        for (int i = 0; i < 10; i++) {
+            Way row = new Way();
+            Way column = new Way();
+            for (int j = 0; j < 2; j++) {
+                Node n1 = new Node(new LatLon(50 + i * 0.001, 8 + j * 0.01));
+                Node n2 = new Node(new LatLon(50 + j * 0.01, 8 + i * 0.001));
+                ds.addPrimitive(n1);
+                ds.addPrimitive(n2);
+                row.addNode(n1);
+                column.addNode(n2);
+            }
+            row.put("highway", "residential");
+            column.put("waterway", "stream");
+            ds.addPrimitive(row);
+            ds.addPrimitive(column);
+        }
+    }
+
+    private static int tileCount(int zoom) {
+        return (TilePyramidRenderer.lonToTileX(BOUNDS.getMaxLon(), zoom) - TilePyramidRenderer.lonToTileX(BOUNDS.getMinLon(), zoom) + 1)
+             * (TilePyramidRenderer.latToTileY(BOUNDS.getMinLat(), zoom) - TilePyramidRenderer.latToTileY(BOUNDS.getMaxLat(), zoom) + 1);
+    }
+
+    /**
+     * Checks the tile numbers.
+     */
+    @Test
+    public void testTileNumbers() {
+        assertEquals(550, TilePyramidRenderer.lonToTileX(13.4, 10));
+        assertEquals(335, TilePyramidRenderer.latToTileY(52.5, 10));
+        assertEquals(1, TilePyramidRenderer.lonToTileX(0, 1));
+        assertEquals(1, TilePyramidRenderer.latToTileY(0, 1));
+        assertEquals(0, TilePyramidRenderer.lonToTileX(-180, 3));
+        assertEquals(0, TilePyramidRenderer.latToTileY(89, 3));
+        assertEquals(7, TilePyramidRenderer.latToTileY(-89, 3));
+    }
+
+    /**
+     * Checks that all tiles are written to a directory.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testDirectory() throws IOException {
+        TilePyramidRenderer renderer = new TilePyramidRenderer(ds, MapPaintStyles.getStyles());
+        renderer.setMetaTileSize(2);
+        File dir = folder.newFolder();
+        TilePyramidRenderer.Statistics statistics;
+        try (TilePyramidRenderer.TileSink sink = new TilePyramidRenderer.DirectoryTileSink(dir)) {
+            statistics = renderer.render(BOUNDS, 14, 17, sink);
+        }
+        int expected = 0;
+        for (int zoom = 14; zoom <= 17; zoom++) {
+            expected += tileCount(zoom);
+            try (Stream<Path> files = Files.walk(new File(dir, Integer.toString(zoom)).toPath())) {
+                assertEquals(tileCount(zoom), files.filter(f -> f.toString().endsWith(".png")).count());
+            }
+        }
+        assertEquals(expected, statistics.getTileCount());
+        assertTrue(statistics.getTilesPerSecond() > 0);
+        assertFalse(ds.isLocked());
+
+        File tile = new File(dir, "17/" + TilePyramidRenderer.lonToTileX(8.005, 17) + '/' + TilePyramidRenderer.latToTileY(50.005, 17) + ".png");
+        BufferedImage image = ImageIO.read(tile);
+        assertEquals(TilePyramidRenderer.TILE_SIZE, image.getWidth());
+        assertEquals(TilePyramidRenderer.TILE_SIZE, image.getHeight());
+    }
+
+    /**
+     * Checks that several threads write the same tiles to an archive as a single thread.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testZipArchive() throws IOException {
+        Map<String, Integer> expected = renderToZip(1);
+        assertEquals(tileCount(15) + tileCount(16), expected.size());
+        assertTrue(expected.values().stream().anyMatch(drawn -> drawn > 1000));
+        assertEquals(expected, renderToZip(3));
+    }
+
+    private Map<String, Integer> renderToZip(int threads) throws IOException {
+        TilePyramidRenderer renderer = new TilePyramidRenderer(ds, MapPaintStyles.getStyles());
+        renderer.setThreads(threads);
+        renderer.setMetaTileSize(1);
+        File file = folder.newFile();
+        try (TilePyramidRenderer.TileSink sink = new TilePyramidRenderer.ZipTileSink(new FileOutputStream(file))) {
+            renderer.render(BOUNDS, 15, 16, sink);
+        }
+        Map<String, Integer> tiles = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(file)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                byte[] png = new byte[(int) entry.getSize()];
+                try (DataInputStream in = new DataInputStream(zip.getInputStream(entry))) {
+                    in.readFully(png);
+                }
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+                int drawn = 0;
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        if (image.getRGB(x, y) != image.getRGB(0, 0)) {
+                            drawn++;
+                        }
+                    }
+                }
+                tiles.put(entry.getName(), drawn);
+            }
+        }
+        return tiles;
+    }
+}
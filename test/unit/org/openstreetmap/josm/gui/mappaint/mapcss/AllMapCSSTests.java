@@ -13,7 +13,8 @@ import org.junit.runners.Suite;
     ParsingLinkSelectorTest.class,
     KeyConditionTest.class,
     MapCSSParserTest.class,
-    ChildOrParentSelectorTest.class
+    ChildOrParentSelectorTest.class,
+    MapCSSCompilerTest.class
 })
 public class AllMapCSSTests {
 
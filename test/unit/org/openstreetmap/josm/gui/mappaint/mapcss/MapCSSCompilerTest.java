@@ -0,0 +1,168 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
+import org.openstreetmap.josm.data.preferences.sources.SourceType;
+import org.openstreetmap.josm.gui.mappaint.Cascade;
+import org.openstreetmap.josm.gui.mappaint.Environment;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.OptimizedGeneralSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.MapCSSParser;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link MapCSSCompiler}.
+ */
+public class MapCSSCompilerTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection().timeout(60_000);
+
+    private static List<OsmPrimitive> createPrimitives() {
+        return Arrays.asList(
+                OsmUtils.createPrimitive("way highway=residential name=Main"),
+                OsmUtils.createPrimitive("way highway=primary lanes=2 oneway=yes"),
+                OsmUtils.createPrimitive("way highway=service oneway=no lanes=4;5 width=3.5"),
+                OsmUtils.createPrimitive("way building=yes height=12 name=abc"),
+                OsmUtils.createPrimitive("way landuse=forest area=no"),
+                OsmUtils.createPrimitive("node amenity=bench"),
+                OsmUtils.createPrimitive("node amenity=restaurant;cafe cuisine=pizza name=\"Pizza\""),
+                OsmUtils.createPrimitive("node"));
+    }
+
+    private static MapCSSParser getParser(String stringToParse) {
+        return new MapCSSParser(new StringReader(stringToParse));
+    }
+
+    /**
+     * Checks that compiled conditions match the same primitives as the interpreted ones.
+     * @throws Exception if the condition cannot be parsed
+     */
+    @Test
+    public void testConditions() throws Exception {
+        List<OsmPrimitive> primitives = createPrimitives();
+        for (String css : Arrays.asList("[highway]", "[!highway]", "[oneway?]", "[oneway?!]", "[!oneway?]", "[/^name/]",
+                "[highway!=primary]", "[name^=Ma]", "[name$=in]", "[name*=ai]", "[amenity~=cafe]", "[lanes~=5]",
+                "[lanes>=2]", "[lanes<2]", "[height>10.5]", "[width<=3.5]", "[height=~/^1/]", "[lanes!~/2/]",
+                "[highway=*name]", ":closed", "!:closed", ":tagged", ":new", "[tag(\"lanes\")>1]",
+                "[has_tag_key(\"name\")]", "[1 > 2]", "[2 > 1]")) {
+            Condition condition = css.startsWith("[") ? getParser(css).condition(Condition.Context.PRIMITIVE)
+                    : getParser(css).class_or_pseudoclass(Condition.Context.PRIMITIVE);
+            Condition compiled = new MapCSSCompiler().compile(condition);
+            for (OsmPrimitive p : primitives) {
+                assertEquals(css + " " + p, condition.applies(new Environment(p)), compiled.applies(new Environment(p)));
+            }
+        }
+    }
+
+    /**
+     * Checks that functions with literal arguments are folded and others evaluate like the interpreted expressions.
+     * @throws Exception if the expression cannot be parsed
+     */
+    @Test
+    public void testExpressions() throws Exception {
+        List<OsmPrimitive> primitives = createPrimitives();
+        MapCSSCompiler compiler = new MapCSSCompiler();
+        for (String css : Arrays.asList("1 + 2 * 3", "concat(\"a\", \"b\")", "max(1, 3, 2)", "cond(1 > 2, 3, 4)",
+                "upper(\"x\") == \"X\" && 1 < 2", "length(\"abc\")", "!(1 > 2) || 1 + 1 == 2")) {
+            Expression compiled = compiler.compile(getParser(css).expression());
+            assertTrue(css + " " + compiled, compiled instanceof LiteralExpression);
+        }
+        assertFalse(compiler.compile(getParser("random()").expression()) instanceof LiteralExpression);
+
+        for (String css : Arrays.asList("tag(\"lanes\") * 2", "concat(tag(\"name\"), \"-\", 1 + 1)",
+                "cond(has_tag_key(\"name\"), upper(tag(\"name\")), \"none\")", "max(tag(\"height\"), 5)",
+                "split(\";\", tag(\"amenity\"))", "tr(\"{0} m\", tag(\"width\"))", "regexp_test(\"^M\", tag(\"name\"))",
+                "osm_id() > 0 || is_prop_set(\"x\")", "any(tag(\"name\"), \"unnamed\")")) {
+            Expression expression = getParser(css).expression();
+            Expression compiled = compiler.compile(expression);
+            assertNotSame(expression, compiled);
+            for (OsmPrimitive p : primitives) {
+                Environment env = new Environment(p, new MultiCascade(), "default", null);
+                assertEquals(css + " " + p, expression.evaluate(env), compiled.evaluate(env));
+            }
+        }
+    }
+
+    /**
+     * Checks that the compiled selectors keep their structure and the conditions that are used for indexing.
+     * @throws Exception if the selector cannot be parsed
+     */
+    @Test
+    public void testSelector() throws Exception {
+        Selector selector = getParser("way[highway=residential][eval(1 < 2)][name]").selector().optimizedBaseCheck();
+        Selector compiled = new MapCSSCompiler().compile(selector);
+        assertTrue(compiled instanceof OptimizedGeneralSelector);
+        List<Condition> conditions = ((OptimizedGeneralSelector) compiled).getConditions();
+        assertEquals(2, conditions.size());
+        assertTrue(conditions.get(0) instanceof ConditionFactory.SimpleKeyValueCondition);
+        assertEquals(selector.getRange(), compiled.getRange());
+        assertEquals(selector.getSubpart(), compiled.getSubpart());
+    }
+
+    private static String applyStyle(MapCSSStyleSource source, Collection<OsmPrimitive> primitives) {
+        StringBuilder sb = new StringBuilder();
+        for (double scale : new double[] {0.1, 2, 50}) {
+            for (OsmPrimitive p : primitives) {
+                MultiCascade mc = new MultiCascade();
+                source.apply(mc, p, scale, false);
+                sb.append(p.getUniqueId()).append(' ').append(mc.range).append(' ');
+                for (Entry<String, Cascade> e : mc.getLayers()) {
+                    sb.append(e.getKey()).append(e.getValue());
+                }
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks that the default style gives the same cascades with and without compilation.
+     * @throws Exception if the data cannot be read
+     */
+    @Test
+    public void testDefaultStyle() throws Exception {
+        List<OsmPrimitive> primitives = new ArrayList<>(createPrimitives());
+        try (FileInputStream in = new FileInputStream("data_nodist/multipolygon.osm")) {
+            primitives.addAll(OsmReader.parseDataSet(in, null).allPrimitives());
+        }
+        MapCSSStyleSource source = new MapCSSStyleSource(new SourceEntry(SourceType.MAP_PAINT_STYLE,
+                "resource://styles/standard/elemstyles.mapcss", "default", "default style", true));
+        try {
+            MapCSSStyleSource.PROPERTY_COMPILE.put(false);
+            source.loadStyleSource();
+            assertTrue(source.getErrors().isEmpty());
+            String interpreted = applyStyle(source, primitives);
+            assertTrue(interpreted.contains("fill-color"));
+            MapCSSStyleSource.PROPERTY_COMPILE.put(true);
+            source.loadStyleSource();
+            assertEquals(interpreted, applyStyle(source, primitives));
+        } finally {
+            MapCSSStyleSource.PROPERTY_COMPILE.remove();
+        }
+    }
+}
@@ -2,6 +2,7 @@
 package org.openstreetmap.josm.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
@@ -10,13 +11,18 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 import org.xml.sax.SAXException;
@@ -77,6 +83,91 @@ public class GpxReaderTest {
         new GpxReader(new ByteArrayInputStream("--foo--bar--".getBytes(StandardCharsets.UTF_8))).parse(true);
     }
 
+    /**
+     * Tests the streaming mode, in which tracks are added in batches while parsing.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void testStreaming() throws Exception {
+        GpxData expected = parseGpxData("data_nodist/munich.gpx");
+        GpxData data = new GpxData();
+        AtomicInteger events = new AtomicInteger();
+        data.addChangeListener(e -> events.incrementAndGet());
+        List<Integer> trackCounts = new ArrayList<>();
+        try (FileInputStream in = new FileInputStream(new File("data_nodist/munich.gpx"))) {
+            GpxReader reader = new GpxReader(in);
+            reader.setStreaming(data, batch -> {
+                batch.run();
+                trackCounts.add(data.getTracks().size());
+            }, 0);
+            assertTrue(reader.parse(false));
+            assertSame(data, reader.getGpxData());
+        }
+        assertEquals(trackCounts.size(), events.get());
+        assertTrue(trackCounts.size() > 1);
+        assertEquals(Integer.valueOf(1), trackCounts.get(0));
+        assertEquals(new ArrayList<>(expected.getTracks()), new ArrayList<>(data.getTracks()));
+        assertEquals(new ArrayList<>(expected.getWaypoints()), new ArrayList<>(data.getWaypoints()));
+        assertEquals(expected.getString(GpxConstants.META_NAME), data.getString(GpxConstants.META_NAME));
+    }
+
+    /**
+     * Tests that each batch of the streaming mode only adds the track points parsed since the previous batch.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void testStreamingPartialTrack() throws Exception {
+        String gpx = "<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<gpx version=\"1.1\" creator=\"JOSM\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n"
+                + "<trk><trkseg>"
+                + "<trkpt lat=\"48.0\" lon=\"11.0\"/>"
+                + "<trkpt lat=\"48.1\" lon=\"11.0\"/>"
+                + "<trkpt lat=\"48.2\" lon=\"11.0\"/>"
+                + "</trkseg><trkseg>"
+                + "<trkpt lat=\"49.0\" lon=\"11.0\"/>"
+                + "<trkpt lat=\"49.1\" lon=\"11.0\"/>"
+                + "</trkseg></trk></gpx>";
+        GpxData data = new GpxData();
+        List<Integer> addedPoints = new ArrayList<>();
+        GpxReader reader = new GpxReader(new ByteArrayInputStream(gpx.getBytes(StandardCharsets.UTF_8)));
+        reader.setStreaming(data, batch -> {
+            batch.run();
+            GpxTrack newest = new ArrayList<>(data.getTracks()).get(data.getTracks().size() - 1);
+            addedPoints.add(newest.getSegments().stream().mapToInt(s -> s.getWayPoints().size()).sum());
+        }, 0);
+        assertTrue(reader.parse(false));
+        // each partial track has the new point and the previous point of the same segment, the whole track replaces them.
+        // The last batch adds the metadata
+        assertEquals(Arrays.asList(1, 2, 2, 1, 2, 5, 5), addedPoints);
+        assertEquals(1, data.getTracks().size());
+    }
+
+    /**
+     * Tests dropping close track points.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void testDecimation() throws Exception {
+        String gpx = "<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<gpx version=\"1.1\" creator=\"JOSM\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n"
+                + "<trk><trkseg>"
+                + "<trkpt lat=\"48.0\" lon=\"11.0\"/>"
+                + "<trkpt lat=\"48.00001\" lon=\"11.0\"/>"
+                + "<trkpt lat=\"48.001\" lon=\"11.0\"/>"
+                + "<trkpt lat=\"48.00101\" lon=\"11.0\"/>"
+                + "<trkpt lat=\"48.00102\" lon=\"11.0\"/>"
+                + "</trkseg></trk></gpx>";
+        GpxReader reader = new GpxReader(new ByteArrayInputStream(gpx.getBytes(StandardCharsets.UTF_8)));
+        reader.setDecimation(10);
+        assertTrue(reader.parse(false));
+        List<WayPoint> points = new ArrayList<>(reader.getGpxData().getTracks().iterator().next()
+                .getSegments().iterator().next().getWayPoints());
+        assertEquals(3, points.size());
+        assertEquals(new LatLon(48.0, 11.0), points.get(0).getCoor());
+        assertEquals(new LatLon(48.001, 11.0), points.get(1).getCoor());
+        assertEquals(new LatLon(48.00102, 11.0), points.get(2).getCoor());
+    }
+
     /**
      * Non-regression test for ticket <a href="https://josm.openstreetmap.de/ticket/15634">#15634</a>
      * @throws IOException if an error occurs during reading
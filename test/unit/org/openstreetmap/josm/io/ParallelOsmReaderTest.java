@@ -0,0 +1,161 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ParallelOsmReader} class.
+ */
+public class ParallelOsmReaderTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static String describe(OsmPrimitive p) {
+        // new primitives get a different unique id each time they are read
+        StringBuilder sb = new StringBuilder(p.getType().getAPIName()).append(p.isNew() ? "new" : Long.toString(p.getId()))
+                .append(p.getKeys()).append(p.isModified()).append(p.isDeleted()).append(p.isIncomplete());
+        if (p instanceof Node) {
+            sb.append(((Node) p).getCoor());
+        } else if (p instanceof Way) {
+            sb.append(((Way) p).getNodesCount());
+        } else {
+            sb.append(((Relation) p).getMembersCount());
+        }
+        return sb.toString();
+    }
+
+    private static void assertSameData(DataSet expected, DataSet actual) {
+        assertEquals(expected.allPrimitives().size(), actual.allPrimitives().size());
+        assertEquals(expected.getDataSources().size(), actual.getDataSources().size());
+        assertEquals(
+                expected.allPrimitives().stream().map(ParallelOsmReaderTest::describe).sorted().collect(Collectors.toList()),
+                actual.allPrimitives().stream().map(ParallelOsmReaderTest::describe).sorted().collect(Collectors.toList()));
+        for (OsmPrimitive p : expected.allPrimitives()) {
+            if (!p.isNew()) {
+                OsmPrimitive other = actual.getPrimitiveById(p);
+                assertNotNull(p.toString(), other);
+                assertTrue(p.toString(), p.hasEqualSemanticAttributes(other));
+                assertTrue(p.toString(), p.hasEqualTechnicalAttributes(other));
+            }
+        }
+    }
+
+    private static void testSameData(byte[] osm) throws Exception {
+        DataSet expected;
+        try (InputStream in = new ByteArrayInputStream(osm)) {
+            expected = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        try (InputStream in = new ByteArrayInputStream(osm)) {
+            assertSameData(expected, ParallelOsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE));
+        }
+    }
+
+    /**
+     * Checks that the same data is read as with {@link OsmReader} from test files.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testSameAsOsmReader() throws Exception {
+        for (String file : new String[] {"multipolygon.osm", "create_multipolygon.osm", "orthogonalize.osm"}) {
+            try (InputStream in = new FileInputStream(TestUtils.getTestDataRoot() + file)) {
+                testSameData(Utils.readBytesFromStream(in));
+            }
+        }
+    }
+
+    /**
+     * Checks that the same data is read as with {@link OsmReader} if there are many batches.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testManyBatches() throws Exception {
+        StringBuilder sb = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?><osm version='0.6'>");
+        sb.append("<bounds minlat='0' minlon='0' maxlat='1' maxlon='1'/>");
+        for (int i = 1; i <= 20_000; i++) {
+            sb.append("<node id='").append(i).append("' version='1' timestamp='2018-01-01T00:00:00Z' user='u' uid='1'")
+              .append(" lat='").append(i / 20_000.0).append("' lon='0.5'>");
+            if (i % 3 == 0) {
+                sb.append("<tag k='amenity' v='bench'/>");
+            }
+            sb.append("</node>");
+        }
+        for (int i = 1; i <= 5_000; i++) {
+            sb.append("<way id='").append(i).append("' version='2'><nd ref='").append(i).append("'/><nd ref='")
+              .append(i + 1).append("'/><nd ref='").append(i + 2).append("'/><tag k='highway' v='service'/></way>");
+        }
+        for (int i = 1; i <= 3_000; i++) {
+            sb.append("<relation id='").append(i).append("' version='1'><member type='way' ref='").append(i)
+              .append("' role='outer'/><member type='relation' ref='").append(10_000 + i).append("' role=''/></relation>");
+        }
+        sb.append("</osm>");
+        byte[] osm = sb.toString().getBytes(StandardCharsets.UTF_8);
+        testSameData(osm);
+
+        try (InputStream in = new ByteArrayInputStream(osm)) {
+            DataSet ds = ParallelOsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            Way w = (Way) ds.getPrimitiveById(5_000, OsmPrimitiveType.WAY);
+            assertEquals(3, w.getNodesCount());
+            assertEquals("service", w.get("highway"));
+            Relation r = (Relation) ds.getPrimitiveById(3_000, OsmPrimitiveType.RELATION);
+            assertEquals(ds.getPrimitiveById(3_000, OsmPrimitiveType.WAY), r.getMember(0).getMember());
+            assertTrue(r.getMember(1).getMember().isIncomplete());
+        }
+    }
+
+    private static void testInvalidData(String osm, String expectedError) throws Exception {
+        try (InputStream in = new ByteArrayInputStream(
+                ("<?xml version='1.0' encoding='UTF-8'?>" + osm).getBytes(StandardCharsets.UTF_8))) {
+            ParallelOsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            fail("should throw exception");
+        } catch (IllegalDataException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(expectedError));
+        }
+    }
+
+    /**
+     * Test invalid data, the error must be reported from the worker threads.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testInvalidData() throws Exception {
+        testInvalidData("<osm version='0.6'><node id='1' uid='nan'/></osm>",
+                "Illegal value for attribute 'uid'. Got 'nan'. (at line 1, column ");
+        testInvalidData("<osm version='0.6'><way id='1' version='1'><nd ref='0'/></way></osm>",
+                "Illegal value of attribute 'ref' of element <nd>. Got 0. (at line 1, column ");
+        testInvalidData("<osm version='0.6'><relation id='1' version='1'><member type='foo' ref='1'/></relation></osm>",
+                "Illegal value for attribute 'type' on member 1 in relation 1. Got foo. (at line 1, column ");
+        testInvalidData("<osm version='0.6'><node id='1' version='1'><tag k='foo'/></node></osm>",
+                "Missing key or value attribute in tag. (at line 1, column ");
+        testInvalidData("<osm version='0.6'><node id='1'/></osm>",
+                "Missing attribute 'version' on OSM primitive with ID 1. (at line 1, column ");
+    }
+}
@@ -0,0 +1,256 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link PbfReader} and {@link PbfWriter} classes.
+ */
+public class PbfReaderTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static byte[] write(DataSet ds) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PbfWriter writer = new PbfWriter(out)) {
+            writer.write(ds);
+        }
+        return out.toByteArray();
+    }
+
+    private static DataSet read(byte[] pbf) throws Exception {
+        try (InputStream in = new ByteArrayInputStream(pbf)) {
+            return PbfReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    private static boolean isWritten(OsmPrimitive p) {
+        return !p.isDeleted() && !p.isIncomplete() && (!(p instanceof Node) || ((Node) p).isLatLonKnown());
+    }
+
+    private static void assertSameData(DataSet expected, DataSet actual) {
+        assertEquals(expected.allPrimitives().stream().filter(PbfReaderTest::isWritten).count(),
+                actual.allPrimitives().stream().filter(p -> !p.isIncomplete()).count());
+        for (OsmPrimitive p : expected.allPrimitives()) {
+            if (p.isNew() || !isWritten(p)) {
+                continue;
+            }
+            OsmPrimitive other = actual.getPrimitiveById(p);
+            assertNotNull(p.toString(), other);
+            assertEquals(p.toString(), p.getKeys(), other.getKeys());
+            assertEquals(p.toString(), p.getVersion(), other.getVersion());
+            assertEquals(p.toString(), p.getRawTimestamp(), other.getRawTimestamp());
+            assertEquals(p.toString(), p.getChangesetId(), other.getChangesetId());
+            assertEquals(p.toString(), p.getUser(), other.getUser());
+            assertFalse(p.toString(), other.isModified());
+            if (p instanceof Node) {
+                assertTrue(p.toString(), ((Node) p).getCoor().equalsEpsilon(((Node) other).getCoor()));
+            } else if (p instanceof Way) {
+                assertEquals(p.toString(),
+                        ((Way) p).getNodes().stream().map(OsmPrimitive::getUniqueId).collect(Collectors.toList()),
+                        ((Way) other).getNodes().stream().map(OsmPrimitive::getUniqueId).collect(Collectors.toList()));
+            } else {
+                assertEquals(p.toString(), ((Relation) p).getMembersCount(), ((Relation) other).getMembersCount());
+                for (int i = 0; i < ((Relation) p).getMembersCount(); i++) {
+                    RelationMember m = ((Relation) p).getMember(i);
+                    RelationMember o = ((Relation) other).getMember(i);
+                    assertEquals(m.getRole(), o.getRole());
+                    assertEquals(m.getMember().getPrimitiveId(), o.getMember().getPrimitiveId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that test files are read back as they were written.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (String file : new String[] {"multipolygon.osm", "create_multipolygon.osm", "orthogonalize.osm"}) {
+            DataSet expected;
+            try (InputStream in = new FileInputStream(TestUtils.getTestDataRoot() + file)) {
+                expected = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            }
+            assertSameData(expected, read(write(expected)));
+        }
+    }
+
+    /**
+     * Checks a data set with several blocks of each type and a bounding box.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testManyBlocks() throws Exception {
+        DataSet expected = new DataSet();
+        expected.addDataSource(new DataSource(new Bounds(-10, -20, 30, 40), "test"));
+        User user = User.createOsmUser(1234, "tester");
+        for (int i = 1; i <= 20_000; i++) {
+            Node n = new Node(i, 3);
+            n.setCoor(new LatLon(-10 + i / 500.0, -20 + i / 333.0));
+            n.setUser(i % 2 == 0 ? user : null);
+            n.setRawTimestamp(1_500_000_000 + i);
+            n.setChangesetId(i / 10 + 1);
+            if (i % 3 == 0) {
+                n.put("amenity", "bench");
+                n.put("name", "Bench " + i);
+            }
+            expected.addPrimitive(n);
+        }
+        for (int i = 1; i <= 9_000; i++) {
+            Way w = new Way(i, 1);
+            w.setNodes(Arrays.asList((Node) expected.getPrimitiveById(i, OsmPrimitiveType.NODE),
+                    (Node) expected.getPrimitiveById(i + 2, OsmPrimitiveType.NODE),
+                    (Node) expected.getPrimitiveById(i + 1, OsmPrimitiveType.NODE)));
+            w.put("highway", "service");
+            expected.addPrimitive(w);
+        }
+        Node newNode = new Node(new LatLon(1, 2));
+        newNode.put("new", "yes");
+        expected.addPrimitive(newNode);
+
+        DataSet actual = read(write(expected));
+        assertSameData(expected, actual);
+        assertEquals(1, actual.getDataSources().size());
+        DataSource source = actual.getDataSources().iterator().next();
+        assertEquals("test", source.origin);
+        assertEquals(-10, source.bounds.getMinLat(), 1e-9);
+        assertEquals(-20, source.bounds.getMinLon(), 1e-9);
+        assertEquals(30, source.bounds.getMaxLat(), 1e-9);
+        assertEquals(40, source.bounds.getMaxLon(), 1e-9);
+        Node n = actual.getNodes().stream().filter(OsmPrimitive::isNew).findFirst().get();
+        assertEquals("yes", n.get("new"));
+        assertTrue(new LatLon(1, 2).equalsEpsilon(n.getCoor()));
+    }
+
+    private static byte[] blob(String type, ProtobufEncoder data) throws Exception {
+        ProtobufEncoder blob = new ProtobufEncoder();
+        blob.writeBytes(1, data.getBuffer(), data.size());
+        ProtobufEncoder header = new ProtobufEncoder();
+        header.writeString(1, type);
+        header.writeVarint(3, blob.size());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(header.size());
+        header.writeTo(dos);
+        blob.writeTo(dos);
+        return out.toByteArray();
+    }
+
+    private static byte[] file(String feature, ProtobufEncoder block) throws Exception {
+        ProtobufEncoder header = new ProtobufEncoder();
+        header.writeString(4, "OsmSchema-V0.6");
+        header.writeString(4, feature);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(blob("OSMHeader", header));
+        out.write(blob("OSMData", block));
+        return out.toByteArray();
+    }
+
+    /**
+     * Checks an uncompressed file with plain nodes, a custom granularity and without metadata.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testPlainNodesWithoutMetadata() throws Exception {
+        ProtobufEncoder strings = new ProtobufEncoder();
+        strings.writeString(1, "");
+        strings.writeString(1, "name");
+        strings.writeString(1, "Test");
+        ProtobufEncoder node = new ProtobufEncoder();
+        node.writeSignedVarint(1, 42);
+        ProtobufEncoder keys = new ProtobufEncoder();
+        keys.writeVarint(1);
+        node.writeMessage(2, keys);
+        ProtobufEncoder values = new ProtobufEncoder();
+        values.writeVarint(2);
+        node.writeMessage(3, values);
+        node.writeSignedVarint(8, 5_000);
+        node.writeSignedVarint(9, -1_000);
+        ProtobufEncoder group = new ProtobufEncoder();
+        group.writeMessage(1, node);
+        ProtobufEncoder block = new ProtobufEncoder();
+        block.writeMessage(1, strings);
+        block.writeMessage(2, group);
+        block.writeVarint(17, 1000);
+        block.writeVarint(19, 1_000_000_000);
+
+        DataSet ds = read(file("DenseNodes", block));
+        Node n = (Node) ds.getPrimitiveById(42, OsmPrimitiveType.NODE);
+        assertNotNull(n);
+        assertFalse(n.isIncomplete());
+        assertEquals(1, n.getVersion());
+        assertEquals("Test", n.get("name"));
+        assertTrue(new LatLon(1.005, -0.001).equalsEpsilon(n.getCoor()));
+
+        try {
+            read(file("HistoricalInformation", block));
+            fail("should throw exception");
+        } catch (IllegalDataException e) {
+            assertEquals("Unsupported PBF feature: HistoricalInformation", e.getMessage());
+        }
+    }
+
+    /**
+     * Checks the encoding of varints.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testVarints() throws Exception {
+        long[] values = {0, 1, -1, 127, 128, -129, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        ProtobufEncoder encoder = new ProtobufEncoder();
+        ProtobufEncoder packed = new ProtobufEncoder();
+        for (long value : values) {
+            encoder.writeVarint(1, value);
+            encoder.writeSignedVarint(2, value);
+            packed.writeVarint(value);
+        }
+        encoder.writeMessage(3, packed);
+        ProtobufDecoder decoder = new ProtobufDecoder(Arrays.copyOf(encoder.getBuffer(), encoder.size()));
+        for (long value : values) {
+            assertEquals(1, decoder.nextField());
+            assertEquals(value, decoder.readVarint());
+            assertEquals(2, decoder.nextField());
+            assertEquals(value, decoder.readSignedVarint());
+        }
+        assertEquals(3, decoder.nextField());
+        assertTrue(Arrays.equals(values, decoder.readVarints(new long[0])));
+        assertFalse(decoder.hasNext());
+    }
+}
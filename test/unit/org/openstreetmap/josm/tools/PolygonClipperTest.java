@@ -0,0 +1,197 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openstreetmap.josm.tools.Geometry.PolygonIntersection;
+import org.openstreetmap.josm.tools.PolygonClipper.Operation;
+import org.openstreetmap.josm.tools.PolygonClipper.Polygon;
+
+/**
+ * Unit tests of {@link PolygonClipper} class.
+ */
+public class PolygonClipperTest {
+
+    private static Path2D path(int windingRule, double... coords) {
+        Path2D path = new Path2D.Double(windingRule);
+        path.moveTo(coords[0], coords[1]);
+        for (int i = 2; i < coords.length; i += 2) {
+            path.lineTo(coords[i], coords[i + 1]);
+        }
+        path.closePath();
+        return path;
+    }
+
+    private static Path2D randomPath(Random random, int windingRule) {
+        Path2D path = new Path2D.Double(windingRule);
+        for (int ring = random.nextInt(3); ring >= 0; ring--) {
+            double cx = random.nextDouble() * 100;
+            double cy = random.nextDouble() * 100;
+            int n = 3 + random.nextInt(12);
+            for (int i = 0; i < n; i++) {
+                // on a grid, to have collinear and shared points
+                double x = Math.round(cx + (random.nextDouble() - 0.5) * 80);
+                double y = Math.round(cy + (random.nextDouble() - 0.5) * 80);
+                if (i == 0) {
+                    path.moveTo(x, y);
+                } else {
+                    path.lineTo(x, y);
+                }
+            }
+            path.closePath();
+        }
+        return path;
+    }
+
+    /**
+     * Computes the area of a shape made of simple rings, outer rings and holes having opposite orientations,
+     * like the ones returned by {@link Area}.
+     */
+    private static double area(Shape shape) {
+        double area = 0;
+        double[] c = new double[6];
+        double sx = 0;
+        double sy = 0;
+        double px = 0;
+        double py = 0;
+        for (PathIterator it = shape.getPathIterator(null); !it.isDone(); it.next()) {
+            switch (it.currentSegment(c)) {
+            case PathIterator.SEG_MOVETO:
+                sx = px = c[0];
+                sy = py = c[1];
+                break;
+            case PathIterator.SEG_LINETO:
+                area += px * c[1] - c[0] * py;
+                px = c[0];
+                py = c[1];
+                break;
+            case PathIterator.SEG_CLOSE:
+                area += px * sy - sx * py;
+                px = sx;
+                py = sy;
+                break;
+            default:
+                throw new IllegalArgumentException();
+            }
+        }
+        return Math.abs(area) / 2;
+    }
+
+    private static Area apply(Operation operation, Shape first, Shape second) {
+        Area area = new Area(first);
+        switch (operation) {
+        case INTERSECTION:
+            area.intersect(new Area(second));
+            break;
+        case UNION:
+            area.add(new Area(second));
+            break;
+        case DIFFERENCE:
+            area.subtract(new Area(second));
+            break;
+        default:
+            area.exclusiveOr(new Area(second));
+        }
+        return area;
+    }
+
+    /**
+     * Compares the results of the boolean operations with the ones of {@link Area} on random polygons.
+     */
+    @Test
+    public void testOperations() {
+        Random random = new Random(42);
+        PolygonClipper clipper = new PolygonClipper();
+        for (int run = 0; run < 500; run++) {
+            Path2D first = randomPath(random, run % 2 == 0 ? Path2D.WIND_EVEN_ODD : Path2D.WIND_NON_ZERO);
+            Path2D second = randomPath(random, run % 3 == 0 ? Path2D.WIND_EVEN_ODD : Path2D.WIND_NON_ZERO);
+            for (Operation operation : Operation.values()) {
+                double expected = area(apply(operation, first, second));
+                PolygonClipper.Result result = clipper.apply(operation, new Polygon(first), new Polygon(second));
+                String message = run + " " + operation;
+                assertEquals(message, expected, result.getArea(), 1e-6);
+                assertEquals(message, expected, area(result.toPath2D()), 1e-6);
+                assertEquals(message, expected == 0, result.isEmpty());
+            }
+        }
+    }
+
+    /**
+     * Compares {@link Polygon#contains} with {@link Area#contains}.
+     */
+    @Test
+    public void testContains() {
+        Random random = new Random(42);
+        for (int run = 0; run < 100; run++) {
+            Path2D path = randomPath(random, run % 2 == 0 ? Path2D.WIND_EVEN_ODD : Path2D.WIND_NON_ZERO);
+            Area area = new Area(path);
+            Polygon polygon = new Polygon(path);
+            for (int i = 0; i < 100; i++) {
+                // not on the grid, to avoid points on the boundary
+                double x = random.nextDouble() * 140 - 20 + 0.1;
+                double y = random.nextDouble() * 140 - 20 + 0.1;
+                assertEquals(run + " " + x + " " + y, area.contains(x, y), polygon.contains(x, y));
+            }
+        }
+    }
+
+    /**
+     * Tests {@link Geometry#polygonIntersection(Polygon, Polygon, double)}.
+     */
+    @Test
+    public void testPolygonIntersection() {
+        Polygon square = new Polygon(path(Path2D.WIND_NON_ZERO, 0, 0, 10, 0, 10, 10, 0, 10));
+        Polygon inner = new Polygon(path(Path2D.WIND_NON_ZERO, 0, 0, 5, 0, 5, 5, 0, 5));
+        Polygon crossing = new Polygon(path(Path2D.WIND_NON_ZERO, 5, 5, 15, 5, 15, 15, 5, 15));
+        Polygon touching = new Polygon(path(Path2D.WIND_NON_ZERO, 10, 0, 20, 0, 20, 10, 10, 10));
+        Polygon diagonal = new Polygon(path(Path2D.WIND_NON_ZERO, 0, 0, 10, 10, 0, 10));
+        Polygon far = new Polygon(path(Path2D.WIND_NON_ZERO, 100, 100, 110, 100, 110, 110));
+        Path2D withHole = path(Path2D.WIND_EVEN_ODD, 0, 0, 10, 0, 10, 10, 0, 10);
+        withHole.append(path(Path2D.WIND_EVEN_ODD, 2, 2, 8, 2, 8, 8, 2, 8), false);
+        Polygon frame = new Polygon(withHole);
+        Polygon inHole = new Polygon(path(Path2D.WIND_NON_ZERO, 3, 3, 7, 3, 7, 7, 3, 7));
+
+        assertEquals(PolygonIntersection.FIRST_INSIDE_SECOND, Geometry.polygonIntersection(inner, square));
+        assertEquals(PolygonIntersection.SECOND_INSIDE_FIRST, Geometry.polygonIntersection(square, inner));
+        assertEquals(PolygonIntersection.FIRST_INSIDE_SECOND, Geometry.polygonIntersection(square, square));
+        assertEquals(PolygonIntersection.SECOND_INSIDE_FIRST, Geometry.polygonIntersection(square, diagonal));
+        assertEquals(PolygonIntersection.CROSSING, Geometry.polygonIntersection(square, crossing));
+        assertEquals(PolygonIntersection.OUTSIDE, Geometry.polygonIntersection(square, touching));
+        assertEquals(PolygonIntersection.OUTSIDE, Geometry.polygonIntersection(square, far));
+        assertEquals(PolygonIntersection.OUTSIDE, Geometry.polygonIntersection(inHole, frame));
+        assertEquals(PolygonIntersection.CROSSING, Geometry.polygonIntersection(inner, frame));
+        assertEquals(PolygonIntersection.FIRST_INSIDE_SECOND, Geometry.polygonIntersection(inHole, square));
+        // tiny intersection below the threshold
+        Polygon corner = new Polygon(path(Path2D.WIND_NON_ZERO, 9.5, 9.5, 20, 9.5, 20, 20, 9.5, 20));
+        assertEquals(PolygonIntersection.CROSSING, Geometry.polygonIntersection(square, corner, 0.1));
+        assertEquals(PolygonIntersection.OUTSIDE, Geometry.polygonIntersection(square, corner, 1));
+    }
+
+    /**
+     * Tests the bounds and emptiness of polygons and results.
+     */
+    @Test
+    public void testBounds() {
+        Polygon triangle = new Polygon(new double[] {0, 0, 4, 0, 0, 2}, new int[] {3}, PathIterator.WIND_NON_ZERO);
+        assertEquals(new Rectangle2D.Double(0, 0, 4, 2), triangle.getBounds2D());
+        assertFalse(triangle.isEmpty());
+        Polygon empty = new Polygon(new double[0], new int[0], PathIterator.WIND_NON_ZERO);
+        assertTrue(empty.isEmpty());
+        assertTrue(empty.getBounds2D().isEmpty());
+
+        PolygonClipper.Result result = PolygonClipper.getInstance().apply(Operation.UNION, triangle, empty);
+        assertEquals(4, result.getArea(), 1e-12);
+        assertEquals(new Rectangle2D.Double(0, 0, 4, 2), result.getBounds2D());
+        assertTrue(PolygonClipper.getInstance().apply(Operation.INTERSECTION, triangle, empty).isEmpty());
+    }
+}